@@ -36,10 +36,15 @@ import org.apache.log4j.Logger;
 import voldemort.VoldemortException;
 import voldemort.cluster.Cluster;
 import voldemort.store.StoreDefinition;
+import voldemort.store.compress.CompressionStrategy;
+import voldemort.store.compress.CompressionStrategyFactory;
+import voldemort.store.readonly.IndexBloomFilter;
 import voldemort.store.readonly.ReadOnlyUtils;
 import voldemort.store.readonly.checksum.CheckSum;
 import voldemort.store.readonly.checksum.CheckSum.CheckSumType;
+import voldemort.store.readonly.chunk.CompressedDataFileChunk;
 import voldemort.store.readonly.mr.HadoopStoreBuilder;
+import voldemort.store.readonly.mr.HadoopStoreBuilderUtils;
 import voldemort.utils.ByteUtils;
 import voldemort.xml.ClusterMapper;
 import voldemort.xml.StoreDefinitionsMapper;
@@ -77,6 +82,8 @@ public class HadoopStoreWriter implements KeyValueWriter<BytesWritable, BytesWri
     private StoreDefinition storeDef;
     private boolean saveKeys;
     private boolean reducerPerBucket;
+    private int bloomFilterBitsPerKey;
+    private CompressionStrategy compressionStrategy;
 
     public Cluster getCluster() {
         checkNotNull(cluster);
@@ -127,6 +134,10 @@ public class HadoopStoreWriter implements KeyValueWriter<BytesWritable, BytesWri
                 throw new VoldemortException("num.chunks not specified in the job conf.");
             this.saveKeys = conf.getBoolean("save.keys", false);
             this.reducerPerBucket = conf.getBoolean("reducer.per.bucket", false);
+            this.bloomFilterBitsPerKey = this.saveKeys ? conf.getInt(HadoopStoreBuilder.BLOOM_FILTER_BITS_PER_KEY,
+                                                                     0) : 0;
+            if(this.saveKeys && this.storeDef.hasReadOnlyCompression())
+                this.compressionStrategy = new CompressionStrategyFactory().get(this.storeDef.getReadOnlyCompression());
             this.conf = job;
             this.position = 0;
             this.outputDir = job.get("final.output.dir");
@@ -357,11 +368,31 @@ public class HadoopStoreWriter implements KeyValueWriter<BytesWritable, BytesWri
         }
         outputFs.rename(taskIndexFileName, indexFile);
 
-        logger.info("Moving " + this.taskValueFileName + " to " + valueFile);
-        if(outputFs.exists(valueFile)) {
-            outputFs.delete(valueFile);
+        if(this.bloomFilterBitsPerKey > 0) {
+            Path bloomFile = new Path(nodeDir, fileNamePrefix + IndexBloomFilter.FILE_EXTENSION);
+            logger.info("Writing bloom filter of " + indexFile + " to " + bloomFile);
+            HadoopStoreBuilderUtils.writeBloomFilter(outputFs,
+                                                     indexFile,
+                                                     bloomFile,
+                                                     this.bloomFilterBitsPerKey,
+                                                     this.checkSumType);
+        }
+
+        if(this.compressionStrategy != null) {
+            logger.info("Compressing " + this.taskValueFileName + " to " + valueFile);
+            HadoopStoreBuilderUtils.writeCompressedDataFile(outputFs,
+                                                            this.taskValueFileName,
+                                                            valueFile,
+                                                            this.compressionStrategy,
+                                                            CompressedDataFileChunk.DEFAULT_BLOCK_SIZE,
+                                                            this.checkSumType);
+        } else {
+            logger.info("Moving " + this.taskValueFileName + " to " + valueFile);
+            if(outputFs.exists(valueFile)) {
+                outputFs.delete(valueFile);
+            }
+            outputFs.rename(this.taskValueFileName, valueFile);
         }
-        outputFs.rename(this.taskValueFileName, valueFile);
     }
 
 }
@@ -36,10 +36,15 @@ import org.apache.log4j.Logger;
 import voldemort.VoldemortException;
 import voldemort.cluster.Cluster;
 import voldemort.store.StoreDefinition;
+import voldemort.store.compress.CompressionStrategy;
+import voldemort.store.compress.CompressionStrategyFactory;
+import voldemort.store.readonly.IndexBloomFilter;
 import voldemort.store.readonly.ReadOnlyUtils;
 import voldemort.store.readonly.checksum.CheckSum;
 import voldemort.store.readonly.checksum.CheckSum.CheckSumType;
+import voldemort.store.readonly.chunk.CompressedDataFileChunk;
 import voldemort.store.readonly.mr.HadoopStoreBuilder;
+import voldemort.store.readonly.mr.HadoopStoreBuilderUtils;
 import voldemort.utils.ByteUtils;
 import voldemort.xml.ClusterMapper;
 import voldemort.xml.StoreDefinitionsMapper;
@@ -87,6 +92,10 @@ public class HadoopStoreWriterPerBucket implements KeyValueWriter<BytesWritable,
 
             this.saveKeys = conf.getBoolean("save.keys", false);
             this.reducerPerBucket = conf.getBoolean("reducer.per.bucket", false);
+            this.bloomFilterBitsPerKey = this.saveKeys ? conf.getInt(HadoopStoreBuilder.BLOOM_FILTER_BITS_PER_KEY,
+                                                                     0) : 0;
+            if(this.saveKeys && this.storeDef.hasReadOnlyCompression())
+                this.compressionStrategy = new CompressionStrategyFactory().get(this.storeDef.getReadOnlyCompression());
             this.conf = job;
             this.outputDir = job.get("final.output.dir");
             this.taskId = job.get("mapred.task.id");
@@ -335,11 +344,31 @@ public class HadoopStoreWriterPerBucket implements KeyValueWriter<BytesWritable,
             }
             fs.rename(taskIndexFileName[chunkId], indexFile);
 
-            logger.info("Moving " + this.taskValueFileName[chunkId] + " to " + valueFile);
-            if(outputFs.exists(valueFile)) {
-                outputFs.delete(valueFile);
+            if(this.bloomFilterBitsPerKey > 0) {
+                Path bloomFile = new Path(nodeDir, chunkFileName + IndexBloomFilter.FILE_EXTENSION);
+                logger.info("Writing bloom filter of " + indexFile + " to " + bloomFile);
+                HadoopStoreBuilderUtils.writeBloomFilter(outputFs,
+                                                         indexFile,
+                                                         bloomFile,
+                                                         this.bloomFilterBitsPerKey,
+                                                         this.checkSumType);
+            }
+
+            if(this.compressionStrategy != null) {
+                logger.info("Compressing " + this.taskValueFileName[chunkId] + " to " + valueFile);
+                HadoopStoreBuilderUtils.writeCompressedDataFile(fs,
+                                                                this.taskValueFileName[chunkId],
+                                                                valueFile,
+                                                                this.compressionStrategy,
+                                                                CompressedDataFileChunk.DEFAULT_BLOCK_SIZE,
+                                                                this.checkSumType);
+            } else {
+                logger.info("Moving " + this.taskValueFileName[chunkId] + " to " + valueFile);
+                if(outputFs.exists(valueFile)) {
+                    outputFs.delete(valueFile);
+                }
+                fs.rename(this.taskValueFileName[chunkId], valueFile);
             }
-            fs.rename(this.taskValueFileName[chunkId], valueFile);
 
         }
 
@@ -350,6 +379,8 @@ public class HadoopStoreWriterPerBucket implements KeyValueWriter<BytesWritable,
     private StoreDefinition storeDef;
     private boolean saveKeys;
     private boolean reducerPerBucket;
+    private int bloomFilterBitsPerKey;
+    private CompressionStrategy compressionStrategy;
 
     public Cluster getCluster() {
         checkNotNull(cluster);
@@ -18,14 +18,24 @@ package voldemort.store.readonly.fetcher;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.security.PrivilegedExceptionAction;
 import java.text.NumberFormat;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.ObjectName;
@@ -47,10 +57,12 @@ import voldemort.annotations.jmx.JmxGetter;
 import voldemort.server.VoldemortConfig;
 import voldemort.server.protocol.admin.AsyncOperationStatus;
 import voldemort.store.readonly.FileFetcher;
+import voldemort.store.readonly.IndexBloomFilter;
 import voldemort.store.readonly.ReadOnlyStorageMetadata;
 import voldemort.store.readonly.checksum.CheckSum;
 import voldemort.store.readonly.checksum.CheckSum.CheckSumType;
 import voldemort.utils.ByteUtils;
+import voldemort.utils.DaemonThreadFactory;
 import voldemort.utils.DynamicEventThrottler;
 import voldemort.utils.DynamicThrottleLimit;
 import voldemort.utils.EventThrottler;
@@ -58,6 +70,8 @@ import voldemort.utils.JmxUtils;
 import voldemort.utils.Time;
 import voldemort.utils.Utils;
 
+import com.google.common.collect.Lists;
+
 /*
  * A fetcher that fetches the store files from HDFS
  */
@@ -77,9 +91,17 @@ public class HdfsFetcher implements FileFetcher {
     private DynamicThrottleLimit globalThrottleLimit = null;
     private static final int NUM_RETRIES = 3;
     private VoldemortConfig voldemortConfig = null;
+    private int numParallelFiles = 1;
+    private boolean resumeEnabled = false;
 
     public static final String FS_DEFAULT_NAME = "fs.default.name";
 
+    /*
+     * Left in the version directory until a resumable fetch completes
+     */
+    public static final String INCOMPLETE_FETCH_MARKER = ".fetch.incomplete";
+    public static final String PARTIAL_FILE_SUFFIX = ".partial";
+
     /* Additional constructor invoked from ReadOnlyStoreManagementServlet */
     public HdfsFetcher(VoldemortConfig config) {
         this(null,
@@ -91,9 +113,12 @@ public class HdfsFetcher implements FileFetcher {
              config.getReadOnlyKerberosUser());
 
         this.voldemortConfig = config;
+        this.numParallelFiles = config.getReadOnlyFetcherParallelFiles();
+        this.resumeEnabled = config.isReadOnlyFetcherResumeEnabled();
 
         logger.info("Created hdfs fetcher with no dynamic throttler, buffer size " + bufferSize
-                    + ", reporting interval bytes " + reportingIntervalBytes);
+                    + ", reporting interval bytes " + reportingIntervalBytes
+                    + ", parallel files " + numParallelFiles);
     }
 
     public HdfsFetcher(VoldemortConfig config, DynamicThrottleLimit dynThrottleLimit) {
@@ -106,10 +131,12 @@ public class HdfsFetcher implements FileFetcher {
              config.getReadOnlyKerberosUser());
 
         this.voldemortConfig = config;
+        this.numParallelFiles = config.getReadOnlyFetcherParallelFiles();
+        this.resumeEnabled = config.isReadOnlyFetcherResumeEnabled();
 
         logger.info("Created hdfs fetcher with throttle rate " + dynThrottleLimit.getRate()
                     + ", buffer size " + bufferSize + ", reporting interval bytes "
-                    + reportingIntervalBytes);
+                    + reportingIntervalBytes + ", parallel files " + numParallelFiles);
     }
 
     public HdfsFetcher() {
@@ -284,8 +311,12 @@ public class HdfsFetcher implements FileFetcher {
             File destination = new File(destinationFile);
 
             if(destination.exists()) {
-                throw new VoldemortException("Version directory " + destination.getAbsolutePath()
-                                             + " already exists");
+                if(resumeEnabled && new File(destination, INCOMPLETE_FETCH_MARKER).exists())
+                    logger.info("Resuming incomplete fetch into " + destination.getAbsolutePath());
+                else
+                    throw new VoldemortException("Version directory "
+                                                 + destination.getAbsolutePath()
+                                                 + " already exists");
             }
 
             logger.info("Starting fetch for : " + sourceFileUrl);
@@ -318,10 +349,14 @@ public class HdfsFetcher implements FileFetcher {
         }
     }
 
+    @SuppressWarnings("unchecked")
     private boolean fetch(FileSystem fs, Path source, File dest, CopyStats stats)
             throws IOException {
         if(!fs.isFile(source)) {
             Utils.mkdirs(dest);
+            File incompleteMarker = new File(dest, INCOMPLETE_FETCH_MARKER);
+            if(resumeEnabled)
+                incompleteMarker.createNewFile();
             FileStatus[] statuses = fs.listStatus(source);
             if(statuses != null) {
                 // sort the files so that index files come last. Maybe
@@ -332,7 +367,8 @@ public class HdfsFetcher implements FileFetcher {
 
                 // Do a checksum of checksum - Similar to HDFS
                 CheckSum checkSumGenerator = null;
-                CheckSum fileCheckSumGenerator = null;
+                Map<String, Object> fileCheckSums = Collections.emptyMap();
+                List<FileStatus> storeFiles = Lists.newArrayList();
 
                 for(FileStatus status: statuses) {
 
@@ -346,7 +382,7 @@ public class HdfsFetcher implements FileFetcher {
                         logger.debug("Reading .metadata");
                         // Read metadata into local file
                         File copyLocation = new File(dest, status.getPath().getName());
-                        copyFileWithCheckSum(fs, status.getPath(), copyLocation, stats, null);
+                        copyFileWithCheckSum(fs, status.getPath(), copyLocation, stats, null, null);
 
                         // Open the local file to initialize checksum
                         ReadOnlyStorageMetadata metadata;
@@ -377,47 +413,66 @@ public class HdfsFetcher implements FileFetcher {
                             // Define the Global checksum generator
                             checkSumType = CheckSum.fromString(checkSumTypeString);
                             checkSumGenerator = CheckSum.getInstance(checkSumType);
+
+                            // Builds before per file checksums only have the
+                            // checksum of the whole version
+                            fileCheckSums = (Map<String, Object>) metadata.get(ReadOnlyStorageMetadata.FILE_CHECKSUMS,
+                                                                               Collections.emptyMap());
                         }
 
                     } else if(!status.getPath().getName().startsWith(".")) {
 
                         // Read other (.data , .index files)
-                        File copyLocation = new File(dest, status.getPath().getName());
-                        fileCheckSumGenerator = copyFileWithCheckSum(fs,
-                                                                     status.getPath(),
-                                                                     copyLocation,
-                                                                     stats,
-                                                                     checkSumType);
-
-                        if(fileCheckSumGenerator != null && checkSumGenerator != null) {
-                            byte[] checkSum = fileCheckSumGenerator.getCheckSum();
-                            if(logger.isDebugEnabled()) {
-                                logger.debug("Checksum for " + status.getPath() + " - "
-                                             + new String(Hex.encodeHex(checkSum)));
-                            }
-                            checkSumGenerator.update(checkSum);
-                        }
+                        storeFiles.add(status);
                     }
 
                 }
 
+                List<byte[]> fileCheckSumList = copyFilesWithCheckSum(fs,
+                                                                      storeFiles,
+                                                                      dest,
+                                                                      stats,
+                                                                      checkSumType,
+                                                                      fileCheckSums);
+                for(int i = 0; i < storeFiles.size(); i++) {
+                    byte[] checkSum = fileCheckSumList.get(i);
+                    if(checkSum != null && checkSumGenerator != null) {
+                        if(logger.isDebugEnabled()) {
+                            logger.debug("Checksum for " + storeFiles.get(i).getPath() + " - "
+                                         + new String(Hex.encodeHex(checkSum)));
+                        }
+                        checkSumGenerator.update(checkSum);
+                    }
+                }
+
                 logger.info("Completed reading all files from " + source.toString() + " to "
                             + dest.getAbsolutePath());
                 // Check checksum
+                boolean checkSumComparison = true;
                 if(checkSumType != CheckSumType.NONE) {
                     byte[] newCheckSum = checkSumGenerator.getCheckSum();
-                    boolean checkSumComparison = (ByteUtils.compare(newCheckSum, origCheckSum) == 0);
+                    checkSumComparison = (ByteUtils.compare(newCheckSum, origCheckSum) == 0);
 
                     logger.info("Checksum generated from streaming - "
                                 + new String(Hex.encodeHex(newCheckSum)));
                     logger.info("Checksum on file - " + new String(Hex.encodeHex(origCheckSum)));
                     logger.info("Check-sum verification - " + checkSumComparison);
-
-                    return checkSumComparison;
                 } else {
                     logger.info("No check-sum verification required");
-                    return true;
                 }
+
+                if(resumeEnabled) {
+                    if(checkSumComparison) {
+                        incompleteMarker.delete();
+                    } else if(fileCheckSums.isEmpty()) {
+                        // Without per file checksums there is no telling which
+                        // files do not match, so do not resume from any of them
+                        logger.info("Deleting " + dest.getAbsolutePath()
+                                    + " so that the next fetch starts over");
+                        Utils.rm(dest);
+                    }
+                }
+                return checkSumComparison;
             }
         }
         logger.error("Source " + source.toString() + " should be a directory");
@@ -425,26 +480,111 @@ public class HdfsFetcher implements FileFetcher {
 
     }
 
+    /**
+     * Copies the given files with <code>numParallelFiles</code> threads. The
+     * throttler of this fetcher is shared by all of them, so a fetch does not
+     * take more than its share of the throttle limit however many files it
+     * copies at once.
+     * 
+     * @return The checksums of the files, in the order of the files
+     */
+    private List<byte[]> copyFilesWithCheckSum(final FileSystem fs,
+                                               List<FileStatus> storeFiles,
+                                               final File dest,
+                                               final CopyStats stats,
+                                               final CheckSumType checkSumType,
+                                               final Map<String, Object> fileCheckSums)
+            throws IOException {
+        List<byte[]> fileCheckSumList = Lists.newArrayList();
+        if(numParallelFiles <= 1 || storeFiles.size() <= 1) {
+            for(FileStatus status: storeFiles)
+                fileCheckSumList.add(copyFileWithCheckSum(fs,
+                                                          status.getPath(),
+                                                          new File(dest, status.getPath().getName()),
+                                                          stats,
+                                                          checkSumType,
+                                                          (String) fileCheckSums.get(status.getPath()
+                                                                                           .getName())));
+            return fileCheckSumList;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numParallelFiles,
+                                                                         storeFiles.size()),
+                                                                new DaemonThreadFactory("hdfs-fetcher-"));
+        try {
+            List<Future<byte[]>> futures = Lists.newArrayList();
+            for(final FileStatus status: storeFiles) {
+                futures.add(executor.submit(new Callable<byte[]>() {
+
+                    public byte[] call() throws Exception {
+                        return copyFileWithCheckSum(fs,
+                                                    status.getPath(),
+                                                    new File(dest, status.getPath().getName()),
+                                                    stats,
+                                                    checkSumType,
+                                                    (String) fileCheckSums.get(status.getPath()
+                                                                                     .getName()));
+                    }
+                }));
+            }
+            for(Future<byte[]> future: futures) {
+                try {
+                    fileCheckSumList.add(future.get());
+                } catch(ExecutionException e) {
+                    if(e.getCause() instanceof IOException)
+                        throw (IOException) e.getCause();
+                    throw new VoldemortException(e.getCause());
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new VoldemortException("Interrupted while fetching " + dest, e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return fileCheckSumList;
+    }
+
     /**
      * Function to copy a file from the given filesystem with a checksum of type
      * 'checkSumType' computed and returned. In case an error occurs during such
-     * a copy, we do a retry for a maximum of NUM_RETRIES
+     * a copy, or the copy does not match the expected checksum, we do a retry
+     * for a maximum of NUM_RETRIES
      * 
      * @param fs Filesystem used to copy the file
      * @param source Source path of the file to copy
      * @param dest Destination path of the file on the local machine
      * @param stats Stats for measuring the transfer progress
      * @param checkSumType Type of the Checksum to be computed for this file
-     * @return A Checksum (generator) of type checkSumType which contains the
-     *         computed checksum of the copied file
+     * @param expectedCheckSum Hex checksum of the file from .metadata, or null
+     *        if the build did not record one
+     * @return The checksum of type checkSumType of the copied file
      * @throws IOException
      */
-    private CheckSum copyFileWithCheckSum(FileSystem fs,
-                                          Path source,
-                                          File dest,
-                                          CopyStats stats,
-                                          CheckSumType checkSumType) throws IOException {
+    private byte[] copyFileWithCheckSum(FileSystem fs,
+                                        Path source,
+                                        File dest,
+                                        CopyStats stats,
+                                        CheckSumType checkSumType,
+                                        String expectedCheckSum) throws IOException {
         CheckSum fileCheckSumGenerator = null;
+        byte[] checkSum = null;
+        if(resumeEnabled && dest.exists()) {
+            long length = fs.getFileStatus(source).getLen();
+            if(dest.length() == length) {
+                checkSum = checkSumLocalFile(dest, checkSumType);
+                if(checkSumMatches(checkSum, expectedCheckSum)) {
+                    logger.info("Reusing " + dest + " copied by an earlier fetch");
+                    stats.recordBytes(length);
+                    return checkSum;
+                }
+                logger.info("Copying " + dest + " again since it does not match its checksum");
+            }
+        }
+        // When resuming, only complete files are given their final name
+        File copyLocation = resumeEnabled ? new File(dest.getParentFile(), dest.getName()
+                                                                         + PARTIAL_FILE_SUFFIX)
+                                         : dest;
         logger.debug("Starting copy of " + source + " to " + dest);
         FSDataInputStream input = null;
         OutputStream output = null;
@@ -458,7 +598,7 @@ public class HdfsFetcher implements FileFetcher {
                 }
 
                 input = fs.open(source);
-                output = new BufferedOutputStream(new FileOutputStream(dest));
+                output = new BufferedOutputStream(new FileOutputStream(copyLocation));
                 byte[] buffer = new byte[bufferSize];
                 while(true) {
                     int read = input.read(buffer);
@@ -479,25 +619,23 @@ public class HdfsFetcher implements FileFetcher {
                     }
 
                     stats.recordBytes(read);
-                    if(stats.getBytesSinceLastReport() > reportingIntervalBytes) {
-                        NumberFormat format = NumberFormat.getNumberInstance();
-                        format.setMaximumFractionDigits(2);
-                        logger.info(stats.getTotalBytesCopied() / (1024 * 1024) + " MB copied at "
-                                    + format.format(stats.getBytesPerSecond() / (1024 * 1024))
-                                    + " MB/sec - " + format.format(stats.getPercentCopied())
-                                    + " % complete, destination:" + dest);
-                        if(this.status != null) {
-                            this.status.setStatus(stats.getTotalBytesCopied()
-                                                  / (1024 * 1024)
-                                                  + " MB copied at "
-                                                  + format.format(stats.getBytesPerSecond()
-                                                                  / (1024 * 1024)) + " MB/sec - "
-                                                  + format.format(stats.getPercentCopied())
-                                                  + " % complete, destination:" + dest);
-                        }
-                        stats.reset();
-                    }
+                    reportProgress(stats, dest);
                 }
+                output.close();
+
+                checkSum = null;
+                if(fileCheckSumGenerator != null)
+                    checkSum = fileCheckSumGenerator.getCheckSum();
+                if(!checkSumMatches(checkSum, expectedCheckSum)) {
+                    // Only this file is copied again, not the whole version
+                    copyLocation.delete();
+                    throw new IOException("Checksum of " + dest + " is "
+                                          + new String(Hex.encodeHex(checkSum))
+                                          + " but should be " + expectedCheckSum);
+                }
+
+                if(copyLocation != dest)
+                    Utils.move(copyLocation, dest);
                 logger.info("Completed copy of " + source + " to " + dest);
 
             } catch(IOException ioe) {
@@ -532,7 +670,65 @@ public class HdfsFetcher implements FileFetcher {
             }
             logger.debug("Completed copy of " + source + " to " + dest);
         }
-        return fileCheckSumGenerator;
+        return checkSum;
+    }
+
+    /*
+     * Files of builds without per file checksums are only verified as part of
+     * the whole version
+     */
+    private boolean checkSumMatches(byte[] checkSum, String expectedCheckSum) {
+        if(checkSum == null || expectedCheckSum == null)
+            return true;
+        return expectedCheckSum.equalsIgnoreCase(new String(Hex.encodeHex(checkSum)));
+    }
+
+    /*
+     * Reports the progress of the fetch every reportingIntervalBytes, from
+     * whichever copying thread crosses the interval
+     */
+    private void reportProgress(CopyStats stats, File dest) {
+        synchronized(stats) {
+            if(stats.getBytesSinceLastReport() > reportingIntervalBytes) {
+                NumberFormat format = NumberFormat.getNumberInstance();
+                format.setMaximumFractionDigits(2);
+                logger.info(stats.getTotalBytesCopied() / (1024 * 1024) + " MB copied at "
+                            + format.format(stats.getBytesPerSecond() / (1024 * 1024))
+                            + " MB/sec - " + format.format(stats.getPercentCopied())
+                            + " % complete, destination:" + dest);
+                if(this.status != null) {
+                    this.status.setStatus(stats.getTotalBytesCopied() / (1024 * 1024)
+                                          + " MB copied at "
+                                          + format.format(stats.getBytesPerSecond()
+                                                          / (1024 * 1024)) + " MB/sec - "
+                                          + format.format(stats.getPercentCopied())
+                                          + " % complete, destination:" + dest);
+                }
+                stats.reset();
+            }
+        }
+    }
+
+    /*
+     * Computes the checksum of a file copied by an earlier fetch, so that it
+     * is verified like the files copied now
+     */
+    private byte[] checkSumLocalFile(File file, CheckSumType checkSumType) throws IOException {
+        if(checkSumType == null)
+            return null;
+        CheckSum fileCheckSumGenerator = CheckSum.getInstance(checkSumType);
+        if(fileCheckSumGenerator == null)
+            return null;
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[bufferSize];
+            int read;
+            while((read = input.read(buffer)) >= 0)
+                fileCheckSumGenerator.update(buffer, 0, read);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+        return fileCheckSumGenerator.getCheckSum();
     }
 
     private long sizeOfPath(FileSystem fs, Path path) throws IOException {
@@ -565,12 +761,12 @@ public class HdfsFetcher implements FileFetcher {
             this.lastReportNs = System.nanoTime();
         }
 
-        public void recordBytes(long bytes) {
+        public synchronized void recordBytes(long bytes) {
             this.totalBytesCopied += bytes;
             this.bytesSinceLastReport += bytes;
         }
 
-        public void reset() {
+        public synchronized void reset() {
             this.bytesSinceLastReport = 0;
             this.lastReportNs = System.nanoTime();
         }
@@ -626,20 +822,39 @@ public class HdfsFetcher implements FileFetcher {
             if(f2.endsWith("metadata"))
                 return 1;
 
-            // if both same, lexicographically
-            if((f1.endsWith(".index") && f2.endsWith(".index"))
-               || (f1.endsWith(".data") && f2.endsWith(".data"))) {
+            // data, then bloom, then index files - if both same,
+            // lexicographically
+            int rank1 = rank(f1), rank2 = rank(f2);
+            if(rank1 == rank2) {
                 return f1.compareToIgnoreCase(f2);
             }
+            return rank1 < rank2 ? -1 : 1;
+        }
 
-            if(f1.endsWith(".index")) {
+        private int rank(String fileName) {
+            if(fileName.endsWith(".index"))
+                return 2;
+            if(fileName.endsWith(IndexBloomFilter.FILE_EXTENSION))
                 return 1;
-            } else {
-                return -1;
-            }
+            return 0;
         }
     }
 
+    /**
+     * @param numParallelFiles Number of files to copy concurrently
+     */
+    public void setNumParallelFiles(int numParallelFiles) {
+        this.numParallelFiles = numParallelFiles;
+    }
+
+    /**
+     * @param resumeEnabled Whether to keep the files copied by an interrupted
+     *        fetch of the same version
+     */
+    public void setResumeEnabled(boolean resumeEnabled) {
+        this.resumeEnabled = resumeEnabled;
+    }
+
     public void setAsyncOperationStatus(AsyncOperationStatus status) {
         this.status = status;
     }
@@ -21,12 +21,17 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.avro.Schema;
 import org.apache.avro.mapred.AvroJob;
 import org.apache.avro.mapred.AvroOutputFormat;
 import org.apache.avro.mapred.Pair;
 import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -51,6 +56,7 @@ import voldemort.VoldemortException;
 import voldemort.cluster.Cluster;
 import voldemort.cluster.Node;
 import voldemort.store.StoreDefinition;
+import voldemort.store.readonly.IndexBloomFilter;
 import voldemort.store.readonly.ReadOnlyStorageFormat;
 import voldemort.store.readonly.ReadOnlyStorageMetadata;
 import voldemort.store.readonly.checksum.CheckSum;
@@ -72,6 +78,13 @@ public class HadoopStoreBuilder {
     public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
     public static final short HADOOP_FILE_PERMISSION = 493;
 
+    /**
+     * Job configuration property which, if greater than 0 and keys are saved,
+     * builds a bloom filter per chunk with the given number of bits per key
+     * and the store in {@link ReadOnlyStorageFormat#READONLY_V3}
+     */
+    public static final String BLOOM_FILTER_BITS_PER_KEY = "bloom.filter.bits.per.key";
+
     private static final Logger logger = Logger.getLogger(HadoopStoreBuilder.class);
 
     private final Configuration config;
@@ -88,6 +101,7 @@ public class HadoopStoreBuilder {
     private boolean saveKeys = false;
     private boolean reducerPerBucket = false;
     private int numChunks = -1;
+    private Path baseOutputDir = null;
 
     private boolean isAvro;
 
@@ -307,6 +321,17 @@ public class HadoopStoreBuilder {
             throw new VoldemortException("Number of chunks should be greater than zero");
     }
 
+    /**
+     * Build a delta of an earlier build, which only ships the files that
+     * changed. Requires a checksum type, since files are compared by checksum.
+     * 
+     * @param baseOutputDir The output directory of the earlier build, or null
+     *        to build a full version
+     */
+    public void setBaseOutputDir(Path baseOutputDir) {
+        this.baseOutputDir = baseOutputDir;
+    }
+
     /**
      * Run the job
      */
@@ -458,13 +483,20 @@ public class HadoopStoreBuilder {
 
                 ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
 
-                if(saveKeys) {
+                if(saveKeys && conf.getInt(BLOOM_FILTER_BITS_PER_KEY, 0) > 0) {
+                    metadata.add(ReadOnlyStorageMetadata.FORMAT,
+                                 ReadOnlyStorageFormat.READONLY_V3.getCode());
+                } else if(saveKeys) {
                     metadata.add(ReadOnlyStorageMetadata.FORMAT,
                                  ReadOnlyStorageFormat.READONLY_V2.getCode());
                 } else {
                     metadata.add(ReadOnlyStorageMetadata.FORMAT,
                                  ReadOnlyStorageFormat.READONLY_V1.getCode());
                 }
+                if(saveKeys && storeDef.hasReadOnlyCompression()) {
+                    metadata.add(ReadOnlyStorageMetadata.COMPRESSION,
+                                 storeDef.getReadOnlyCompression().getType());
+                }
 
                 Path nodePath = new Path(outputDir.toString(), "node-" + node.getId());
 
@@ -492,15 +524,22 @@ public class HadoopStoreBuilder {
                     if(storeFiles != null && storeFiles.length > 0) {
                         Arrays.sort(storeFiles, new IndexFileLastComparator());
                         FSDataInputStream input = null;
+                        Map<String, String> fileCheckSums = new HashMap<String, String>();
+                        Map<String, byte[]> fileCheckSumBytes = new HashMap<String, byte[]>();
 
                         for(FileStatus file: storeFiles) {
+                            String fileName = file.getPath().getName();
+                            fileName = fileName.substring(0, fileName.length()
+                                                             - ".checksum".length());
                             try {
                                 input = outputFs.open(file.getPath());
                                 byte fileCheckSum[] = new byte[CheckSum.checkSumLength(this.checkSumType)];
                                 input.read(fileCheckSum);
                                 logger.debug("Checksum for file " + file.toString() + " - "
                                              + new String(Hex.encodeHex(fileCheckSum)));
-                                checkSumGenerator.update(fileCheckSum);
+                                fileCheckSums.put(fileName,
+                                                  new String(Hex.encodeHex(fileCheckSum)));
+                                fileCheckSumBytes.put(fileName, fileCheckSum);
                             } catch(Exception e) {
                                 logger.error("Error while reading checksum file " + e.getMessage(),
                                              e);
@@ -511,6 +550,26 @@ public class HadoopStoreBuilder {
                             outputFs.delete(file.getPath(), false);
                         }
 
+                        Set<String> unchangedFiles = Collections.emptySet();
+                        if(baseOutputDir != null) {
+                            unchangedFiles = removeUnchangedFiles(outputFs,
+                                                                  nodePath,
+                                                                  new Path(baseOutputDir,
+                                                                           "node-" + node.getId()),
+                                                                  metadata,
+                                                                  fileCheckSums);
+                        }
+
+                        // The checksum covers the files shipped
+                        for(FileStatus file: storeFiles) {
+                            String fileName = file.getPath().getName();
+                            fileName = fileName.substring(0, fileName.length()
+                                                             - ".checksum".length());
+                            if(fileCheckSumBytes.containsKey(fileName)
+                               && !unchangedFiles.contains(fileName))
+                                checkSumGenerator.update(fileCheckSumBytes.get(fileName));
+                        }
+
                         metadata.add(ReadOnlyStorageMetadata.CHECKSUM_TYPE,
                                      CheckSum.toString(checkSumType));
 
@@ -518,6 +577,7 @@ public class HadoopStoreBuilder {
                         logger.info("Checksum for node " + node.getId() + " - " + checkSum);
 
                         metadata.add(ReadOnlyStorageMetadata.CHECKSUM, checkSum);
+                        metadata.addFileChecksums(fileCheckSums);
                     }
                 }
 
@@ -550,6 +610,60 @@ public class HadoopStoreBuilder {
 
     }
 
+    /**
+     * Deletes the files of a node which have the same checksum in the output of
+     * the base build, and marks the metadata as a delta of the base version.
+     * Nothing is deleted if the base output can not serve as a base.
+     * 
+     * @return The names of the files deleted
+     */
+    Set<String> removeUnchangedFiles(FileSystem outputFs,
+                                     Path nodePath,
+                                     Path baseNodePath,
+                                     ReadOnlyStorageMetadata metadata,
+                                     Map<String, String> fileCheckSums)
+            throws IOException {
+        Path baseMetadataPath = new Path(baseNodePath, ".metadata");
+        if(!outputFs.exists(baseMetadataPath)) {
+            logger.info("No base version at " + baseNodePath + ", building a full version");
+            return Collections.emptySet();
+        }
+        FSDataInputStream input = outputFs.open(baseMetadataPath);
+        ReadOnlyStorageMetadata baseMetadata;
+        try {
+            baseMetadata = new ReadOnlyStorageMetadata(IOUtils.toString(input));
+        } finally {
+            input.close();
+        }
+
+        Object baseFileCheckSums = baseMetadata.get(ReadOnlyStorageMetadata.FILE_CHECKSUMS);
+        Object baseCheckSum = baseMetadata.get(ReadOnlyStorageMetadata.CHECKSUM);
+        if(!(baseFileCheckSums instanceof Map) || baseCheckSum == null
+           || !CheckSum.toString(checkSumType)
+                       .equals(baseMetadata.get(ReadOnlyStorageMetadata.CHECKSUM_TYPE))
+           || !metadata.get(ReadOnlyStorageMetadata.FORMAT)
+                       .equals(baseMetadata.get(ReadOnlyStorageMetadata.FORMAT))
+           || !String.valueOf(metadata.get(ReadOnlyStorageMetadata.COMPRESSION))
+                     .equals(String.valueOf(baseMetadata.get(ReadOnlyStorageMetadata.COMPRESSION)))) {
+            logger.info("Base version at " + baseNodePath
+                        + " has no file checksums or a different format, building a full version");
+            return Collections.emptySet();
+        }
+
+        Set<String> unchangedFiles = new HashSet<String>();
+        for(Map.Entry<String, String> entry: fileCheckSums.entrySet()) {
+            if(entry.getValue().equals(((Map<?, ?>) baseFileCheckSums).get(entry.getKey()))) {
+                outputFs.delete(new Path(nodePath, entry.getKey()), false);
+                unchangedFiles.add(entry.getKey());
+            }
+        }
+        metadata.add(ReadOnlyStorageMetadata.BASE_CHECKSUM, (String) baseCheckSum);
+        logger.info("Built delta of " + baseNodePath + " in " + nodePath + ", "
+                    + unchangedFiles.size() + " of " + fileCheckSums.size()
+                    + " files unchanged");
+        return unchangedFiles;
+    }
+
     /**
      * A comparator that sorts index files last. This is required to maintain
      * the order while calculating checksum
@@ -566,17 +680,21 @@ public class HadoopStoreBuilder {
 
             String f1 = fs1.getPath().getName(), f2 = fs2.getPath().getName();
 
-            // if both same, lexicographically
-            if((f1.contains(".index") && f2.contains(".index"))
-               || (f1.contains(".data") && f2.contains(".data"))) {
+            // data, then bloom, then index files - if both same,
+            // lexicographically
+            int rank1 = rank(f1), rank2 = rank(f2);
+            if(rank1 == rank2) {
                 return f1.compareToIgnoreCase(f2);
             }
+            return rank1 < rank2 ? -1 : 1;
+        }
 
-            if(f1.contains(".index")) {
+        private int rank(String fileName) {
+            if(fileName.contains(".index"))
+                return 2;
+            if(fileName.contains(IndexBloomFilter.FILE_EXTENSION))
                 return 1;
-            } else {
-                return -1;
-            }
+            return 0;
         }
     }
 
@@ -16,22 +16,32 @@
 
 package voldemort.store.readonly.mr;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.permission.FsPermission;
 
 import voldemort.VoldemortException;
+import voldemort.store.compress.CompressionStrategy;
+import voldemort.store.readonly.IndexBloomFilter;
 import voldemort.store.readonly.ReadOnlyStorageFormat;
 import voldemort.store.readonly.ReadOnlyUtils;
+import voldemort.store.readonly.chunk.CompressedDataFileChunk;
 import voldemort.store.readonly.chunk.DataFileChunk;
+import voldemort.store.readonly.checksum.CheckSum;
+import voldemort.store.readonly.checksum.CheckSum.CheckSumType;
 import voldemort.store.readonly.chunk.DataFileChunkSet;
 import voldemort.utils.ByteUtils;
 
@@ -72,6 +82,135 @@ public class HadoopStoreBuilderUtils {
         return new String(stream.toByteArray());
     }
 
+    /**
+     * Block compresses a data file into the layout read by
+     * {@link CompressedDataFileChunk}, replacing the checksum file of the data
+     * file if a checksum type is given
+     * 
+     * @param fs Underlying filesystem
+     * @param inputFile The uncompressed data file, deleted once compressed
+     * @param dataFile The compressed data file to write
+     * @param compressionStrategy The compression to use for every block
+     * @param blockSize Number of uncompressed bytes per block
+     * @param checkSumType The checksum type
+     * @throws IOException
+     */
+    public static void writeCompressedDataFile(FileSystem fs,
+                                               Path inputFile,
+                                               Path dataFile,
+                                               CompressionStrategy compressionStrategy,
+                                               int blockSize,
+                                               CheckSumType checkSumType) throws IOException {
+        final CheckSum checkSumDigest = CheckSum.getInstance(checkSumType);
+        if(checkSumType != CheckSumType.NONE && checkSumDigest == null)
+            throw new VoldemortException("Could not generate checksum digest for type "
+                                         + checkSumType);
+
+        if(fs.exists(dataFile)) {
+            fs.delete(dataFile, false);
+        }
+        FSDataInputStream input = fs.open(inputFile);
+        FSDataOutputStream output = fs.create(dataFile);
+        fs.setPermission(dataFile, new FsPermission(HadoopStoreBuilder.HADOOP_FILE_PERMISSION));
+
+        // Checksum the compressed bytes on their way out
+        OutputStream checkSummedOutput = new FilterOutputStream(output) {
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if(checkSumDigest != null)
+                    checkSumDigest.update(b, off, len);
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+        };
+        try {
+            CompressedDataFileChunk.compress(input,
+                                             new BufferedOutputStream(checkSummedOutput),
+                                             compressionStrategy,
+                                             blockSize);
+        } finally {
+            input.close();
+            output.close();
+        }
+        fs.delete(inputFile, false);
+
+        if(checkSumDigest != null) {
+            Path checkSumFile = new Path(dataFile.getParent(), dataFile.getName() + ".checksum");
+            if(fs.exists(checkSumFile)) {
+                fs.delete(checkSumFile, false);
+            }
+            output = fs.create(checkSumFile);
+            fs.setPermission(checkSumFile,
+                             new FsPermission(HadoopStoreBuilder.HADOOP_FILE_PERMISSION));
+            output.write(checkSumDigest.getCheckSum());
+            output.close();
+        }
+    }
+
+    /**
+     * Builds the {@link IndexBloomFilter} of a
+     * {@link ReadOnlyStorageFormat#READONLY_V3} index file and writes it out
+     * next to it, along with its checksum file if a checksum type is given
+     * 
+     * @param fs Underlying filesystem
+     * @param indexFile The index file to build the filter from
+     * @param bloomFile The bloom filter file to write
+     * @param bitsPerKey Number of bits to use per key
+     * @param checkSumType The checksum type
+     * @throws IOException
+     */
+    public static void writeBloomFilter(FileSystem fs,
+                                        Path indexFile,
+                                        Path bloomFile,
+                                        int bitsPerKey,
+                                        CheckSumType checkSumType) throws IOException {
+        IndexBloomFilter bloomFilter = null;
+        FSDataInputStream input = fs.open(indexFile);
+        try {
+            bloomFilter = IndexBloomFilter.fromIndex(input,
+                                                     fs.getFileStatus(indexFile).getLen(),
+                                                     2 * ByteUtils.SIZE_OF_INT,
+                                                     bitsPerKey);
+        } finally {
+            input.close();
+        }
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        bloomFilter.writeTo(stream);
+        byte[] bloomBytes = stream.toByteArray();
+
+        if(fs.exists(bloomFile)) {
+            fs.delete(bloomFile, false);
+        }
+        FSDataOutputStream output = fs.create(bloomFile);
+        fs.setPermission(bloomFile, new FsPermission(HadoopStoreBuilder.HADOOP_FILE_PERMISSION));
+        output.write(bloomBytes);
+        output.close();
+
+        if(checkSumType != CheckSumType.NONE) {
+            CheckSum checkSumDigest = CheckSum.getInstance(checkSumType);
+            if(checkSumDigest == null)
+                throw new VoldemortException("Could not generate checksum digest for type "
+                                             + checkSumType);
+            checkSumDigest.update(bloomBytes);
+
+            Path checkSumFile = new Path(bloomFile.getParent(), bloomFile.getName() + ".checksum");
+            if(fs.exists(checkSumFile)) {
+                fs.delete(checkSumFile, false);
+            }
+            output = fs.create(checkSumFile);
+            fs.setPermission(checkSumFile,
+                             new FsPermission(HadoopStoreBuilder.HADOOP_FILE_PERMISSION));
+            output.write(checkSumDigest.getCheckSum());
+            output.close();
+        }
+    }
+
     /**
      * Given a filesystem and path to a node, gets all the data files (
      * irrespective of partition, replica, etc )
@@ -92,6 +92,9 @@ public class HadoopStoreJobRunner extends Configured implements Tool {
         parser.accepts("force-overwrite", "deletes final output directory if present.");
         parser.accepts("save-keys", "save the keys in the data file");
         parser.accepts("reducer-per-bucket", "run single reducer per bucket");
+        parser.accepts("base-output",
+                       "output directory of an earlier build; only ship the files that changed since. Requires --checksum")
+              .withRequiredArg();
         parser.accepts("help", "print usage information");
         return parser;
     }
@@ -197,6 +200,8 @@ public class HadoopStoreJobRunner extends Configured implements Tool {
                                                             checkSumType,
                                                             saveKeys,
                                                             reducerPerBucket);
+        if(options.has("base-output"))
+            builder.setBaseOutputDir(new Path((String) options.valueOf("base-output")));
 
         builder.build();
         return 0;
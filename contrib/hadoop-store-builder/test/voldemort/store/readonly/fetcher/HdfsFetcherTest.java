@@ -17,6 +17,9 @@
 package voldemort.store.readonly.fetcher;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
@@ -135,6 +138,124 @@ public class HdfsFetcherTest extends TestCase {
                                                     + "8");
     }
 
+    public void testParallelFetchAndResume() throws Exception {
+        File testSourceDirectory = TestUtils.createTempDir();
+        File testDestinationDirectory = TestUtils.createTempDir();
+        for(int chunk = 0; chunk < 5; chunk++) {
+            FileUtils.writeByteArrayToFile(new File(testSourceDirectory, "0_" + chunk + ".index"),
+                                           TestUtils.randomBytes(100 * (chunk + 1)));
+            FileUtils.writeByteArrayToFile(new File(testSourceDirectory, "0_" + chunk + ".data"),
+                                           TestUtils.randomBytes(400 * (chunk + 1)));
+        }
+        ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
+        metadata.add(ReadOnlyStorageMetadata.FORMAT, ReadOnlyStorageFormat.READONLY_V2.getCode());
+        metadata.add(ReadOnlyStorageMetadata.CHECKSUM_TYPE, CheckSum.toString(CheckSumType.MD5));
+        metadata.add(ReadOnlyStorageMetadata.CHECKSUM,
+                     new String(Hex.encodeHex(CheckSumTests.calculateCheckSum(testSourceDirectory.listFiles(),
+                                                                              CheckSumType.MD5))));
+        FileUtils.writeStringToFile(new File(testSourceDirectory, ".metadata"),
+                                    metadata.toJsonString());
+
+        HdfsFetcher fetcher = new HdfsFetcher();
+        fetcher.setNumParallelFiles(4);
+        File fetchedFile = fetcher.fetch(testSourceDirectory.getAbsolutePath(),
+                                         testDestinationDirectory.getAbsolutePath() + "1");
+        assertNotNull(fetchedFile);
+        assertSameFiles(testSourceDirectory, fetchedFile);
+
+        // An interrupted fetch left a complete file, a truncated file and a
+        // partial copy behind
+        File resumed = new File(testDestinationDirectory.getAbsolutePath() + "2");
+        resumed.mkdirs();
+        new File(resumed, HdfsFetcher.INCOMPLETE_FETCH_MARKER).createNewFile();
+        FileUtils.copyFile(new File(testSourceDirectory, "0_0.data"), new File(resumed, "0_0.data"));
+        FileUtils.writeByteArrayToFile(new File(resumed, "0_1.data"), TestUtils.randomBytes(10));
+        FileUtils.writeByteArrayToFile(new File(resumed, "0_2.data"
+                                                         + HdfsFetcher.PARTIAL_FILE_SUFFIX),
+                                       TestUtils.randomBytes(10));
+        try {
+            fetcher.fetch(testSourceDirectory.getAbsolutePath(), resumed.getAbsolutePath());
+            fail("Should have thrown an exception since resume is not enabled");
+        } catch(VoldemortException e) {}
+
+        fetcher.setResumeEnabled(true);
+        fetchedFile = fetcher.fetch(testSourceDirectory.getAbsolutePath(),
+                                    resumed.getAbsolutePath());
+        assertNotNull(fetchedFile);
+        assertFalse(new File(resumed, HdfsFetcher.INCOMPLETE_FETCH_MARKER).exists());
+        assertSameFiles(testSourceDirectory, fetchedFile);
+
+        // Completed versions are never resumed
+        try {
+            fetcher.fetch(testSourceDirectory.getAbsolutePath(), resumed.getAbsolutePath());
+            fail("Should have thrown an exception since the version is complete");
+        } catch(VoldemortException e) {}
+    }
+
+    public void testResumeWithFileCheckSums() throws Exception {
+        File testSourceDirectory = TestUtils.createTempDir();
+        File testDestinationDirectory = TestUtils.createTempDir();
+        for(int chunk = 0; chunk < 3; chunk++) {
+            FileUtils.writeByteArrayToFile(new File(testSourceDirectory, "0_" + chunk + ".index"),
+                                           TestUtils.randomBytes(100 * (chunk + 1)));
+            FileUtils.writeByteArrayToFile(new File(testSourceDirectory, "0_" + chunk + ".data"),
+                                           TestUtils.randomBytes(400 * (chunk + 1)));
+        }
+        Map<String, String> fileCheckSums = new HashMap<String, String>();
+        for(File file: testSourceDirectory.listFiles()) {
+            CheckSum fileCheckSumGenerator = CheckSum.getInstance(CheckSumType.MD5);
+            fileCheckSumGenerator.update(FileUtils.readFileToByteArray(file));
+            fileCheckSums.put(file.getName(),
+                              new String(Hex.encodeHex(fileCheckSumGenerator.getCheckSum())));
+        }
+        ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
+        metadata.add(ReadOnlyStorageMetadata.FORMAT, ReadOnlyStorageFormat.READONLY_V2.getCode());
+        metadata.add(ReadOnlyStorageMetadata.CHECKSUM_TYPE, CheckSum.toString(CheckSumType.MD5));
+        metadata.add(ReadOnlyStorageMetadata.CHECKSUM,
+                     new String(Hex.encodeHex(CheckSumTests.calculateCheckSum(testSourceDirectory.listFiles(),
+                                                                              CheckSumType.MD5))));
+        metadata.addFileChecksums(fileCheckSums);
+        FileUtils.writeStringToFile(new File(testSourceDirectory, ".metadata"),
+                                    metadata.toJsonString());
+
+        HdfsFetcher fetcher = new HdfsFetcher();
+        fetcher.setResumeEnabled(true);
+
+        // A file of the right length but the wrong content is copied again
+        File resumed = new File(testDestinationDirectory.getAbsolutePath() + "1");
+        resumed.mkdirs();
+        new File(resumed, HdfsFetcher.INCOMPLETE_FETCH_MARKER).createNewFile();
+        FileUtils.copyFile(new File(testSourceDirectory, "0_0.data"), new File(resumed, "0_0.data"));
+        FileUtils.writeByteArrayToFile(new File(resumed, "0_1.data"), TestUtils.randomBytes(800));
+        File fetchedFile = fetcher.fetch(testSourceDirectory.getAbsolutePath(),
+                                         resumed.getAbsolutePath());
+        assertNotNull(fetchedFile);
+        assertFalse(new File(resumed, HdfsFetcher.INCOMPLETE_FETCH_MARKER).exists());
+        assertSameFiles(testSourceDirectory, fetchedFile);
+
+        // A source file which never matches fails the fetch, but only that
+        // file has to be copied by the next one
+        FileUtils.writeByteArrayToFile(new File(testSourceDirectory, "0_2.index"),
+                                       TestUtils.randomBytes(300));
+        File failed = new File(testDestinationDirectory.getAbsolutePath() + "2");
+        try {
+            fetcher.fetch(testSourceDirectory.getAbsolutePath(), failed.getAbsolutePath());
+            fail("Should have thrown an exception since 0_2.index does not match its checksum");
+        } catch(VoldemortException e) {}
+        assertTrue(new File(failed, HdfsFetcher.INCOMPLETE_FETCH_MARKER).exists());
+        assertFalse(new File(failed, "0_2.index").exists());
+        assertFalse(new File(failed, "0_2.index" + HdfsFetcher.PARTIAL_FILE_SUFFIX).exists());
+        for(String fileName: Arrays.asList("0_0.data", "0_1.data", "0_2.data", "0_0.index"))
+            assertTrue(FileUtils.contentEquals(new File(testSourceDirectory, fileName),
+                                               new File(failed, fileName)));
+    }
+
+    private void assertSameFiles(File expectedDirectory, File directory) throws Exception {
+        assertEquals(expectedDirectory.listFiles().length, directory.listFiles().length);
+        for(File expected: expectedDirectory.listFiles())
+            assertTrue(FileUtils.contentEquals(expected, new File(directory, expected.getName())));
+    }
+
     public void testFetch() throws Exception {
         // Tests kept for backwards compatibility
 
@@ -24,10 +24,12 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
@@ -68,6 +70,8 @@ import voldemort.utils.ClosableIterator;
 import voldemort.utils.Pair;
 import voldemort.versioning.Versioned;
 
+import com.google.common.collect.Sets;
+
 /**
  * Unit test to check Read-Only Batch Indexer <strong>in Local mode numReduce
  * will be only one hence we will see only one node files irrespective of
@@ -177,6 +181,90 @@ public class HadoopStoreBuilderTest {
         }
     }
 
+    /**
+     * A delta build drops exactly the files whose checksums match those of the
+     * base version
+     */
+    @Test
+    public void testRemoveUnchangedFiles() throws Exception {
+        File testDir = TestUtils.createTempDir();
+        File baseNodeDir = new File(testDir, "base/node-0");
+        File nodeDir = new File(testDir, "output/node-0");
+        Assert.assertTrue(baseNodeDir.mkdirs());
+        Assert.assertTrue(nodeDir.mkdirs());
+
+        Map<String, String> baseFileCheckSums = new HashMap<String, String>();
+        baseFileCheckSums.put("0_0_0.data", "aa");
+        baseFileCheckSums.put("0_0_0.index", "bb");
+        baseFileCheckSums.put("1_0_0.data", "cc");
+        ReadOnlyStorageMetadata baseMetadata = new ReadOnlyStorageMetadata();
+        baseMetadata.add(ReadOnlyStorageMetadata.FORMAT, ReadOnlyStorageFormat.READONLY_V2.getCode());
+        baseMetadata.add(ReadOnlyStorageMetadata.CHECKSUM_TYPE, CheckSum.toString(CheckSumType.MD5));
+        baseMetadata.add(ReadOnlyStorageMetadata.CHECKSUM, "1234");
+        baseMetadata.addFileChecksums(baseFileCheckSums);
+        FileUtils.writeStringToFile(new File(baseNodeDir, ".metadata"), baseMetadata.toJsonString());
+
+        // one file changed, one is new
+        Map<String, String> fileCheckSums = new HashMap<String, String>(baseFileCheckSums);
+        fileCheckSums.put("0_0_0.index", "dd");
+        fileCheckSums.put("1_0_0.index", "ee");
+        for(String fileName: fileCheckSums.keySet())
+            FileUtils.writeStringToFile(new File(nodeDir, fileName), fileName);
+
+        SerializerDefinition serDef = new SerializerDefinition("string");
+        StoreDefinition def = new StoreDefinitionBuilder().setName("test")
+                                                          .setType(ReadOnlyStorageConfiguration.TYPE_NAME)
+                                                          .setKeySerializer(serDef)
+                                                          .setValueSerializer(serDef)
+                                                          .setRoutingPolicy(RoutingTier.CLIENT)
+                                                          .setRoutingStrategyType(RoutingStrategyType.CONSISTENT_STRATEGY)
+                                                          .setReplicationFactor(1)
+                                                          .setPreferredReads(1)
+                                                          .setRequiredReads(1)
+                                                          .setPreferredWrites(1)
+                                                          .setRequiredWrites(1)
+                                                          .build();
+        HadoopStoreBuilder builder = new HadoopStoreBuilder(new Configuration(),
+                                                            TextStoreMapper.class,
+                                                            TextInputFormat.class,
+                                                            ServerTestUtils.getLocalCluster(1),
+                                                            def,
+                                                            64 * 1024,
+                                                            new Path(testDir.getAbsolutePath(),
+                                                                     "temp"),
+                                                            new Path(nodeDir.getParent()),
+                                                            new Path(testDir.getAbsolutePath(),
+                                                                     "input"),
+                                                            CheckSumType.MD5,
+                                                            saveKeys,
+                                                            false);
+        FileSystem fs = FileSystem.getLocal(new Configuration());
+
+        // a base of another format can not serve as a base
+        ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
+        metadata.add(ReadOnlyStorageMetadata.FORMAT, ReadOnlyStorageFormat.READONLY_V1.getCode());
+        Assert.assertTrue(builder.removeUnchangedFiles(fs,
+                                                       new Path(nodeDir.getAbsolutePath()),
+                                                       new Path(baseNodeDir.getAbsolutePath()),
+                                                       metadata,
+                                                       fileCheckSums).isEmpty());
+        Assert.assertNull(metadata.get(ReadOnlyStorageMetadata.BASE_CHECKSUM));
+        Assert.assertEquals(fileCheckSums.size(), nodeDir.listFiles().length);
+
+        metadata.add(ReadOnlyStorageMetadata.FORMAT, ReadOnlyStorageFormat.READONLY_V2.getCode());
+        Set<String> removed = builder.removeUnchangedFiles(fs,
+                                                           new Path(nodeDir.getAbsolutePath()),
+                                                           new Path(baseNodeDir.getAbsolutePath()),
+                                                           metadata,
+                                                           fileCheckSums);
+        Assert.assertEquals(Sets.newHashSet("0_0_0.data", "1_0_0.data"), removed);
+        for(String fileName: fileCheckSums.keySet())
+            Assert.assertEquals(fileName,
+                                !removed.contains(fileName),
+                                new File(nodeDir, fileName).exists());
+        Assert.assertEquals("1234", metadata.get(ReadOnlyStorageMetadata.BASE_CHECKSUM));
+    }
+
     @Test
     public void testHadoopBuild() throws Exception {
         // create test data
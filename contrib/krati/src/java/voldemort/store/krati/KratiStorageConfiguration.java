@@ -74,4 +74,6 @@ public class KratiStorageConfiguration implements StorageConfiguration {
         throw new VoldemortException("Storage config updates not permitted for "
                                      + this.getClass().getCanonicalName());
     }
+
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine) {}
 }
@@ -124,7 +124,10 @@ public abstract class AbstractStoreClientFactory implements StoreClientFactory {
         this.clientContextName = config.getClientContextName();
         this.routedStoreFactory = new RoutedStoreFactory(config.isPipelineRoutedStoreEnabled(),
                                                          threadPool,
-                                                         config.getTimeoutConfig());
+                                                         config.getTimeoutConfig(),
+                                                         config.getHintWriterConfig(),
+                                                         config.getReadHedgingConfig(),
+                                                         config.isLatencyAwareReadsEnabled());
 
         this.clientSequencer = new AtomicInteger(0);
         this.clientAsyncServiceRepo = new HashSet<SchedulerService>();
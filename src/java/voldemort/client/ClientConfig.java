@@ -36,6 +36,8 @@ import voldemort.cluster.failuredetector.ThresholdFailureDetector;
 import voldemort.common.VoldemortOpCode;
 import voldemort.serialization.DefaultSerializerFactory;
 import voldemort.serialization.SerializerFactory;
+import voldemort.store.routed.ReadHedgingConfig;
+import voldemort.store.slop.HintWriterConfig;
 import voldemort.utils.ConfigurationException;
 import voldemort.utils.Props;
 import voldemort.utils.ReflectUtils;
@@ -106,6 +108,19 @@ public class ClientConfig {
     private volatile int clientRegistryRefreshIntervalInSecs = 3600 * 12;
     private volatile int asyncJobThreadPoolSize = 2;
 
+    /* Hinted handoff batching parameters */
+    private volatile int hintBatchSize = 0;
+    private volatile int hintBufferSize = 10000;
+    private volatile long hintFlushIntervalMs = 10;
+    private volatile HintWriterConfig.Durability hintDurability = HintWriterConfig.Durability.ASYNC;
+    private volatile HintWriterConfig.OverflowPolicy hintOverflowPolicy = HintWriterConfig.OverflowPolicy.SEND_DIRECT;
+
+    /* Read hedging parameters */
+    private volatile int hedgedReadsBudgetPercent = 0;
+    private volatile double hedgedReadsLatencyQuantile = 0.95;
+
+    private volatile boolean enableLatencyAwareReads = false;
+
     /* SystemStore client config */
     private volatile int sysMaxConnectionsPerNode = 2;
     private volatile int sysRoutingTimeoutMs = 5000;
@@ -164,6 +179,14 @@ public class ClientConfig {
     public static final String USE_DEFAULT_CLIENT = "use_default_client";
     public static final String CLIENT_REGISTRY_REFRESH_INTERVAL = "client_registry_refresh_interval_seconds";
     public static final String ASYNC_JOB_THREAD_POOL_SIZE = "async_job_thread_pool_size";
+    public static final String HINT_BATCH_SIZE = "hint_batch_size";
+    public static final String HINT_BUFFER_SIZE = "hint_buffer_size";
+    public static final String HINT_FLUSH_INTERVAL_MS = "hint_flush_interval_ms";
+    public static final String HINT_DURABILITY = "hint_durability";
+    public static final String HINT_OVERFLOW_POLICY = "hint_overflow_policy";
+    public static final String HEDGED_READS_BUDGET_PERCENT = "hedged_reads_budget_percent";
+    public static final String HEDGED_READS_LATENCY_QUANTILE = "hedged_reads_latency_quantile";
+    public static final String ENABLE_LATENCY_AWARE_READS = "enable_latency_aware_reads";
     public static final String SYS_MAX_CONNECTIONS_PER_NODE = "sys_max_connections_per_node";
     public static final String SYS_ROUTING_TIMEOUT_MS = "sys_routing_timeout_ms";
     public static final String SYS_CONNECTION_TIMEOUT_MS = "sys_connection_timeout_ms";
@@ -354,6 +377,40 @@ public class ClientConfig {
             this.setAsyncJobThreadPoolSize(props.getInt(ASYNC_JOB_THREAD_POOL_SIZE));
         }
 
+        if(props.containsKey(HINT_BATCH_SIZE)) {
+            this.setHintBatchSize(props.getInt(HINT_BATCH_SIZE));
+        }
+
+        if(props.containsKey(HINT_BUFFER_SIZE)) {
+            this.setHintBufferSize(props.getInt(HINT_BUFFER_SIZE));
+        }
+
+        if(props.containsKey(HINT_FLUSH_INTERVAL_MS)) {
+            this.setHintFlushInterval(props.getLong(HINT_FLUSH_INTERVAL_MS), TimeUnit.MILLISECONDS);
+        }
+
+        if(props.containsKey(HINT_DURABILITY)) {
+            this.setHintDurability(HintWriterConfig.Durability.valueOf(props.getString(HINT_DURABILITY)
+                                                                            .toUpperCase()));
+        }
+
+        if(props.containsKey(HINT_OVERFLOW_POLICY)) {
+            this.setHintOverflowPolicy(HintWriterConfig.OverflowPolicy.valueOf(props.getString(HINT_OVERFLOW_POLICY)
+                                                                                    .toUpperCase()));
+        }
+
+        if(props.containsKey(HEDGED_READS_BUDGET_PERCENT)) {
+            this.setHedgedReadsBudgetPercent(props.getInt(HEDGED_READS_BUDGET_PERCENT));
+        }
+
+        if(props.containsKey(HEDGED_READS_LATENCY_QUANTILE)) {
+            this.setHedgedReadsLatencyQuantile(props.getDouble(HEDGED_READS_LATENCY_QUANTILE));
+        }
+
+        if(props.containsKey(ENABLE_LATENCY_AWARE_READS)) {
+            this.setEnableLatencyAwareReads(props.getBoolean(ENABLE_LATENCY_AWARE_READS));
+        }
+
         /* Check for system store paramaters if any */
         if(props.containsKey(SYS_MAX_CONNECTIONS_PER_NODE)) {
             this.setSysMaxConnectionsPerNode(props.getInt(SYS_MAX_CONNECTIONS_PER_NODE));
@@ -1104,6 +1161,156 @@ public class ClientConfig {
         return this;
     }
 
+    public int getHintBatchSize() {
+        return hintBatchSize;
+    }
+
+    /**
+     * Set the most hints of a store sent to handoff nodes in one batch. With
+     * 0, the default, hints are not batched, and each is sent by the put it
+     * is for.
+     * 
+     * @param hintBatchSize The number of hints in a batch
+     */
+    public ClientConfig setHintBatchSize(int hintBatchSize) {
+        this.hintBatchSize = hintBatchSize;
+        return this;
+    }
+
+    public int getHintBufferSize() {
+        return hintBufferSize;
+    }
+
+    /**
+     * Set the number of hints of a store that may wait to be batched
+     * 
+     * @param hintBufferSize The number of hints in the buffer
+     */
+    public ClientConfig setHintBufferSize(int hintBufferSize) {
+        this.hintBufferSize = hintBufferSize;
+        return this;
+    }
+
+    public long getHintFlushInterval(TimeUnit unit) {
+        return unit.convert(hintFlushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set how long a batch of hints waits for more hints before it is sent
+     * 
+     * @param hintFlushInterval The longest wait
+     * @param unit The time unit of the wait
+     */
+    public ClientConfig setHintFlushInterval(long hintFlushInterval, TimeUnit unit) {
+        this.hintFlushIntervalMs = unit.toMillis(hintFlushInterval);
+        return this;
+    }
+
+    public HintWriterConfig.Durability getHintDurability() {
+        return hintDurability;
+    }
+
+    /**
+     * Set whether a put returns once its hints are batched (ASYNC, the
+     * default) or only once they are written (SYNC)
+     * 
+     * @param hintDurability When the put may return
+     */
+    public ClientConfig setHintDurability(HintWriterConfig.Durability hintDurability) {
+        this.hintDurability = hintDurability;
+        return this;
+    }
+
+    public HintWriterConfig.OverflowPolicy getHintOverflowPolicy() {
+        return hintOverflowPolicy;
+    }
+
+    /**
+     * Set what becomes of a hint that finds the buffer full: it is dropped
+     * (DROP), sent on its own (SEND_DIRECT, the default) or waits for room
+     * (BLOCK)
+     * 
+     * @param hintOverflowPolicy The overflow policy
+     */
+    public ClientConfig setHintOverflowPolicy(HintWriterConfig.OverflowPolicy hintOverflowPolicy) {
+        this.hintOverflowPolicy = hintOverflowPolicy;
+        return this;
+    }
+
+    /**
+     * Get the settings of the hint writers of the stores
+     * 
+     * @return The settings, or null if hints are not batched
+     */
+    public HintWriterConfig getHintWriterConfig() {
+        if(hintBatchSize <= 0)
+            return null;
+        return new HintWriterConfig(hintBufferSize,
+                                    hintBatchSize,
+                                    hintFlushIntervalMs,
+                                    hintDurability,
+                                    hintOverflowPolicy);
+    }
+
+    public int getHedgedReadsBudgetPercent() {
+        return hedgedReadsBudgetPercent;
+    }
+
+    /**
+     * Set the most extra requests that reads may send to further nodes when
+     * the nodes they read from are slow, as a percentage of the reads. With
+     * 0, the default, reads are not hedged.
+     * 
+     * @param hedgedReadsBudgetPercent The percentage of extra requests
+     */
+    public ClientConfig setHedgedReadsBudgetPercent(int hedgedReadsBudgetPercent) {
+        this.hedgedReadsBudgetPercent = hedgedReadsBudgetPercent;
+        return this;
+    }
+
+    public double getHedgedReadsLatencyQuantile() {
+        return hedgedReadsLatencyQuantile;
+    }
+
+    /**
+     * Set the quantile of the latency of the nodes read from after which a
+     * read sends an extra request to the next node, 0.95 by default
+     * 
+     * @param hedgedReadsLatencyQuantile The quantile, between 0 and 1
+     */
+    public ClientConfig setHedgedReadsLatencyQuantile(double hedgedReadsLatencyQuantile) {
+        this.hedgedReadsLatencyQuantile = hedgedReadsLatencyQuantile;
+        return this;
+    }
+
+    /**
+     * Get the settings of the hedging of the reads of the stores
+     * 
+     * @return The settings, or null if reads are not hedged
+     */
+    public ReadHedgingConfig getReadHedgingConfig() {
+        if(hedgedReadsBudgetPercent <= 0)
+            return null;
+        return new ReadHedgingConfig(hedgedReadsLatencyQuantile, hedgedReadsBudgetPercent);
+    }
+
+    public boolean isLatencyAwareReadsEnabled() {
+        return enableLatencyAwareReads;
+    }
+
+    /**
+     * Enable gets that go to the replicas that look least loaded from this
+     * client, by their recent latency and outstanding requests, rather than
+     * to the first ones of the preference list. Replicas are only reordered
+     * within their zone. Off by default.
+     * 
+     * @param enableLatencyAwareReads Whether gets pick replicas by their load
+     */
+    public ClientConfig setEnableLatencyAwareReads(boolean enableLatencyAwareReads) {
+        this.enableLatencyAwareReads = enableLatencyAwareReads;
+        return this;
+    }
+
     public boolean isEnableCompressionLayer() {
         return enableCompressionLayer;
     }
@@ -36,6 +36,7 @@ public class RequestFormatFactory {
             case VOLDEMORT_V2:
                 return new VoldemortNativeClientRequestFormat(2);
             case VOLDEMORT_V3:
+            case VOLDEMORT_V3_MULTIPLEXED:
                 return new VoldemortNativeClientRequestFormat(3);
             case PROTOCOL_BUFFERS:
                 return new ProtoBuffClientRequestFormat();
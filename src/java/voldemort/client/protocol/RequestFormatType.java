@@ -27,6 +27,8 @@ public enum RequestFormatType {
     VOLDEMORT_V2("vp2", "voldemort-native-v2"),
     VOLDEMORT_V3("vp3", "voldemort-native-v3"), // has the transforms
     // information
+    VOLDEMORT_V3_MULTIPLEXED("vm3", "voldemort-native-v3-multiplexed"), // v3
+    // with request ids, many requests share a connection
     PROTOCOL_BUFFERS("pb0", "protocol-buffers-v0"),
     ADMIN_PROTOCOL_BUFFERS("ad1", "admin-v1");
 
@@ -46,6 +48,14 @@ public enum RequestFormatType {
         return this.displayName;
     }
 
+    /**
+     * Whether requests and responses carry a request id, so that many
+     * outstanding requests can share one connection
+     */
+    public boolean isMultiplexed() {
+        return this == VOLDEMORT_V3_MULTIPLEXED;
+    }
+
     public static RequestFormatType fromCode(String code) {
         for(RequestFormatType type: RequestFormatType.values())
             if(type.getCode().equals(code))
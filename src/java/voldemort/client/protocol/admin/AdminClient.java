@@ -71,6 +71,7 @@ import voldemort.store.ErrorCodeMapper;
 import voldemort.store.Store;
 import voldemort.store.StoreDefinition;
 import voldemort.store.StoreUtils;
+import voldemort.store.UnreachableStoreException;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.metadata.MetadataStore.VoldemortState;
 import voldemort.store.readonly.ReadOnlyStorageConfiguration;
@@ -278,6 +279,8 @@ public class AdminClient {
      */
     public void setAdminClientCluster(Cluster cluster) {
         this.currentCluster = cluster;
+        // the nodes may now be other servers
+        this.streamingOps.bulkStreamNodes.clear();
     }
 
     /**
@@ -289,6 +292,10 @@ public class AdminClient {
         return currentCluster;
     }
 
+    public AdminClientConfig getAdminClientConfig() {
+        return adminClientConfig;
+    }
+
     /**
      * Encapsulates helper methods used across the admin client
      * 
@@ -1484,7 +1491,9 @@ public class AdminClient {
                                           boolean fetchValues,
                                           boolean fetchMasterEntries,
                                           Cluster initialCluster,
-                                          long recordsPerPartition) throws IOException {
+                                          long recordsPerPartition,
+                                          int parallelism,
+                                          Map<Integer, ByteArray> startKeys) throws IOException {
             HashMap<Integer, List<Integer>> filteredReplicaToPartitionList = Maps.newHashMap();
             if(fetchMasterEntries) {
                 if(!replicaToPartitionList.containsKey(0)) {
@@ -1513,6 +1522,18 @@ public class AdminClient {
                 fetchRequest.setInitialCluster(new ClusterMapper().writeCluster(initialCluster));
             }
 
+            if(fetchValues && adminClientConfig.isBulkStreamEnabled()) {
+                fetchRequest.mergeUnknownFields(BulkStreamFormat.MARKER);
+            }
+
+            if(parallelism > 1) {
+                fetchRequest.mergeUnknownFields(ProtoUtils.encodeFetchParallelism(parallelism));
+            }
+
+            if(startKeys != null && !startKeys.isEmpty()) {
+                fetchRequest.mergeUnknownFields(ProtoUtils.encodeFetchStartKeys(startKeys));
+            }
+
             VAdminProto.VoldemortAdminRequest request = VAdminProto.VoldemortAdminRequest.newBuilder()
                                                                                          .setType(VAdminProto.AdminRequestType.FETCH_PARTITION_ENTRIES)
                                                                                          .setFetchPartitionEntries(fetchRequest)
@@ -1533,6 +1554,147 @@ public class AdminClient {
             return response.build();
         }
 
+        /**
+         * Iterates over the entries of a fetch, whether the server streams
+         * them a protobuf message at a time, or in the bulk format if it was
+         * asked for and the server knows it
+         */
+        private class FetchEntriesIterator extends
+                AbstractIterator<Pair<ByteArray, Versioned<byte[]>>> {
+
+            private final SocketDestination destination;
+            private final SocketAndStreams sands;
+            private boolean bulkStream;
+            private Iterator<Pair<ByteArray, Versioned<byte[]>>> frameEntries;
+
+            private FetchEntriesIterator(SocketDestination destination, SocketAndStreams sands) {
+                this.destination = destination;
+                this.sands = sands;
+                this.bulkStream = false;
+                this.frameEntries = null;
+            }
+
+            @Override
+            public Pair<ByteArray, Versioned<byte[]>> computeNext() {
+                DataInputStream inputStream = sands.getInputStream();
+                try {
+                    while(true) {
+                        if(frameEntries != null && frameEntries.hasNext())
+                            return frameEntries.next();
+
+                        if(bulkStream) {
+                            byte[] frame = BulkStreamFormat.readFrame(inputStream);
+                            if(frame == null) {
+                                socketPool.checkin(destination, sands);
+                                return endOfData();
+                            }
+
+                            if(frame[0] == BulkStreamFormat.MESSAGE_FRAME) {
+                                VAdminProto.FetchPartitionEntriesResponse response = VAdminProto.FetchPartitionEntriesResponse.newBuilder()
+                                                                                                                              .mergeFrom(frame,
+                                                                                                                                         1,
+                                                                                                                                         frame.length - 1)
+                                                                                                                              .build();
+                                socketPool.checkin(destination, sands);
+                                if(response.hasError())
+                                    helperOps.throwException(response.getError());
+                                throw new VoldemortException("Unexpected message in bulk stream from "
+                                                             + destination);
+                            }
+
+                            frameEntries = BulkStreamFormat.readEntries(frame).iterator();
+                            continue;
+                        }
+
+                        int size = inputStream.readInt();
+                        if(size == -1) {
+                            socketPool.checkin(destination, sands);
+                            return endOfData();
+                        }
+
+                        VAdminProto.FetchPartitionEntriesResponse response = responseFromStream(inputStream,
+                                                                                                size);
+
+                        if(response.hasError()) {
+                            socketPool.checkin(destination, sands);
+                            helperOps.throwException(response.getError());
+                        }
+
+                        if(BulkStreamFormat.isRequested(response)) {
+                            // the rest of the stream is in frames
+                            bulkStream = true;
+                            continue;
+                        }
+
+                        VAdminProto.PartitionEntry partitionEntry = response.getPartitionEntry();
+
+                        return Pair.create(ProtoUtils.decodeBytes(partitionEntry.getKey()),
+                                           ProtoUtils.decodeVersioned(partitionEntry.getVersioned()));
+                    }
+                } catch(IOException e) {
+                    helperOps.close(sands.getSocket());
+                    socketPool.checkin(destination, sands);
+                    throw new VoldemortException(e);
+                }
+            }
+        }
+
+        /**
+         * Asks a node whether it takes entries in the bulk format, by way of
+         * a fetch of no partitions in that format
+         * 
+         * @param nodeId Id of the node to ask
+         * @param storeName Name of a store on the node
+         * @return Whether the node answered in the bulk format
+         */
+        private boolean probeBulkStream(int nodeId, String storeName) {
+            Node node = AdminClient.this.getAdminClientCluster().getNodeById(nodeId);
+            SocketDestination destination = new SocketDestination(node.getHost(),
+                                                                  node.getAdminPort(),
+                                                                  RequestFormatType.ADMIN_PROTOCOL_BUFFERS);
+            SocketAndStreams sands = socketPool.checkout(destination);
+            DataOutputStream outputStream = sands.getOutputStream();
+            DataInputStream inputStream = sands.getInputStream();
+
+            try {
+                VAdminProto.FetchPartitionEntriesRequest.Builder probeRequest = VAdminProto.FetchPartitionEntriesRequest.newBuilder()
+                                                                                                                        .setFetchValues(true)
+                                                                                                                        .setStore(storeName)
+                                                                                                                        .setRecordsPerPartition(1)
+                                                                                                                        .setUnknownFields(BulkStreamFormat.MARKER);
+                VAdminProto.VoldemortAdminRequest request = VAdminProto.VoldemortAdminRequest.newBuilder()
+                                                                                             .setType(VAdminProto.AdminRequestType.FETCH_PARTITION_ENTRIES)
+                                                                                             .setFetchPartitionEntries(probeRequest)
+                                                                                             .build();
+                ProtoUtils.writeMessage(outputStream, request);
+                outputStream.flush();
+
+                boolean supported = false;
+                int size = inputStream.readInt();
+                if(size != -1) {
+                    VAdminProto.FetchPartitionEntriesResponse response = responseFromStream(inputStream,
+                                                                                            size);
+                    if(response.hasError()) {
+                        helperOps.throwException(response.getError());
+                    }
+                    supported = BulkStreamFormat.isRequested(response);
+                    // no partitions were asked for, so nothing but the end of
+                    // the stream follows
+                    if(inputStream.readInt() != -1) {
+                        helperOps.close(sands.getSocket());
+                        throw new VoldemortException("Unexpected entries in the bulk stream probe of node "
+                                                     + nodeId);
+                    }
+                }
+                return supported;
+            } catch(IOException e) {
+                helperOps.close(sands.getSocket());
+                throw new VoldemortException(e);
+            } finally {
+                socketPool.checkin(destination, sands);
+            }
+        }
+
         /**
          * Fetches entries that don't belong to the node, based on current
          * metadata and yet persisted on the node
@@ -1558,6 +1720,9 @@ public class AdminClient {
                                                                                                                                 .setFetchValues(true)
                                                                                                                                 .setStore(storeName)
                                                                                                                                 .setFetchOrphaned(true);
+                if(adminClientConfig.isBulkStreamEnabled()) {
+                    fetchOrphanedRequest.setUnknownFields(BulkStreamFormat.MARKER);
+                }
 
                 VAdminProto.VoldemortAdminRequest request = VAdminProto.VoldemortAdminRequest.newBuilder()
                                                                                              .setType(VAdminProto.AdminRequestType.FETCH_PARTITION_ENTRIES)
@@ -1571,36 +1736,7 @@ public class AdminClient {
                 throw new VoldemortException(e);
             }
 
-            return new AbstractIterator<Pair<ByteArray, Versioned<byte[]>>>() {
-
-                @Override
-                public Pair<ByteArray, Versioned<byte[]>> computeNext() {
-                    try {
-                        int size = inputStream.readInt();
-                        if(size == -1) {
-                            socketPool.checkin(destination, sands);
-                            return endOfData();
-                        }
-
-                        VAdminProto.FetchPartitionEntriesResponse response = responseFromStream(inputStream,
-                                                                                                size);
-
-                        if(response.hasError()) {
-                            socketPool.checkin(destination, sands);
-                            helperOps.throwException(response.getError());
-                        }
-
-                        VAdminProto.PartitionEntry partitionEntry = response.getPartitionEntry();
-
-                        return Pair.create(ProtoUtils.decodeBytes(partitionEntry.getKey()),
-                                           ProtoUtils.decodeVersioned(partitionEntry.getVersioned()));
-                    } catch(IOException e) {
-                        helperOps.close(sands.getSocket());
-                        socketPool.checkin(destination, sands);
-                        throw new VoldemortException(e);
-                    }
-                }
-            };
+            return new FetchEntriesIterator(destination, sands);
         }
 
         /**
@@ -1698,6 +1834,73 @@ public class AdminClient {
                                                                          boolean fetchMasterEntries,
                                                                          Cluster initialCluster,
                                                                          long recordsPerPartition) {
+            return fetchEntries(nodeId,
+                                storeName,
+                                replicaToPartitionList,
+                                filter,
+                                fetchMasterEntries,
+                                initialCluster,
+                                recordsPerPartition,
+                                adminClientConfig.getFetchParallelism());
+        }
+
+        /**
+         * Fetch key/value tuples belonging to this map of replica type to
+         * partition list, asking the server to scan up to the given number of
+         * partitions at once. The entries of the partitions then come
+         * interleaved. See
+         * {@link AdminClient#fetchEntries(int, String, HashMap, VoldemortFilter, boolean, Cluster, long)}
+         * for more information.
+         * 
+         * @param parallelism Number of partitions to scan at once. The server
+         *        may scan fewer, and servers which do not know the hint scan
+         *        one at a time.
+         * @return An iterator which allows entries to be streamed as they're
+         *         being iterated over.
+         */
+        public Iterator<Pair<ByteArray, Versioned<byte[]>>> fetchEntries(int nodeId,
+                                                                         String storeName,
+                                                                         HashMap<Integer, List<Integer>> replicaToPartitionList,
+                                                                         VoldemortFilter filter,
+                                                                         boolean fetchMasterEntries,
+                                                                         Cluster initialCluster,
+                                                                         long recordsPerPartition,
+                                                                         int parallelism) {
+            return fetchEntries(nodeId,
+                                storeName,
+                                replicaToPartitionList,
+                                filter,
+                                fetchMasterEntries,
+                                initialCluster,
+                                recordsPerPartition,
+                                parallelism,
+                                null);
+        }
+
+        /**
+         * Fetch key/value tuples belonging to this map of replica type to
+         * partition list, resuming the scans of some partitions from a key.
+         * Used to pick up a copy of partitions that was cut short where it
+         * left off. See
+         * {@link AdminClient#fetchEntries(int, String, HashMap, VoldemortFilter, boolean, Cluster, long, int)}
+         * for more information.
+         * 
+         * @param startKeys Map of partition id to the key to start the scan
+         *        of the partition from. The entries before it are not fetched
+         *        if the server can resume partition scans, and fetched as
+         *        usual otherwise.
+         * @return An iterator which allows entries to be streamed as they're
+         *         being iterated over.
+         */
+        public Iterator<Pair<ByteArray, Versioned<byte[]>>> fetchEntries(int nodeId,
+                                                                         String storeName,
+                                                                         HashMap<Integer, List<Integer>> replicaToPartitionList,
+                                                                         VoldemortFilter filter,
+                                                                         boolean fetchMasterEntries,
+                                                                         Cluster initialCluster,
+                                                                         long recordsPerPartition,
+                                                                         int parallelism,
+                                                                         Map<Integer, ByteArray> startKeys) {
 
             Node node = AdminClient.this.getAdminClientCluster().getNodeById(nodeId);
             final SocketDestination destination = new SocketDestination(node.getHost(),
@@ -1715,43 +1918,16 @@ public class AdminClient {
                                      true,
                                      fetchMasterEntries,
                                      initialCluster,
-                                     recordsPerPartition);
+                                     recordsPerPartition,
+                                     parallelism,
+                                     startKeys);
             } catch(IOException e) {
                 helperOps.close(sands.getSocket());
                 socketPool.checkin(destination, sands);
                 throw new VoldemortException(e);
             }
 
-            return new AbstractIterator<Pair<ByteArray, Versioned<byte[]>>>() {
-
-                @Override
-                public Pair<ByteArray, Versioned<byte[]>> computeNext() {
-                    try {
-                        int size = inputStream.readInt();
-                        if(size == -1) {
-                            socketPool.checkin(destination, sands);
-                            return endOfData();
-                        }
-
-                        VAdminProto.FetchPartitionEntriesResponse response = responseFromStream(inputStream,
-                                                                                                size);
-
-                        if(response.hasError()) {
-                            socketPool.checkin(destination, sands);
-                            helperOps.throwException(response.getError());
-                        }
-
-                        VAdminProto.PartitionEntry partitionEntry = response.getPartitionEntry();
-
-                        return Pair.create(ProtoUtils.decodeBytes(partitionEntry.getKey()),
-                                           ProtoUtils.decodeVersioned(partitionEntry.getVersioned()));
-                    } catch(IOException e) {
-                        helperOps.close(sands.getSocket());
-                        socketPool.checkin(destination, sands);
-                        throw new VoldemortException(e);
-                    }
-                }
-            };
+            return new FetchEntriesIterator(destination, sands);
 
         }
 
@@ -1910,7 +2086,9 @@ public class AdminClient {
                                      false,
                                      fetchMasterEntries,
                                      initialCluster,
-                                     recordsPerPartition);
+                                     recordsPerPartition,
+                                     1,
+                                     null);
             } catch(IOException e) {
                 helperOps.close(sands.getSocket());
                 socketPool.checkin(destination, sands);
@@ -2071,6 +2249,8 @@ public class AdminClient {
      */
     public class StreamingOperations {
 
+        private final ConcurrentMap<Integer, Boolean> bulkStreamNodes = new ConcurrentHashMap<Integer, Boolean>();
+
         /**
          * Update a stream of key/value entries at the given node. The iterator
          * entries are <em>streamed</em> from the client to the server:
@@ -2102,7 +2282,13 @@ public class AdminClient {
             SocketDestination destination = new SocketDestination(node.getHost(),
                                                                   node.getAdminPort(),
                                                                   RequestFormatType.ADMIN_PROTOCOL_BUFFERS);
-            SocketAndStreams sands = socketPool.checkout(destination);
+            SocketAndStreams sands;
+            try {
+                sands = socketPool.checkout(destination);
+            } catch(UnreachableStoreException e) {
+                bulkStreamNodes.remove(nodeId);
+                throw e;
+            }
             DataOutputStream outputStream = sands.getOutputStream();
             DataInputStream inputStream = sands.getInputStream();
             boolean firstMessage = true;
@@ -2111,20 +2297,24 @@ public class AdminClient {
 
             try {
                 if(entryIterator.hasNext()) {
+                    // the entries after the first are sent in frames, if the
+                    // node takes them
+                    BulkStreamFormat.FrameWriter frameWriter = null;
+                    if(isBulkStreamSupported(nodeId, storeName))
+                        frameWriter = new BulkStreamFormat.FrameWriter(adminClientConfig.getBulkStreamFrameSize());
+
                     while(entryIterator.hasNext()) {
                         Pair<ByteArray, Versioned<byte[]>> entry = entryIterator.next();
-                        VAdminProto.PartitionEntry partitionEntry = VAdminProto.PartitionEntry.newBuilder()
-                                                                                              .setKey(ProtoUtils.encodeBytes(entry.getFirst()))
-                                                                                              .setVersioned(ProtoUtils.encodeVersioned(entry.getSecond()))
-                                                                                              .build();
-                        VAdminProto.UpdatePartitionEntriesRequest.Builder updateRequest = VAdminProto.UpdatePartitionEntriesRequest.newBuilder()
-                                                                                                                                   .setStore(storeName)
-                                                                                                                                   .setPartitionEntry(partitionEntry);
                         entryCount++;
                         if(firstMessage) {
+                            VAdminProto.UpdatePartitionEntriesRequest.Builder updateRequest = encodeUpdateRequest(storeName,
+                                                                                                                  entry);
                             if(filter != null) {
                                 updateRequest.setFilter(helperOps.encodeFilter(filter));
                             }
+                            if(frameWriter != null) {
+                                updateRequest.setUnknownFields(BulkStreamFormat.MARKER);
+                            }
 
                             ProtoUtils.writeMessage(outputStream,
                                                     VAdminProto.VoldemortAdminRequest.newBuilder()
@@ -2134,7 +2324,14 @@ public class AdminClient {
                             outputStream.flush();
                             firstMessage = false;
                         } else {
-                            ProtoUtils.writeMessage(outputStream, updateRequest.build());
+                            if(frameWriter != null) {
+                                frameWriter.add(entry.getFirst(), entry.getSecond());
+                                if(frameWriter.isFull())
+                                    frameWriter.writeTo(outputStream);
+                            } else {
+                                ProtoUtils.writeMessage(outputStream,
+                                                        encodeUpdateRequest(storeName, entry).build());
+                            }
                             if(printStatsTimer <= System.currentTimeMillis()
                                || 0 == entryCount % PRINT_STATS_THRESHOLD) {
                                 logger.info("UpdatePartitionEntries: fetched " + entryCount
@@ -2143,6 +2340,8 @@ public class AdminClient {
                             }
                         }
                     }
+                    if(frameWriter != null && !frameWriter.isEmpty())
+                        frameWriter.writeTo(outputStream);
                     ProtoUtils.writeEndOfStream(outputStream);
                     outputStream.flush();
                     VAdminProto.UpdatePartitionEntriesResponse.Builder updateResponse = ProtoUtils.readToBuilder(inputStream,
@@ -2152,6 +2351,9 @@ public class AdminClient {
                     }
                 }
             } catch(IOException e) {
+                // the node may have been restarted as another version, so it
+                // is asked again on the next connection
+                bulkStreamNodes.remove(nodeId);
                 helperOps.close(sands.getSocket());
                 throw new VoldemortException(e);
             } finally {
@@ -2159,6 +2361,40 @@ public class AdminClient {
             }
         }
 
+        private VAdminProto.UpdatePartitionEntriesRequest.Builder encodeUpdateRequest(String storeName,
+                                                                                      Pair<ByteArray, Versioned<byte[]>> entry) {
+            VAdminProto.PartitionEntry partitionEntry = VAdminProto.PartitionEntry.newBuilder()
+                                                                                  .setKey(ProtoUtils.encodeBytes(entry.getFirst()))
+                                                                                  .setVersioned(ProtoUtils.encodeVersioned(entry.getSecond()))
+                                                                                  .build();
+            return VAdminProto.UpdatePartitionEntriesRequest.newBuilder()
+                                                            .setStore(storeName)
+                                                            .setPartitionEntry(partitionEntry);
+        }
+
+        /**
+         * Whether entries can be streamed to a node in the bulk format. The
+         * answer of each node is kept until a connection to it fails, or the
+         * cluster is changed.
+         */
+        private boolean isBulkStreamSupported(int nodeId, String storeName) {
+            if(!adminClientConfig.isBulkStreamEnabled())
+                return false;
+            Boolean supported = bulkStreamNodes.get(nodeId);
+            if(supported == null) {
+                try {
+                    supported = bulkFetchOps.probeBulkStream(nodeId, storeName);
+                } catch(VoldemortException e) {
+                    // ask again next time
+                    logger.warn("Could not find out whether node " + nodeId
+                                + " takes bulk streams, streaming one entry at a time", e);
+                    return false;
+                }
+                bulkStreamNodes.put(nodeId, supported);
+            }
+            return supported;
+        }
+
         /**
          * Fetch key/value tuples from a given server, directly from storage
          * engine
@@ -20,6 +20,9 @@ public class AdminClientConfig {
     private volatile boolean adminSocketKeepAlive = false;
     private volatile int restoreDataTimeoutSec = 365 * 24 * 60 * 60;
     private volatile int maxBackoffDelayMs = 60 * 1000;
+    private volatile boolean bulkStreamEnabled = true;
+    private volatile int bulkStreamFrameSize = BulkStreamFormat.DEFAULT_FRAME_SIZE;
+    private volatile int fetchParallelism = 4;
 
     public static final String MAX_CONNECTIONS_PER_NODE_PROPERTY = "max_connections";
     public static final String MAX_TOTAL_CONNECTIONS_PROPERTY = "max_total_connections";
@@ -31,6 +34,9 @@ public class AdminClientConfig {
     public static final String ADMIN_SOCKET_KEEPALIVE_PROPERTY = "admin_socket_keepalive";
     public static final String RESTORE_DATA_TIMEOUT_SEC = "restore.data.timeout.sec";
     public static final String MAX_BACKOFF_DELAY_MS = "max.backoff.delay.ms";
+    public static final String ADMIN_BULK_STREAM_ENABLE_PROPERTY = "admin_bulk_stream_enable";
+    public static final String ADMIN_BULK_STREAM_FRAME_SIZE_PROPERTY = "admin_bulk_stream_frame_size";
+    public static final String ADMIN_FETCH_PARALLELISM_PROPERTY = "admin_fetch_parallelism";
 
     // sets better default for AdminClient
     public AdminClientConfig() {
@@ -63,6 +69,15 @@ public class AdminClientConfig {
 
         if(props.containsKey(MAX_BACKOFF_DELAY_MS))
             this.setMaxBackoffDelayMs(props.getInt(MAX_BACKOFF_DELAY_MS));
+
+        if(props.containsKey(ADMIN_BULK_STREAM_ENABLE_PROPERTY))
+            this.setBulkStreamEnabled(props.getBoolean(ADMIN_BULK_STREAM_ENABLE_PROPERTY));
+
+        if(props.containsKey(ADMIN_BULK_STREAM_FRAME_SIZE_PROPERTY))
+            this.setBulkStreamFrameSize(props.getInt(ADMIN_BULK_STREAM_FRAME_SIZE_PROPERTY));
+
+        if(props.containsKey(ADMIN_FETCH_PARALLELISM_PROPERTY))
+            this.setFetchParallelism(props.getInt(ADMIN_FETCH_PARALLELISM_PROPERTY));
     }
 
     /* Propery names for propery-based configuration */
@@ -148,4 +163,43 @@ public class AdminClientConfig {
     public int getRestoreDataTimeoutSec() {
         return restoreDataTimeoutSec;
     }
+
+    public boolean isBulkStreamEnabled() {
+        return bulkStreamEnabled;
+    }
+
+    /**
+     * Whether entries are fetched from and streamed to the servers that know
+     * the bulk format in large frames, instead of a protobuf message per entry
+     */
+    public AdminClientConfig setBulkStreamEnabled(boolean bulkStreamEnabled) {
+        this.bulkStreamEnabled = bulkStreamEnabled;
+        return this;
+    }
+
+    public int getBulkStreamFrameSize() {
+        return bulkStreamFrameSize;
+    }
+
+    /**
+     * Size of the frames that streamed entries are packed into
+     */
+    public AdminClientConfig setBulkStreamFrameSize(int bulkStreamFrameSize) {
+        this.bulkStreamFrameSize = bulkStreamFrameSize;
+        return this;
+    }
+
+    public int getFetchParallelism() {
+        return fetchParallelism;
+    }
+
+    /**
+     * Number of partitions a server is asked to scan at once when fetching
+     * entries. The server scans fewer if it is configured to, or if its scan
+     * permits are taken by other jobs.
+     */
+    public AdminClientConfig setFetchParallelism(int fetchParallelism) {
+        this.fetchParallelism = fetchParallelism;
+        return this;
+    }
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.client.protocol.admin;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import voldemort.VoldemortException;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
+import voldemort.utils.Pair;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.UnknownFieldSet;
+
+/**
+ * The bulk format of the entry streams of the admin service, which packs many
+ * entries into each message instead of sending a protobuf message per entry.
+ * <p>
+ * A peer asks for the bulk format by setting {@link #MARKER} on the first
+ * message of the stream. It is a field the protobuf messages do not define, so
+ * a peer that does not know the format ignores it and streams protobuf
+ * messages as before. A server that streams entries back in the bulk format
+ * says so by first sending a response that carries nothing but the marker.
+ * <p>
+ * After that, the stream is a run of frames, ended by an int -1 as before:
+ *
+ * <pre>
+ * -----------------------------------------
+ *    Frame {
+ *        SIZE                             : 4 bytes (int), of what follows
+ *        TYPE                             : 1 byte, ENTRIES_FRAME or MESSAGE_FRAME
+ *        Entry (repeating, ENTRIES_FRAME) {
+ *            KEY_SIZE                     : 4 bytes (int)
+ *            KEY_BYTES                    : KEY_SIZE bytes
+ *            Vector clock                 : as in StoreBinaryFormat
+ *            VALUE_SIZE                   : 4 bytes (int)
+ *            VALUE_BYTES                  : VALUE_SIZE bytes
+ *        }
+ *        MESSAGE_BYTES (MESSAGE_FRAME)    : SIZE - 1 bytes, a protobuf message
+ *    }
+ * -----------------------------------------
+ * </pre>
+ *
+ */
+public class BulkStreamFormat {
+
+    public static final int BULK_STREAM_FIELD = 1000;
+
+    /* In the future we can use this to handle format changes */
+    private static final long VERSION = 1;
+
+    public static final byte ENTRIES_FRAME = 0;
+
+    public static final byte MESSAGE_FRAME = 1;
+
+    public static final int DEFAULT_FRAME_SIZE = 64 * 1024;
+
+    private static final int FRAME_HEADER_SIZE = ByteUtils.SIZE_OF_INT + 1;
+
+    public static final UnknownFieldSet MARKER = UnknownFieldSet.newBuilder()
+                                                                .addField(BULK_STREAM_FIELD,
+                                                                          UnknownFieldSet.Field.newBuilder()
+                                                                                               .addVarint(VERSION)
+                                                                                               .build())
+                                                                .build();
+
+    /**
+     * Checks whether a message carries the {@link #MARKER}
+     */
+    public static boolean isRequested(Message message) {
+        UnknownFieldSet fields = message.getUnknownFields();
+        return fields.hasField(BULK_STREAM_FIELD)
+               && fields.getField(BULK_STREAM_FIELD).getVarintList().contains(VERSION);
+    }
+
+    /**
+     * Reads the next frame
+     *
+     * @param inputStream The stream to read from
+     * @return The type of the frame followed by its contents, or null at the
+     *         end of the stream
+     * @throws IOException
+     */
+    public static byte[] readFrame(DataInputStream inputStream) throws IOException {
+        int size = inputStream.readInt();
+        if(size == -1)
+            return null;
+        if(size < 1)
+            throw new VoldemortException("Invalid bulk stream frame size: " + size);
+        byte[] frame = new byte[size];
+        ByteUtils.read(inputStream, frame);
+        return frame;
+    }
+
+    /**
+     * Decodes the entries of a frame read by {@link #readFrame}
+     */
+    public static List<Pair<ByteArray, Versioned<byte[]>>> readEntries(byte[] frame) {
+        if(frame[0] != ENTRIES_FRAME)
+            throw new VoldemortException("Unexpected bulk stream frame type: " + frame[0]);
+        List<Pair<ByteArray, Versioned<byte[]>>> entries = new ArrayList<Pair<ByteArray, Versioned<byte[]>>>();
+        int pos = 1;
+        while(pos < frame.length) {
+            int keySize = ByteUtils.readInt(frame, pos);
+            pos += ByteUtils.SIZE_OF_INT;
+            byte[] key = ByteUtils.copy(frame, pos, pos + keySize);
+            pos += keySize;
+            VectorClock clock = new VectorClock(frame, pos);
+            pos += clock.sizeInBytes();
+            int valueSize = ByteUtils.readInt(frame, pos);
+            pos += ByteUtils.SIZE_OF_INT;
+            byte[] value = ByteUtils.copy(frame, pos, pos + valueSize);
+            pos += valueSize;
+            entries.add(Pair.create(new ByteArray(key), Versioned.value(value, clock)));
+        }
+        if(pos != frame.length)
+            throw new VoldemortException((frame.length - pos)
+                                         + " straggling bytes found in frame (this should not be possible)!");
+        return entries;
+    }
+
+    /**
+     * Writes a protobuf message, such as an error, as a frame
+     */
+    public static void writeMessageFrame(DataOutputStream outputStream, Message message)
+            throws IOException {
+        byte[] bytes = message.toByteArray();
+        outputStream.writeInt(bytes.length + 1);
+        outputStream.writeByte(MESSAGE_FRAME);
+        outputStream.write(bytes);
+    }
+
+    /**
+     * Packs entries into a frame. The buffer is reused from one frame to the
+     * next, so an entry is copied once on its way to the stream.
+     */
+    public static class FrameWriter {
+
+        private final int frameSize;
+        private byte[] buffer;
+        private int position;
+
+        public FrameWriter(int frameSize) {
+            if(frameSize <= 0)
+                throw new IllegalArgumentException("The bulk stream frame size must be positive.");
+            this.frameSize = frameSize;
+            this.buffer = new byte[FRAME_HEADER_SIZE + frameSize];
+            this.position = FRAME_HEADER_SIZE;
+        }
+
+        public void add(ByteArray key, Versioned<byte[]> value) {
+            VectorClock clock = (VectorClock) value.getVersion();
+            int size = 2 * ByteUtils.SIZE_OF_INT + key.length() + clock.sizeInBytes()
+                       + value.getValue().length;
+            if(position + size > buffer.length) {
+                // an entry larger than a frame gets a frame of its own
+                byte[] larger = new byte[Math.max(2 * buffer.length, position + size)];
+                System.arraycopy(buffer, 0, larger, 0, position);
+                buffer = larger;
+            }
+            ByteUtils.writeInt(buffer, key.length(), position);
+            position += ByteUtils.SIZE_OF_INT;
+            System.arraycopy(key.get(), 0, buffer, position, key.length());
+            position += key.length();
+            position += clock.toBytes(buffer, position);
+            ByteUtils.writeInt(buffer, value.getValue().length, position);
+            position += ByteUtils.SIZE_OF_INT;
+            System.arraycopy(value.getValue(), 0, buffer, position, value.getValue().length);
+            position += value.getValue().length;
+        }
+
+        public boolean isEmpty() {
+            return position == FRAME_HEADER_SIZE;
+        }
+
+        public boolean isFull() {
+            return position - FRAME_HEADER_SIZE >= frameSize;
+        }
+
+        /**
+         * Writes the entries added so far as a frame and starts a new one
+         */
+        public void writeTo(DataOutputStream outputStream) throws IOException {
+            ByteUtils.writeInt(buffer, position - ByteUtils.SIZE_OF_INT, 0);
+            buffer[ByteUtils.SIZE_OF_INT] = ENTRIES_FRAME;
+            outputStream.write(buffer, 0, position);
+            position = FRAME_HEADER_SIZE;
+            // don't hold on to what a single large entry needed
+            if(buffer.length > 2 * (FRAME_HEADER_SIZE + frameSize))
+                buffer = new byte[FRAME_HEADER_SIZE + frameSize];
+        }
+    }
+}
@@ -35,6 +35,7 @@ import voldemort.client.protocol.pb.VProto.KeyedVersions;
 import voldemort.client.rebalance.RebalancePartitionsInfo;
 import voldemort.store.ErrorCodeMapper;
 import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
 import voldemort.versioning.ClockEntry;
 import voldemort.versioning.VectorClock;
 import voldemort.versioning.Version;
@@ -47,6 +48,7 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
+import com.google.protobuf.UnknownFieldSet;
 
 /**
  * Helper functions for serializing or deserializing client requests in protocol
@@ -158,6 +160,65 @@ public class ProtoUtils {
         return replicaToPartitionList;
     }
 
+    /**
+     * Field of a FetchPartitionEntriesRequest, not in the .proto, with how
+     * many partitions the server may scan at once. Servers that do not know
+     * it ignore it.
+     */
+    public static final int FETCH_PARALLELISM_FIELD = 1001;
+
+    public static UnknownFieldSet encodeFetchParallelism(int parallelism) {
+        return UnknownFieldSet.newBuilder()
+                              .addField(FETCH_PARALLELISM_FIELD,
+                                        UnknownFieldSet.Field.newBuilder()
+                                                             .addVarint(parallelism)
+                                                             .build())
+                              .build();
+    }
+
+    public static int decodeFetchParallelism(VAdminProto.FetchPartitionEntriesRequest request) {
+        UnknownFieldSet fields = request.getUnknownFields();
+        if(!fields.hasField(FETCH_PARALLELISM_FIELD)
+           || fields.getField(FETCH_PARALLELISM_FIELD).getVarintList().isEmpty())
+            return 1;
+        return fields.getField(FETCH_PARALLELISM_FIELD).getVarintList().get(0).intValue();
+    }
+
+    /**
+     * Field of a FetchPartitionEntriesRequest, not in the .proto, with the
+     * keys to resume the scans of partitions from. Each value is the partition
+     * id as an int, followed by the key.
+     */
+    public static final int FETCH_START_KEYS_FIELD = 1002;
+
+    public static UnknownFieldSet encodeFetchStartKeys(Map<Integer, ByteArray> startKeys) {
+        UnknownFieldSet.Field.Builder field = UnknownFieldSet.Field.newBuilder();
+        for(Entry<Integer, ByteArray> entry: startKeys.entrySet()) {
+            byte[] bytes = new byte[ByteUtils.SIZE_OF_INT + entry.getValue().length()];
+            ByteUtils.writeInt(bytes, entry.getKey(), 0);
+            System.arraycopy(entry.getValue().get(),
+                             0,
+                             bytes,
+                             ByteUtils.SIZE_OF_INT,
+                             entry.getValue().length());
+            field.addLengthDelimited(ByteString.copyFrom(bytes));
+        }
+        return UnknownFieldSet.newBuilder().addField(FETCH_START_KEYS_FIELD, field.build()).build();
+    }
+
+    public static Map<Integer, ByteArray> decodeFetchStartKeys(VAdminProto.FetchPartitionEntriesRequest request) {
+        Map<Integer, ByteArray> startKeys = Maps.newHashMap();
+        UnknownFieldSet fields = request.getUnknownFields();
+        if(fields.hasField(FETCH_START_KEYS_FIELD)) {
+            for(ByteString value: fields.getField(FETCH_START_KEYS_FIELD).getLengthDelimitedList()) {
+                byte[] bytes = value.toByteArray();
+                startKeys.put(ByteUtils.readInt(bytes, 0),
+                              new ByteArray(ByteUtils.copy(bytes, ByteUtils.SIZE_OF_INT, bytes.length)));
+            }
+        }
+        return startKeys;
+    }
+
     public static List<PerStorePartitionTuple> encodePerStorePartitionTuple(HashMap<String, HashMap<Integer, List<Integer>>> storeToReplicaToPartitionList) {
         List<PerStorePartitionTuple> perStorePartitionTuples = Lists.newArrayList();
         for(Entry<String, HashMap<Integer, List<Integer>>> entry: storeToReplicaToPartitionList.entrySet()) {
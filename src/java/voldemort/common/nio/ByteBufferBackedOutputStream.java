@@ -39,6 +39,10 @@ import voldemort.utils.ByteUtils;
  * buffer as the object reference passed into the constructor is changed upon
  * expansion. Additionally, some callers might wish to "un-expand" the buffer
  * back to a more reasonable size after use.
+ * <p/>
+ * A {@link FileRegion} may be appended after the buffered bytes, to be
+ * transferred straight from its file by the code that drains the buffer.
+ * Nothing can be written once a region is appended.
  * 
  */
 
@@ -49,6 +53,8 @@ public class ByteBufferBackedOutputStream extends OutputStream {
 
     private boolean wasExpanded;
 
+    private FileRegion fileRegion;
+
     /**
      * Reference to a size tracking object, that tracks the size of the buffer
      * in bytes
@@ -83,18 +89,53 @@ public class ByteBufferBackedOutputStream extends OutputStream {
         wasExpanded = false;
     }
 
+    /**
+     * @return The region to write after the buffer, or null if there is none
+     */
+    public FileRegion getFileRegion() {
+        return fileRegion;
+    }
+
+    /**
+     * Appends a region to be written after the bytes in the buffer
+     * 
+     * @param fileRegion The region
+     */
+    public void setFileRegion(FileRegion fileRegion) {
+        if(this.fileRegion != null)
+            throw new IllegalStateException("A file region was already appended");
+        this.fileRegion = fileRegion;
+    }
+
+    /**
+     * Releases the appended region, once it is written or abandoned
+     */
+    public void releaseFileRegion() {
+        if(fileRegion != null) {
+            fileRegion.release();
+            fileRegion = null;
+        }
+    }
+
     @Override
     public void write(int b) throws IOException {
+        checkNoFileRegion();
         expandIfNeeded(1);
         buffer.put((byte) b);
     }
 
     @Override
     public void write(byte[] bytes, int off, int len) throws IOException {
+        checkNoFileRegion();
         expandIfNeeded(len);
         buffer.put(bytes, off, len);
     }
 
+    private void checkNoFileRegion() {
+        if(fileRegion != null)
+            throw new IllegalStateException("Cannot write after a file region");
+    }
+
     private void expandIfNeeded(int len) {
         int need = len - buffer.remaining();
 
@@ -116,6 +157,7 @@ public class ByteBufferBackedOutputStream extends OutputStream {
     }
 
     public void close() {
+        releaseFileRegion();
         if(sizeTracker != null && this.buffer != null) {
             sizeTracker.subtract(this.buffer.capacity());
         }
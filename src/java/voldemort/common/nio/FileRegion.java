@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.common.nio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import voldemort.annotations.concurrency.NotThreadsafe;
+
+/**
+ * A range of a file to be written to a channel with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so that
+ * the bytes go from the page cache to the socket without being copied into the
+ * heap.
+ * <p/>
+ * The owner of the file may keep it open until the region is released, so
+ * whoever ends up holding the region has to call {@link #release()} once it is
+ * written or abandoned.
+ *
+ */
+
+@NotThreadsafe
+public class FileRegion {
+
+    private final FileChannel channel;
+    private final long position;
+    private final long count;
+    private long transferred;
+    private boolean released;
+
+    /**
+     * @param channel The file, may be null for an empty region
+     * @param position Offset of the region in the file
+     * @param count Length of the region
+     */
+    public FileRegion(FileChannel channel, long position, long count) {
+        this.channel = channel;
+        this.position = position;
+        this.count = count;
+        this.transferred = 0;
+        this.released = false;
+    }
+
+    /**
+     * Writes as much of the rest of the region as the target accepts
+     *
+     * @param target The channel to write to
+     * @return Number of bytes written
+     * @throws IOException If the file ends before the region does, since the
+     *         rest of the region would never be written
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        if(isComplete())
+            return 0;
+        long written = channel.transferTo(position + transferred, count - transferred, target);
+        // not an EOFException, which the selector takes for the client hanging
+        // up and does not log
+        if(written == 0 && position + transferred >= channel.size())
+            throw new IOException("File ended at " + (position + transferred)
+                                  + " while reading a region of " + count + " bytes at "
+                                  + position);
+        transferred += written;
+        return written;
+    }
+
+    /**
+     * Copies the rest of the region to a stream, for regions too small to be
+     * worth a transfer of their own
+     *
+     * @param outputStream The stream to write to
+     * @throws IOException
+     */
+    public void copyTo(OutputStream outputStream) throws IOException {
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        while(!isComplete())
+            transferTo(target);
+    }
+
+    public boolean isComplete() {
+        return transferred >= count;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTransferred() {
+        return transferred;
+    }
+
+    /**
+     * Lets the owner of the file know that the region is no longer needed.
+     * Only the first call has any effect.
+     */
+    public void release() {
+        if(released)
+            return;
+        released = true;
+        onRelease();
+    }
+
+    /**
+     * Called once by {@link #release()}, does nothing unless overridden by the
+     * owner of the file
+     */
+    protected void onRelease() {}
+}
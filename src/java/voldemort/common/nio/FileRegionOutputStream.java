@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.common.nio;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A DataOutputStream over a {@link ByteBufferBackedOutputStream} that lets
+ * request handlers end a response with a {@link FileRegion} instead of copying
+ * the bytes of the file into the buffer.
+ *
+ */
+public class FileRegionOutputStream extends DataOutputStream {
+
+    private final ByteBufferBackedOutputStream outputStream;
+
+    public FileRegionOutputStream(ByteBufferBackedOutputStream outputStream) {
+        super(outputStream);
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Ends the response with the given region. The region is released once it
+     * is written, or when the connection is closed.
+     *
+     * @param fileRegion The region
+     * @throws IOException
+     */
+    public void writeFileRegion(FileRegion fileRegion) throws IOException {
+        flush();
+        outputStream.setFileRegion(fileRegion);
+    }
+}
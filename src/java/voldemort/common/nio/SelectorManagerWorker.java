@@ -44,6 +44,12 @@ import voldemort.utils.ByteUtils;
 
 public abstract class SelectorManagerWorker implements Runnable {
 
+    /**
+     * Size of the request id and length in front of every request and
+     * response of the multiplexed protocols
+     */
+    public static final int MULTIPLEXED_HEADER_SIZE = 8;
+
     protected final Selector selector;
 
     protected final SocketChannel socketChannel;
@@ -221,6 +227,33 @@ public abstract class SelectorManagerWorker implements Runnable {
         }
     }
 
+    /**
+     * Used with multiplexed protocols, where every request and response is
+     * framed with a request id and the length of the rest of the frame. Moves
+     * the part of the next frame read so far to the start of the (flipped)
+     * input buffer, so that the rest of it can be read, making room for all of
+     * it if it is larger than the buffer.
+     */
+    protected void compactMultiplexedInput() {
+        ByteBuffer inputBuffer = inputStream.getBuffer();
+        int pending = inputBuffer.remaining();
+
+        if(pending >= MULTIPLEXED_HEADER_SIZE) {
+            int frameSize = MULTIPLEXED_HEADER_SIZE + inputBuffer.getInt(inputBuffer.position() + 4);
+            inputBuffer.compact();
+
+            if(frameSize > inputBuffer.capacity())
+                inputStream.setBuffer(ByteUtils.expand(inputBuffer, frameSize));
+        } else if(pending == 0 && inputBuffer.capacity() >= resizeThreshold) {
+            inputStream.setBuffer(ByteBuffer.allocate(socketBufferSize));
+        } else {
+            inputBuffer.compact();
+        }
+
+        if(logger.isTraceEnabled())
+            traceInputBufferState("Compacted framed input");
+    }
+
     protected void traceInputBufferState(String preamble) {
         logger.trace(preamble + " - position: " + inputStream.getBuffer().position() + ", limit: "
                      + inputStream.getBuffer().limit() + ", remaining: "
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.serialization.avro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+
+import voldemort.common.nio.ByteBufferBackedOutputStream;
+
+/**
+ * Encodes and decodes Avro data in the binary format with an output buffer,
+ * an encoder and a decoder kept per thread, so that the Avro serializers do
+ * not allocate new ones for every object.
+ * <p>
+ * The datum readers and writers passed in are left to the serializers to
+ * cache. Once their schemas are set, they can be shared between threads.
+ *
+ */
+public class AvroBinaryCodec {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    // larger buffers are not kept, so that a thread which once serialized a
+    // big object does not hold on to its size forever
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<AvroBinaryCodec> codecs = new ThreadLocal<AvroBinaryCodec>() {
+
+        @Override
+        protected AvroBinaryCodec initialValue() {
+            return new AvroBinaryCodec();
+        }
+    };
+
+    // unlike a ByteArrayOutputStream, does not lock on every byte written
+    private final ByteBufferBackedOutputStream output;
+    private final BinaryEncoder encoder;
+    private BinaryDecoder decoder;
+
+    private AvroBinaryCodec() {
+        this.output = new ByteBufferBackedOutputStream(ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+        this.encoder = new BinaryEncoder(output);
+        this.decoder = null;
+    }
+
+    /**
+     * Encodes an object
+     *
+     * @param writer The datum writer for the schema to encode the object with
+     * @param object The object
+     * @param prefix A byte to write ahead of the object, such as a schema
+     *        version, or null for none
+     * @return The bytes
+     * @throws IOException If the writer fails to encode the object
+     */
+    public static byte[] encode(DatumWriter<Object> writer, Object object, Byte prefix)
+            throws IOException {
+        AvroBinaryCodec codec = codecs.get();
+        ByteBufferBackedOutputStream output = codec.output;
+        output.getBuffer().clear();
+        try {
+            if(prefix != null)
+                output.write(prefix);
+            writer.write(object, codec.encoder);
+            codec.encoder.flush();
+            ByteBuffer buffer = output.getBuffer();
+            byte[] bytes = new byte[buffer.position()];
+            System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+            return bytes;
+        } finally {
+            if(output.getBuffer().capacity() > MAX_RETAINED_BUFFER_SIZE)
+                output.setBuffer(ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+        }
+    }
+
+    /**
+     * Decodes an object
+     *
+     * @param reader The datum reader for the schemas to decode the object with
+     * @param bytes The bytes
+     * @param offset Where the object starts in the bytes
+     * @return The object
+     * @throws IOException If the reader fails to decode the object
+     */
+    public static Object decode(DatumReader<Object> reader, byte[] bytes, int offset)
+            throws IOException {
+        AvroBinaryCodec codec = codecs.get();
+        codec.decoder = DecoderFactory.defaultFactory()
+                                      .createBinaryDecoder(bytes,
+                                                           offset,
+                                                           bytes.length - offset,
+                                                           codec.decoder);
+        return reader.read(null, codec.decoder);
+    }
+}
@@ -15,19 +15,13 @@
  */
 package voldemort.serialization.avro;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
-import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.Decoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.io.Encoder;
 
 import voldemort.serialization.SerializationException;
-import voldemort.serialization.SerializationUtils;
 import voldemort.serialization.Serializer;
 
 /**
@@ -40,6 +34,10 @@ public class AvroGenericSerializer implements Serializer<Object> {
 
     private final Schema typeDef;
 
+    // configured once, shared by all threads
+    private final GenericDatumWriter<Object> datumWriter;
+    private final GenericDatumReader<Object> datumReader;
+
     /**
      * Constructor accepting the schema definition as a JSON string.
      * 
@@ -47,30 +45,21 @@ public class AvroGenericSerializer implements Serializer<Object> {
      */
     public AvroGenericSerializer(String schema) {
         typeDef = Schema.parse(schema);
+        datumWriter = new GenericDatumWriter<Object>(typeDef);
+        datumReader = new GenericDatumReader<Object>(typeDef);
     }
 
     public byte[] toBytes(Object object) {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        Encoder encoder = new BinaryEncoder(output);
-        GenericDatumWriter<Object> datumWriter = null;
         try {
-            datumWriter = new GenericDatumWriter<Object>(typeDef);
-            datumWriter.write(object, encoder);
-            encoder.flush();
+            return AvroBinaryCodec.encode(datumWriter, object, null);
         } catch(IOException e) {
             throw new SerializationException(e);
-        } finally {
-            SerializationUtils.close(output);
         }
-        return output.toByteArray();
     }
 
     public Object toObject(byte[] bytes) {
-        Decoder decoder = DecoderFactory.defaultFactory().createBinaryDecoder(bytes, null);
-        GenericDatumReader<Object> reader = null;
         try {
-            reader = new GenericDatumReader<Object>(typeDef);
-            return reader.read(null, decoder);
+            return AvroBinaryCodec.decode(datumReader, bytes, 0);
         } catch(IOException e) {
             throw new SerializationException(e);
         }
@@ -15,8 +15,9 @@
  */
 package voldemort.serialization.avro.versioned;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
@@ -26,14 +27,10 @@ import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericContainer;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
-import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.Decoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.io.Encoder;
 
 import voldemort.serialization.SerializationException;
-import voldemort.serialization.SerializationUtils;
 import voldemort.serialization.Serializer;
+import voldemort.serialization.avro.AvroBinaryCodec;
 
 /**
  * Avro serializer that uses the generic representation for Avro data. This
@@ -50,37 +47,50 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
     // reader's schema
     private final Schema typeDef;
 
+    // schemas of all versions, parsed once
+    private final SortedMap<Integer, Schema> schemaVersions;
+
+    // writer for the schema of each version
+    private final Map<Integer, GenericDatumWriter<Object>> datumWriters;
+
+    // reader from the schema of each version to the reader's schema, so that
+    // the pair is resolved once rather than on every object
+    private final Map<Integer, GenericDatumReader<Object>> datumReaders;
+
     /**
      * Constructor accepting the schema definition as a JSON string.
      * 
      * @param schema a serialized JSON object representing a Avro schema.
      */
     public AvroVersionedGenericSerializer(String schema) {
-
-        this.typeDefVersions = new TreeMap<Integer, String>();
-        this.typeDefVersions.put(0, schema);
-        newestVersion = typeDefVersions.lastKey();
-        typeDef = Schema.parse(typeDefVersions.get(newestVersion));
+        this(Collections.singletonMap(0, schema));
     }
 
     public AvroVersionedGenericSerializer(Map<Integer, String> typeDefVersions) {
 
         this.typeDefVersions = new TreeMap<Integer, String>(typeDefVersions);
         newestVersion = this.typeDefVersions.lastKey();
-        typeDef = Schema.parse(typeDefVersions.get(newestVersion));
 
+        this.schemaVersions = new TreeMap<Integer, Schema>();
+        this.datumWriters = new HashMap<Integer, GenericDatumWriter<Object>>();
+        for(Entry<Integer, String> entry: this.typeDefVersions.entrySet()) {
+            Schema schema = Schema.parse(entry.getValue());
+            schemaVersions.put(entry.getKey(), schema);
+            datumWriters.put(entry.getKey(), new GenericDatumWriter<Object>(schema));
+        }
+        typeDef = schemaVersions.get(newestVersion);
+
+        this.datumReaders = new HashMap<Integer, GenericDatumReader<Object>>();
+        for(Entry<Integer, Schema> entry: schemaVersions.entrySet())
+            datumReaders.put(entry.getKey(), new GenericDatumReader<Object>(entry.getValue(),
+                                                                            typeDef));
     }
 
     public byte[] toBytes(Object object) {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        Encoder encoder = new BinaryEncoder(output);
-        GenericDatumWriter<Object> datumWriter = null;
-
-        output.write(newestVersion.byteValue());
         try {
-            datumWriter = new GenericDatumWriter<Object>(typeDef);
-            datumWriter.write(object, encoder);
-            encoder.flush();
+            return AvroBinaryCodec.encode(datumWriters.get(newestVersion),
+                                          object,
+                                          newestVersion.byteValue());
         } catch(SerializationException sE) {
             throw sE;
         } catch(IOException e) {
@@ -94,13 +104,9 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
 
             Schema writer = ((GenericContainer) object).getSchema();
             Integer writerVersion = getSchemaVersion(writer);
-            return toBytes(object, writer, writerVersion);
+            return toBytes(object, writerVersion);
 
-        } finally {
-            SerializationUtils.close(output);
         }
-
-        return output.toByteArray();
     }
 
     /*
@@ -109,33 +115,19 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
      * application may still create objects using an old schema this lets us
      * serialize those objects without an exception
      */
-    private byte[] toBytes(Object object, Schema writer, Integer writerVersion) {
-
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        Encoder encoder = new BinaryEncoder(output);
-        GenericDatumWriter<Object> datumWriter = null;
-
-        output.write(writerVersion.byteValue());
+    private byte[] toBytes(Object object, Integer writerVersion) {
         try {
-            datumWriter = new GenericDatumWriter<Object>(writer);
-            datumWriter.write(object, encoder);
-            encoder.flush();
+            return AvroBinaryCodec.encode(datumWriters.get(writerVersion),
+                                          object,
+                                          writerVersion.byteValue());
         } catch(IOException e) {
             throw new SerializationException(e);
-        } catch(SerializationException sE) {
-            throw sE;
-        } finally {
-            SerializationUtils.close(output);
         }
-
-        return output.toByteArray();
-
     }
 
     private Integer getSchemaVersion(Schema s) throws SerializationException {
-        for(Entry<Integer, String> entry: typeDefVersions.entrySet()) {
-            Schema version = Schema.parse(entry.getValue());
-            if(s.equals(version))
+        for(Entry<Integer, Schema> entry: schemaVersions.entrySet()) {
+            if(s.equals(entry.getValue()))
                 return entry.getKey();
 
         }
@@ -150,19 +142,12 @@ public class AvroVersionedGenericSerializer implements Serializer<Object> {
         if(version > newestVersion)
             throw new SerializationException("Client needs to rebootstrap! \n Writer's schema version greater than Reader");
 
-        Schema typeDefWriter = Schema.parse(typeDefVersions.get(version));
+        GenericDatumReader<Object> reader = datumReaders.get(version);
+        if(reader == null)
+            throw new SerializationException("Writer's schema version " + version + " unknown");
 
-        byte[] dataBytes = new byte[bytes.length - 1];
-        System.arraycopy(bytes, 1, dataBytes, 0, bytes.length - 1);
-        Decoder decoder = DecoderFactory.defaultFactory().createBinaryDecoder(dataBytes, null);
-        GenericDatumReader<Object> reader = null;
         try {
-            reader = new GenericDatumReader<Object>(typeDefWriter, typeDef);
-            // writer's schema
-            reader.setSchema(typeDefWriter);
-            // Reader's schema
-            reader.setExpected(typeDef);
-            return reader.read(null, decoder);
+            return AvroBinaryCodec.decode(reader, bytes, 1);
         } catch(IOException e) {
             throw new SerializationException(e);
         }
@@ -45,6 +45,7 @@ import voldemort.store.StorageEngine;
 import voldemort.store.bdb.BdbStorageConfiguration;
 import voldemort.store.invalidmetadata.InvalidMetadataCheckingStore;
 import voldemort.store.logging.LoggingStore;
+import voldemort.store.logstructured.LogStructuredStorageConfiguration;
 import voldemort.store.memory.CacheStorageConfiguration;
 import voldemort.store.memory.InMemoryStorageConfiguration;
 import voldemort.store.mysql.MysqlStorageConfiguration;
@@ -117,6 +118,22 @@ public class VoldemortConfig implements Serializable {
     private boolean bdbLevelBasedEviction;
     private boolean bdbProactiveBackgroundMigration;
     private boolean bdbCheckpointerOffForBatchWrites;
+    private boolean bdbGroupCommit;
+    private int bdbGroupCommitMaxWaitMs;
+    private int bdbGroupCommitMaxBatchSize;
+    private long bdbValueCacheSize;
+    private int bdbValueCacheBlockSize;
+
+    private String logStructuredDataDirectory;
+    private long logStructuredSegmentSize;
+    private boolean logStructuredSyncWrites;
+    private long logStructuredCompactionIntervalMs;
+    private double logStructuredCompactionMinGarbageRatio;
+    private long logStructuredCompactionBytesPerSec;
+
+    private long cacheMaxBytes;
+    private boolean cacheOffHeap;
+    private boolean cacheExpireWithRetention;
 
     private String mysqlUsername;
     private String mysqlPassword;
@@ -132,11 +149,21 @@ public class VoldemortConfig implements Serializable {
     private long readOnlyFetcherMinBytesPerSecond;
     private long readOnlyFetcherReportingIntervalBytes;
     private int fetcherBufferSize;
+    private int readOnlyFetcherParallelFiles;
+    private boolean readOnlyFetcherResumeEnabled;
     private String readOnlyKeytabPath;
     private String readOnlyKerberosUser;
     private String hadoopConfigPath;
     // flag to indicate if we will mlock and pin index pages in memory
     private boolean useMlock;
+    private int readOnlyIndexSampleInterval;
+    private long readOnlyBlockCacheSizeInBytes;
+    private boolean readOnlyWarmupEnabled;
+    private long readOnlyWarmupDataSizeInBytes;
+    private long readOnlyWarmupTimeoutMs;
+    private int readOnlyHotSampleRate;
+    private long readOnlyHotLockSizeInBytes;
+    private long readOnlyHotLockIntervalMs;
 
     private OpTimeMap testingSlowQueueingDelays;
     private OpTimeMap testingSlowConcurrentDelays;
@@ -151,6 +178,7 @@ public class VoldemortConfig implements Serializable {
     private int nioConnectorSelectors;
     private int nioAdminConnectorSelectors;
     private int nioAcceptorBacklog;
+    private int nioZeroCopyMinValueBytes;
 
     private int clientSelectors;
     private TimeoutConfig clientTimeoutConfig;
@@ -164,6 +192,7 @@ public class VoldemortConfig implements Serializable {
     private boolean mayInterruptService;
 
     private int numScanPermits;
+    private int adminParallelScanThreads;
     private RequestFormatType requestFormatType;
 
     private boolean enableSlop;
@@ -192,6 +221,9 @@ public class VoldemortConfig implements Serializable {
     private long slopMaxWriteBytesPerSec;
     private long slopMaxReadBytesPerSec;
     private int slopBatchSize;
+    private int slopMaxBatchSize;
+    private int slopPusherScanThreads;
+    private int slopPusherQueueSize;
     private int slopZonesDownToTerminate;
 
     private int adminCoreThreads;
@@ -203,6 +235,8 @@ public class VoldemortConfig implements Serializable {
     private long streamMaxReadBytesPerSec;
     private long streamMaxWriteBytesPerSec;
     private boolean multiVersionStreamingPutsEnabled;
+    private boolean adminBulkStreamEnabled;
+    private int adminBulkStreamFrameSize;
     private int gossipIntervalMs;
 
     private String failureDetectorImplementation;
@@ -223,6 +257,7 @@ public class VoldemortConfig implements Serializable {
     private long rebalancingTimeoutSec;
     private int maxParallelStoresRebalancing;
     private boolean rebalancingOptimization;
+    private long rebalancingCheckpointIntervalMs;
     private boolean usePartitionScanForRebalance;
     private int maxProxyPutThreads;
     @Deprecated
@@ -288,6 +323,28 @@ public class VoldemortConfig implements Serializable {
                                                                 false);
         this.bdbCheckpointerOffForBatchWrites = props.getBoolean("bdb.checkpointer.off.batch.writes",
                                                                  false);
+        this.bdbGroupCommit = props.getBoolean("bdb.group.commit", false);
+        this.bdbGroupCommitMaxWaitMs = props.getInt("bdb.group.commit.max.wait.ms", 2);
+        this.bdbGroupCommitMaxBatchSize = props.getInt("bdb.group.commit.max.batch.size", 128);
+        this.bdbValueCacheSize = props.getBytes("bdb.value.cache.size", 0);
+        this.bdbValueCacheBlockSize = props.getInt("bdb.value.cache.block.size", 256);
+
+        this.logStructuredDataDirectory = props.getString("log.structured.data.directory",
+                                                          this.dataDirectory + File.separator
+                                                                  + "log-structured");
+        this.logStructuredSegmentSize = props.getBytes("log.structured.segment.size",
+                                                       64 * 1024 * 1024);
+        this.logStructuredSyncWrites = props.getBoolean("log.structured.sync.writes", false);
+        this.logStructuredCompactionIntervalMs = props.getLong("log.structured.compaction.interval.ms",
+                                                               60 * 1000);
+        this.logStructuredCompactionMinGarbageRatio = props.getDouble("log.structured.compaction.min.garbage.ratio",
+                                                                      0.5);
+        this.logStructuredCompactionBytesPerSec = props.getBytes("log.structured.compaction.bytes.per.sec",
+                                                                 10 * 1024 * 1024);
+
+        this.cacheMaxBytes = props.getBytes("cache.max.bytes", 0);
+        this.cacheOffHeap = props.getBoolean("cache.off.heap", false);
+        this.cacheExpireWithRetention = props.getBoolean("cache.expire.with.retention", true);
 
         this.numReadOnlyVersions = props.getInt("readonly.backups", 1);
         this.readOnlySearchStrategy = props.getString("readonly.search.strategy",
@@ -302,6 +359,8 @@ public class VoldemortConfig implements Serializable {
                                                                     REPORTING_INTERVAL_BYTES);
         this.fetcherBufferSize = (int) props.getBytes("hdfs.fetcher.buffer.size",
                                                       DEFAULT_BUFFER_SIZE);
+        this.readOnlyFetcherParallelFiles = props.getInt("fetcher.parallel.files", 1);
+        this.readOnlyFetcherResumeEnabled = props.getBoolean("fetcher.resume.enable", false);
         this.readOnlyKeytabPath = props.getString("readonly.keytab.path",
                                                   this.metadataDirectory
                                                           + VoldemortConfig.DEFAULT_KEYTAB_PATH);
@@ -310,6 +369,17 @@ public class VoldemortConfig implements Serializable {
         this.setHadoopConfigPath(props.getString("readonly.hadoop.config.path",
                                                  this.metadataDirectory + "/hadoop-conf"));
         this.setUseMlock(props.getBoolean("readonly.mlock.index", true));
+        this.readOnlyIndexSampleInterval = props.getInt("readonly.index.sample.interval", 0);
+        this.readOnlyBlockCacheSizeInBytes = props.getBytes("readonly.block.cache.size",
+                                                            32 * 1024 * 1024);
+        this.readOnlyWarmupEnabled = props.getBoolean("readonly.warmup.enable", false);
+        this.readOnlyWarmupDataSizeInBytes = props.getBytes("readonly.warmup.data.size",
+                                                            512 * 1024 * 1024);
+        this.readOnlyWarmupTimeoutMs = props.getLong("readonly.warmup.timeout.ms", 5 * 60 * 1000);
+        this.readOnlyHotSampleRate = props.getInt("readonly.hot.sample.rate", 0);
+        this.readOnlyHotLockSizeInBytes = props.getBytes("readonly.hot.lock.size",
+                                                         64 * 1024 * 1024);
+        this.readOnlyHotLockIntervalMs = props.getLong("readonly.hot.lock.interval.ms", 60 * 1000);
 
         this.mysqlUsername = props.getString("mysql.user", "root");
         this.mysqlPassword = props.getString("mysql.password", "");
@@ -361,6 +431,9 @@ public class VoldemortConfig implements Serializable {
                                                         10 * 1000 * 1000);
         this.multiVersionStreamingPutsEnabled = props.getBoolean("use.multi.version.streaming.puts",
                                                                  true);
+        this.adminBulkStreamEnabled = props.getBoolean("admin.streams.bulk.enable", true);
+        this.adminBulkStreamFrameSize = (int) props.getBytes("admin.streams.bulk.frame.size",
+                                                             64 * 1024);
 
         this.socketTimeoutMs = props.getInt("socket.timeout.ms", 5000);
         this.socketBufferSize = (int) props.getBytes("socket.buffer.size", 64 * 1024);
@@ -375,6 +448,7 @@ public class VoldemortConfig implements Serializable {
                                                                           .availableProcessors()));
         // a value <= 0 forces the default to be used
         this.nioAcceptorBacklog = props.getInt("nio.acceptor.backlog", 256);
+        this.nioZeroCopyMinValueBytes = props.getInt("nio.zero.copy.min.value.bytes", 64 * 1024);
 
         this.clientSelectors = props.getInt("client.selectors", 4);
         this.clientMaxConnectionsPerNode = props.getInt("client.max.connections.per.node", 50);
@@ -426,6 +500,9 @@ public class VoldemortConfig implements Serializable {
         this.slopStoreType = props.getString("slop.store.engine", BdbStorageConfiguration.TYPE_NAME);
         this.slopFrequencyMs = props.getLong("slop.frequency.ms", 5 * 60 * 1000);
         this.slopBatchSize = props.getInt("slop.batch.size", 100);
+        this.slopMaxBatchSize = props.getInt("slop.max.batch.size", 10000);
+        this.slopPusherScanThreads = props.getInt("slop.pusher.scan.threads", 4);
+        this.slopPusherQueueSize = props.getInt("slop.pusher.queue.size", 1000);
         this.pusherType = props.getString("pusher.type", StreamingSlopPusherJob.TYPE_NAME);
         this.slopZonesDownToTerminate = props.getInt("slop.zones.terminate", 0);
 
@@ -433,12 +510,14 @@ public class VoldemortConfig implements Serializable {
         this.mayInterruptService = props.getBoolean("service.interruptible", true);
 
         this.numScanPermits = props.getInt("num.scan.permits", 1);
+        this.adminParallelScanThreads = props.getInt("admin.parallel.scan.threads", 8);
 
         this.storageConfigurations = props.getList("storage.configs",
                                                    ImmutableList.of(BdbStorageConfiguration.class.getName(),
                                                                     MysqlStorageConfiguration.class.getName(),
                                                                     InMemoryStorageConfiguration.class.getName(),
                                                                     CacheStorageConfiguration.class.getName(),
+                                                                    LogStructuredStorageConfiguration.class.getName(),
                                                                     ReadOnlyStorageConfiguration.class.getName()));
 
         // start at midnight (0-23)
@@ -472,6 +551,8 @@ public class VoldemortConfig implements Serializable {
         this.rebalancingTimeoutSec = props.getLong("rebalancing.timeout.seconds", 10 * 24 * 60 * 60);
         this.maxParallelStoresRebalancing = props.getInt("max.parallel.stores.rebalancing", 3);
         this.rebalancingOptimization = props.getBoolean("rebalancing.optimization", true);
+        this.rebalancingCheckpointIntervalMs = props.getLong("rebalancing.checkpoint.interval.ms",
+                                                             60 * 1000);
         this.usePartitionScanForRebalance = props.getBoolean("use.partition.scan.for.rebalance",
                                                              true);
         this.maxProxyPutThreads = props.getInt("max.proxy.put.threads", 1);
@@ -1170,6 +1251,252 @@ public class VoldemortConfig implements Serializable {
         this.bdbCheckpointerOffForBatchWrites = bdbCheckpointerOffForBulkWrites;
     }
 
+    public boolean isBdbGroupCommitEnabled() {
+        return bdbGroupCommit;
+    }
+
+    /**
+     * If true, puts issued at the same time against the same BDB environment
+     * are written in a single transaction, so that they share one commit
+     * instead of paying for one each
+     * 
+     * <ul>
+     * <li>Property : "bdb.group.commit"</li>
+     * <li>Default : false</li>
+     * </ul>
+     * 
+     */
+    public void setBdbGroupCommit(boolean bdbGroupCommit) {
+        this.bdbGroupCommit = bdbGroupCommit;
+    }
+
+    public int getBdbGroupCommitMaxWaitMs() {
+        return bdbGroupCommitMaxWaitMs;
+    }
+
+    /**
+     * With group commit, how long the first put of a group waits for others
+     * to join it before the group is committed
+     * 
+     * <ul>
+     * <li>Property : "bdb.group.commit.max.wait.ms"</li>
+     * <li>Default : 2</li>
+     * </ul>
+     * 
+     */
+    public void setBdbGroupCommitMaxWaitMs(int bdbGroupCommitMaxWaitMs) {
+        this.bdbGroupCommitMaxWaitMs = bdbGroupCommitMaxWaitMs;
+    }
+
+    public int getBdbGroupCommitMaxBatchSize() {
+        return bdbGroupCommitMaxBatchSize;
+    }
+
+    /**
+     * With group commit, the largest number of puts committed together
+     * 
+     * <ul>
+     * <li>Property : "bdb.group.commit.max.batch.size"</li>
+     * <li>Default : 128</li>
+     * </ul>
+     * 
+     */
+    public void setBdbGroupCommitMaxBatchSize(int bdbGroupCommitMaxBatchSize) {
+        this.bdbGroupCommitMaxBatchSize = bdbGroupCommitMaxBatchSize;
+    }
+
+    public long getBdbValueCacheSize() {
+        return bdbValueCacheSize;
+    }
+
+    /**
+     * The off-heap memory given to each BDB store for a cache of its values in
+     * front of BDB, or 0 for no such cache. Hot values stay in memory without
+     * taking heap, which lets the BDB cache be smaller.
+     * 
+     * <ul>
+     * <li>Property : "bdb.value.cache.size"</li>
+     * <li>Default : 0</li>
+     * </ul>
+     * 
+     */
+    public void setBdbValueCacheSize(long bdbValueCacheSize) {
+        this.bdbValueCacheSize = bdbValueCacheSize;
+    }
+
+    public int getBdbValueCacheBlockSize() {
+        return bdbValueCacheBlockSize;
+    }
+
+    /**
+     * The unit the memory of the BDB value cache is handed out in. Each value
+     * takes a whole number of blocks.
+     * 
+     * <ul>
+     * <li>Property : "bdb.value.cache.block.size"</li>
+     * <li>Default : 256</li>
+     * </ul>
+     * 
+     */
+    public void setBdbValueCacheBlockSize(int bdbValueCacheBlockSize) {
+        this.bdbValueCacheBlockSize = bdbValueCacheBlockSize;
+    }
+
+    public String getLogStructuredDataDirectory() {
+        return logStructuredDataDirectory;
+    }
+
+    /**
+     * The directory in which the logs of the log-structured stores are kept
+     * 
+     * <ul>
+     * <li>Property : "log.structured.data.directory"</li>
+     * <li>Default : data.directory/log-structured</li>
+     * </ul>
+     */
+    public void setLogStructuredDataDirectory(String logStructuredDataDirectory) {
+        this.logStructuredDataDirectory = logStructuredDataDirectory;
+    }
+
+    public long getLogStructuredSegmentSize() {
+        return logStructuredSegmentSize;
+    }
+
+    /**
+     * The size past which a log-structured store starts a new segment file.
+     * Each partition of each store has segments of its own.
+     * 
+     * <ul>
+     * <li>Property : "log.structured.segment.size"</li>
+     * <li>Default : 64MB</li>
+     * </ul>
+     */
+    public void setLogStructuredSegmentSize(long logStructuredSegmentSize) {
+        this.logStructuredSegmentSize = logStructuredSegmentSize;
+    }
+
+    public boolean isLogStructuredSyncWrites() {
+        return logStructuredSyncWrites;
+    }
+
+    /**
+     * If true, every write to a log-structured store is forced to disk before
+     * it returns
+     * 
+     * <ul>
+     * <li>Property : "log.structured.sync.writes"</li>
+     * <li>Default : false</li>
+     * </ul>
+     */
+    public void setLogStructuredSyncWrites(boolean logStructuredSyncWrites) {
+        this.logStructuredSyncWrites = logStructuredSyncWrites;
+    }
+
+    public long getLogStructuredCompactionIntervalMs() {
+        return logStructuredCompactionIntervalMs;
+    }
+
+    /**
+     * How long the compaction of the log-structured stores waits between runs
+     * 
+     * <ul>
+     * <li>Property : "log.structured.compaction.interval.ms"</li>
+     * <li>Default : 60000</li>
+     * </ul>
+     */
+    public void setLogStructuredCompactionIntervalMs(long logStructuredCompactionIntervalMs) {
+        this.logStructuredCompactionIntervalMs = logStructuredCompactionIntervalMs;
+    }
+
+    public double getLogStructuredCompactionMinGarbageRatio() {
+        return logStructuredCompactionMinGarbageRatio;
+    }
+
+    /**
+     * The share of a segment that has to be overwritten or deleted records
+     * before compaction rewrites it
+     * 
+     * <ul>
+     * <li>Property : "log.structured.compaction.min.garbage.ratio"</li>
+     * <li>Default : 0.5</li>
+     * </ul>
+     */
+    public void setLogStructuredCompactionMinGarbageRatio(double logStructuredCompactionMinGarbageRatio) {
+        this.logStructuredCompactionMinGarbageRatio = logStructuredCompactionMinGarbageRatio;
+    }
+
+    public long getLogStructuredCompactionBytesPerSec() {
+        return logStructuredCompactionBytesPerSec;
+    }
+
+    /**
+     * The rate compaction of the log-structured stores reads and copies
+     * records at, across all stores
+     * 
+     * <ul>
+     * <li>Property : "log.structured.compaction.bytes.per.sec"</li>
+     * <li>Default : 10MB</li>
+     * </ul>
+     */
+    public void setLogStructuredCompactionBytesPerSec(long logStructuredCompactionBytesPerSec) {
+        this.logStructuredCompactionBytesPerSec = logStructuredCompactionBytesPerSec;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    /**
+     * The memory each store of type "cache" may take for its keys and values,
+     * beyond which the entries least worth keeping are evicted. 0 leaves the
+     * stores unbounded, holding their values through soft references that the
+     * garbage collector clears under memory pressure.
+     * 
+     * <ul>
+     * <li>Property : "cache.max.bytes"</li>
+     * <li>Default : 0</li>
+     * </ul>
+     */
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    public boolean isCacheOffHeap() {
+        return cacheOffHeap;
+    }
+
+    /**
+     * Whether bounded cache stores keep their values in direct memory rather
+     * than on the heap, so that a large cache adds nothing to garbage
+     * collection. Only applies when cache.max.bytes is set.
+     * 
+     * <ul>
+     * <li>Property : "cache.off.heap"</li>
+     * <li>Default : false</li>
+     * </ul>
+     */
+    public void setCacheOffHeap(boolean cacheOffHeap) {
+        this.cacheOffHeap = cacheOffHeap;
+    }
+
+    public boolean isCacheExpireWithRetention() {
+        return cacheExpireWithRetention;
+    }
+
+    /**
+     * Whether entries of bounded cache stores that have a retention-days
+     * expire that long after they were written. Only applies when
+     * cache.max.bytes is set.
+     * 
+     * <ul>
+     * <li>Property : "cache.expire.with.retention"</li>
+     * <li>Default : true</li>
+     * </ul>
+     */
+    public void setCacheExpireWithRetention(boolean cacheExpireWithRetention) {
+        this.cacheExpireWithRetention = cacheExpireWithRetention;
+    }
+
     public long getBdbCheckpointMs() {
         return this.bdbCheckpointMs;
     }
@@ -1492,6 +1819,43 @@ public class VoldemortConfig implements Serializable {
         return this.multiVersionStreamingPutsEnabled;
     }
 
+    public boolean isAdminBulkStreamEnabled() {
+        return adminBulkStreamEnabled;
+    }
+
+    /**
+     * If true, the entries of partition fetches and updates are streamed in
+     * large frames of raw entries, instead of a protobuf message per entry,
+     * for the admin clients that ask for it
+     * 
+     * <ul>
+     * <li>Property : "admin.streams.bulk.enable"</li>
+     * <li>Default : true</li>
+     * </ul>
+     * 
+     */
+    public void setAdminBulkStreamEnabled(boolean adminBulkStreamEnabled) {
+        this.adminBulkStreamEnabled = adminBulkStreamEnabled;
+    }
+
+    public int getAdminBulkStreamFrameSize() {
+        return adminBulkStreamFrameSize;
+    }
+
+    /**
+     * Size of the frames that fetched entries are packed into, when they are
+     * streamed in the bulk format
+     * 
+     * <ul>
+     * <li>Property : "admin.streams.bulk.frame.size"</li>
+     * <li>Default : 64KB</li>
+     * </ul>
+     * 
+     */
+    public void setAdminBulkStreamFrameSize(int adminBulkStreamFrameSize) {
+        this.adminBulkStreamFrameSize = adminBulkStreamFrameSize;
+    }
+
     /**
      * Controls the rate at which the {@link StreamingSlopPusherJob} will send
      * slop writes over the wire
@@ -1703,6 +2067,60 @@ public class VoldemortConfig implements Serializable {
         this.slopBatchSize = slopBatchSize;
     }
 
+    public int getSlopMaxBatchSize() {
+        return this.slopMaxBatchSize;
+    }
+
+    /**
+     * The streaming slop pusher starts each node off with batches of
+     * slop.batch.size slops, and doubles the batch after every one that
+     * streams quickly, up to this size
+     * 
+     * <ul>
+     * <li>Property :"slop.max.batch.size"</li>
+     * <li>Default :10000</li>
+     * </ul>
+     */
+    public void setSlopMaxBatchSize(int slopMaxBatchSize) {
+        this.slopMaxBatchSize = slopMaxBatchSize;
+    }
+
+    public int getSlopPusherScanThreads() {
+        return this.slopPusherScanThreads;
+    }
+
+    /**
+     * The number of threads the streaming slop pusher reads the slop store
+     * with, each taking a share of its partitions. Only applies to slop stores
+     * that can be scanned by partition.
+     * 
+     * <ul>
+     * <li>Property :"slop.pusher.scan.threads"</li>
+     * <li>Default :4</li>
+     * </ul>
+     */
+    public void setSlopPusherScanThreads(int slopPusherScanThreads) {
+        this.slopPusherScanThreads = slopPusherScanThreads;
+    }
+
+    public int getSlopPusherQueueSize() {
+        return this.slopPusherQueueSize;
+    }
+
+    /**
+     * The number of slops the streaming slop pusher holds for each node while
+     * they wait to be streamed. Once a node lets its queue stay full for the
+     * routing timeout, the rest of its slops are left for the next run.
+     * 
+     * <ul>
+     * <li>Property :"slop.pusher.queue.size"</li>
+     * <li>Default :1000</li>
+     * </ul>
+     */
+    public void setSlopPusherQueueSize(int slopPusherQueueSize) {
+        this.slopPusherQueueSize = slopPusherQueueSize;
+    }
+
     public int getSocketTimeoutMs() {
         return this.socketTimeoutMs;
     }
@@ -2155,6 +2573,26 @@ public class VoldemortConfig implements Serializable {
         this.nioAcceptorBacklog = nioAcceptorBacklog;
     }
 
+    public int getNioZeroCopyMinValueBytes() {
+        return nioZeroCopyMinValueBytes;
+    }
+
+    /**
+     * Values of read-only stores at least this large are sent by the
+     * {@link NioSocketService} straight from the data files with
+     * FileChannel.transferTo, instead of being copied into the heap. Smaller
+     * values are copied from the data file into the response buffer. Set to a
+     * negative value to read every value with a regular get.
+     * 
+     * <ul>
+     * <li>Property :"nio.zero.copy.min.value.bytes"</li>
+     * <li>Default : 64KB</li>
+     * </ul>
+     */
+    public void setNioZeroCopyMinValueBytes(int nioZeroCopyMinValueBytes) {
+        this.nioZeroCopyMinValueBytes = nioZeroCopyMinValueBytes;
+    }
+
     public int getAdminSocketBufferSize() {
         return adminStreamBufferSize;
     }
@@ -2247,6 +2685,26 @@ public class VoldemortConfig implements Serializable {
         this.numScanPermits = numScanPermits;
     }
 
+    public int getAdminParallelScanThreads() {
+        return adminParallelScanThreads;
+    }
+
+    /**
+     * Number of threads shared by the partition fetches that scan several
+     * partitions at once, which is also the most partitions a single fetch
+     * scans at once. Each scan but the first of a fetch also takes one of the
+     * "num.scan.permits", so it does not crowd out the background jobs. 0
+     * scans the partitions of a fetch one after another.
+     * 
+     * <ul>
+     * <li>Property :"admin.parallel.scan.threads"</li>
+     * <li>Default :8</li>
+     * </ul>
+     */
+    public void setAdminParallelScanThreads(int adminParallelScanThreads) {
+        this.adminParallelScanThreads = adminParallelScanThreads;
+    }
+
     public String getFailureDetectorImplementation() {
         return failureDetectorImplementation;
     }
@@ -2618,6 +3076,41 @@ public class VoldemortConfig implements Serializable {
         this.fetcherBufferSize = fetcherBufferSize;
     }
 
+    public int getReadOnlyFetcherParallelFiles() {
+        return readOnlyFetcherParallelFiles;
+    }
+
+    /**
+     * Number of files of a read-only version HdfsFetcher copies concurrently.
+     * All of them share the throttle rate of the fetch.
+     * 
+     * <ul>
+     * <li>Property :"fetcher.parallel.files"</li>
+     * <li>Default :1</li>
+     * </ul>
+     */
+    public void setReadOnlyFetcherParallelFiles(int readOnlyFetcherParallelFiles) {
+        this.readOnlyFetcherParallelFiles = readOnlyFetcherParallelFiles;
+    }
+
+    public boolean isReadOnlyFetcherResumeEnabled() {
+        return readOnlyFetcherResumeEnabled;
+    }
+
+    /**
+     * If enabled, fetching a version into a directory left behind by an
+     * interrupted fetch of the same version keeps the files already copied
+     * instead of failing
+     * 
+     * <ul>
+     * <li>Property :"fetcher.resume.enable"</li>
+     * <li>Default :false</li>
+     * </ul>
+     */
+    public void setReadOnlyFetcherResumeEnabled(boolean readOnlyFetcherResumeEnabled) {
+        this.readOnlyFetcherResumeEnabled = readOnlyFetcherResumeEnabled;
+    }
+
     /**
      * Strategy to be used to search the read-only index for a given key. Either
      * {@link BinarySearchStrategy} or {@link InterpolationSearchStrategy}
@@ -2700,6 +3193,26 @@ public class VoldemortConfig implements Serializable {
         this.rebalancingOptimization = rebalancingOptimization;
     }
 
+    public long getRebalancingCheckpointIntervalMs() {
+        return rebalancingCheckpointIntervalMs;
+    }
+
+    /**
+     * How often the copy of partitions during rebalancing records how far it
+     * has come, so that a copy cut short by a restart of the stealer or the
+     * donor resumes from there instead of from the start. Only the stores
+     * whose partition scans are resumable, i.e. BDB stores with partition
+     * prefixed keys, resume. 0 turns checkpoints off.
+     * 
+     * <ul>
+     * <li>Property :"rebalancing.checkpoint.interval.ms"</li>
+     * <li>Default :60000</li>
+     * </ul>
+     */
+    public void setRebalancingCheckpointIntervalMs(long rebalancingCheckpointIntervalMs) {
+        this.rebalancingCheckpointIntervalMs = rebalancingCheckpointIntervalMs;
+    }
+
     public boolean usePartitionScanForRebalance() {
         return usePartitionScanForRebalance;
     }
@@ -2796,6 +3309,166 @@ public class VoldemortConfig implements Serializable {
         this.useMlock = useMlock;
     }
 
+    public int getReadOnlyIndexSampleInterval() {
+        return readOnlyIndexSampleInterval;
+    }
+
+    /**
+     * If greater than 0, every read-only chunk keeps an in-heap sparse index
+     * of every n-th key of its index file, built when a version is opened or
+     * swapped in. Lookups then only search the block of n index entries that
+     * can contain the key, instead of binary searching the whole index file.
+     * Costs (key hash size / n) bytes of heap per key.
+     * 
+     * <ul>
+     * <li>Property : "readonly.index.sample.interval"</li>
+     * <li>Default : 0 (disabled)</li>
+     * </ul>
+     * 
+     * @param readOnlyIndexSampleInterval
+     */
+    public void setReadOnlyIndexSampleInterval(int readOnlyIndexSampleInterval) {
+        this.readOnlyIndexSampleInterval = readOnlyIndexSampleInterval;
+    }
+
+    public long getReadOnlyBlockCacheSizeInBytes() {
+        return readOnlyBlockCacheSizeInBytes;
+    }
+
+    /**
+     * Size of the per store cache of decompressed blocks, used by read-only
+     * store versions whose data files were built block compressed. A value
+     * of 0 decompresses a block on every read.
+     * 
+     * <ul>
+     * <li>Property : "readonly.block.cache.size"</li>
+     * <li>Default : 32MB</li>
+     * </ul>
+     * 
+     * @param readOnlyBlockCacheSizeInBytes
+     */
+    public void setReadOnlyBlockCacheSizeInBytes(long readOnlyBlockCacheSizeInBytes) {
+        this.readOnlyBlockCacheSizeInBytes = readOnlyBlockCacheSizeInBytes;
+    }
+
+    public boolean isReadOnlyWarmupEnabled() {
+        return readOnlyWarmupEnabled;
+    }
+
+    /**
+     * If enabled, a fetched read-only version is read into the page cache
+     * before it is swapped in: index files fully and data files up to
+     * "readonly.warmup.data.size". The swap waits for the warmup for at most
+     * "readonly.warmup.timeout.ms".
+     * 
+     * <ul>
+     * <li>Property : "readonly.warmup.enable"</li>
+     * <li>Default : false</li>
+     * </ul>
+     * 
+     * @param readOnlyWarmupEnabled
+     */
+    public void setReadOnlyWarmupEnabled(boolean readOnlyWarmupEnabled) {
+        this.readOnlyWarmupEnabled = readOnlyWarmupEnabled;
+    }
+
+    public long getReadOnlyWarmupDataSizeInBytes() {
+        return readOnlyWarmupDataSizeInBytes;
+    }
+
+    /**
+     * Number of bytes of the data files of a read-only version warmed before
+     * swap, shared by the data files in proportion to their size
+     * 
+     * <ul>
+     * <li>Property : "readonly.warmup.data.size"</li>
+     * <li>Default : 512MB</li>
+     * </ul>
+     * 
+     * @param readOnlyWarmupDataSizeInBytes
+     */
+    public void setReadOnlyWarmupDataSizeInBytes(long readOnlyWarmupDataSizeInBytes) {
+        this.readOnlyWarmupDataSizeInBytes = readOnlyWarmupDataSizeInBytes;
+    }
+
+    public long getReadOnlyWarmupTimeoutMs() {
+        return readOnlyWarmupTimeoutMs;
+    }
+
+    /**
+     * Maximum time a read-only swap waits for the warmup of the new version,
+     * after which the version is swapped in partially warmed
+     * 
+     * <ul>
+     * <li>Property : "readonly.warmup.timeout.ms"</li>
+     * <li>Default : 300000</li>
+     * </ul>
+     * 
+     * @param readOnlyWarmupTimeoutMs
+     */
+    public void setReadOnlyWarmupTimeoutMs(long readOnlyWarmupTimeoutMs) {
+        this.readOnlyWarmupTimeoutMs = readOnlyWarmupTimeoutMs;
+    }
+
+    public int getReadOnlyHotSampleRate() {
+        return readOnlyHotSampleRate;
+    }
+
+    /**
+     * If greater than 0, one in this many read-only reads is sampled to find
+     * the most read ranges of the index and data files, and the hottest
+     * "readonly.hot.lock.size" bytes of every store are locked in memory every
+     * "readonly.hot.lock.interval.ms". 0 disables sampling.
+     * 
+     * <ul>
+     * <li>Property : "readonly.hot.sample.rate"</li>
+     * <li>Default : 0</li>
+     * </ul>
+     * 
+     * @param readOnlyHotSampleRate
+     */
+    public void setReadOnlyHotSampleRate(int readOnlyHotSampleRate) {
+        this.readOnlyHotSampleRate = readOnlyHotSampleRate;
+    }
+
+    public long getReadOnlyHotLockSizeInBytes() {
+        return readOnlyHotLockSizeInBytes;
+    }
+
+    /**
+     * Number of bytes of the hottest index and data ranges locked in memory
+     * per read-only store
+     * 
+     * <ul>
+     * <li>Property : "readonly.hot.lock.size"</li>
+     * <li>Default : 64MB</li>
+     * </ul>
+     * 
+     * @param readOnlyHotLockSizeInBytes
+     */
+    public void setReadOnlyHotLockSizeInBytes(long readOnlyHotLockSizeInBytes) {
+        this.readOnlyHotLockSizeInBytes = readOnlyHotLockSizeInBytes;
+    }
+
+    public long getReadOnlyHotLockIntervalMs() {
+        return readOnlyHotLockIntervalMs;
+    }
+
+    /**
+     * Interval at which the locked hot ranges of the read-only stores are
+     * recomputed from the sampled reads
+     * 
+     * <ul>
+     * <li>Property : "readonly.hot.lock.interval.ms"</li>
+     * <li>Default : 60000</li>
+     * </ul>
+     * 
+     * @param readOnlyHotLockIntervalMs
+     */
+    public void setReadOnlyHotLockIntervalMs(long readOnlyHotLockIntervalMs) {
+        this.readOnlyHotLockIntervalMs = readOnlyHotLockIntervalMs;
+    }
+
     public int getGossipInterval() {
         return gossipIntervalMs;
     }
@@ -29,6 +29,8 @@ import org.apache.log4j.Level;
 
 import voldemort.VoldemortException;
 import voldemort.client.protocol.RequestFormatType;
+import voldemort.common.nio.FileRegion;
+import voldemort.common.nio.FileRegionOutputStream;
 import voldemort.common.nio.SelectorManagerWorker;
 import voldemort.server.protocol.RequestHandler;
 import voldemort.server.protocol.RequestHandlerFactory;
@@ -46,6 +48,11 @@ import voldemort.utils.ByteUtils;
  * The bulk of the complexity in this class surrounds partial reads and writes,
  * as well as determining when all the data needed for the request has been
  * read.
+ * <p/>
+ * On connections negotiated with a multiplexed protocol every request and
+ * response is framed with a request id and a length, and the client may send
+ * any number of requests without waiting for their responses. The requests are
+ * answered in the order they are read.
  * 
  * 
  * @see voldemort.server.protocol.RequestHandler
@@ -59,6 +66,8 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
 
     private StreamRequestHandler streamRequestHandler;
 
+    private boolean multiplexed;
+
     private NioSelectorManagerStats nioStats;
 
     public AsyncRequestHandler(Selector selector,
@@ -105,6 +114,11 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
             }
         }
 
+        if(multiplexed) {
+            handleMultiplexedRequests(selectionKey);
+            return;
+        }
+
         if(streamRequestHandler != null) {
             // We're continuing an existing streaming request from our last pass
             // through. So handle it and return.
@@ -127,7 +141,7 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
             logger.trace("Starting execution for " + socketChannel.socket());
 
         DataInputStream dataInputStream = new DataInputStream(inputStream);
-        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        DataOutputStream dataOutputStream = new FileRegionOutputStream(outputStream);
 
         streamRequestHandler = requestHandler.handleRequest(dataInputStream, dataOutputStream);
 
@@ -185,6 +199,28 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
         if(outputStream.getBuffer().hasRemaining())
             return;
 
+        // The response may end with a region of a file, which goes straight
+        // from the file to the socket once the buffer is drained.
+        FileRegion fileRegion = outputStream.getFileRegion();
+        if(fileRegion != null) {
+            try {
+                long count = fileRegion.transferTo(socketChannel);
+
+                if(logger.isTraceEnabled())
+                    logger.trace("Transferred " + count + " bytes, remaining: "
+                                 + (fileRegion.getCount() - fileRegion.getTransferred())
+                                 + " for " + socketChannel.socket());
+            } catch(IOException e) {
+                outputStream.releaseFileRegion();
+                throw e;
+            }
+
+            if(!fileRegion.isComplete())
+                return;
+
+            outputStream.releaseFileRegion();
+        }
+
         // If we don't have anything else to write, that means we're done with
         // the request! So clear the buffers (resizing if necessary).
         if(outputStream.getBuffer().capacity() >= resizeThreshold)
@@ -192,7 +228,12 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
         else
             outputStream.getBuffer().clear();
 
-        if(streamRequestHandler != null
+        if(multiplexed) {
+            // Requests that arrived while we were writing are still waiting in
+            // the input buffer.
+            inputStream.getBuffer().flip();
+            handleMultiplexedRequests(selectionKey);
+        } else if(streamRequestHandler != null
            && streamRequestHandler.getDirection() == StreamRequestDirection.WRITING) {
             // In the case of streaming writes, it's possible we can process
             // another segment of the stream. We process streaming writes this
@@ -209,6 +250,75 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
         }
     }
 
+    /**
+     * Answers every complete request in the (flipped) input buffer, leaves any
+     * partial request at the start of the buffer for the next read and signals
+     * the Selector to write the responses, if there are any, or to read more.
+     */
+    private void handleMultiplexedRequests(SelectionKey selectionKey) throws IOException {
+        ByteBuffer inputBuffer = inputStream.getBuffer();
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        FileRegionOutputStream dataOutputStream = new FileRegionOutputStream(outputStream);
+
+        // Nothing can be written after a file region, so the requests after
+        // one wait until it has been sent.
+        while(outputStream.getFileRegion() == null
+              && inputBuffer.remaining() >= MULTIPLEXED_HEADER_SIZE) {
+            int start = inputBuffer.position();
+            int requestId = inputBuffer.getInt(start);
+            int length = inputBuffer.getInt(start + 4);
+
+            if(length < 0)
+                throw new IOException("Invalid request length " + length + " from "
+                                      + socketChannel.socket());
+
+            int end = start + MULTIPLEXED_HEADER_SIZE + length;
+
+            if(end > inputBuffer.limit())
+                break;
+
+            int limit = inputBuffer.limit();
+            inputBuffer.position(start + MULTIPLEXED_HEADER_SIZE);
+            inputBuffer.limit(end);
+
+            dataOutputStream.writeInt(requestId);
+            int lengthPosition = outputStream.getBuffer().position();
+            dataOutputStream.writeInt(0);
+
+            if(logger.isTraceEnabled())
+                logger.trace("Starting execution of request " + requestId + " for "
+                             + socketChannel.socket());
+
+            StreamRequestHandler handler = requestHandler.handleRequest(dataInputStream,
+                                                                        dataOutputStream);
+
+            if(handler != null) {
+                handler.close(dataOutputStream);
+                throw new IOException("Streaming requests are not supported on multiplexed connections, closing "
+                                      + socketChannel.socket());
+            }
+
+            dataOutputStream.flush();
+            ByteBuffer outputBuffer = outputStream.getBuffer();
+            long responseLength = outputBuffer.position() - lengthPosition - 4;
+            if(outputStream.getFileRegion() != null)
+                responseLength += outputStream.getFileRegion().getCount();
+            outputBuffer.putInt(lengthPosition, (int) responseLength);
+
+            inputBuffer.limit(limit);
+            inputBuffer.position(end);
+        }
+
+        compactMultiplexedInput();
+
+        if(outputStream.getBuffer().position() > 0 || outputStream.getFileRegion() != null) {
+            outputStream.getBuffer().flip();
+            selectionKey.interestOps(SelectionKey.OP_WRITE);
+        } else {
+            selectionKey.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
     private void handleStreamRequest(SelectionKey selectionKey) throws IOException {
         // You are not expected to understand this.
         DataInputStream dataInputStream = new DataInputStream(inputStream);
@@ -353,6 +463,7 @@ public class AsyncRequestHandler extends SelectorManagerWorker {
             String proto = ByteUtils.getString(protoBytes, "UTF-8");
             RequestFormatType requestFormatType = RequestFormatType.fromCode(proto);
             requestHandler = requestHandlerFactory.getRequestHandler(requestFormatType);
+            multiplexed = requestFormatType.isMultiplexed();
 
             if(logger.isInfoEnabled())
                 logger.info("Protocol negotiated for " + socketChannel.socket() + ": "
@@ -45,13 +45,26 @@ public class SocketRequestHandlerFactory implements RequestHandlerFactory {
     public RequestHandler getRequestHandler(RequestFormatType type) {
         switch(type) {
             case VOLDEMORT_V0:
-                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(), repository, 0);
+                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(),
+                                                         repository,
+                                                         0,
+                                                         getNioZeroCopyMinValueBytes());
             case VOLDEMORT_V1:
-                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(), repository, 1);
+                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(),
+                                                         repository,
+                                                         1,
+                                                         getNioZeroCopyMinValueBytes());
             case VOLDEMORT_V2:
-                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(), repository, 2);
+                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(),
+                                                         repository,
+                                                         2,
+                                                         getNioZeroCopyMinValueBytes());
             case VOLDEMORT_V3:
-                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(), repository, 3);
+            case VOLDEMORT_V3_MULTIPLEXED:
+                return new VoldemortNativeRequestHandler(new ErrorCodeMapper(),
+                                                         repository,
+                                                         3,
+                                                         getNioZeroCopyMinValueBytes());
             case PROTOCOL_BUFFERS:
                 return new ProtoBuffRequestHandler(new ErrorCodeMapper(), repository);
             case ADMIN_PROTOCOL_BUFFERS:
@@ -66,4 +79,9 @@ public class SocketRequestHandlerFactory implements RequestHandlerFactory {
                 throw new VoldemortException("Unknown wire format " + type);
         }
     }
+
+    private int getNioZeroCopyMinValueBytes() {
+        return voldemortConfig == null ? VoldemortNativeRequestHandler.ZERO_COPY_DISABLED
+                                      : voldemortConfig.getNioZeroCopyMinValueBytes();
+    }
 }
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
@@ -46,6 +47,7 @@ import voldemort.server.StoreRepository;
 import voldemort.server.VoldemortConfig;
 import voldemort.server.protocol.RequestHandler;
 import voldemort.server.protocol.StreamRequestHandler;
+import voldemort.server.rebalance.RebalanceCheckpointer;
 import voldemort.server.rebalance.Rebalancer;
 import voldemort.server.storage.RepairJob;
 import voldemort.server.storage.StorageService;
@@ -70,6 +72,7 @@ import voldemort.utils.NetworkClassLoader;
 import voldemort.utils.Pair;
 import voldemort.utils.RebalanceUtils;
 import voldemort.utils.ReflectUtils;
+import voldemort.utils.SystemTime;
 import voldemort.utils.Utils;
 import voldemort.versioning.ObsoleteVersionException;
 import voldemort.versioning.VectorClock;
@@ -549,7 +552,20 @@ public class AdminServiceRequestHandler implements RequestHandler {
                                                                                                              request.getStore());
 
         if(fetchValues) {
-            if(storageEngine.isPartitionScanSupported() && !fetchOrphaned)
+            int parallelism = Math.min(ProtoUtils.decodeFetchParallelism(request),
+                                       voldemortConfig.getAdminParallelScanThreads());
+            if(storageEngine.isPartitionScanSupported() && !fetchOrphaned && parallelism > 1
+               && storageService != null && storageService.getParallelScanPool() != null)
+                return new ParallelPartitionScanFetchEntriesRequestHandler(request,
+                                                                           metadataStore,
+                                                                           errorCodeMapper,
+                                                                           voldemortConfig,
+                                                                           storeRepository,
+                                                                           networkClassLoader,
+                                                                           storageService.getParallelScanPool(),
+                                                                           storageService.getScanPermitWrapper(),
+                                                                           parallelism);
+            else if(storageEngine.isPartitionScanSupported() && !fetchOrphaned)
                 return new PartitionScanFetchEntriesRequestHandler(request,
                                                                    metadataStore,
                                                                    errorCodeMapper,
@@ -987,13 +1003,36 @@ public class AdminServiceRequestHandler implements RequestHandler {
                             }
 
                             if(optimizedReplicaToPartitionList.size() > 0) {
+                                // Rebalancing copies, which name the initial
+                                // cluster, resume from their checkpoints
+                                RebalanceCheckpointer checkpointer = null;
+                                Map<Integer, ByteArray> startKeys = null;
+                                if(initialCluster != null
+                                   && voldemortConfig.getRebalancingCheckpointIntervalMs() > 0) {
+                                    checkpointer = new RebalanceCheckpointer(metadataStore,
+                                                                             nodeId,
+                                                                             storeName,
+                                                                             voldemortConfig.getRebalancingCheckpointIntervalMs(),
+                                                                             SystemTime.INSTANCE);
+                                    startKeys = checkpointer.getStartKeys();
+                                    if(!startKeys.isEmpty()) {
+                                        logger.info("Resuming fetch of partitions "
+                                                    + startKeys.keySet() + " of RW store '"
+                                                    + storeName + "' from node " + nodeId
+                                                    + " from their checkpoints");
+                                    }
+                                }
+
                                 Iterator<Pair<ByteArray, Versioned<byte[]>>> entriesIterator = adminClient.bulkFetchOps.fetchEntries(nodeId,
                                                                                                                                      storeName,
                                                                                                                                      optimizedReplicaToPartitionList,
                                                                                                                                      filter,
                                                                                                                                      false,
                                                                                                                                      initialCluster,
-                                                                                                                                     0);
+                                                                                                                                     0,
+                                                                                                                                     adminClient.getAdminClientConfig()
+                                                                                                                                                .getFetchParallelism(),
+                                                                                                                                     startKeys);
                                 long numTuples = 0;
                                 long startTime = System.currentTimeMillis();
                                 while(running.get() && entriesIterator.hasNext()) {
@@ -1007,6 +1046,10 @@ public class AdminServiceRequestHandler implements RequestHandler {
                                         // log and ignore
                                         logger.debug("Fetch and update threw Obsolete version exception. Ignoring");
                                     }
+                                    if(checkpointer != null) {
+                                        checkpointer.copied(key);
+                                        checkpointer.maybeCheckpoint();
+                                    }
 
                                     long totalTime = (System.currentTimeMillis() - startTime) / 1000;
                                     throttler.maybeThrottle(key.length() + valueSize(value));
@@ -1022,6 +1065,8 @@ public class AdminServiceRequestHandler implements RequestHandler {
 
                                 long totalTime = (System.currentTimeMillis() - startTime) / 1000;
                                 if(running.get()) {
+                                    if(checkpointer != null)
+                                        checkpointer.complete();
                                     logger.info("Completed fetching " + numTuples
                                                 + " entries from node " + nodeId + " for store '"
                                                 + storeName + "' in " + totalTime + " seconds");
@@ -1,15 +1,11 @@
 package voldemort.server.protocol.admin;
 
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import voldemort.VoldemortException;
-import voldemort.client.protocol.pb.ProtoUtils;
-import voldemort.client.protocol.pb.VAdminProto;
 import voldemort.client.protocol.pb.VAdminProto.UpdatePartitionEntriesRequest;
 import voldemort.server.StoreRepository;
 import voldemort.server.VoldemortConfig;
@@ -18,7 +14,6 @@ import voldemort.store.StorageEngine;
 import voldemort.store.StoreUtils;
 import voldemort.store.stats.StreamingStats.Operation;
 import voldemort.utils.ByteArray;
-import voldemort.utils.ByteUtils;
 import voldemort.utils.NetworkClassLoader;
 import voldemort.utils.Utils;
 import voldemort.versioning.Versioned;
@@ -120,65 +115,7 @@ class BufferedUpdatePartitionEntriesStreamRequestHandler extends
     }
 
     @Override
-    public StreamRequestHandlerState handleRequest(DataInputStream inputStream,
-                                                   DataOutputStream outputStream)
-            throws IOException {
-        long startNs = System.nanoTime();
-        if(request == null) {
-            int size = 0;
-            try {
-                size = inputStream.readInt();
-            } catch(EOFException e) {
-                if(logger.isTraceEnabled())
-                    logger.trace("Incomplete read for message size");
-                if(streamStats != null)
-                    streamStats.reportNetworkTime(Operation.UPDATE_ENTRIES,
-                                                  Utils.elapsedTimeNs(startNs, System.nanoTime()));
-                return StreamRequestHandlerState.INCOMPLETE_READ;
-            }
-
-            if(size == -1) {
-                long totalTime = (System.currentTimeMillis() - startTime) / 1000;
-                logger.info("Update entries successfully updated " + counter
-                            + " entries for store '" + storageEngine.getName() + "' in "
-                            + totalTime + " s");
-                // Write the last buffered key to storage
-                writeBufferedValsToStorage();
-                if(logger.isTraceEnabled())
-                    logger.trace("Message size -1, completed partition update");
-                if(streamStats != null)
-                    streamStats.reportNetworkTime(Operation.UPDATE_ENTRIES,
-                                                  Utils.elapsedTimeNs(startNs, System.nanoTime()));
-                return StreamRequestHandlerState.COMPLETE;
-            }
-
-            if(logger.isTraceEnabled())
-                logger.trace("UpdatePartitionEntriesRequest message size: " + size);
-
-            byte[] input = new byte[size];
-
-            try {
-                ByteUtils.read(inputStream, input);
-            } catch(EOFException e) {
-                if(logger.isTraceEnabled())
-                    logger.trace("Incomplete read for message");
-
-                return StreamRequestHandlerState.INCOMPLETE_READ;
-            } finally {
-                if(streamStats != null)
-                    streamStats.reportNetworkTime(Operation.UPDATE_ENTRIES,
-                                                  Utils.elapsedTimeNs(startNs, System.nanoTime()));
-            }
-
-            VAdminProto.UpdatePartitionEntriesRequest.Builder builder = VAdminProto.UpdatePartitionEntriesRequest.newBuilder();
-            builder.mergeFrom(input);
-            request = builder.build();
-        }
-
-        VAdminProto.PartitionEntry partitionEntry = request.getPartitionEntry();
-        ByteArray key = ProtoUtils.decodeBytes(partitionEntry.getKey());
-        Versioned<byte[]> value = ProtoUtils.decodeVersioned(partitionEntry.getVersioned());
-
+    protected void handleEntry(ByteArray key, Versioned<byte[]> value) {
         if(filter.accept(key, value)) {
             // Check if the current key is same as the one before.
             if(currBufferedKey != null && !key.equals(currBufferedKey)) {
@@ -188,9 +125,12 @@ class BufferedUpdatePartitionEntriesStreamRequestHandler extends
             currBufferedKey = key;
             currBufferedVals.add(value);
         }
+    }
 
-        request = null;
-        return StreamRequestHandlerState.READING;
+    @Override
+    protected void handleEndOfStream() {
+        // Write the last buffered key to storage
+        writeBufferedValsToStorageIfAny();
     }
 
     @Override
@@ -26,6 +26,7 @@ import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
 import voldemort.client.protocol.VoldemortFilter;
+import voldemort.client.protocol.admin.BulkStreamFormat;
 import voldemort.client.protocol.admin.filter.DefaultVoldemortFilter;
 import voldemort.client.protocol.pb.ProtoUtils;
 import voldemort.client.protocol.pb.VAdminProto;
@@ -44,6 +45,7 @@ import voldemort.utils.ByteArray;
 import voldemort.utils.EventThrottler;
 import voldemort.utils.NetworkClassLoader;
 import voldemort.utils.Time;
+import voldemort.versioning.Versioned;
 import voldemort.xml.ClusterMapper;
 
 import com.google.protobuf.Message;
@@ -92,6 +94,19 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
 
     protected final StoreRoutingPlan storeInstance;
 
+    // the longest a fetched entry waits in a frame that is not full yet
+    private static final long MAX_FRAME_DELAY_MS = 1000;
+
+    protected final boolean bulkStream;
+
+    private final BulkStreamFormat.FrameWriter frameWriter;
+
+    private long frameStartMs;
+
+    private boolean bulkStreamAcked;
+
+    private boolean failed;
+
     protected FetchStreamRequestHandler(VAdminProto.FetchPartitionEntriesRequest request,
                                         MetadataStore metadataStore,
                                         ErrorCodeMapper errorCodeMapper,
@@ -138,6 +153,15 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
             this.recordsPerPartition = 0;
         }
         this.fetchOrphaned = request.hasFetchOrphaned() && request.getFetchOrphaned();
+        this.bulkStream = voldemortConfig.isAdminBulkStreamEnabled() && request.hasFetchValues()
+                          && request.getFetchValues() && BulkStreamFormat.isRequested(request);
+        if(bulkStream) {
+            this.frameWriter = new BulkStreamFormat.FrameWriter(voldemortConfig.getAdminBulkStreamFrameSize());
+        } else {
+            this.frameWriter = null;
+        }
+        this.bulkStreamAcked = false;
+        this.failed = false;
     }
 
     private StoreDefinition getStoreDef(String store, MetadataStore metadataStore) {
@@ -161,6 +185,13 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
                     + " tuples for store '" + storageEngine.getName() + "' in "
                     + ((System.currentTimeMillis() - startTimeMs) / 1000) + " s");
 
+        if(bulkStream && !failed) {
+            // an empty fetch still tells the client the bulk format is known
+            if(!bulkStreamAcked)
+                ackBulkStream(outputStream);
+            if(!frameWriter.isEmpty())
+                frameWriter.writeTo(outputStream);
+        }
         ProtoUtils.writeEndOfStream(outputStream);
     }
 
@@ -172,7 +203,11 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
                                                                                                                                        e))
                                                                                                       .build();
 
-        ProtoUtils.writeMessage(outputStream, response);
+        failed = true;
+        if(bulkStreamAcked)
+            BulkStreamFormat.writeMessageFrame(outputStream, response);
+        else
+            ProtoUtils.writeMessage(outputStream, response);
         logger.error("handleFetchPartitionEntries failed for request(" + request.toString() + ")",
                      e);
     }
@@ -222,6 +257,50 @@ public abstract class FetchStreamRequestHandler implements StreamRequestHandler
         }
     }
 
+    /**
+     * Sends a fetched entry, as a protobuf message of its own or packed into
+     * the current frame of a bulk stream
+     * 
+     * @param outputStream
+     * @param key
+     * @param value
+     * @throws IOException
+     */
+    protected void sendEntry(DataOutputStream outputStream, ByteArray key, Versioned<byte[]> value)
+            throws IOException {
+        if(!bulkStream) {
+            VAdminProto.PartitionEntry partitionEntry = VAdminProto.PartitionEntry.newBuilder()
+                                                                                  .setKey(ProtoUtils.encodeBytes(key))
+                                                                                  .setVersioned(ProtoUtils.encodeVersioned(value))
+                                                                                  .build();
+            sendMessage(outputStream,
+                        VAdminProto.FetchPartitionEntriesResponse.newBuilder()
+                                                                 .setPartitionEntry(partitionEntry)
+                                                                 .build());
+            return;
+        }
+
+        long startNs = System.nanoTime();
+        if(!bulkStreamAcked)
+            ackBulkStream(outputStream);
+        if(frameWriter.isEmpty())
+            frameStartMs = System.currentTimeMillis();
+        frameWriter.add(key, value);
+        if(frameWriter.isFull() || System.currentTimeMillis() - frameStartMs > MAX_FRAME_DELAY_MS)
+            frameWriter.writeTo(outputStream);
+        if(streamStats != null) {
+            streamStats.reportNetworkTime(operation, System.nanoTime() - startNs);
+        }
+    }
+
+    private void ackBulkStream(DataOutputStream outputStream) throws IOException {
+        ProtoUtils.writeMessage(outputStream,
+                                VAdminProto.FetchPartitionEntriesResponse.newBuilder()
+                                                                         .setUnknownFields(BulkStreamFormat.MARKER)
+                                                                         .build());
+        bulkStreamAcked = true;
+    }
+
     /**
      * Helper method to track storage operations & time via StreamingStats.
      * 
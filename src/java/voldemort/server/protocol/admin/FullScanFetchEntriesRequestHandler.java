@@ -21,8 +21,6 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.List;
 
-import voldemort.client.protocol.pb.ProtoUtils;
-import voldemort.client.protocol.pb.VAdminProto;
 import voldemort.client.protocol.pb.VAdminProto.FetchPartitionEntriesRequest;
 import voldemort.server.StoreRepository;
 import voldemort.server.VoldemortConfig;
@@ -33,8 +31,6 @@ import voldemort.utils.ByteArray;
 import voldemort.utils.NetworkClassLoader;
 import voldemort.versioning.Versioned;
 
-import com.google.protobuf.Message;
-
 /**
  * Fetches entries by scanning entire storage engine in storage-order.
  * <p>
@@ -90,15 +86,7 @@ public class FullScanFetchEntriesRequestHandler extends FullScanFetchStreamReque
                 if(filter.accept(key, value)) {
                     accountForFetchedKey(key.get());
 
-                    VAdminProto.FetchPartitionEntriesResponse.Builder response = VAdminProto.FetchPartitionEntriesResponse.newBuilder();
-                    VAdminProto.PartitionEntry partitionEntry = VAdminProto.PartitionEntry.newBuilder()
-                                                                                          .setKey(ProtoUtils.encodeBytes(key))
-                                                                                          .setVersioned(ProtoUtils.encodeVersioned(value))
-                                                                                          .build();
-                    response.setPartitionEntry(partitionEntry);
-                    Message message = response.build();
-
-                    sendMessage(outputStream, message);
+                    sendEntry(outputStream, key, value);
 
                     throttler.maybeThrottle(AdminServiceRequestHandler.valueSize(value));
                 }
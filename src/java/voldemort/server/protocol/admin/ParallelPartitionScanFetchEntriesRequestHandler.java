@@ -0,0 +1,286 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.protocol.admin;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import voldemort.VoldemortException;
+import voldemort.client.protocol.pb.VAdminProto.FetchPartitionEntriesRequest;
+import voldemort.routing.StoreRoutingPlan;
+import voldemort.server.StoreRepository;
+import voldemort.server.VoldemortConfig;
+import voldemort.server.storage.ScanPermitWrapper;
+import voldemort.store.ErrorCodeMapper;
+import voldemort.store.metadata.MetadataStore;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.NetworkClassLoader;
+import voldemort.utils.Pair;
+import voldemort.versioning.Versioned;
+
+/**
+ * Fetches entries using partition scans of several partitions at once, on a
+ * pool of threads, and streams them as they come.
+ * <p>
+ * Every scan but the first takes a scan permit, so a fetch only scans as many
+ * partitions at once as the background jobs leave room for. If the pool has
+ * no thread free, the partitions are scanned one after another as in
+ * {@link PartitionScanFetchEntriesRequestHandler}.
+ *
+ */
+public class ParallelPartitionScanFetchEntriesRequestHandler extends
+        PartitionScanFetchEntriesRequestHandler {
+
+    // entries read ahead of the stream
+    private static final int MAX_QUEUED_ENTRIES = 1000;
+
+    private static final long QUEUE_TIMEOUT_MS = 100;
+
+    private static final Pair<ByteArray, Versioned<byte[]>> END_OF_SCANS = new Pair<ByteArray, Versioned<byte[]>>(null,
+                                                                                                                 null);
+
+    private final ExecutorService scanPool;
+
+    private final ScanPermitWrapper scanPermits;
+
+    private final int parallelism;
+
+    private final Queue<Integer> partitionsToScan;
+
+    private final BlockingQueue<Pair<ByteArray, Versioned<byte[]>>> entries;
+
+    private final AtomicInteger activeScans;
+
+    private final AtomicLong numScanned;
+
+    private final AtomicReference<Exception> scanError;
+
+    private volatile boolean closed;
+
+    private boolean started;
+
+    private int numStarted;
+
+    public ParallelPartitionScanFetchEntriesRequestHandler(FetchPartitionEntriesRequest request,
+                                                           MetadataStore metadataStore,
+                                                           ErrorCodeMapper errorCodeMapper,
+                                                           VoldemortConfig voldemortConfig,
+                                                           StoreRepository storeRepository,
+                                                           NetworkClassLoader networkClassLoader,
+                                                           ExecutorService scanPool,
+                                                           ScanPermitWrapper scanPermits,
+                                                           int parallelism) {
+        super(request,
+              metadataStore,
+              errorCodeMapper,
+              voldemortConfig,
+              storeRepository,
+              networkClassLoader);
+        this.scanPool = scanPool;
+        this.scanPermits = scanPermits;
+        this.parallelism = parallelism;
+
+        // the partitions asked for that the node holds, each one once
+        Set<Integer> partitions = new LinkedHashSet<Integer>();
+        for(int i = 0; i < partitionList.size(); i++) {
+            if(StoreRoutingPlan.checkPartitionBelongsToNode(partitionList.get(i),
+                                                            replicaTypeList.get(i),
+                                                            nodeId,
+                                                            initialCluster,
+                                                            storeDef))
+                partitions.add(partitionList.get(i));
+        }
+        this.partitionsToScan = new ConcurrentLinkedQueue<Integer>(partitions);
+        this.entries = new ArrayBlockingQueue<Pair<ByteArray, Versioned<byte[]>>>(MAX_QUEUED_ENTRIES);
+        this.activeScans = new AtomicInteger(0);
+        this.numScanned = new AtomicLong(0);
+        this.scanError = new AtomicReference<Exception>();
+        this.closed = false;
+        this.started = false;
+    }
+
+    @Override
+    public StreamRequestHandlerState handleRequest(DataInputStream inputStream,
+                                                   DataOutputStream outputStream)
+            throws IOException {
+        if(!started) {
+            started = true;
+            int numPartitions = partitionsToScan.size();
+            numStarted = startScans();
+            logger.info("Fetching entries of " + numPartitions + " partitions of store '"
+                        + storageEngine.getName() + "' with " + numStarted + " parallel scans");
+        }
+
+        if(numStarted == 0)
+            return super.handleRequest(inputStream, outputStream);
+
+        Pair<ByteArray, Versioned<byte[]>> entry = null;
+        try {
+            entry = entries.take();
+        } catch(InterruptedException e) {
+            throw new VoldemortException("Interrupted while fetching entries", e);
+        }
+        if(scanError.get() != null)
+            throw new VoldemortException("Partition scan failed", scanError.get());
+
+        scanned = numScanned.get();
+        if(entry == END_OF_SCANS) {
+            progressInfoMessage("Fetch entries (end of scan)");
+            return StreamRequestHandlerState.COMPLETE;
+        }
+
+        ByteArray key = entry.getFirst();
+        Versioned<byte[]> value = entry.getSecond();
+        fetched++;
+        if(streamStats != null) {
+            streamStats.reportStreamingFetch(operation);
+        }
+
+        sendEntry(outputStream, key, value);
+
+        throttler.maybeThrottle(key.length() + AdminServiceRequestHandler.valueSize(value));
+        if(0 == fetched % STAT_RECORDS_INTERVAL) {
+            progressInfoMessage("Fetch entries (progress)");
+        }
+        return StreamRequestHandlerState.WRITING;
+    }
+
+    /**
+     * Starts as many scans as are asked for, there are partitions for and
+     * there are threads and scan permits for
+     *
+     * @return The number of scans started
+     */
+    private int startScans() {
+        int numScans = Math.min(parallelism, partitionsToScan.size());
+        activeScans.set(numScans);
+        int numStarted = 0;
+        for(int i = 0; i < numScans; i++) {
+            boolean hasPermit = false;
+            if(i > 0) {
+                hasPermit = scanPermits.tryAcquire(numScanned);
+                if(!hasPermit) {
+                    scanFinished();
+                    continue;
+                }
+            }
+            try {
+                scanPool.execute(new PartitionScan(hasPermit));
+                numStarted++;
+            } catch(RejectedExecutionException e) {
+                if(hasPermit)
+                    scanPermits.release();
+                scanFinished();
+            }
+        }
+        return numStarted;
+    }
+
+    private boolean isScanning() {
+        return !closed && scanError.get() == null;
+    }
+
+    private void scanFinished() {
+        if(activeScans.decrementAndGet() == 0)
+            enqueue(END_OF_SCANS);
+    }
+
+    private boolean enqueue(Pair<ByteArray, Versioned<byte[]>> entry) {
+        try {
+            while(!closed) {
+                if(entries.offer(entry, QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                    return true;
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public void close(DataOutputStream outputStream) throws IOException {
+        closed = true;
+        super.close(outputStream);
+    }
+
+    private class PartitionScan implements Runnable {
+
+        private final boolean hasPermit;
+
+        private PartitionScan(boolean hasPermit) {
+            this.hasPermit = hasPermit;
+        }
+
+        public void run() {
+            try {
+                Integer partition;
+                while(isScanning() && (partition = partitionsToScan.poll()) != null)
+                    scanPartition(partition);
+            } catch(Exception e) {
+                logger.error("Scan of store '" + storageEngine.getName() + "' failed", e);
+                scanError.compareAndSet(null, e);
+            } finally {
+                if(hasPermit)
+                    scanPermits.release();
+                scanFinished();
+            }
+        }
+
+        private void scanPartition(int partition) {
+            long partitionFetched = 0;
+            ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> iterator = openPartition(partition);
+            try {
+                while(isScanning() && iterator.hasNext()
+                      && (recordsPerPartition <= 0 || partitionFetched < recordsPerPartition)) {
+                    long startNs = System.nanoTime();
+                    Pair<ByteArray, Versioned<byte[]>> entry = iterator.next();
+                    reportStorageOpTime(startNs);
+                    numScanned.incrementAndGet();
+
+                    boolean accepted;
+                    // filters are not expected to be thread safe
+                    synchronized(filter) {
+                        accepted = filter.accept(entry.getFirst(), entry.getSecond());
+                    }
+                    if(accepted) {
+                        partitionFetched++;
+                        enqueue(entry);
+                    }
+                }
+            } finally {
+                iterator.close();
+            }
+            if(logger.isDebugEnabled())
+                logger.debug("Finished fetch entries of partition " + partition + " of store '"
+                             + storageEngine.getName() + "', fetched " + partitionFetched);
+        }
+    }
+}
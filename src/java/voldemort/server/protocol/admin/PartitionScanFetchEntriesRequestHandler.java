@@ -19,9 +19,9 @@ package voldemort.server.protocol.admin;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Map;
 
 import voldemort.client.protocol.pb.ProtoUtils;
-import voldemort.client.protocol.pb.VAdminProto;
 import voldemort.client.protocol.pb.VAdminProto.FetchPartitionEntriesRequest;
 import voldemort.routing.StoreRoutingPlan;
 import voldemort.server.StoreRepository;
@@ -35,8 +35,6 @@ import voldemort.utils.NetworkClassLoader;
 import voldemort.utils.Pair;
 import voldemort.versioning.Versioned;
 
-import com.google.protobuf.Message;
-
 /**
  * Fetches entries using an efficient partition scan. Of course, only works if
  * isPartitionScanSupported() is true for the storage engine to be scanned..
@@ -46,6 +44,9 @@ public class PartitionScanFetchEntriesRequestHandler extends PartitionScanFetchS
 
     protected ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entriesPartitionIterator;
 
+    // keys to resume the scans of partitions from
+    protected final Map<Integer, ByteArray> startKeys;
+
     public PartitionScanFetchEntriesRequestHandler(FetchPartitionEntriesRequest request,
                                                    MetadataStore metadataStore,
                                                    ErrorCodeMapper errorCodeMapper,
@@ -63,6 +64,26 @@ public class PartitionScanFetchEntriesRequestHandler extends PartitionScanFetchS
                     + "' with replica to partition mapping " + replicaToPartitionList);
 
         entriesPartitionIterator = null;
+        startKeys = ProtoUtils.decodeFetchStartKeys(request);
+        if(!startKeys.isEmpty()) {
+            if(storageEngine.isPartitionScanResumable())
+                logger.info("Resuming fetch entries of partitions " + startKeys.keySet()
+                            + " of store '" + storageEngine.getName() + "'");
+            else
+                logger.info("Store '" + storageEngine.getName()
+                            + "' cannot resume partition scans, fetching partitions "
+                            + startKeys.keySet() + " from the start");
+        }
+    }
+
+    /**
+     * Opens a scan of the partition, from where an earlier fetch left off if
+     * the request says so and the storage engine can
+     */
+    protected ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> openPartition(int partition) {
+        if(startKeys.containsKey(partition) && storageEngine.isPartitionScanResumable())
+            return storageEngine.entries(partition, startKeys.get(partition));
+        return storageEngine.entries(partition);
     }
 
     @Override
@@ -93,7 +114,7 @@ public class PartitionScanFetchEntriesRequestHandler extends PartitionScanFetchS
                                                                 storeDef)) {
                     found = true;
                     completedFetchingCurrentPartition();
-                    entriesPartitionIterator = storageEngine.entries(currentPartition);
+                    entriesPartitionIterator = openPartition(currentPartition);
                     statusInfoMessage("Starting fetch entries");
                 }
                 currentIndex++;
@@ -112,15 +133,7 @@ public class PartitionScanFetchEntriesRequestHandler extends PartitionScanFetchS
                 if(filter.accept(key, value)) {
                     recordFetched();
 
-                    VAdminProto.FetchPartitionEntriesResponse.Builder response = VAdminProto.FetchPartitionEntriesResponse.newBuilder();
-                    VAdminProto.PartitionEntry partitionEntry = VAdminProto.PartitionEntry.newBuilder()
-                                                                                          .setKey(ProtoUtils.encodeBytes(key))
-                                                                                          .setVersioned(ProtoUtils.encodeVersioned(value))
-                                                                                          .build();
-                    response.setPartitionEntry(partitionEntry);
-                    Message message = response.build();
-
-                    sendMessage(outputStream, message);
+                    sendEntry(outputStream, key, value);
 
                     throttler.maybeThrottle(AdminServiceRequestHandler.valueSize(value));
                 }
@@ -141,7 +154,7 @@ public class PartitionScanFetchEntriesRequestHandler extends PartitionScanFetchS
     }
 
     @Override
-    public final void close(DataOutputStream outputStream) throws IOException {
+    public void close(DataOutputStream outputStream) throws IOException {
         if(null != entriesPartitionIterator)
             entriesPartitionIterator.close();
         super.close(outputStream);
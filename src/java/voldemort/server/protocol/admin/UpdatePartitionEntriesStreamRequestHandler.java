@@ -11,6 +11,7 @@ import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
 import voldemort.client.protocol.VoldemortFilter;
+import voldemort.client.protocol.admin.BulkStreamFormat;
 import voldemort.client.protocol.admin.filter.DefaultVoldemortFilter;
 import voldemort.client.protocol.pb.ProtoUtils;
 import voldemort.client.protocol.pb.VAdminProto;
@@ -26,6 +27,7 @@ import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
 import voldemort.utils.EventThrottler;
 import voldemort.utils.NetworkClassLoader;
+import voldemort.utils.Pair;
 import voldemort.versioning.ObsoleteVersionException;
 import voldemort.versioning.Versioned;
 
@@ -58,6 +60,9 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
 
     protected AtomicBoolean isBatchWriteOff;
 
+    // whether the entries after the first message come in bulk stream frames
+    protected final boolean bulkStream;
+
     public UpdatePartitionEntriesStreamRequestHandler(UpdatePartitionEntriesRequest request,
                                                       ErrorCodeMapper errorCodeMapper,
                                                       VoldemortConfig voldemortConfig,
@@ -81,6 +86,8 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
         }
         storageEngine.beginBatchModifications();
         isBatchWriteOff = new AtomicBoolean(false);
+        bulkStream = voldemortConfig.isAdminBulkStreamEnabled()
+                     && BulkStreamFormat.isRequested(request);
     }
 
     @Override
@@ -96,6 +103,9 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
     public StreamRequestHandlerState handleRequest(DataInputStream inputStream,
                                                    DataOutputStream outputStream)
             throws IOException {
+        if(bulkStream && request == null)
+            return handleFrame(inputStream);
+
         long startNs = System.nanoTime();
         if(request == null) {
             int size = 0;
@@ -111,17 +121,10 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
             }
 
             if(size == -1) {
-                long totalTime = (System.currentTimeMillis() - startTime) / 1000;
-                logger.info("Update entries successfully updated " + counter
-                            + " entries for store '" + storageEngine.getName() + "' in "
-                            + totalTime + " s");
-
-                if(logger.isTraceEnabled())
-                    logger.trace("Message size -1, completed partition update");
                 if(streamStats != null)
                     streamStats.reportNetworkTime(Operation.UPDATE_ENTRIES, System.nanoTime()
                                                                             - startNs);
-                return StreamRequestHandlerState.COMPLETE;
+                return completeStream();
             }
 
             if(logger.isTraceEnabled())
@@ -151,8 +154,65 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
         ByteArray key = ProtoUtils.decodeBytes(partitionEntry.getKey());
         Versioned<byte[]> value = ProtoUtils.decodeVersioned(partitionEntry.getVersioned());
 
+        handleEntry(key, value);
+
+        request = null;
+        return StreamRequestHandlerState.READING;
+    }
+
+    /**
+     * Reads a frame of a bulk stream, which follows the first message, and
+     * handles its entries
+     */
+    private StreamRequestHandlerState handleFrame(DataInputStream inputStream) throws IOException {
+        long startNs = System.nanoTime();
+        byte[] frame = null;
+        try {
+            frame = BulkStreamFormat.readFrame(inputStream);
+        } catch(EOFException e) {
+            if(logger.isTraceEnabled())
+                logger.trace("Incomplete read for frame");
+
+            return StreamRequestHandlerState.INCOMPLETE_READ;
+        } finally {
+            if(streamStats != null)
+                streamStats.reportNetworkTime(Operation.UPDATE_ENTRIES, System.nanoTime()
+                                                                        - startNs);
+        }
+
+        if(frame == null)
+            return completeStream();
+
+        if(logger.isTraceEnabled())
+            logger.trace("UpdatePartitionEntries frame size: " + frame.length);
+
+        for(Pair<ByteArray, Versioned<byte[]>> entry: BulkStreamFormat.readEntries(frame))
+            handleEntry(entry.getFirst(), entry.getSecond());
+
+        return StreamRequestHandlerState.READING;
+    }
+
+    private StreamRequestHandlerState completeStream() {
+        handleEndOfStream();
+
+        long totalTime = (System.currentTimeMillis() - startTime) / 1000;
+        logger.info("Update entries successfully updated " + counter + " entries for store '"
+                    + storageEngine.getName() + "' in " + totalTime + " s");
+
+        if(logger.isTraceEnabled())
+            logger.trace("Message size -1, completed partition update");
+        return StreamRequestHandlerState.COMPLETE;
+    }
+
+    /**
+     * Writes an entry of the stream to storage
+     * 
+     * @param key
+     * @param value
+     */
+    protected void handleEntry(ByteArray key, Versioned<byte[]> value) {
         if(filter.accept(key, value)) {
-            startNs = System.nanoTime();
+            long startNs = System.nanoTime();
             try {
                 storageEngine.put(key, value, null);
 
@@ -182,11 +242,13 @@ public class UpdatePartitionEntriesStreamRequestHandler implements StreamRequest
             logger.info("Update entries updated " + counter + " entries for store '"
                         + storageEngine.getName() + "' in " + totalTime + " s");
         }
-
-        request = null;
-        return StreamRequestHandlerState.READING;
     }
 
+    /**
+     * Called once the client has sent all the entries
+     */
+    protected void handleEndOfStream() {}
+
     @Override
     public StreamRequestDirection getDirection() {
         return StreamRequestDirection.READING;
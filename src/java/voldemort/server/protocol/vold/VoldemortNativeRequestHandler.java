@@ -14,13 +14,18 @@ import org.apache.log4j.Logger;
 import voldemort.VoldemortException;
 import voldemort.common.VoldemortOpCode;
 import voldemort.common.nio.ByteBufferBackedInputStream;
+import voldemort.common.nio.FileRegion;
+import voldemort.common.nio.FileRegionOutputStream;
 import voldemort.server.RequestRoutingType;
 import voldemort.server.StoreRepository;
 import voldemort.server.protocol.AbstractRequestHandler;
 import voldemort.server.protocol.RequestHandler;
 import voldemort.server.protocol.StreamRequestHandler;
 import voldemort.store.ErrorCodeMapper;
+import voldemort.store.FileRegionReader;
+import voldemort.store.NoSuchCapabilityException;
 import voldemort.store.Store;
+import voldemort.store.StoreCapabilityType;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
 import voldemort.versioning.VectorClock;
@@ -36,15 +41,33 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
 
     private final Logger logger = Logger.getLogger(VoldemortNativeRequestHandler.class);
 
+    public static final int ZERO_COPY_DISABLED = -1;
+
     private final int protocolVersion;
 
+    private final int zeroCopyMinValueBytes;
+
     public VoldemortNativeRequestHandler(ErrorCodeMapper errorMapper,
                                          StoreRepository repository,
                                          int protocolVersion) {
+        this(errorMapper, repository, protocolVersion, ZERO_COPY_DISABLED);
+    }
+
+    /**
+     * @param zeroCopyMinValueBytes Values of stores that can send them
+     *        straight from their files are sent that way if at least this
+     *        large, or copied from the file if smaller. Negative to always use
+     *        a regular get.
+     */
+    public VoldemortNativeRequestHandler(ErrorCodeMapper errorMapper,
+                                         StoreRepository repository,
+                                         int protocolVersion,
+                                         int zeroCopyMinValueBytes) {
         super(errorMapper, repository);
         if(protocolVersion < 0 || protocolVersion > 3)
             throw new IllegalArgumentException("Unknown protocol version: " + protocolVersion);
         this.protocolVersion = protocolVersion;
+        this.zeroCopyMinValueBytes = zeroCopyMinValueBytes;
     }
 
     public StreamRequestHandler handleRequest(DataInputStream inputStream,
@@ -60,7 +83,10 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
         } else {
             switch(opCode) {
                 case VoldemortOpCode.GET_OP_CODE:
-                    handleGet(inputStream, outputStream, store);
+                    handleGet(inputStream,
+                              outputStream,
+                              store,
+                              getFileRegionReader(storeName, routingType, store, outputStream));
                     break;
                 case VoldemortOpCode.GET_ALL_OP_CODE:
                     handleGetAll(inputStream, outputStream, store);
@@ -289,9 +315,64 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
         }
     }
 
+    /**
+     * Finds the reader sending values of the store straight from its files, if
+     * the store has one and the response can end with a file region
+     */
+    private FileRegionReader getFileRegionReader(String storeName,
+                                                 RequestRoutingType routingType,
+                                                 Store<ByteArray, byte[], byte[]> store,
+                                                 DataOutputStream outputStream) {
+        if(zeroCopyMinValueBytes < 0 || routingType == RequestRoutingType.ROUTED
+           || !(outputStream instanceof FileRegionOutputStream))
+            return null;
+
+        // Saves asking every other store for a capability it does not have
+        if(!(getStoreRepository().getStorageEngine(storeName) instanceof FileRegionReader))
+            return null;
+
+        try {
+            return (FileRegionReader) store.getCapability(StoreCapabilityType.FILE_REGION_READER);
+        } catch(NoSuchCapabilityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the same response as {@link #writeResults(DataOutputStream, List)}
+     * for a value with an empty clock, taking the value from its file. Large
+     * values are left in the file and appended as a region, to be transferred
+     * to the socket once the rest of the response is written.
+     */
+    private void writeFileRegionResult(FileRegionOutputStream outputStream, FileRegion fileRegion)
+            throws IOException {
+        boolean appended = false;
+        try {
+            outputStream.writeShort(0);
+            if(fileRegion.getCount() == 0) {
+                outputStream.writeInt(0);
+                return;
+            }
+            byte[] clock = new VectorClock().toBytes();
+            outputStream.writeInt(1);
+            outputStream.writeInt(clock.length + (int) fileRegion.getCount());
+            outputStream.write(clock);
+            if(fileRegion.getCount() < zeroCopyMinValueBytes) {
+                fileRegion.copyTo(outputStream);
+            } else {
+                outputStream.writeFileRegion(fileRegion);
+                appended = true;
+            }
+        } finally {
+            if(!appended)
+                fileRegion.release();
+        }
+    }
+
     private void handleGet(DataInputStream inputStream,
                            DataOutputStream outputStream,
-                           Store<ByteArray, byte[], byte[]> store) throws IOException {
+                           Store<ByteArray, byte[], byte[]> store,
+                           FileRegionReader fileRegionReader) throws IOException {
         long startTimeMs = -1;
         long startTimeNs = -1;
 
@@ -307,6 +388,29 @@ public class VoldemortNativeRequestHandler extends AbstractRequestHandler implem
             if(inputStream.readBoolean())
                 transforms = readTransforms(inputStream);
         }
+
+        if(fileRegionReader != null && transforms == null) {
+            FileRegion fileRegion = null;
+            try {
+                fileRegion = fileRegionReader.getFileRegion(key);
+            } catch(VoldemortException e) {
+                logger.error(e.getMessage());
+                writeException(outputStream, e);
+                return;
+            }
+            if(fileRegion != null) {
+                writeFileRegionResult((FileRegionOutputStream) outputStream, fileRegion);
+                if(logger.isDebugEnabled()) {
+                    logger.debug("GET from file region started at: " + startTimeMs
+                                 + " handlerRef: " + System.identityHashCode(inputStream)
+                                 + " key: " + ByteUtils.toHexString(key.get()) + " "
+                                 + (System.nanoTime() - startTimeNs) + " ns, keySize: "
+                                 + key.length() + " valueSize: " + fileRegion.getCount());
+                }
+                return;
+            }
+        }
+
         List<Versioned<byte[]>> results = null;
         try {
             results = store.get(key, transforms);
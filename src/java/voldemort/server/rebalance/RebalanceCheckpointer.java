@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.rebalance;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import voldemort.routing.RoutingStrategy;
+import voldemort.store.metadata.MetadataStore;
+import voldemort.utils.ByteArray;
+import voldemort.utils.Time;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Follows the copy of the partitions of a store from or to another node, and
+ * now and then checkpoints how far it has come in the {@link MetadataStore},
+ * so that a copy cut short by a restart can pick up where it left off.
+ * <p>
+ * The checkpoint of a partition is the last key copied. A storage engine whose
+ * partition scans are resumable streams the keys of a partition in order, so
+ * every key before it has been copied too. Those are the only engines that
+ * resume from checkpoints; the others copy partitions from the start.
+ * <p>
+ * What has been written to a storage engine may sit in its buffers for a
+ * while, so a checkpoint only takes in the keys which were copied by the one
+ * before it.
+ * <p>
+ * Not thread safe, each copy has its own.
+ *
+ */
+public class RebalanceCheckpointer {
+
+    private final static Logger logger = Logger.getLogger(RebalanceCheckpointer.class);
+
+    private final MetadataStore metadataStore;
+    private final int nodeId;
+    private final String storeName;
+    private final RoutingStrategy routingStrategy;
+    private final long intervalMs;
+    private final Time time;
+
+    private final Map<Integer, ByteArray> startKeys;
+    private final Map<Integer, ByteArray> lastKeys;
+    private Map<Integer, ByteArray> lastKeysAtCheckpoint;
+    private long lastCheckpointMs;
+
+    /**
+     * @param metadataStore The metadata store to keep the checkpoints in
+     * @param nodeId The node partitions are copied from or to
+     * @param storeName The store
+     * @param intervalMs How often to checkpoint
+     * @param time Time
+     */
+    public RebalanceCheckpointer(MetadataStore metadataStore,
+                                 int nodeId,
+                                 String storeName,
+                                 long intervalMs,
+                                 Time time) {
+        this.metadataStore = metadataStore;
+        this.nodeId = nodeId;
+        this.storeName = storeName;
+        this.routingStrategy = metadataStore.getRoutingStrategy(storeName);
+        this.intervalMs = intervalMs;
+        this.time = time;
+        this.startKeys = Collections.unmodifiableMap(metadataStore.getRebalanceCheckpoints()
+                                                                  .get(nodeId, storeName));
+        // partitions not copied this time round keep their checkpoints
+        this.lastKeys = Maps.newHashMap(startKeys);
+        this.lastKeysAtCheckpoint = null;
+        this.lastCheckpointMs = time.getMilliseconds();
+    }
+
+    /**
+     * @return Map of partition id to the key to resume the copy of the
+     *         partition from, as of the last checkpoint
+     */
+    public Map<Integer, ByteArray> getStartKeys() {
+        return startKeys;
+    }
+
+    /**
+     * Notes that a key has been copied. Keys of the same partition must be
+     * noted in the order they are streamed.
+     */
+    public void copied(ByteArray key) {
+        lastKeys.put(routingStrategy.getMasterPartition(key.get()), key);
+    }
+
+    /**
+     * Checkpoints if it is time to
+     */
+    public void maybeCheckpoint() {
+        long now = time.getMilliseconds();
+        if(now - lastCheckpointMs < intervalMs)
+            return;
+        if(lastKeysAtCheckpoint != null) {
+            metadataStore.putRebalanceCheckpoints(nodeId, storeName, lastKeysAtCheckpoint);
+            if(logger.isDebugEnabled())
+                logger.debug("Checkpointed copy of partitions " + lastKeysAtCheckpoint.keySet()
+                             + " of store '" + storeName + "' with node " + nodeId);
+        }
+        lastKeysAtCheckpoint = Maps.newHashMap(lastKeys);
+        lastCheckpointMs = now;
+    }
+
+    /**
+     * Drops the checkpoints, once the copy is done
+     */
+    public void complete() {
+        metadataStore.deleteRebalanceCheckpoints(nodeId, storeName);
+    }
+}
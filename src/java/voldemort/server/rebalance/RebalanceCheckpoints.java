@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.rebalance;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.DecoderException;
+
+import voldemort.VoldemortException;
+import voldemort.serialization.json.JsonReader;
+import voldemort.serialization.json.JsonWriter;
+import voldemort.store.metadata.MetadataStore;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
+import voldemort.utils.Pair;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * How far the copies of partitions between this node and others have come, as
+ * kept in the {@link MetadataStore}. For each other node and store, it holds
+ * the last key copied of each partition.
+ *
+ */
+public class RebalanceCheckpoints {
+
+    private final Map<Pair<Integer, String>, Map<Integer, ByteArray>> lastKeys;
+
+    public RebalanceCheckpoints() {
+        this.lastKeys = Maps.newHashMap();
+    }
+
+    public static RebalanceCheckpoints create(String json) {
+        RebalanceCheckpoints checkpoints = new RebalanceCheckpoints();
+        JsonReader reader = new JsonReader(new StringReader(json));
+
+        for(Object o: reader.readArray()) {
+            Map<?, ?> m = (Map<?, ?>) o;
+            Pair<Integer, String> nodeStore = Pair.create((Integer) m.get("nodeId"),
+                                                          (String) m.get("storeName"));
+            if(!checkpoints.lastKeys.containsKey(nodeStore))
+                checkpoints.lastKeys.put(nodeStore, Maps.<Integer, ByteArray> newHashMap());
+            try {
+                checkpoints.lastKeys.get(nodeStore)
+                                    .put((Integer) m.get("partitionId"),
+                                         new ByteArray(ByteUtils.fromHexString((String) m.get("key"))));
+            } catch(DecoderException e) {
+                throw new VoldemortException("Invalid rebalance checkpoint " + m, e);
+            }
+        }
+
+        return checkpoints;
+    }
+
+    public String toJsonString() {
+        List<Map<String, Object>> maps = Lists.newLinkedList();
+
+        for(Map.Entry<Pair<Integer, String>, Map<Integer, ByteArray>> entry: lastKeys.entrySet()) {
+            for(Map.Entry<Integer, ByteArray> partitionKey: entry.getValue().entrySet()) {
+                Map<String, Object> map = Maps.newHashMap();
+                map.put("nodeId", entry.getKey().getFirst());
+                map.put("storeName", entry.getKey().getSecond());
+                map.put("partitionId", partitionKey.getKey());
+                map.put("key", ByteUtils.toHexString(partitionKey.getValue().get()));
+                maps.add(map);
+            }
+        }
+
+        StringWriter stringWriter = new StringWriter();
+        new JsonWriter(stringWriter).write(maps);
+        stringWriter.flush();
+
+        return stringWriter.toString();
+    }
+
+    /**
+     * @param nodeId The node partitions are copied from or to
+     * @param storeName The store
+     * @return Map of partition id to the last key copied
+     */
+    public Map<Integer, ByteArray> get(int nodeId, String storeName) {
+        Map<Integer, ByteArray> partitionKeys = lastKeys.get(Pair.create(nodeId, storeName));
+        if(partitionKeys == null)
+            return Maps.newHashMap();
+        return Maps.newHashMap(partitionKeys);
+    }
+
+    public void put(int nodeId, String storeName, Map<Integer, ByteArray> partitionKeys) {
+        if(partitionKeys.isEmpty())
+            remove(nodeId, storeName);
+        else
+            lastKeys.put(Pair.create(nodeId, storeName), Maps.newHashMap(partitionKeys));
+    }
+
+    public boolean remove(int nodeId, String storeName) {
+        return lastKeys.remove(Pair.create(nodeId, storeName)) != null;
+    }
+
+    public boolean isEmpty() {
+        return lastKeys.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(o == null || getClass() != o.getClass())
+            return false;
+
+        RebalanceCheckpoints that = (RebalanceCheckpoints) o;
+
+        return lastKeys.equals(that.lastKeys);
+    }
+
+    @Override
+    public int hashCode() {
+        return lastKeys.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "RebalanceCheckpoints(" + lastKeys + ")";
+    }
+}
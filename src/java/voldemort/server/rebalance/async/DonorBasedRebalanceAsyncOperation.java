@@ -41,6 +41,7 @@ import voldemort.cluster.Cluster;
 import voldemort.routing.StoreRoutingPlan;
 import voldemort.server.StoreRepository;
 import voldemort.server.VoldemortConfig;
+import voldemort.server.rebalance.RebalanceCheckpointer;
 import voldemort.server.rebalance.Rebalancer;
 import voldemort.server.rebalance.VoldemortRebalancingException;
 import voldemort.store.PartitionListIterator;
@@ -49,9 +50,11 @@ import voldemort.store.StoreDefinition;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.readonly.ReadOnlyStorageConfiguration;
 import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
 import voldemort.utils.ClosableIterator;
 import voldemort.utils.Pair;
 import voldemort.utils.RebalanceUtils;
+import voldemort.utils.SystemTime;
 import voldemort.versioning.Versioned;
 
 import com.google.common.collect.HashMultimap;
@@ -292,22 +295,37 @@ public class DonorBasedRebalanceAsyncOperation extends RebalanceAsyncOperation {
                 return;
             }
 
+            // Only partition scans that are resumable are checkpointed
+            boolean partitionScan = usePartitionScan && storageEngine.isPartitionScanSupported();
+            boolean checkpoint = partitionScan && storageEngine.isPartitionScanResumable()
+                                 && voldemortConfig.getRebalancingCheckpointIntervalMs() > 0;
+
             for(Pair<Integer, HashMap<Integer, List<Integer>>> tuple: stealerNodeToMappingTuples) {
                 final SynchronousQueue<Pair<ByteArray, Versioned<byte[]>>> queue = new SynchronousQueue<Pair<ByteArray, Versioned<byte[]>>>();
                 nodeToQueue.put(tuple.getFirst(), queue);
 
+                RebalanceCheckpointer checkpointer = null;
+                if(checkpoint) {
+                    checkpointer = new RebalanceCheckpointer(metadataStore,
+                                                             tuple.getFirst(),
+                                                             storeName,
+                                                             voldemortConfig.getRebalancingCheckpointIntervalMs(),
+                                                             SystemTime.INSTANCE);
+                }
+
                 String jobName = "DonorBasedRebalancePusherSlave for store " + storeName
                                  + " on node " + tuple.getFirst();
                 DonorBasedRebalancePusherSlave updatePushSlave = new DonorBasedRebalancePusherSlave(tuple.getFirst(),
                                                                                                     queue,
                                                                                                     storeName,
-                                                                                                    adminClient);
+                                                                                                    adminClient,
+                                                                                                    checkpointer);
                 storePushSlaves.add(updatePushSlave);
                 pushSlavesExecutor.execute(updatePushSlave);
                 logger.info("Started a thread for " + jobName);
             }
 
-            if(usePartitionScan && storageEngine.isPartitionScanSupported()) {
+            if(partitionScan) {
                 fetchEntriesForStealersPartitionScan(storageEngine,
                                                      optimizedStealerNodeToMappingTuples,
                                                      storeDef,
@@ -396,8 +414,15 @@ public class DonorBasedRebalanceAsyncOperation extends RebalanceAsyncOperation {
             }
         }
 
+        Map<Integer, ByteArray> startKeys = getStartKeys(optimizedStealerNodeToMappingTuples,
+                                                         storeName);
+        if(!startKeys.isEmpty()) {
+            logger.info("Resuming scan of partitions " + startKeys.keySet() + " of store '"
+                        + storeName + "' from their checkpoints");
+        }
         PartitionListIterator entries = new PartitionListIterator(storageEngine,
-                                                                  new ArrayList<Integer>(partitionsToDonate));
+                                                                  new ArrayList<Integer>(partitionsToDonate),
+                                                                  startKeys);
 
         try {
             while(running.get() && entries.hasNext()) {
@@ -420,7 +445,10 @@ public class DonorBasedRebalanceAsyncOperation extends RebalanceAsyncOperation {
                     printProgress(scanned, fetched, startTime, storeName);
                 }
             }
+            boolean scanCompleted = running.get();
             terminateAllSlaves(storeName);
+            if(scanCompleted)
+                completeCheckpoints(storeName);
         } catch(InterruptedException e) {
             logger.info("InterruptedException received while sending entries to remote nodes, the process is terminating...");
             terminateAllSlavesAsync(storeName);
@@ -429,6 +457,58 @@ public class DonorBasedRebalanceAsyncOperation extends RebalanceAsyncOperation {
         }
     }
 
+    /**
+     * The key to resume the scan of each partition from, which is the earliest
+     * of the checkpoints of the stealers the partition goes to. A partition
+     * is scanned from the start if one of them has no checkpoint for it.
+     */
+    private Map<Integer, ByteArray> getStartKeys(Set<Pair<Integer, HashMap<Integer, List<Integer>>>> optimizedStealerNodeToMappingTuples,
+                                                 String storeName) {
+        Map<Integer, RebalanceCheckpointer> nodeToCheckpointer = Maps.newHashMap();
+        for(DonorBasedRebalancePusherSlave pushSlave: updatePushSlavePool.get(storeName)
+                                                                         .getSecond()) {
+            if(pushSlave.getCheckpointer() != null)
+                nodeToCheckpointer.put(pushSlave.getNodeId(), pushSlave.getCheckpointer());
+        }
+
+        Map<Integer, ByteArray> startKeys = Maps.newHashMap();
+        Set<Integer> partitionsFromStart = Sets.newHashSet();
+        for(Pair<Integer, HashMap<Integer, List<Integer>>> nodePartitionMapPair: optimizedStealerNodeToMappingTuples) {
+            RebalanceCheckpointer checkpointer = nodeToCheckpointer.get(nodePartitionMapPair.getFirst());
+            HashMap<Integer, List<Integer>> replicaToPartitionMap = nodePartitionMapPair.getSecond();
+            if(replicaToPartitionMap == null)
+                continue;
+            for(List<Integer> partitions: replicaToPartitionMap.values()) {
+                if(partitions == null)
+                    continue;
+                for(Integer partition: partitions) {
+                    ByteArray startKey = checkpointer == null ? null
+                                                             : checkpointer.getStartKeys()
+                                                                           .get(partition);
+                    if(startKey == null) {
+                        partitionsFromStart.add(partition);
+                    } else if(!startKeys.containsKey(partition)
+                              || ByteUtils.compare(startKey.get(), startKeys.get(partition).get()) < 0) {
+                        startKeys.put(partition, startKey);
+                    }
+                }
+            }
+        }
+        startKeys.keySet().removeAll(partitionsFromStart);
+        return startKeys;
+    }
+
+    /**
+     * Drops the checkpoints of the stealers that took all their entries
+     */
+    private void completeCheckpoints(String storeName) {
+        for(DonorBasedRebalancePusherSlave pushSlave: updatePushSlavePool.get(storeName)
+                                                                         .getSecond()) {
+            if(pushSlave.isCompleted() && pushSlave.getCheckpointer() != null)
+                pushSlave.getCheckpointer().complete();
+        }
+    }
+
     private void putAll(List<Integer> dests,
                         ByteArray key,
                         List<Versioned<byte[]>> values,
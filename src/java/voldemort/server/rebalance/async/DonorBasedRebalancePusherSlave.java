@@ -25,6 +25,7 @@ import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
 import voldemort.client.protocol.admin.AdminClient;
+import voldemort.server.rebalance.RebalanceCheckpointer;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ClosableIterator;
 import voldemort.utils.Pair;
@@ -41,15 +42,31 @@ public class DonorBasedRebalancePusherSlave implements Runnable {
     private String storeName;
     private AdminClient adminClient;
     private ResumableIterator<Pair<ByteArray, Versioned<byte[]>>> nodeIterator;
+    private RebalanceCheckpointer checkpointer;
+    private volatile boolean completed;
 
     public DonorBasedRebalancePusherSlave(int nodeId,
                                           BlockingQueue<Pair<ByteArray, Versioned<byte[]>>> queue,
                                           String storeName,
                                           AdminClient adminClient) {
+        this(nodeId, queue, storeName, adminClient, null);
+    }
+
+    /**
+     * @param checkpointer Notes the entries the node has taken, or null to
+     *        not checkpoint
+     */
+    public DonorBasedRebalancePusherSlave(int nodeId,
+                                          BlockingQueue<Pair<ByteArray, Versioned<byte[]>>> queue,
+                                          String storeName,
+                                          AdminClient adminClient,
+                                          RebalanceCheckpointer checkpointer) {
         this.nodeId = nodeId;
         this.queue = queue;
         this.storeName = storeName;
         this.adminClient = adminClient;
+        this.checkpointer = checkpointer;
+        this.completed = false;
         nodeIterator = new ResumableIterator<Pair<ByteArray, Versioned<byte[]>>>();
     }
 
@@ -62,6 +79,7 @@ public class DonorBasedRebalancePusherSlave implements Runnable {
             try {
                 nodeIterator.reset();
                 adminClient.streamingOps.updateEntries(nodeId, storeName, nodeIterator, null);
+                checkpoint();
                 nodeIterator.purge();
             } catch(VoldemortException e) {
                 if(e.getCause() instanceof IOException) {
@@ -90,10 +108,40 @@ public class DonorBasedRebalancePusherSlave implements Runnable {
             }
         }
 
+        completed = true;
         logger.info("DonorBasedRebalancePusherSlave finished sending partitions for store "
                     + storeName + " to node " + nodeId);
     }
 
+    /**
+     * Notes the entries the node has taken in the last batch
+     */
+    private void checkpoint() {
+        if(checkpointer == null)
+            return;
+        for(Pair<ByteArray, Versioned<byte[]>> entry: nodeIterator.tentativeList) {
+            if(!entry.equals(DonorBasedRebalanceAsyncOperation.END)
+               && !entry.equals(DonorBasedRebalanceAsyncOperation.BREAK))
+                checkpointer.copied(entry.getFirst());
+        }
+        checkpointer.maybeCheckpoint();
+    }
+
+    /**
+     * @return Whether all the entries were sent to the node
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public RebalanceCheckpointer getCheckpointer() {
+        return checkpointer;
+    }
+
     /**
      * This function inserts 'END' into the queue so slave will return from
      * updateEntries.
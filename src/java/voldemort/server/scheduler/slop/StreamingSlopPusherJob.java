@@ -15,19 +15,28 @@
  */
 package voldemort.server.scheduler.slop;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
@@ -62,6 +71,16 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+/**
+ * Pushes the slops of the slop store to their nodes, streaming to each node
+ * from a consumer thread of its own.
+ * <p>
+ * Stores that can be scanned by partition are read by several threads, each
+ * taking partitions until none are left. The slops of each node wait in a
+ * bounded queue; a node that is down, or that lets its queue stay full, has
+ * the rest of its slops left in the store for the next run, so that it holds
+ * up neither the scan nor the other nodes.
+ */
 @SuppressWarnings("unchecked")
 public class StreamingSlopPusherJob implements Runnable {
 
@@ -70,20 +89,23 @@ public class StreamingSlopPusherJob implements Runnable {
 
     private final static Versioned<Slop> END = Versioned.value(null);
 
+    private final static long BATCH_TARGET_MS = 1000;
+
     private final MetadataStore metadataStore;
     private final StoreRepository storeRepo;
     private final FailureDetector failureDetector;
-    private ConcurrentMap<Integer, SynchronousQueue<Versioned<Slop>>> slopQueues;
+    private ConcurrentMap<Integer, BlockingQueue<Versioned<Slop>>> slopQueues;
     private ExecutorService consumerExecutor;
     private final EventThrottler readThrottler;
     private AdminClient adminClient;
     private Cluster cluster;
 
-    private final List<Future> consumerResults;
+    private final List<Future<?>> consumerResults;
+    private ConcurrentMap<Integer, Future<?>> consumersByNode;
     private final VoldemortConfig voldemortConfig;
     private final Map<Integer, Set<Integer>> zoneMapping;
-    private ConcurrentHashMap<Integer, Long> attemptedByNode;
-    private ConcurrentHashMap<Integer, Long> succeededByNode;
+    private ConcurrentHashMap<Integer, AtomicLong> attemptedByNode;
+    private ConcurrentHashMap<Integer, AtomicLong> succeededByNode;
     private final ScanPermitWrapper repairPermits;
 
     public StreamingSlopPusherJob(StoreRepository storeRepo,
@@ -98,7 +120,7 @@ public class StreamingSlopPusherJob implements Runnable {
         this.repairPermits = Utils.notNull(repairPermits);
         this.readThrottler = new EventThrottler(voldemortConfig.getSlopMaxReadBytesPerSec());
         this.adminClient = null;
-        this.consumerResults = Lists.newArrayList();
+        this.consumerResults = Collections.synchronizedList(new ArrayList<Future<?>>());
         this.zoneMapping = Maps.newHashMap();
         this.consumerExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
 
@@ -126,7 +148,6 @@ public class StreamingSlopPusherJob implements Runnable {
         logger.info("Started streaming slop pusher job at " + startTime);
 
         SlopStorageEngine slopStorageEngine = storeRepo.getSlopStore();
-        ClosableIterator<Pair<ByteArray, Versioned<Slop>>> iterator = null;
 
         if(adminClient == null) {
             adminClient = new AdminClient(cluster,
@@ -169,63 +190,23 @@ public class StreamingSlopPusherJob implements Runnable {
         // Clearing the statistics
         AtomicLong attemptedPushes = new AtomicLong(0);
         for(Node node: cluster.getNodes()) {
-            attemptedByNode.put(node.getId(), 0L);
-            succeededByNode.put(node.getId(), 0L);
+            attemptedByNode.put(node.getId(), new AtomicLong(0));
+            succeededByNode.put(node.getId(), new AtomicLong(0));
         }
 
         acquireRepairPermit();
         try {
             StorageEngine<ByteArray, Slop, byte[]> slopStore = slopStorageEngine.asSlopStore();
-            iterator = slopStore.entries();
-
-            while(iterator.hasNext()) {
-                Pair<ByteArray, Versioned<Slop>> keyAndVal;
-                try {
-                    keyAndVal = iterator.next();
-                    Versioned<Slop> versioned = keyAndVal.getSecond();
-
-                    // Retrieve the node
-                    int nodeId = versioned.getValue().getNodeId();
-                    Node node = cluster.getNodeById(nodeId);
-
-                    attemptedPushes.incrementAndGet();
-                    Long attempted = attemptedByNode.get(nodeId);
-                    attemptedByNode.put(nodeId, attempted + 1L);
-                    if(attemptedPushes.get() % 10000 == 0)
-                        logger.info("Attempted pushing " + attemptedPushes + " slops");
-
-                    if(logger.isTraceEnabled())
-                        logger.trace("Pushing slop for " + versioned.getValue().getNodeId()
-                                     + " and store  " + versioned.getValue().getStoreName()
-                                     + " of key: " + versioned.getValue().getKey());
+            Set<Integer> backedUpNodes = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
 
-                    if(failureDetector.isAvailable(node)) {
-                        SynchronousQueue<Versioned<Slop>> slopQueue = slopQueues.get(nodeId);
-                        if(slopQueue == null) {
-                            // No previous slop queue, add one
-                            slopQueue = new SynchronousQueue<Versioned<Slop>>();
-                            slopQueues.put(nodeId, slopQueue);
-                            consumerResults.add(consumerExecutor.submit(new SlopConsumer(nodeId,
-                                                                                         slopQueue,
-                                                                                         slopStorageEngine)));
-                        }
-                        boolean offered = slopQueue.offer(versioned,
-                                                          voldemortConfig.getClientRoutingTimeoutMs(),
-                                                          TimeUnit.MILLISECONDS);
-                        if(!offered) {
-                            if(logger.isDebugEnabled())
-                                logger.debug("No consumer appeared for slop in "
-                                             + voldemortConfig.getClientConnectionTimeoutMs()
-                                             + " ms");
-                        }
-                        readThrottler.maybeThrottle(nBytesRead(keyAndVal));
-                    } else {
-                        logger.trace(node + " declared down, won't push slop");
-                    }
-                } catch(RejectedExecutionException e) {
-                    throw new VoldemortException("Ran out of threads in executor", e);
-                }
-            }
+            if(slopStore.isPartitionScanSupported())
+                scanPartitions(slopStore, slopStorageEngine, attemptedPushes, backedUpNodes);
+            else
+                scan(slopStore.entries(),
+                     slopStorageEngine,
+                     attemptedPushes,
+                     backedUpNodes,
+                     new AtomicBoolean(false));
 
         } catch(InterruptedException e) {
             logger.warn("Interrupted exception", e);
@@ -234,27 +215,21 @@ public class StreamingSlopPusherJob implements Runnable {
             logger.error(e, e);
             terminatedEarly = true;
         } finally {
-            try {
-                if(iterator != null)
-                    iterator.close();
-            } catch(Exception e) {
-                logger.warn("Failed to close iterator cleanly as database might be closed", e);
-            }
-
             // Adding the poison pill
-            for(SynchronousQueue<Versioned<Slop>> slopQueue: slopQueues.values()) {
-                try {
-                    slopQueue.put(END);
-                } catch(InterruptedException e) {
-                    logger.warn("Error putting poison pill", e);
-                }
-            }
-
-            for(Future result: consumerResults) {
-                try {
-                    result.get();
-                } catch(Exception e) {
-                    logger.warn("Exception in consumer", e);
+            long pillDeadlineMs = System.currentTimeMillis()
+                                  + voldemortConfig.getClientRoutingTimeoutMs();
+            for(Map.Entry<Integer, BlockingQueue<Versioned<Slop>>> entry: slopQueues.entrySet())
+                putPoisonPill(entry.getKey(), entry.getValue(), pillDeadlineMs);
+
+            synchronized(consumerResults) {
+                for(Future<?> result: consumerResults) {
+                    try {
+                        result.get();
+                    } catch(CancellationException e) {
+                        // already logged when it was cancelled
+                    } catch(Exception e) {
+                        logger.warn("Exception in consumer", e);
+                    }
                 }
             }
 
@@ -265,8 +240,8 @@ public class StreamingSlopPusherJob implements Runnable {
                     logger.info("Slops to node " + nodeId + " - Succeeded - "
                                 + succeededByNode.get(nodeId) + " - Attempted - "
                                 + attemptedByNode.get(nodeId));
-                    outstanding.put(nodeId,
-                                    attemptedByNode.get(nodeId) - succeededByNode.get(nodeId));
+                    outstanding.put(nodeId, attemptedByNode.get(nodeId).get()
+                                            - succeededByNode.get(nodeId).get());
                 }
                 slopStorageEngine.resetStats(outstanding);
                 logger.info("Completed streaming slop pusher job which started at " + startTime);
@@ -282,6 +257,7 @@ public class StreamingSlopPusherJob implements Runnable {
 
             // Shut down admin client as not to waste connections
             consumerResults.clear();
+            consumersByNode.clear();
             slopQueues.clear();
             stopAdminClient();
             this.repairPermits.release();
@@ -289,11 +265,183 @@ public class StreamingSlopPusherJob implements Runnable {
 
     }
 
+    /**
+     * Ends the consumer of a queue, giving up on it and cancelling it if its
+     * queue is still full at the deadline, as happens when it is stuck
+     * streaming to a node that has stopped responding
+     */
+    private void putPoisonPill(int nodeId, BlockingQueue<Versioned<Slop>> slopQueue, long deadlineMs) {
+        try {
+            boolean delivered;
+            // a consumer that failed takes its queue out of the map, and
+            // would never take the pill
+            do {
+                delivered = slopQueue.offer(END, 100, TimeUnit.MILLISECONDS);
+            } while(!delivered && slopQueues.get(nodeId) == slopQueue
+                    && System.currentTimeMillis() < deadlineMs);
+
+            if(!delivered && slopQueues.get(nodeId) == slopQueue) {
+                logger.warn("Could not deliver the poison pill to the slop consumer of node "
+                            + nodeId + " within " + voldemortConfig.getClientRoutingTimeoutMs()
+                            + " ms, cancelling it and leaving its slops for the next run");
+                // the queued slops stay in the store, and the pill lets the
+                // consumer end on its own once its node answers, as an
+                // interrupt could break the store it deletes from
+                slopQueue.clear();
+                slopQueue.offer(END);
+                Future<?> consumer = consumersByNode.get(nodeId);
+                if(consumer != null)
+                    consumer.cancel(false);
+            }
+        } catch(InterruptedException e) {
+            logger.warn("Error putting poison pill", e);
+        }
+    }
+
+    /**
+     * Reads the slop store a partition at a time, from several threads at
+     * once, until every partition has been read or one of the threads fails
+     */
+    private void scanPartitions(final StorageEngine<ByteArray, Slop, byte[]> slopStore,
+                                final SlopStorageEngine slopStorageEngine,
+                                final AtomicLong attemptedPushes,
+                                final Set<Integer> backedUpNodes) throws Exception {
+        final Queue<Integer> partitions = new ConcurrentLinkedQueue<Integer>();
+        for(int partitionId = 0; partitionId < cluster.getNumberOfPartitions(); partitionId++)
+            partitions.add(partitionId);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+
+        int numScanners = Math.max(1, Math.min(voldemortConfig.getSlopPusherScanThreads(),
+                                               partitions.size()));
+        List<Future<?>> scanners = Lists.newArrayListWithCapacity(numScanners);
+        for(int i = 0; i < numScanners; i++) {
+            scanners.add(consumerExecutor.submit(new Callable<Void>() {
+
+                public Void call() throws Exception {
+                    try {
+                        Integer partitionId;
+                        while(!failed.get() && (partitionId = partitions.poll()) != null)
+                            scan(slopStore.entries(partitionId),
+                                 slopStorageEngine,
+                                 attemptedPushes,
+                                 backedUpNodes,
+                                 failed);
+                        return null;
+                    } catch(Exception e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }
+            }));
+        }
+
+        // the scanners are stopped by the flag rather than interrupted, as an
+        // interrupt could break the store under them
+        Exception failure = null;
+        for(Future<?> scanner: scanners) {
+            try {
+                scanner.get();
+            } catch(InterruptedException e) {
+                failed.set(true);
+                if(failure == null)
+                    failure = e;
+            } catch(ExecutionException e) {
+                if(failure == null)
+                    failure = (Exception) e.getCause();
+            }
+        }
+        if(failure != null)
+            throw failure;
+    }
+
+    /**
+     * Hands the slops of the iterator to the consumers of their nodes, and
+     * closes it
+     */
+    private void scan(ClosableIterator<Pair<ByteArray, Versioned<Slop>>> iterator,
+                      SlopStorageEngine slopStorageEngine,
+                      AtomicLong attemptedPushes,
+                      Set<Integer> backedUpNodes,
+                      AtomicBoolean stop) throws InterruptedException {
+        try {
+            while(!stop.get() && iterator.hasNext()) {
+                Pair<ByteArray, Versioned<Slop>> keyAndVal;
+                try {
+                    keyAndVal = iterator.next();
+                    Versioned<Slop> versioned = keyAndVal.getSecond();
+
+                    // Retrieve the node
+                    int nodeId = versioned.getValue().getNodeId();
+                    Node node = cluster.getNodeById(nodeId);
+
+                    attemptedByNode.get(nodeId).incrementAndGet();
+                    if(attemptedPushes.incrementAndGet() % 10000 == 0)
+                        logger.info("Attempted pushing " + attemptedPushes + " slops");
+
+                    if(logger.isTraceEnabled())
+                        logger.trace("Pushing slop for " + versioned.getValue().getNodeId()
+                                     + " and store  " + versioned.getValue().getStoreName()
+                                     + " of key: " + versioned.getValue().getKey());
+
+                    if(!failureDetector.isAvailable(node)) {
+                        logger.trace(node + " declared down, won't push slop");
+                    } else if(!backedUpNodes.contains(nodeId)) {
+                        BlockingQueue<Versioned<Slop>> slopQueue = getSlopQueue(nodeId,
+                                                                                slopStorageEngine);
+                        boolean offered = slopQueue.offer(versioned,
+                                                          voldemortConfig.getClientRoutingTimeoutMs(),
+                                                          TimeUnit.MILLISECONDS);
+                        if(!offered && backedUpNodes.add(nodeId)) {
+                            // the slops stay in the store for the next run,
+                            // rather than hold up the other nodes
+                            logger.info("Slop queue of node " + nodeId + " stayed full for "
+                                        + voldemortConfig.getClientRoutingTimeoutMs()
+                                        + " ms, leaving the rest of its slops for the next run");
+                        }
+                        readThrottler.maybeThrottle(nBytesRead(keyAndVal));
+                    }
+                } catch(RejectedExecutionException e) {
+                    throw new VoldemortException("Ran out of threads in executor", e);
+                }
+            }
+        } finally {
+            try {
+                iterator.close();
+            } catch(Exception e) {
+                logger.warn("Failed to close iterator cleanly as database might be closed", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the queue of slops for a node, starting a consumer for it if
+     * there is none
+     */
+    private BlockingQueue<Versioned<Slop>> getSlopQueue(int nodeId,
+                                                        SlopStorageEngine slopStorageEngine) {
+        BlockingQueue<Versioned<Slop>> slopQueue = slopQueues.get(nodeId);
+        if(slopQueue == null) {
+            // No previous slop queue, add one
+            BlockingQueue<Versioned<Slop>> newQueue = new ArrayBlockingQueue<Versioned<Slop>>(voldemortConfig.getSlopPusherQueueSize());
+            slopQueue = slopQueues.putIfAbsent(nodeId, newQueue);
+            if(slopQueue == null) {
+                slopQueue = newQueue;
+                Future<?> consumer = consumerExecutor.submit(new SlopConsumer(nodeId,
+                                                                              slopQueue,
+                                                                              slopStorageEngine));
+                consumersByNode.put(nodeId, consumer);
+                consumerResults.add(consumer);
+            }
+        }
+        return slopQueue;
+    }
+
     private void loadMetadata() {
         this.cluster = metadataStore.getCluster();
-        this.slopQueues = new ConcurrentHashMap<Integer, SynchronousQueue<Versioned<Slop>>>(cluster.getNumberOfNodes());
-        this.attemptedByNode = new ConcurrentHashMap<Integer, Long>(cluster.getNumberOfNodes());
-        this.succeededByNode = new ConcurrentHashMap<Integer, Long>(cluster.getNumberOfNodes());
+        this.slopQueues = new ConcurrentHashMap<Integer, BlockingQueue<Versioned<Slop>>>(cluster.getNumberOfNodes());
+        this.consumersByNode = new ConcurrentHashMap<Integer, Future<?>>(cluster.getNumberOfNodes());
+        this.attemptedByNode = new ConcurrentHashMap<Integer, AtomicLong>(cluster.getNumberOfNodes());
+        this.succeededByNode = new ConcurrentHashMap<Integer, AtomicLong>(cluster.getNumberOfNodes());
     }
 
     private void stopAdminClient() {
@@ -338,25 +486,33 @@ public class StreamingSlopPusherJob implements Runnable {
      */
     private class SlopIterator extends AbstractIterator<Versioned<Slop>> {
 
-        private final SynchronousQueue<Versioned<Slop>> slopQueue;
+        private final BlockingQueue<Versioned<Slop>> slopQueue;
         private final List<Pair<ByteArray, Version>> deleteBatch;
         private final EventThrottler writeThrottler;
+        private final int batchSize;
 
         private int writtenLast = 0;
         private long slopsDone = 0L;
         private boolean shutDown = false, isComplete = false;
 
-        public SlopIterator(SynchronousQueue<Versioned<Slop>> slopQueue,
-                            List<Pair<ByteArray, Version>> deleteBatch) {
+        public SlopIterator(BlockingQueue<Versioned<Slop>> slopQueue,
+                            List<Pair<ByteArray, Version>> deleteBatch,
+                            EventThrottler writeThrottler,
+                            int batchSize) {
             this.slopQueue = slopQueue;
             this.deleteBatch = deleteBatch;
-            this.writeThrottler = new EventThrottler(voldemortConfig.getSlopMaxWriteBytesPerSec());
+            this.writeThrottler = writeThrottler;
+            this.batchSize = batchSize;
         }
 
         public boolean isComplete() {
             return isComplete;
         }
 
+        public boolean isFull() {
+            return slopsDone == batchSize;
+        }
+
         @Override
         protected Versioned<Slop> computeNext() {
             try {
@@ -368,7 +524,7 @@ public class StreamingSlopPusherJob implements Runnable {
                         isComplete = true;
                     } else {
                         slopsDone++;
-                        if(slopsDone % voldemortConfig.getSlopBatchSize() == 0) {
+                        if(slopsDone == batchSize) {
                             shutDown = true;
                         }
 
@@ -388,6 +544,27 @@ public class StreamingSlopPusherJob implements Runnable {
 
     }
 
+    /**
+     * Works out the size of a node's next batch of slops
+     * 
+     * @param batchSize The size of the batch just streamed
+     * @param full Whether the batch filled up, rather than ran out of slops
+     * @param elapsedMs How long the batch took to stream
+     * @param config The config with the smallest and largest batch sizes
+     * @return The size of the next batch
+     */
+    public static int nextBatchSize(int batchSize,
+                                    boolean full,
+                                    long elapsedMs,
+                                    VoldemortConfig config) {
+        if(elapsedMs > BATCH_TARGET_MS)
+            return Math.max(config.getSlopBatchSize(), batchSize / 2);
+        else if(full)
+            return Math.min(config.getSlopMaxBatchSize(), batchSize * 2);
+        else
+            return batchSize;
+    }
+
     private void acquireRepairPermit() {
         logger.info("Acquiring lock to perform streaming slop pusher job ");
         try {
@@ -400,22 +577,32 @@ public class StreamingSlopPusherJob implements Runnable {
         }
     }
 
+    /**
+     * Streams the slops of one node, a batch per request. A batch that fills
+     * up and streams within {@link #BATCH_TARGET_MS} makes the next one twice
+     * the size, up to the configured maximum, and one that takes longer halves
+     * it, down to the configured batch size.
+     */
     private class SlopConsumer implements Runnable {
 
         private final int nodeId;
-        private SynchronousQueue<Versioned<Slop>> slopQueue;
+        private BlockingQueue<Versioned<Slop>> slopQueue;
         private long startTime;
         private SlopStorageEngine slopStorageEngine;
+        private final EventThrottler writeThrottler;
+        private int batchSize;
 
         // Keep two lists to track deleted items
         private List<Pair<ByteArray, Version>> previous, current;
 
         public SlopConsumer(int nodeId,
-                            SynchronousQueue<Versioned<Slop>> slopQueue,
+                            BlockingQueue<Versioned<Slop>> slopQueue,
                             SlopStorageEngine slopStorageEngine) {
             this.nodeId = nodeId;
             this.slopQueue = slopQueue;
             this.slopStorageEngine = slopStorageEngine;
+            this.writeThrottler = new EventThrottler(voldemortConfig.getSlopMaxWriteBytesPerSec());
+            this.batchSize = voldemortConfig.getSlopBatchSize();
             this.previous = Lists.newArrayList();
             this.current = Lists.newArrayList();
         }
@@ -425,42 +612,23 @@ public class StreamingSlopPusherJob implements Runnable {
                 SlopIterator iterator = null;
                 do {
                     if(!current.isEmpty()) {
-                        if(!previous.isEmpty()) {
-                            for(Pair<ByteArray, Version> entry: previous) {
-                                slopStorageEngine.delete(entry.getFirst(), entry.getSecond());
-                            }
-                            Long succeeded = succeededByNode.get(nodeId);
-                            succeeded += previous.size();
-                            succeededByNode.put(nodeId, succeeded);
-                            previous.clear();
-                        }
-                        previous = null;
+                        if(!previous.isEmpty())
+                            deleteBatch(previous);
                         previous = current;
                         current = Lists.newArrayList();
                     }
                     this.startTime = System.currentTimeMillis();
-                    iterator = new SlopIterator(slopQueue, current);
+                    iterator = new SlopIterator(slopQueue, current, writeThrottler, batchSize);
                     adminClient.streamingOps.updateSlopEntries(nodeId, iterator);
+                    batchSize = nextBatchSize(batchSize,
+                                              iterator.isFull(),
+                                              System.currentTimeMillis() - this.startTime,
+                                              voldemortConfig);
                 } while(!iterator.isComplete());
 
                 // Clear up both previous and current
-                if(!previous.isEmpty()) {
-                    for(Pair<ByteArray, Version> entry: previous)
-                        slopStorageEngine.delete(entry.getFirst(), entry.getSecond());
-                    Long succeeded = succeededByNode.get(nodeId);
-                    succeeded += previous.size();
-                    succeededByNode.put(nodeId, succeeded);
-                    previous.clear();
-                }
-                if(!current.isEmpty()) {
-                    for(Pair<ByteArray, Version> entry: current)
-                        slopStorageEngine.delete(entry.getFirst(), entry.getSecond());
-                    Long succeeded = succeededByNode.get(nodeId);
-                    succeeded += current.size();
-                    succeededByNode.put(nodeId, succeeded);
-                    current.clear();
-                }
-
+                deleteBatch(previous);
+                deleteBatch(current);
             } catch(UnreachableStoreException e) {
                 failureDetector.recordException(metadataStore.getCluster().getNodeById(nodeId),
                                                 System.currentTimeMillis() - this.startTime,
@@ -469,9 +637,18 @@ public class StreamingSlopPusherJob implements Runnable {
             } finally {
                 // Clean the slop queue and remove the queue from the global
                 // queue
+                slopQueues.remove(nodeId, slopQueue);
                 slopQueue.clear();
-                slopQueues.remove(nodeId);
             }
         }
+
+        private void deleteBatch(List<Pair<ByteArray, Version>> batch) {
+            if(batch.isEmpty())
+                return;
+            for(Pair<ByteArray, Version> entry: batch)
+                slopStorageEngine.delete(entry.getFirst(), entry.getSecond());
+            succeededByNode.get(nodeId).addAndGet(batch.size());
+            batch.clear();
+        }
     }
 }
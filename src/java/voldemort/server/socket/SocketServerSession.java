@@ -1,6 +1,8 @@
 package voldemort.server.socket;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -72,6 +74,11 @@ public class SocketServerSession implements Runnable {
                         + " connected successfully with protocol " + protocol.getCode());
 
             while(!isInterrupted() && !socket.isClosed() && !isClosed) {
+                if(protocol.isMultiplexed()) {
+                    handleMultiplexedRequest(handler, inputStream, outputStream);
+                    continue;
+                }
+
                 StreamRequestHandler srh = handler.handleRequest(inputStream, outputStream);
 
                 if(srh != null) {
@@ -125,6 +132,39 @@ public class SocketServerSession implements Runnable {
         }
     }
 
+    /**
+     * Reads one request framed with its id and length and writes the response
+     * framed the same way. The output is only flushed once no other request is
+     * waiting to be read.
+     */
+    private void handleMultiplexedRequest(RequestHandler handler,
+                                          DataInputStream inputStream,
+                                          DataOutputStream outputStream) throws IOException {
+        int requestId = inputStream.readInt();
+        int length = inputStream.readInt();
+        if(length < 0)
+            throw new IOException("Invalid request length " + length);
+        byte[] request = new byte[length];
+        inputStream.readFully(request);
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        DataOutputStream responseStream = new DataOutputStream(response);
+        StreamRequestHandler srh = handler.handleRequest(new DataInputStream(new ByteArrayInputStream(request)),
+                                                         responseStream);
+        if(srh != null) {
+            srh.close(responseStream);
+            throw new IOException("Streaming requests are not supported on multiplexed connections");
+        }
+        responseStream.flush();
+
+        outputStream.writeInt(requestId);
+        outputStream.writeInt(response.size());
+        response.writeTo(outputStream);
+
+        if(inputStream.available() == 0)
+            outputStream.flush();
+    }
+
     private RequestFormatType negotiateProtocol(InputStream input, OutputStream output)
             throws IOException {
         input.mark(3);
@@ -32,6 +32,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.management.MBeanOperationInfo;
@@ -71,6 +73,7 @@ import voldemort.store.StoreDefinition;
 import voldemort.store.configuration.FileBackedCachingStorageConfiguration;
 import voldemort.store.invalidmetadata.InvalidMetadataCheckingStore;
 import voldemort.store.logging.LoggingStore;
+import voldemort.store.memory.BoundedCacheStorageEngine;
 import voldemort.store.memory.InMemoryStorageConfiguration;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.store.metadata.MetadataStoreListener;
@@ -140,6 +143,7 @@ public class StorageService extends AbstractService {
     private final StoreStats storeStats;
     private final RoutedStoreFactory routedStoreFactory;
     private final ExecutorService proxyPutWorkerPool;
+    private final ExecutorService parallelScanPool;
     private final ProxyPutStats aggregatedProxyPutStats;
 
     public StorageService(StoreRepository storeRepository,
@@ -187,6 +191,19 @@ public class StorageService extends AbstractService {
         // create the proxy put thread pool
         this.proxyPutWorkerPool = Executors.newFixedThreadPool(config.getMaxProxyPutThreads(),
                                                                new DaemonThreadFactory("voldemort-proxy-put-thread"));
+
+        // create the pool for the partition fetches that scan in parallel,
+        // which hands off scans rather than queueing them, so that a fetch
+        // never waits on the scans of another
+        if(config.getAdminParallelScanThreads() > 0)
+            this.parallelScanPool = new ThreadPoolExecutor(0,
+                                                           config.getAdminParallelScanThreads(),
+                                                           60,
+                                                           TimeUnit.SECONDS,
+                                                           new SynchronousQueue<Runnable>(),
+                                                           new DaemonThreadFactory("voldemort-parallel-scan-thread"));
+        else
+            this.parallelScanPool = null;
         this.aggregatedProxyPutStats = new ProxyPutStats(null);
         if(config.isJmxEnabled()) {
             JmxUtils.registerMbean(this.aggregatedProxyPutStats,
@@ -710,6 +727,9 @@ public class StorageService extends AbstractService {
         }
 
         storeRepository.removeStorageEngine(storeName);
+        StorageConfiguration config = storageConfigs.get(storeType);
+        if(config != null)
+            config.removeStorageEngine(engine);
         if(truncate)
             engine.truncate();
         engine.close();
@@ -815,6 +835,10 @@ public class StorageService extends AbstractService {
         if(voldemortConfig.isStatTrackingEnabled()) {
             StatTrackingStore statStore = new StatTrackingStore(store, this.storeStats);
             store = statStore;
+            // the cache counts its hits, misses and evictions with the
+            // requests of the store
+            if(engine instanceof BoundedCacheStorageEngine)
+                ((BoundedCacheStorageEngine) engine).setStats(statStore.getStats());
             if(voldemortConfig.isJmxEnabled()) {
 
                 MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
@@ -1046,6 +1070,17 @@ public class StorageService extends AbstractService {
         }
         logger.info("Closed proxy put thread pool.");
 
+        if(this.parallelScanPool != null) {
+            this.parallelScanPool.shutdown();
+            try {
+                if(!this.parallelScanPool.awaitTermination(10, TimeUnit.SECONDS))
+                    this.parallelScanPool.shutdownNow();
+            } catch(InterruptedException e) {
+                this.parallelScanPool.shutdownNow();
+            }
+            logger.info("Closed parallel scan thread pool.");
+        }
+
         /* If there is an exception, throw it */
         if(lastException instanceof VoldemortException)
             throw (VoldemortException) lastException;
@@ -1182,6 +1217,18 @@ public class StorageService extends AbstractService {
         return storeFactory;
     }
 
+    public ScanPermitWrapper getScanPermitWrapper() {
+        return scanPermitWrapper;
+    }
+
+    /**
+     * @return The pool that partition fetches scan in parallel on, or null if
+     *         fetches scan one partition at a time
+     */
+    public ExecutorService getParallelScanPool() {
+        return parallelScanPool;
+    }
+
     public DynamicThrottleLimit getDynThrottleLimit() {
         return dynThrottleLimit;
     }
@@ -36,6 +36,12 @@ public class AbstractStorageEngine<K, V, T> extends AbstractStore<K, V, T> imple
         return null;
     }
 
+    @Override
+    public ClosableIterator<Pair<K, Versioned<V>>> entries(int partitionId, K startKey) {
+        throw new UnsupportedOperationException("Resumable partition scan not supported for "
+                                                + this.getClass().getName());
+    }
+
     @Override
     public void truncate() {}
 
@@ -49,6 +55,11 @@ public class AbstractStorageEngine<K, V, T> extends AbstractStore<K, V, T> imple
         return false;
     }
 
+    @Override
+    public boolean isPartitionScanResumable() {
+        return false;
+    }
+
     @Override
     public boolean beginBatchModifications() {
         return false;
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store;
+
+import voldemort.VoldemortException;
+import voldemort.common.nio.FileRegion;
+import voldemort.utils.ByteArray;
+
+/**
+ * Implemented by storage engines whose values can be sent to clients straight
+ * from their files. Such engines, and the store wrappers that need to see
+ * every read, expose it through the
+ * {@link StoreCapabilityType#FILE_REGION_READER} capability.
+ *
+ * Values read this way carry no version but the empty
+ * {@link voldemort.versioning.VectorClock}.
+ *
+ */
+public interface FileRegionReader {
+
+    /**
+     * Finds the value of a key without reading it
+     *
+     * @param key The key
+     * @return The region of the file holding the value, an empty region if
+     *         the key is not found, or null if the value has to be read with
+     *         {@link Store#get(Object, Object)}. The caller has to release the
+     *         region.
+     * @throws VoldemortException
+     */
+    public FileRegion getFileRegion(ByteArray key) throws VoldemortException;
+}
@@ -15,7 +15,9 @@
  */
 package voldemort.store;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import voldemort.utils.ByteArray;
@@ -26,21 +28,31 @@ import voldemort.versioning.Versioned;
 
 /**
  * Iterator that uses efficient partition scan to iterate across a list of
- * supplied partitions
+ * supplied partitions. If the storage engine can resume partition scans, the
+ * scan of a partition may start from a given key.
  * 
  */
 public class PartitionListIterator implements ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> {
 
     StorageEngine<ByteArray, byte[], byte[]> storageEngine;
     List<Integer> partitionsToFetch;
+    Map<Integer, ByteArray> startKeys;
     ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> partitionIterator;
     int currentIndex;
 
     public PartitionListIterator(StorageEngine<ByteArray, byte[], byte[]> storageEngine,
                                  List<Integer> partitionsToFetch) {
+        this(storageEngine, partitionsToFetch, Collections.<Integer, ByteArray> emptyMap());
+    }
+
+    public PartitionListIterator(StorageEngine<ByteArray, byte[], byte[]> storageEngine,
+                                 List<Integer> partitionsToFetch,
+                                 Map<Integer, ByteArray> startKeys) {
         Utils.notNull(partitionsToFetch);
+        Utils.notNull(startKeys);
         this.storageEngine = storageEngine;
         this.partitionsToFetch = partitionsToFetch;
+        this.startKeys = startKeys;
         this.currentIndex = 0;
     }
 
@@ -54,7 +66,11 @@ public class PartitionListIterator implements ClosableIterator<Pair<ByteArray, V
             if(this.partitionIterator != null)
                 this.partitionIterator.close();
             // advance to the next partition
-            this.partitionIterator = storageEngine.entries(this.partitionsToFetch.get(currentIndex));
+            int partition = this.partitionsToFetch.get(currentIndex);
+            if(startKeys.containsKey(partition) && storageEngine.isPartitionScanResumable())
+                this.partitionIterator = storageEngine.entries(partition, startKeys.get(partition));
+            else
+                this.partitionIterator = storageEngine.entries(partition);
             currentIndex++;
             if(this.partitionIterator.hasNext())
                 return true;
@@ -56,6 +56,14 @@ public interface StorageConfiguration {
      */
     public void update(StoreDefinition storeDef);
 
+    /**
+     * Release whatever the configuration holds for the engine of a store that
+     * is being removed. The engine itself is closed by the caller.
+     * 
+     * @param engine The engine of the store
+     */
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine);
+
     /**
      * Close the storage configuration
      */
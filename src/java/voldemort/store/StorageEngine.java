@@ -91,6 +91,23 @@ public interface StorageEngine<K, V, T> extends Store<K, V, T> {
      */
     public ClosableIterator<K> keys(int partition);
 
+    /**
+     * Get an iterator over the entries in a store's partition, starting at the
+     * given key. This lets a scan of a partition that was cut short carry on
+     * from the last key it got to, instead of from the start of the partition.
+     * Only supported if {@link #isPartitionScanResumable()} is true.
+     * 
+     * Note that the iterator need not be threadsafe, and that it must be
+     * manually closed after use.
+     * 
+     * @param partition partition whose entries are to be fetched
+     * @param startKey key to start from. The entries of the partition whose
+     *        keys come before it in the order of {@link #entries(int)} are
+     *        skipped
+     * @return An iterator over the entries in this StorageEngine.
+     */
+    public ClosableIterator<Pair<K, Versioned<V>>> entries(int partition, K startKey);
+
     /**
      * Truncate all entries in the store
      */
@@ -114,6 +131,15 @@ public interface StorageEngine<K, V, T> extends Store<K, V, T> {
      */
     public boolean isPartitionScanSupported();
 
+    /**
+     * Does the storage engine scan a partition in key order, so that a scan can
+     * be resumed from a key with {@link #entries(int, Object)}?
+     * 
+     * @return true if the storage engine implements the capability. false
+     *         otherwise
+     */
+    public boolean isPartitionScanResumable();
+
     /**
      * A lot of storage engines support efficient methods for performing large
      * number of writes (puts/deletes) against the data source. This method puts
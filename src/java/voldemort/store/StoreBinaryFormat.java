@@ -1,10 +1,13 @@
 package voldemort.store;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import voldemort.VoldemortException;
 import voldemort.utils.ByteUtils;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.Occurred;
 import voldemort.versioning.VectorClock;
 import voldemort.versioning.Versioned;
 
@@ -82,6 +85,80 @@ public class StoreBinaryFormat {
         return vals;
     }
 
+    /**
+     * Adds a version to serialized versions, throwing out the versions it
+     * supersedes. The clocks are compared in their serialized form, and the
+     * versions kept are copied over as they are, so no version is read into
+     * objects.
+     * 
+     * @param bytes The serialized versions
+     * @param value The version to add
+     * @return The serialized versions, with the version added
+     * @throws ObsoleteVersionException If the version is no greater than one
+     *         of the versions
+     */
+    public static byte[] addVersion(byte[] bytes, Versioned<byte[]> value) {
+        if(bytes.length < 1)
+            throw new VoldemortException("Invalid value length: " + bytes.length);
+        if(bytes[0] != VERSION)
+            throw new VoldemortException("Unexpected version number in value: " + bytes[0]);
+        VectorClock clock = (VectorClock) value.getVersion();
+
+        // find the size of the versions to keep, remembering which they are
+        // so that they are only compared once
+        boolean[] kept = new boolean[4];
+        int numVersions = 0;
+        int keptSize = 0;
+        int pos = 1;
+        while(pos < bytes.length) {
+            int end = nextVersion(bytes, pos);
+            Occurred occurred = clock.compare(bytes, pos);
+            if(occurred == Occurred.BEFORE)
+                throw new ObsoleteVersionException(clock + " is obsolete, it is no greater than the current version of "
+                                                   + new VectorClock(bytes, pos) + ".");
+            if(numVersions == kept.length)
+                kept = Arrays.copyOf(kept, 2 * kept.length);
+            if(occurred != Occurred.AFTER) {
+                kept[numVersions] = true;
+                keptSize += end - pos;
+            }
+            numVersions++;
+            pos = end;
+        }
+
+        int clockSize = clock.sizeInBytes();
+        int valueSize = value.getValue().length;
+        byte[] newBytes = new byte[1 + keptSize + clockSize + ByteUtils.SIZE_OF_INT + valueSize];
+        newBytes[0] = VERSION;
+        int newPos = 1;
+        pos = 1;
+        for(int i = 0; i < numVersions; i++) {
+            int end = nextVersion(bytes, pos);
+            if(kept[i]) {
+                System.arraycopy(bytes, pos, newBytes, newPos, end - pos);
+                newPos += end - pos;
+            }
+            pos = end;
+        }
+        newPos += clock.toBytes(newBytes, newPos);
+        ByteUtils.writeInt(newBytes, valueSize, newPos);
+        newPos += ByteUtils.SIZE_OF_INT;
+        System.arraycopy(value.getValue(), 0, newBytes, newPos, valueSize);
+        return newBytes;
+    }
+
+    /**
+     * @return The position of the version after the one at the given position
+     */
+    private static int nextVersion(byte[] bytes, int pos) {
+        int valuePos = pos + VectorClock.sizeInBytes(bytes, pos);
+        int end = valuePos + ByteUtils.SIZE_OF_INT + ByteUtils.readInt(bytes, valuePos);
+        if(end > bytes.length)
+            throw new VoldemortException((end - bytes.length)
+                                         + " bytes missing from value (this should not be possible)!");
+        return end;
+    }
+
     public static byte[] makePrefixedKey(byte[] key, int partitionId) {
         byte[] prefixedKey = new byte[PARTITIONID_PREFIX_SIZE + key.length];
         ByteUtils.writeUnsignedShort(prefixedKey, partitionId, 0);
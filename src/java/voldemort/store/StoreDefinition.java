@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import voldemort.client.RoutingTier;
+import voldemort.serialization.Compression;
 import voldemort.serialization.SerializerDefinition;
 import voldemort.store.slop.strategy.HintedHandoffStrategyType;
 import voldemort.store.system.SystemStoreConstants;
@@ -63,6 +64,7 @@ public class StoreDefinition implements Serializable {
     private final Integer hintPrefListSize;
     private final List<String> owners;
     private final long memoryFootprintMB;
+    private final Compression readOnlyCompression;
 
     public StoreDefinition(String name,
                            String type,
@@ -90,6 +92,62 @@ public class StoreDefinition implements Serializable {
                            Integer hintPrefListSize,
                            List<String> owners,
                            long memoryFootprintMB) {
+        this(name,
+             type,
+             description,
+             keySerializer,
+             valueSerializer,
+             transformsSerializer,
+             routingPolicy,
+             routingStrategyType,
+             replicationFactor,
+             preferredReads,
+             requiredReads,
+             preferredWrites,
+             requiredWrites,
+             viewOfStore,
+             valTrans,
+             zoneReplicationFactor,
+             zoneCountReads,
+             zoneCountWrites,
+             retentionDays,
+             retentionThrottleRate,
+             retentionFrequencyDays,
+             factory,
+             hintedHandoffStrategyType,
+             hintPrefListSize,
+             owners,
+             memoryFootprintMB,
+             null);
+    }
+
+    public StoreDefinition(String name,
+                           String type,
+                           String description,
+                           SerializerDefinition keySerializer,
+                           SerializerDefinition valueSerializer,
+                           SerializerDefinition transformsSerializer,
+                           RoutingTier routingPolicy,
+                           String routingStrategyType,
+                           int replicationFactor,
+                           Integer preferredReads,
+                           int requiredReads,
+                           Integer preferredWrites,
+                           int requiredWrites,
+                           String viewOfStore,
+                           String valTrans,
+                           HashMap<Integer, Integer> zoneReplicationFactor,
+                           Integer zoneCountReads,
+                           Integer zoneCountWrites,
+                           Integer retentionDays,
+                           Integer retentionThrottleRate,
+                           Integer retentionFrequencyDays,
+                           String factory,
+                           HintedHandoffStrategyType hintedHandoffStrategyType,
+                           Integer hintPrefListSize,
+                           List<String> owners,
+                           long memoryFootprintMB,
+                           Compression readOnlyCompression) {
         this.name = Utils.notNull(name);
         this.type = type;
         this.description = description;
@@ -116,6 +174,7 @@ public class StoreDefinition implements Serializable {
         this.hintedHandoffStrategyType = hintedHandoffStrategyType;
         this.hintPrefListSize = hintPrefListSize;
         this.owners = owners;
+        this.readOnlyCompression = readOnlyCompression;
     }
 
     protected void checkParameterLegality() {
@@ -359,6 +418,18 @@ public class StoreDefinition implements Serializable {
         return memoryFootprintMB != 0;
     }
 
+    /**
+     * @return The compression of the blocks of the read-only data files
+     *         built for this store, or null if they are not compressed
+     */
+    public Compression getReadOnlyCompression() {
+        return readOnlyCompression;
+    }
+
+    public boolean hasReadOnlyCompression() {
+        return readOnlyCompression != null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if(this == o)
@@ -402,7 +473,8 @@ public class StoreDefinition implements Serializable {
                                                                   : null)
                && Objects.equal(getHintedHandoffStrategyType(), def.getHintedHandoffStrategyType())
                && Objects.equal(getHintPrefListSize(), def.getHintPrefListSize())
-               && Objects.equal(getMemoryFootprintMB(), def.getMemoryFootprintMB());
+               && Objects.equal(getMemoryFootprintMB(), def.getMemoryFootprintMB())
+               && Objects.equal(getReadOnlyCompression(), def.getReadOnlyCompression());
     }
 
     @Override
@@ -434,7 +506,8 @@ public class StoreDefinition implements Serializable {
                                                               : null,
                                 hasHintPreflistSize() ? getHintPrefListSize() : null,
                                 getOwners(),
-                                getMemoryFootprintMB());
+                                getMemoryFootprintMB(),
+                                getReadOnlyCompression());
     }
 
     @Override
@@ -454,6 +527,8 @@ public class StoreDefinition implements Serializable {
                + getZoneCountWrites() + ", serializer factory = " + getSerializerFactory() + ")"
                + ", hinted-handoff-strategy = " + getHintedHandoffStrategyType()
                + ", hint-preflist-size = " + getHintPrefListSize() + ", owners = " + getOwners()
-               + ", memory-footprint(MB)" + getMemoryFootprintMB() + ")";
+               + ", memory-footprint(MB)" + getMemoryFootprintMB()
+               + ", read-only-compression = "
+               + (hasReadOnlyCompression() ? getReadOnlyCompression().getType() : null) + ")";
     }
 }
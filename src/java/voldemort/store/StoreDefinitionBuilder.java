@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import voldemort.client.RoutingTier;
+import voldemort.serialization.Compression;
 import voldemort.serialization.SerializerDefinition;
 import voldemort.store.slop.strategy.HintedHandoffStrategyType;
 import voldemort.utils.Utils;
@@ -42,6 +43,7 @@ public class StoreDefinitionBuilder {
     private Integer hintPrefListSize = null;
     private List<String> owners = null;
     private long memoryFootprintMB = 0;
+    private Compression readOnlyCompression = null;
 
     public String getName() {
         return Utils.notNull(name);
@@ -293,6 +295,15 @@ public class StoreDefinitionBuilder {
         return this;
     }
 
+    public Compression getReadOnlyCompression() {
+        return readOnlyCompression;
+    }
+
+    public StoreDefinitionBuilder setReadOnlyCompression(Compression readOnlyCompression) {
+        this.readOnlyCompression = readOnlyCompression;
+        return this;
+    }
+
     public StoreDefinition build() {
         StoreDefinition storeDef = new StoreDefinition(this.getName(),
                                                        this.getType(),
@@ -319,7 +330,8 @@ public class StoreDefinitionBuilder {
                                                        this.getHintedHandoffStrategy(),
                                                        this.getHintPrefListSize(),
                                                        this.getOwners(),
-                                                       this.getMemoryFootprintMB());
+                                                       this.getMemoryFootprintMB(),
+                                                       this.getReadOnlyCompression());
         storeDef.checkParameterLegality();
         return storeDef;
     }
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.bdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import voldemort.VoldemortException;
+import voldemort.store.PersistenceFailureException;
+import voldemort.utils.ByteArray;
+import voldemort.utils.DaemonThreadFactory;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.Versioned;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.Transaction;
+
+/**
+ * Commits the puts made at the same time against the stores of one BDB
+ * environment together, so that they pay for one commit (and, when the
+ * transactions are flushed, one fsync) between them.
+ * <p>
+ * Puts are queued and written by a single thread. The first put of a group
+ * waits at most the configured time for others to join it, then the whole
+ * group is written in one transaction, one put after the other. A put with an
+ * obsolete version fails on its own, before writing anything, exactly as it
+ * would have in a transaction of its own. If the group transaction fails for
+ * any other reason, it is rolled back and its puts are retried one transaction
+ * each, so that only the puts that fail by themselves report an error.
+ *
+ */
+public class BdbGroupCommitter {
+
+    private static final Logger logger = Logger.getLogger(BdbGroupCommitter.class);
+    private static final long CLOSE_CHECK_INTERVAL_MS = 100;
+
+    private final Environment environment;
+    private final long maxWaitNs;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingPut> queue;
+    private final Thread committerThread;
+    private volatile boolean isOpen;
+
+    public BdbGroupCommitter(Environment environment, long maxWaitMs, int maxBatchSize) {
+        if(maxBatchSize < 1)
+            throw new IllegalArgumentException("Group commit batch size must be positive");
+        this.environment = environment;
+        this.maxWaitNs = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new LinkedBlockingQueue<PendingPut>();
+        this.isOpen = true;
+        this.committerThread = new DaemonThreadFactory("voldemort-bdb-group-commit-").newThread(new Runnable() {
+
+            public void run() {
+                commitLoop();
+            }
+        });
+        this.committerThread.start();
+    }
+
+    /**
+     * Writes a value as part of the next group, returning once the group is
+     * committed
+     */
+    public void put(BdbStorageEngine engine, ByteArray key, Versioned<byte[]> value) {
+        PendingPut put = new PendingPut(engine, key, value);
+        queue.add(put);
+
+        // The commit thread fails whatever it finds queued when it stops, but
+        // it may have stopped before this put was queued.
+        if(!isOpen && queue.remove(put))
+            throw new PersistenceFailureException("Group commit for " + environment.getHome()
+                                                  + " is closed");
+
+        put.await();
+        if(put.error != null)
+            throw put.error;
+    }
+
+    /**
+     * Stops the commit thread once the group in progress is committed, failing
+     * the puts still queued. The thread is not interrupted, as an interrupt in
+     * the middle of a write can invalidate the whole environment.
+     */
+    public void close() {
+        isOpen = false;
+        try {
+            committerThread.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void commitLoop() {
+        List<PendingPut> batch = new ArrayList<PendingPut>(maxBatchSize);
+        try {
+            while(isOpen) {
+                PendingPut first = queue.poll(CLOSE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if(first == null)
+                    continue;
+                batch.add(first);
+
+                long deadlineNs = System.nanoTime() + maxWaitNs;
+                while(batch.size() < maxBatchSize) {
+                    // take whatever is already waiting, then wait out the
+                    // rest of the window for more
+                    PendingPut next = queue.poll();
+                    if(next == null) {
+                        long remainingNs = deadlineNs - System.nanoTime();
+                        if(remainingNs <= 0)
+                            break;
+                        next = queue.poll(remainingNs, TimeUnit.NANOSECONDS);
+                        if(next == null)
+                            break;
+                    }
+                    batch.add(next);
+                }
+
+                commit(batch);
+                batch.clear();
+            }
+        } catch(InterruptedException e) {
+            logger.warn("Group commit for " + environment.getHome() + " interrupted", e);
+        } finally {
+            isOpen = false;
+            PersistenceFailureException closed = new PersistenceFailureException("Group commit for "
+                                                                                  + environment.getHome()
+                                                                                  + " is closed");
+            for(PendingPut put: batch)
+                put.fail(closed);
+            PendingPut put;
+            while((put = queue.poll()) != null)
+                put.fail(closed);
+        }
+    }
+
+    private void commit(List<PendingPut> batch) {
+        Transaction transaction = null;
+        boolean succeeded = false;
+
+        try {
+            transaction = environment.beginTransaction(null, null);
+            for(PendingPut put: batch) {
+                try {
+                    put.engine.putInTransaction(transaction, put.key, put.value);
+                } catch(ObsoleteVersionException e) {
+                    put.error = e;
+                }
+            }
+            transaction.commit();
+            succeeded = true;
+        } catch(RuntimeException e) {
+            if(e instanceof DatabaseException)
+                batch.get(0).engine.bdbEnvironmentStats.reportException((DatabaseException) e);
+            logger.error("Group commit of " + batch.size() + " puts failed, retrying them one by one",
+                         e);
+        } finally {
+            if(!succeeded)
+                abort(transaction);
+        }
+
+        for(PendingPut put: batch) {
+            if(!succeeded) {
+                put.error = null;
+                try {
+                    put.engine.putInOwnTransaction(put.key, put.value);
+                } catch(VoldemortException e) {
+                    put.error = e;
+                } catch(RuntimeException e) {
+                    put.error = new PersistenceFailureException(e);
+                }
+            }
+            put.done.countDown();
+        }
+    }
+
+    private void abort(Transaction transaction) {
+        try {
+            if(transaction != null)
+                transaction.abort();
+        } catch(DatabaseException e) {
+            logger.error("Abort failed!", e);
+        }
+    }
+
+    private static class PendingPut {
+
+        private final BdbStorageEngine engine;
+        private final ByteArray key;
+        private final Versioned<byte[]> value;
+        private final CountDownLatch done;
+        private volatile VoldemortException error;
+
+        private PendingPut(BdbStorageEngine engine, ByteArray key, Versioned<byte[]> value) {
+            this.engine = engine;
+            this.key = key;
+            this.value = value;
+            this.done = new CountDownLatch(1);
+        }
+
+        private void fail(VoldemortException e) {
+            if(done.getCount() > 0) {
+                error = e;
+                done.countDown();
+            }
+        }
+
+        private void await() {
+            boolean interrupted = false;
+            while(true) {
+                try {
+                    done.await();
+                    break;
+                } catch(InterruptedException e) {
+                    // the put is already queued, so wait for its outcome
+                    interrupted = true;
+                }
+            }
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+}
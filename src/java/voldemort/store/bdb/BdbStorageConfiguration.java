@@ -64,6 +64,7 @@ public class BdbStorageConfiguration implements StorageConfiguration {
     private static Logger logger = Logger.getLogger(BdbStorageConfiguration.class);
     private final Object lock = new Object();
     private final Map<String, Environment> environments = Maps.newHashMap();
+    private final Map<Environment, BdbGroupCommitter> groupCommitters = Maps.newHashMap();
     private final EnvironmentConfig environmentConfig;
     private final DatabaseConfig databaseConfig;
     private final String bdbMasterDir;
@@ -144,20 +145,33 @@ public class BdbStorageConfiguration implements StorageConfiguration {
                 Environment environment = getEnvironment(storeDef);
                 Database db = environment.openDatabase(null, storeName, databaseConfig);
                 BdbRuntimeConfig runtimeConfig = new BdbRuntimeConfig(voldemortConfig);
+                BdbGroupCommitter groupCommitter = getGroupCommitter(environment);
                 BdbStorageEngine engine = null;
                 if(voldemortConfig.getBdbPrefixKeysWithPartitionId()) {
                     engine = new PartitionPrefixedBdbStorageEngine(storeName,
                                                                    environment,
                                                                    db,
                                                                    runtimeConfig,
-                                                                   strategy);
+                                                                   strategy,
+                                                                   groupCommitter);
                 } else {
-                    engine = new BdbStorageEngine(storeName, environment, db, runtimeConfig);
+                    engine = new BdbStorageEngine(storeName,
+                                                  environment,
+                                                  db,
+                                                  runtimeConfig,
+                                                  groupCommitter);
                 }
                 if(voldemortConfig.isJmxEnabled()) {
                     // register the environment stats mbean
                     JmxUtils.registerMbean(storeName, engine.getBdbEnvironmentStats());
                 }
+                if(voldemortConfig.getBdbValueCacheSize() > 0) {
+                    OffHeapValueCache cache = new OffHeapValueCache(voldemortConfig.getBdbValueCacheSize(),
+                                                                    voldemortConfig.getBdbValueCacheBlockSize());
+                    if(voldemortConfig.isJmxEnabled())
+                        JmxUtils.registerMbean(storeName, cache);
+                    return new CachingBdbStorageEngine(engine, cache);
+                }
                 return engine;
             } catch(DatabaseException d) {
                 throw new StorageInitializationException(d);
@@ -165,6 +179,24 @@ public class BdbStorageConfiguration implements StorageConfiguration {
         }
     }
 
+    /**
+     * Returns the group committer shared by the stores of the environment, or
+     * null if group commit is turned off
+     */
+    private BdbGroupCommitter getGroupCommitter(Environment environment) {
+        if(!voldemortConfig.isBdbGroupCommitEnabled())
+            return null;
+
+        BdbGroupCommitter groupCommitter = groupCommitters.get(environment);
+        if(groupCommitter == null) {
+            groupCommitter = new BdbGroupCommitter(environment,
+                                                   voldemortConfig.getBdbGroupCommitMaxWaitMs(),
+                                                   voldemortConfig.getBdbGroupCommitMaxBatchSize());
+            groupCommitters.put(environment, groupCommitter);
+        }
+        return groupCommitter;
+    }
+
     /**
      * When a reservation is made, we need to shrink the shared cache
      * accordingly to guarantee memory foot print of the new store. NOTE: This
@@ -339,6 +371,8 @@ public class BdbStorageConfiguration implements StorageConfiguration {
     public void close() {
         synchronized(lock) {
             try {
+                for(BdbGroupCommitter groupCommitter: groupCommitters.values())
+                    groupCommitter.close();
                 for(Environment environment: environments.values()) {
                     environment.sync();
                     environment.close();
@@ -397,4 +431,6 @@ public class BdbStorageConfiguration implements StorageConfiguration {
     public long getReservedCacheSize() {
         return this.reservedCacheSize;
     }
+
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine) {}
 }
@@ -19,10 +19,13 @@ package voldemort.store.bdb;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.codec.binary.Hex;
@@ -83,11 +86,24 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
     protected final boolean minimizeScanImpact;
     protected final boolean checkpointerOffForBatchWrites;
     private volatile int numOutstandingBatchWriteJobs = 0;
+    private final BdbGroupCommitter groupCommitter;
 
     public BdbStorageEngine(String name,
                             Environment environment,
                             Database database,
                             BdbRuntimeConfig config) {
+        this(name, environment, database, config, null);
+    }
+
+    /**
+     * @param groupCommitter Commits the puts together with those of the other
+     *        stores of the environment, or null to commit each put on its own
+     */
+    public BdbStorageEngine(String name,
+                            Environment environment,
+                            Database database,
+                            BdbRuntimeConfig config,
+                            BdbGroupCommitter groupCommitter) {
         super(name);
         this.bdbDatabase = Utils.notNull(database);
         this.environment = Utils.notNull(environment);
@@ -99,6 +115,7 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
                                                            config.getExposeSpaceUtil());
         this.minimizeScanImpact = config.getMinimizeScanImpact();
         this.checkpointerOffForBatchWrites = config.isCheckpointerOffForBatchWrites();
+        this.groupCommitter = groupCommitter;
     }
 
     @Override
@@ -275,7 +292,7 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
         if(logger.isTraceEnabled())
             startTimeNs = System.nanoTime();
         try {
-            results = StoreUtils.getAll(this, keys, transforms);
+            results = getAllWithCursor(keys);
         } catch(PersistenceFailureException pfe) {
             throw pfe;
         } finally {
@@ -292,6 +309,63 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
         return results;
     }
 
+    /**
+     * Looks the keys up in the order BDB keeps them, with a single cursor, so
+     * that keys close to each other in the tree find the nodes they share
+     * already in the cache.
+     */
+    private Map<ByteArray, List<Versioned<byte[]>>> getAllWithCursor(Iterable<ByteArray> keys) {
+        // the keys as stored, in BDB's (unsigned byte) order, with the keys
+        // asked for
+        SortedMap<byte[], ByteArray> storageKeys = new TreeMap<byte[], ByteArray>(new Comparator<byte[]>() {
+
+            public int compare(byte[] b1, byte[] b2) {
+                return ByteUtils.compare(b1, b2);
+            }
+        });
+        for(ByteArray key: keys)
+            storageKeys.put(getStorageKey(key), key);
+
+        Map<ByteArray, List<Versioned<byte[]>>> results = StoreUtils.newEmptyHashMap(keys);
+        DatabaseEntry keyEntry = new DatabaseEntry();
+        DatabaseEntry valueEntry = new DatabaseEntry();
+        Cursor cursor = null;
+
+        try {
+            cursor = getBdbDatabase().openCursor(null, null);
+            for(Map.Entry<byte[], ByteArray> entry: storageKeys.entrySet()) {
+                keyEntry.setData(entry.getKey());
+                if(OperationStatus.SUCCESS == cursor.getSearchKey(keyEntry,
+                                                                  valueEntry,
+                                                                  readLockMode)) {
+                    List<Versioned<byte[]>> values = StoreBinaryFormat.fromByteArray(valueEntry.getData());
+                    if(!values.isEmpty())
+                        results.put(entry.getValue(), values);
+                }
+            }
+        } catch(DatabaseException e) {
+            this.bdbEnvironmentStats.reportException(e);
+            logger.error(e);
+            throw new PersistenceFailureException(e);
+        } finally {
+            try {
+                if(cursor != null)
+                    cursor.close();
+            } catch(DatabaseException e) {
+                logger.error(e);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the key the value of the given key is stored under
+     */
+    protected byte[] getStorageKey(ByteArray key) {
+        return key.get();
+    }
+
     @Override
     public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
             throws PersistenceFailureException {
@@ -302,55 +376,34 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
             startTimeNs = System.nanoTime();
 
         StoreUtils.assertValidKey(key);
-        DatabaseEntry keyEntry = new DatabaseEntry(key.get());
-        DatabaseEntry valueEntry = new DatabaseEntry();
 
+        try {
+            if(groupCommitter != null)
+                groupCommitter.put(this, key, value);
+            else
+                putInOwnTransaction(key, value);
+        } finally {
+            if(logger.isTraceEnabled()) {
+                logger.trace("Completed PUT (" + getName() + ") to key " + key + " (keyRef: "
+                             + System.identityHashCode(key) + " value " + value + " in "
+                             + (System.nanoTime() - startTimeNs) + " ns at "
+                             + System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Writes a value in a transaction of its own
+     */
+    void putInOwnTransaction(ByteArray key, Versioned<byte[]> value)
+            throws PersistenceFailureException {
         boolean succeeded = false;
         Transaction transaction = null;
-        List<Versioned<byte[]>> vals = null;
 
         try {
             transaction = environment.beginTransaction(null, null);
-
-            // do a get for the existing values
-            OperationStatus status = getBdbDatabase().get(transaction,
-                                                          keyEntry,
-                                                          valueEntry,
-                                                          LockMode.RMW);
-            if(OperationStatus.SUCCESS == status) {
-                // update
-                vals = StoreBinaryFormat.fromByteArray(valueEntry.getData());
-                // compare vector clocks and throw out old ones, for updates
-
-                Iterator<Versioned<byte[]>> iter = vals.iterator();
-                while(iter.hasNext()) {
-                    Versioned<byte[]> curr = iter.next();
-                    Occurred occurred = value.getVersion().compare(curr.getVersion());
-                    if(occurred == Occurred.BEFORE)
-                        throw new ObsoleteVersionException("Key "
-                                                           + new String(hexCodec.encode(key.get()))
-                                                           + " "
-                                                           + value.getVersion().toString()
-                                                           + " is obsolete, it is no greater than the current version of "
-                                                           + curr.getVersion().toString() + ".");
-                    else if(occurred == Occurred.AFTER)
-                        iter.remove();
-                }
-            } else {
-                // insert
-                vals = new ArrayList<Versioned<byte[]>>(1);
-            }
-
-            // update the new value
-            vals.add(value);
-
-            valueEntry.setData(StoreBinaryFormat.toByteArray(vals));
-            status = getBdbDatabase().put(transaction, keyEntry, valueEntry);
-
-            if(status != OperationStatus.SUCCESS)
-                throw new PersistenceFailureException("Put operation failed with status: " + status);
+            putInTransaction(transaction, key, value);
             succeeded = true;
-
         } catch(DatabaseException e) {
             this.bdbEnvironmentStats.reportException(e);
             logger.error(e);
@@ -360,13 +413,47 @@ public class BdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], b
                 attemptCommit(transaction);
             else
                 attemptAbort(transaction);
-            if(logger.isTraceEnabled()) {
-                logger.trace("Completed PUT (" + getName() + ") to key " + key + " (keyRef: "
-                             + System.identityHashCode(key) + " value " + value + " in "
-                             + (System.nanoTime() - startTimeNs) + " ns at "
-                             + System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Writes a value as part of the given transaction, throwing out the
+     * versions it supersedes
+     * 
+     * @throws ObsoleteVersionException if the value is older than one already
+     *         stored, in which case nothing is written
+     */
+    void putInTransaction(Transaction transaction, ByteArray key, Versioned<byte[]> value)
+            throws DatabaseException {
+        DatabaseEntry keyEntry = new DatabaseEntry(key.get());
+        DatabaseEntry valueEntry = new DatabaseEntry();
+
+        // do a get for the existing values
+        OperationStatus status = getBdbDatabase().get(transaction,
+                                                      keyEntry,
+                                                      valueEntry,
+                                                      LockMode.RMW);
+        if(OperationStatus.SUCCESS == status) {
+            // update, comparing vector clocks in their serialized form and
+            // throwing out old ones
+            try {
+                valueEntry.setData(StoreBinaryFormat.addVersion(valueEntry.getData(), value));
+            } catch(ObsoleteVersionException e) {
+                throw new ObsoleteVersionException("Key "
+                                                   + new String(hexCodec.encode(key.get()))
+                                                   + " " + e.getMessage());
             }
+        } else {
+            // insert
+            List<Versioned<byte[]>> vals = new ArrayList<Versioned<byte[]>>(1);
+            vals.add(value);
+            valueEntry.setData(StoreBinaryFormat.toByteArray(vals));
         }
+
+        status = getBdbDatabase().put(transaction, keyEntry, valueEntry);
+
+        if(status != OperationStatus.SUCCESS)
+            throw new PersistenceFailureException("Put operation failed with status: " + status);
     }
 
     @Override
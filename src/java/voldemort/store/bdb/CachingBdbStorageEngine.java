@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.bdb;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import voldemort.VoldemortException;
+import voldemort.server.protocol.admin.AsyncOperationStatus;
+import voldemort.store.AbstractStorageEngine;
+import voldemort.store.StoreBinaryFormat;
+import voldemort.store.StoreCapabilityType;
+import voldemort.store.StoreUtils;
+import voldemort.store.backup.NativeBackupable;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.Pair;
+import voldemort.utils.Utils;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+/**
+ * A {@link BdbStorageEngine} with an {@link OffHeapValueCache} in front of it.
+ * <p>
+ * Reads are answered from the cache when they can, and otherwise cache the
+ * values they read from BDB in {@link StoreBinaryFormat}, including the
+ * absence of any value. Every write drops the key from the cache once BDB has
+ * it, whether or not it succeeded, and truncation drops everything.
+ *
+ */
+public class CachingBdbStorageEngine extends AbstractStorageEngine<ByteArray, byte[], byte[]>
+        implements NativeBackupable {
+
+    private final BdbStorageEngine innerEngine;
+    private final OffHeapValueCache cache;
+
+    public CachingBdbStorageEngine(BdbStorageEngine innerEngine, OffHeapValueCache cache) {
+        super(innerEngine.getName());
+        this.innerEngine = Utils.notNull(innerEngine);
+        this.cache = Utils.notNull(cache);
+    }
+
+    public BdbStorageEngine getInnerEngine() {
+        return innerEngine;
+    }
+
+    public OffHeapValueCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public List<Versioned<byte[]>> get(ByteArray key, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        byte[] cached = cache.get(key);
+        if(cached != null)
+            return StoreBinaryFormat.fromByteArray(cached);
+
+        long stamp = cache.getStamp(key);
+        List<Versioned<byte[]>> values = innerEngine.get(key, transforms);
+        cache.put(key, StoreBinaryFormat.toByteArray(values), stamp);
+        return values;
+    }
+
+    @Override
+    public Map<ByteArray, List<Versioned<byte[]>>> getAll(Iterable<ByteArray> keys,
+                                                          Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKeys(keys);
+        Map<ByteArray, List<Versioned<byte[]>>> results = StoreUtils.newEmptyHashMap(keys);
+        Map<ByteArray, Long> missStamps = new HashMap<ByteArray, Long>();
+
+        for(ByteArray key: keys) {
+            byte[] cached = cache.get(key);
+            if(cached == null) {
+                missStamps.put(key, cache.getStamp(key));
+            } else {
+                List<Versioned<byte[]>> values = StoreBinaryFormat.fromByteArray(cached);
+                if(!values.isEmpty())
+                    results.put(key, values);
+            }
+        }
+
+        if(!missStamps.isEmpty()) {
+            List<ByteArray> misses = new ArrayList<ByteArray>(missStamps.keySet());
+            Map<ByteArray, List<Versioned<byte[]>>> found = innerEngine.getAll(misses, transforms);
+            for(ByteArray key: misses) {
+                List<Versioned<byte[]>> values = found.get(key);
+                if(values == null)
+                    values = Collections.emptyList();
+                else
+                    results.put(key, values);
+                cache.put(key, StoreBinaryFormat.toByteArray(values), missStamps.get(key));
+            }
+        }
+
+        return results;
+    }
+
+    @Override
+    public List<Version> getVersions(ByteArray key) {
+        return StoreUtils.getVersions(get(key, null));
+    }
+
+    @Override
+    public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        try {
+            innerEngine.put(key, value, transforms);
+        } finally {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public boolean delete(ByteArray key, Version version) throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        try {
+            return innerEngine.delete(key, version);
+        } finally {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public List<Versioned<byte[]>> multiVersionPut(ByteArray key, List<Versioned<byte[]>> values) {
+        StoreUtils.assertValidKey(key);
+        try {
+            return innerEngine.multiVersionPut(key, values);
+        } finally {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public void truncate() {
+        try {
+            innerEngine.truncate();
+        } finally {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries() {
+        return innerEngine.entries();
+    }
+
+    @Override
+    public ClosableIterator<ByteArray> keys() {
+        return innerEngine.keys();
+    }
+
+    @Override
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        return innerEngine.entries(partition);
+    }
+
+    @Override
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition,
+                                                                        ByteArray startKey) {
+        return innerEngine.entries(partition, startKey);
+    }
+
+    @Override
+    public ClosableIterator<ByteArray> keys(int partition) {
+        return innerEngine.keys(partition);
+    }
+
+    @Override
+    public boolean isPartitionAware() {
+        return innerEngine.isPartitionAware();
+    }
+
+    @Override
+    public boolean isPartitionScanSupported() {
+        return innerEngine.isPartitionScanSupported();
+    }
+
+    @Override
+    public boolean isPartitionScanResumable() {
+        return innerEngine.isPartitionScanResumable();
+    }
+
+    @Override
+    public boolean beginBatchModifications() {
+        return innerEngine.beginBatchModifications();
+    }
+
+    @Override
+    public boolean endBatchModifications() {
+        return innerEngine.endBatchModifications();
+    }
+
+    @Override
+    public Object getCapability(StoreCapabilityType capability) {
+        return innerEngine.getCapability(capability);
+    }
+
+    @Override
+    public void nativeBackup(File toDir,
+                             boolean checkIntegrity,
+                             boolean isIncremental,
+                             AsyncOperationStatus status) {
+        innerEngine.nativeBackup(toDir, checkIntegrity, isIncremental, status);
+    }
+
+    @Override
+    public void close() throws VoldemortException {
+        try {
+            innerEngine.close();
+        } finally {
+            cache.close();
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.bdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.annotations.jmx.JmxOperation;
+import voldemort.store.readonly.io.ByteBufferCloser;
+import voldemort.utils.ByteArray;
+
+/**
+ * A size-bounded cache of values kept outside of the heap, in direct buffers
+ * allocated once up front, so that it adds nothing for the collector to trace
+ * or copy however large it is.
+ * <p>
+ * The memory is cut into fixed-size blocks and a value takes as many blocks as
+ * it needs, wherever they are free. The cache is split into segments, each
+ * with its own lock, its own share of the memory and its own CLOCK eviction:
+ * an entry is marked when it is read, and the clock hand sweeping for room
+ * clears the mark the first time it passes a marked entry and evicts it the
+ * second. Only the keys and block numbers are kept on the heap.
+ * <p>
+ * A value read from the store may be stale by the time it is cached, if the
+ * key was written in between. To never cache such a value, readers take a
+ * {@link #getStamp(ByteArray) stamp} before reading from the store and only
+ * cache what they read if no key of the segment was invalidated since.
+ *
+ */
+public class OffHeapValueCache {
+
+    private static final Logger logger = Logger.getLogger(OffHeapValueCache.class);
+
+    private static final int MIN_SEGMENTS = 16;
+    private static final long MAX_SEGMENT_BYTES = 1024 * 1024 * 1024;
+
+    private final Segment[] segments;
+    private final int blockSize;
+    private final long capacityBytes;
+    private final int maxValueSize;
+
+    private final AtomicLong numHits;
+    private final AtomicLong numMisses;
+    private final AtomicLong numEvictions;
+
+    /**
+     * @param capacityBytes The memory to allocate for the values
+     * @param blockSize The unit the memory is handed out in
+     */
+    public OffHeapValueCache(long capacityBytes, int blockSize) {
+        if(blockSize < 1)
+            throw new IllegalArgumentException("Block size must be positive");
+        long numBlocks = capacityBytes / blockSize;
+        if(numBlocks < 1)
+            throw new IllegalArgumentException("Capacity of " + capacityBytes
+                                               + " bytes is less than a block of " + blockSize
+                                               + " bytes");
+
+        // small caches get fewer segments so that each still holds a
+        // reasonable number of blocks, large ones more so that no segment
+        // outgrows a single buffer
+        int numSegments = (int) Math.max(Math.min(MIN_SEGMENTS, numBlocks),
+                                         (numBlocks * blockSize + MAX_SEGMENT_BYTES - 1)
+                                                 / MAX_SEGMENT_BYTES);
+        int blocksPerSegment = (int) (numBlocks / numSegments);
+
+        this.blockSize = blockSize;
+        this.capacityBytes = (long) blocksPerSegment * numSegments * blockSize;
+        // a value that would take more than a quarter of its segment would
+        // push out too much to be worth caching
+        this.maxValueSize = (int) Math.min(Integer.MAX_VALUE,
+                                           Math.max(blockSize,
+                                                    (long) blocksPerSegment * blockSize / 4));
+        this.segments = new Segment[numSegments];
+        for(int i = 0; i < numSegments; i++)
+            segments[i] = new Segment(blocksPerSegment);
+
+        this.numHits = new AtomicLong(0);
+        this.numMisses = new AtomicLong(0);
+        this.numEvictions = new AtomicLong(0);
+    }
+
+    /**
+     * @return A copy of the cached value, or null if the key is not cached
+     */
+    public byte[] get(ByteArray key) {
+        byte[] value = segmentFor(key).get(key);
+        if(value == null)
+            numMisses.incrementAndGet();
+        else
+            numHits.incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Returns the stamp to pass to {@link #put(ByteArray, byte[], long)} for a
+     * value about to be read from the store
+     */
+    public long getStamp(ByteArray key) {
+        return segmentFor(key).getStamp();
+    }
+
+    /**
+     * Caches a value, unless the key was invalidated since the stamp was taken
+     * or the value is too large to be worth caching
+     *
+     * @return true if the value was cached
+     */
+    public boolean put(ByteArray key, byte[] value, long stamp) {
+        if(value.length > maxValueSize)
+            return false;
+        return segmentFor(key).put(key, value, stamp);
+    }
+
+    /**
+     * Drops the key, and keeps the values already being read for it from
+     * being cached
+     */
+    public void invalidate(ByteArray key) {
+        segmentFor(key).invalidate(key);
+    }
+
+    @JmxOperation(description = "Drop all cached values")
+    public void clear() {
+        for(Segment segment: segments)
+            segment.clear();
+    }
+
+    /**
+     * Drops all the values and frees the memory. The cache misses on every
+     * read and caches nothing afterwards.
+     */
+    public void close() {
+        for(Segment segment: segments)
+            segment.close();
+    }
+
+    private Segment segmentFor(ByteArray key) {
+        // spread the hash a little, as ByteArray hash codes of similar keys
+        // differ mostly in their low bits
+        int hash = key.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    @JmxGetter(name = "NumHits", description = "Number of reads answered from the cache")
+    public long getNumHits() {
+        return numHits.get();
+    }
+
+    @JmxGetter(name = "NumMisses", description = "Number of reads that went to the store")
+    public long getNumMisses() {
+        return numMisses.get();
+    }
+
+    @JmxGetter(name = "HitRate", description = "Fraction of reads answered from the cache")
+    public double getHitRate() {
+        long hits = numHits.get();
+        long total = hits + numMisses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @JmxGetter(name = "NumEvictions", description = "Number of values evicted to make room")
+    public long getNumEvictions() {
+        return numEvictions.get();
+    }
+
+    @JmxGetter(name = "NumEntries", description = "Number of values in the cache")
+    public long getNumEntries() {
+        long entries = 0;
+        for(Segment segment: segments)
+            entries += segment.getNumEntries();
+        return entries;
+    }
+
+    @JmxGetter(name = "UsedBytes", description = "Off-heap memory taken by the cached values")
+    public long getUsedBytes() {
+        long usedBlocks = 0;
+        for(Segment segment: segments)
+            usedBlocks += segment.getNumUsedBlocks();
+        return usedBlocks * blockSize;
+    }
+
+    @JmxGetter(name = "CapacityBytes", description = "Off-heap memory allocated to the cache")
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    private static class Entry {
+
+        private final ByteArray key;
+        private final int length;
+        private final int[] blocks;
+        private boolean referenced;
+        private int clockIndex;
+
+        private Entry(ByteArray key, int length, int[] blocks) {
+            this.key = key;
+            this.length = length;
+            this.blocks = blocks;
+        }
+    }
+
+    private class Segment {
+
+        private final ByteBuffer memory;
+        private final int[] freeBlocks;
+        private int numFreeBlocks;
+        private final Map<ByteArray, Entry> entries;
+        private final List<Entry> clock;
+        private int clockHand;
+        private long stamp;
+        private boolean closed;
+
+        private Segment(int numBlocks) {
+            this.memory = ByteBuffer.allocateDirect(numBlocks * blockSize);
+            this.freeBlocks = new int[numBlocks];
+            for(int i = 0; i < numBlocks; i++)
+                freeBlocks[i] = i;
+            this.numFreeBlocks = numBlocks;
+            this.entries = new HashMap<ByteArray, Entry>();
+            this.clock = new ArrayList<Entry>();
+            this.clockHand = 0;
+            this.stamp = 0;
+        }
+
+        private synchronized byte[] get(ByteArray key) {
+            Entry entry = entries.get(key);
+            if(entry == null || closed)
+                return null;
+            entry.referenced = true;
+
+            byte[] value = new byte[entry.length];
+            int offset = 0;
+            for(int block: entry.blocks) {
+                int length = Math.min(blockSize, entry.length - offset);
+                memory.position(block * blockSize);
+                memory.get(value, offset, length);
+                offset += length;
+            }
+            return value;
+        }
+
+        private synchronized long getStamp() {
+            return stamp;
+        }
+
+        private synchronized boolean put(ByteArray key, byte[] value, long stamp) {
+            if(stamp != this.stamp || closed)
+                return false;
+
+            remove(entries.get(key));
+
+            int numBlocks = Math.max(1, (value.length + blockSize - 1) / blockSize);
+            while(numFreeBlocks < numBlocks) {
+                if(clock.isEmpty())
+                    return false;
+                if(clockHand >= clock.size())
+                    clockHand = 0;
+                Entry candidate = clock.get(clockHand);
+                if(candidate.referenced) {
+                    candidate.referenced = false;
+                    clockHand++;
+                } else {
+                    // the last entry takes the place of the evicted one, so
+                    // the hand stays put
+                    remove(candidate);
+                    numEvictions.incrementAndGet();
+                }
+            }
+
+            int[] blocks = new int[numBlocks];
+            int offset = 0;
+            for(int i = 0; i < numBlocks; i++) {
+                blocks[i] = freeBlocks[--numFreeBlocks];
+                int length = Math.min(blockSize, value.length - offset);
+                memory.position(blocks[i] * blockSize);
+                memory.put(value, offset, length);
+                offset += length;
+            }
+
+            Entry entry = new Entry(key, value.length, blocks);
+            entry.clockIndex = clock.size();
+            clock.add(entry);
+            entries.put(key, entry);
+            return true;
+        }
+
+        private synchronized void invalidate(ByteArray key) {
+            stamp++;
+            remove(entries.get(key));
+        }
+
+        private synchronized void clear() {
+            stamp++;
+            while(!clock.isEmpty())
+                remove(clock.get(clock.size() - 1));
+        }
+
+        private synchronized void close() {
+            if(closed)
+                return;
+            clear();
+            closed = true;
+            try {
+                new ByteBufferCloser(memory).close();
+            } catch(IOException e) {
+                logger.warn("Could not free the memory of the value cache", e);
+            }
+        }
+
+        private void remove(Entry entry) {
+            if(entry == null)
+                return;
+            entries.remove(entry.key);
+            for(int block: entry.blocks)
+                freeBlocks[numFreeBlocks++] = block;
+
+            Entry last = clock.remove(clock.size() - 1);
+            if(last != entry) {
+                last.clockIndex = entry.clockIndex;
+                clock.set(entry.clockIndex, last);
+            }
+        }
+
+        private synchronized int getNumEntries() {
+            return entries.size();
+        }
+
+        private synchronized int getNumUsedBlocks() {
+            return freeBlocks.length - numFreeBlocks;
+        }
+    }
+}
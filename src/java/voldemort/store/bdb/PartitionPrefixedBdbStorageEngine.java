@@ -56,18 +56,33 @@ public class PartitionPrefixedBdbStorageEngine extends BdbStorageEngine {
                                              Database database,
                                              BdbRuntimeConfig config,
                                              RoutingStrategy strategy) {
-        super(name, environment, database, config);
+        this(name, environment, database, config, strategy, null);
+    }
+
+    public PartitionPrefixedBdbStorageEngine(String name,
+                                             Environment environment,
+                                             Database database,
+                                             BdbRuntimeConfig config,
+                                             RoutingStrategy strategy,
+                                             BdbGroupCommitter groupCommitter) {
+        super(name, environment, database, config, groupCommitter);
         this.routingStrategy = strategy;
     }
 
     @Override
     public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        return entries(partition, null);
+    }
+
+    @Override
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition,
+                                                                        ByteArray startKey) {
         try {
             Cursor cursor = getBdbDatabase().openCursor(null, null);
             // evict data brought in by the cursor walk right away
             if(this.minimizeScanImpact)
                 cursor.setCacheMode(CacheMode.EVICT_BIN);
-            return new BdbPartitionEntriesIterator(cursor, partition, this);
+            return new BdbPartitionEntriesIterator(cursor, partition, startKey, this);
         } catch(DatabaseException e) {
             this.bdbEnvironmentStats.reportException(e);
             logger.error(e);
@@ -100,6 +115,12 @@ public class PartitionPrefixedBdbStorageEngine extends BdbStorageEngine {
         return super.get(prefixedKey, transforms);
     }
 
+    @Override
+    protected byte[] getStorageKey(ByteArray key) {
+        return StoreBinaryFormat.makePrefixedKey(key.get(),
+                                                 routingStrategy.getMasterPartition(key.get()));
+    }
+
     @Override
     public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
             throws PersistenceFailureException {
@@ -144,11 +165,16 @@ public class PartitionPrefixedBdbStorageEngine extends BdbStorageEngine {
 
         private List<Pair<ByteArray, Versioned<byte[]>>> cache;
         private int partition;
+        private ByteArray startKey;
         private boolean positioned;
 
-        public BdbPartitionEntriesIterator(Cursor cursor, int partition, BdbStorageEngine bdbEngine) {
+        public BdbPartitionEntriesIterator(Cursor cursor,
+                                           int partition,
+                                           ByteArray startKey,
+                                           BdbStorageEngine bdbEngine) {
             super(cursor, bdbEngine);
             this.partition = partition;
+            this.startKey = startKey;
             this.cache = new ArrayList<Pair<ByteArray, Versioned<byte[]>>>();
             this.positioned = false;
         }
@@ -182,7 +208,12 @@ public class PartitionPrefixedBdbStorageEngine extends BdbStorageEngine {
             try {
                 if(!positioned) {
                     positioned = true;
-                    keyEntry.setData(StoreBinaryFormat.makePartitionKey(partition));
+                    // keys of a partition are sorted after its prefix
+                    if(startKey == null)
+                        keyEntry.setData(StoreBinaryFormat.makePartitionKey(partition));
+                    else
+                        keyEntry.setData(StoreBinaryFormat.makePrefixedKey(startKey.get(),
+                                                                           partition));
                     status = cursor.getSearchKeyRange(keyEntry,
                                                       valueEntry,
                                                       LockMode.READ_UNCOMMITTED);
@@ -289,4 +320,9 @@ public class PartitionPrefixedBdbStorageEngine extends BdbStorageEngine {
     public boolean isPartitionScanSupported() {
         return true;
     }
+
+    @Override
+    public boolean isPartitionScanResumable() {
+        return true;
+    }
 }
@@ -53,4 +53,6 @@ public class FileBackedCachingStorageConfiguration implements StorageConfigurati
     public void update(StoreDefinition storeDef) {
 
     }
+
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine) {}
 }
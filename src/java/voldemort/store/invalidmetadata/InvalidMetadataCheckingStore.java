@@ -21,10 +21,13 @@ import java.util.Map;
 
 import voldemort.VoldemortException;
 import voldemort.cluster.Node;
+import voldemort.common.nio.FileRegion;
 import voldemort.routing.RoutingStrategy;
 import voldemort.store.DelegatingStore;
+import voldemort.store.FileRegionReader;
 import voldemort.store.InvalidMetadataException;
 import voldemort.store.Store;
+import voldemort.store.StoreCapabilityType;
 import voldemort.store.StoreUtils;
 import voldemort.store.metadata.MetadataStore;
 import voldemort.utils.ByteArray;
@@ -104,4 +107,24 @@ public class InvalidMetadataCheckingStore extends DelegatingStore<ByteArray, byt
 
         return getInnerStore().get(key, transforms);
     }
+
+    @Override
+    public Object getCapability(StoreCapabilityType capability) {
+        if(StoreCapabilityType.FILE_REGION_READER.equals(capability)) {
+            final FileRegionReader reader = (FileRegionReader) super.getCapability(capability);
+            return new FileRegionReader() {
+
+                public FileRegion getFileRegion(ByteArray key) throws VoldemortException {
+                    StoreUtils.assertValidKey(key);
+                    StoreUtils.assertValidMetadata(key,
+                                                   metadata.getRoutingStrategy(getName()),
+                                                   metadata.getCluster().getNodeById(nodeId));
+
+                    return reader.getFileRegion(key);
+                }
+            };
+        } else {
+            return super.getCapability(capability);
+        }
+    }
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.logstructured;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * One file of a partition's log. Records are only ever appended, and each is
+ * laid out as
+ *
+ * <pre>
+ * CRC          : 4 bytes (int), of everything after it
+ * KEY_SIZE     : 4 bytes (int)
+ * VALUE_SIZE   : 4 bytes (int)
+ * KEY_BYTES    : KEY_SIZE bytes
+ * VALUE_BYTES  : VALUE_SIZE bytes, in StoreBinaryFormat
+ * </pre>
+ *
+ * The checksum finds the end of the log after a crash, where the last record
+ * may only have been partly written.
+ * <p>
+ * Reads can happen concurrently with each other and with appends; appends are
+ * serialized by the segment.
+ *
+ */
+class LogSegment {
+
+    static final String SUFFIX = ".log";
+    static final int HEADER_SIZE = 12;
+
+    private final int id;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final AtomicLong liveBytes;
+    private volatile long size;
+
+    LogSegment(File directory, int id) throws IOException {
+        this.id = id;
+        this.file = new File(directory, id + SUFFIX);
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.channel = randomAccessFile.getChannel();
+        this.liveBytes = new AtomicLong(0);
+        this.size = channel.size();
+    }
+
+    /**
+     * Parses the id of a segment out of its file name
+     *
+     * @return The id, or -1 if the file is not a segment
+     */
+    static int parseId(String fileName) {
+        if(!fileName.endsWith(SUFFIX))
+            return -1;
+        try {
+            return Integer.parseInt(fileName.substring(0, fileName.length() - SUFFIX.length()));
+        } catch(NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static long recordSize(int keySize, int valueSize) {
+        return (long) HEADER_SIZE + keySize + valueSize;
+    }
+
+    /**
+     * Appends a record
+     *
+     * @return The offset of the record in the segment
+     */
+    synchronized long append(byte[] key, byte[] value) throws IOException {
+        long recordSize = recordSize(key.length, value.length);
+        if(recordSize > Integer.MAX_VALUE)
+            throw new IOException("Record of " + recordSize + " bytes is too large for " + file);
+        ByteBuffer record = ByteBuffer.allocate((int) recordSize);
+        record.position(4);
+        record.putInt(key.length);
+        record.putInt(value.length);
+        record.put(key);
+        record.put(value);
+        record.putInt(0, checksum(record.array()));
+        record.flip();
+
+        long offset = size;
+        while(record.hasRemaining())
+            channel.write(record, offset + record.position());
+        size = offset + record.limit();
+        return offset;
+    }
+
+    /**
+     * Reads the value of the record at the given offset
+     */
+    byte[] readValue(long offset, int keySize, int valueSize) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(valueSize);
+        readFully(value, offset + HEADER_SIZE + keySize);
+        return value.array();
+    }
+
+    /**
+     * Reads the record at the given offset, checking it is whole
+     *
+     * @return The key and the value of the record, or null if there is no
+     *         complete record at the offset
+     */
+    byte[][] readRecord(long offset) throws IOException {
+        if(offset + HEADER_SIZE > size)
+            return null;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, offset);
+        int crc = header.getInt(0);
+        int keySize = header.getInt(4);
+        int valueSize = header.getInt(8);
+        // sizes out of a partly written header can be anything
+        long recordSize = recordSize(keySize, valueSize);
+        if(keySize < 0 || valueSize < 0 || recordSize > size - offset
+           || recordSize > Integer.MAX_VALUE)
+            return null;
+
+        ByteBuffer record = ByteBuffer.allocate((int) recordSize);
+        readFully(record, offset);
+        if(checksum(record.array()) != crc)
+            return null;
+
+        byte[] key = new byte[keySize];
+        byte[] value = new byte[valueSize];
+        record.position(HEADER_SIZE);
+        record.get(key);
+        record.get(value);
+        return new byte[][] { key, value };
+    }
+
+    /**
+     * Cuts off anything after the given offset, such as a partly written
+     * record
+     */
+    synchronized void truncate(long offset) throws IOException {
+        channel.truncate(offset);
+        size = offset;
+    }
+
+    void sync() throws IOException {
+        channel.force(false);
+    }
+
+    void close() throws IOException {
+        randomAccessFile.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        if(!file.delete() && file.exists())
+            throw new IOException("Could not delete " + file);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * The bytes taken by the records that are still the latest for their key
+     */
+    AtomicLong getLiveBytes() {
+        return liveBytes;
+    }
+
+    @Override
+    public String toString() {
+        return file.getAbsolutePath();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if(read < 0)
+                throw new EOFException("Unexpected end of " + file + " at "
+                                       + (position + buffer.position()));
+        }
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 4, record.length - 4);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.logstructured;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import voldemort.VoldemortException;
+import voldemort.routing.RoutingStrategy;
+import voldemort.server.VoldemortConfig;
+import voldemort.store.StorageConfiguration;
+import voldemort.store.StorageEngine;
+import voldemort.store.StoreDefinition;
+import voldemort.utils.ByteArray;
+import voldemort.utils.DaemonThreadFactory;
+import voldemort.utils.EventThrottler;
+import voldemort.utils.JmxUtils;
+
+/**
+ * Creates {@link LogStructuredStorageEngine}s, each in a directory of its own
+ * under the log-structured data directory, and compacts them all from one
+ * background thread, throttled to a single rate.
+ *
+ */
+public class LogStructuredStorageConfiguration implements StorageConfiguration {
+
+    public static final String TYPE_NAME = "log-structured";
+
+    private static final Logger logger = Logger.getLogger(LogStructuredStorageConfiguration.class);
+
+    private final VoldemortConfig voldemortConfig;
+    private final Map<String, LogStructuredStorageEngine> engines;
+    private final EventThrottler compactionThrottler;
+    private ScheduledExecutorService compactionExecutor;
+
+    public LogStructuredStorageConfiguration(VoldemortConfig config) {
+        this.voldemortConfig = config;
+        this.engines = new ConcurrentHashMap<String, LogStructuredStorageEngine>();
+        this.compactionThrottler = new EventThrottler(config.getLogStructuredCompactionBytesPerSec());
+    }
+
+    public synchronized StorageEngine<ByteArray, byte[], byte[]> getStore(StoreDefinition storeDef,
+                                                                          RoutingStrategy strategy) {
+        String storeName = storeDef.getName();
+        LogStructuredStorageEngine engine = new LogStructuredStorageEngine(storeName,
+                                                                           new File(voldemortConfig.getLogStructuredDataDirectory(),
+                                                                                    storeName),
+                                                                           strategy,
+                                                                           voldemortConfig.getLogStructuredSegmentSize(),
+                                                                           voldemortConfig.isLogStructuredSyncWrites());
+        engines.put(storeName, engine);
+        if(voldemortConfig.isJmxEnabled())
+            JmxUtils.registerMbean(storeName, engine);
+
+        if(compactionExecutor == null) {
+            // started with the first store, so that servers without any
+            // log-structured store do not get the thread
+            compactionExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("voldemort-log-compaction-"));
+            long intervalMs = voldemortConfig.getLogStructuredCompactionIntervalMs();
+            compactionExecutor.scheduleWithFixedDelay(new Runnable() {
+
+                public void run() {
+                    compactAll();
+                }
+            }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+        return engine;
+    }
+
+    private void compactAll() {
+        Iterator<LogStructuredStorageEngine> iter = engines.values().iterator();
+        while(iter.hasNext()) {
+            LogStructuredStorageEngine engine = iter.next();
+            if(!engine.isOpen()) {
+                iter.remove();
+                continue;
+            }
+            try {
+                engine.compact(voldemortConfig.getLogStructuredCompactionMinGarbageRatio(),
+                               compactionThrottler);
+            } catch(Exception e) {
+                logger.error("Compaction of store " + engine.getName() + " failed", e);
+            }
+        }
+    }
+
+    public String getType() {
+        return TYPE_NAME;
+    }
+
+    public synchronized void close() {
+        // closing the engines stops a compaction in progress, which is not
+        // interrupted as an interrupt would close the file being copied
+        if(compactionExecutor != null)
+            compactionExecutor.shutdown();
+        for(LogStructuredStorageEngine engine: engines.values())
+            engine.close();
+        engines.clear();
+        if(compactionExecutor != null) {
+            try {
+                compactionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void update(StoreDefinition storeDef) {
+        throw new VoldemortException("Storage config updates not permitted for "
+                                     + this.getClass().getCanonicalName());
+    }
+
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine) {}
+}
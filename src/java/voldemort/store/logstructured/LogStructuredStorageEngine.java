@@ -0,0 +1,666 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.logstructured;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+import voldemort.VoldemortException;
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.routing.RoutingStrategy;
+import voldemort.store.AbstractStorageEngine;
+import voldemort.store.PersistenceFailureException;
+import voldemort.store.StorageInitializationException;
+import voldemort.store.StoreBinaryFormat;
+import voldemort.store.StoreUtils;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.EventThrottler;
+import voldemort.utils.Pair;
+import voldemort.utils.Utils;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.Occurred;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * A storage engine that appends every write to a log and keeps the position of
+ * the latest record of each key in memory, in the manner of Bitcask.
+ * <p>
+ * Each partition has a log of its own, in a directory of its own, so that the
+ * entries of a partition can be scanned without touching the others. A log is
+ * a sequence of {@link LogSegment segment} files, of which only the last one
+ * is written to. A read is a single positioned read of the record the key
+ * points to, and a write a single append.
+ * <p>
+ * The records a key no longer points to are garbage, which
+ * {@link #compact(double, EventThrottler)} reclaims by copying the live
+ * records of the most wasteful segments to the end of the log and deleting
+ * those segments. Deleting a key appends a record without versions, which is
+ * kept until no older segment can hold a value for the key.
+ * <p>
+ * On startup the logs are replayed in order to rebuild the positions. A
+ * record found incomplete or corrupt, as the last one can be after a crash,
+ * ends its segment.
+ *
+ */
+public class LogStructuredStorageEngine extends AbstractStorageEngine<ByteArray, byte[], byte[]> {
+
+    private static final Logger logger = Logger.getLogger(LogStructuredStorageEngine.class);
+
+    private final File directory;
+    private final RoutingStrategy routingStrategy;
+    private final long maxSegmentSize;
+    private final boolean syncWrites;
+    private final ConcurrentMap<Integer, PartitionLog> partitions;
+    private volatile boolean isOpen;
+
+    /**
+     * @param name The name of the store
+     * @param directory The directory holding the logs of the store
+     * @param routingStrategy The routing strategy, to map keys to partitions
+     * @param maxSegmentSize The size past which a new segment is started
+     * @param syncWrites Whether every write is forced to disk before it returns
+     */
+    public LogStructuredStorageEngine(String name,
+                                      File directory,
+                                      RoutingStrategy routingStrategy,
+                                      long maxSegmentSize,
+                                      boolean syncWrites) {
+        super(name);
+        this.directory = Utils.notNull(directory);
+        this.routingStrategy = Utils.notNull(routingStrategy);
+        this.maxSegmentSize = maxSegmentSize;
+        this.syncWrites = syncWrites;
+        this.partitions = new ConcurrentHashMap<Integer, PartitionLog>();
+        this.isOpen = true;
+
+        Utils.mkdirs(directory);
+        try {
+            for(File partitionDir: directory.listFiles()) {
+                if(!partitionDir.isDirectory())
+                    continue;
+                int partitionId;
+                try {
+                    partitionId = Integer.parseInt(partitionDir.getName());
+                } catch(NumberFormatException e) {
+                    continue;
+                }
+                partitions.put(partitionId, new PartitionLog(partitionDir));
+            }
+        } catch(IOException e) {
+            throw new StorageInitializationException("Could not open the logs of store " + name
+                                                     + " in " + directory, e);
+        }
+    }
+
+    @Override
+    public List<Versioned<byte[]>> get(ByteArray key, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        PartitionLog partition = partitions.get(getPartition(key));
+        if(partition == null)
+            return Collections.emptyList();
+        return partition.read(key);
+    }
+
+    @Override
+    public Map<ByteArray, List<Versioned<byte[]>>> getAll(Iterable<ByteArray> keys,
+                                                          Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKeys(keys);
+        return StoreUtils.getAll(this, keys, transforms);
+    }
+
+    @Override
+    public List<Version> getVersions(ByteArray key) {
+        return StoreUtils.getVersions(get(key, null));
+    }
+
+    @Override
+    public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        PartitionLog partition = getOrCreatePartition(getPartition(key));
+        synchronized(partition) {
+            List<Versioned<byte[]>> vals = new ArrayList<Versioned<byte[]>>(partition.read(key));
+            Iterator<Versioned<byte[]>> iter = vals.iterator();
+            while(iter.hasNext()) {
+                Versioned<byte[]> curr = iter.next();
+                Occurred occurred = value.getVersion().compare(curr.getVersion());
+                if(occurred == Occurred.BEFORE)
+                    throw new ObsoleteVersionException("Key " + ByteUtils.toHexString(key.get())
+                                                       + " " + value.getVersion().toString()
+                                                       + " is obsolete, it is no greater than the current version of "
+                                                       + curr.getVersion().toString() + ".");
+                else if(occurred == Occurred.AFTER)
+                    iter.remove();
+            }
+            vals.add(value);
+            partition.write(key, vals);
+        }
+    }
+
+    @Override
+    public List<Versioned<byte[]>> multiVersionPut(ByteArray key, List<Versioned<byte[]>> values) {
+        StoreUtils.assertValidKey(key);
+        PartitionLog partition = getOrCreatePartition(getPartition(key));
+        synchronized(partition) {
+            List<Versioned<byte[]>> valuesInStorage = new ArrayList<Versioned<byte[]>>(partition.read(key));
+            List<Versioned<byte[]>> obsoleteVals = resolveAndConstructVersionsToPersist(valuesInStorage,
+                                                                                        values);
+            partition.write(key, valuesInStorage);
+            return obsoleteVals;
+        }
+    }
+
+    @Override
+    public boolean delete(ByteArray key, Version version) throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        PartitionLog partition = partitions.get(getPartition(key));
+        if(partition == null)
+            return false;
+        synchronized(partition) {
+            List<Versioned<byte[]>> vals = new ArrayList<Versioned<byte[]>>(partition.read(key));
+            if(vals.isEmpty())
+                return false;
+
+            if(version == null) {
+                // unversioned delete, blow away the whole thing
+                partition.write(key, Collections.<Versioned<byte[]>> emptyList());
+                return true;
+            }
+
+            int numVersions = vals.size();
+            Iterator<Versioned<byte[]>> iter = vals.iterator();
+            while(iter.hasNext()) {
+                if(iter.next().getVersion().compare(version) == Occurred.BEFORE)
+                    iter.remove();
+            }
+            if(vals.size() == numVersions)
+                return false;
+            partition.write(key, vals);
+            return true;
+        }
+    }
+
+    @Override
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries() {
+        return new EntriesIterator(getPartitionIds());
+    }
+
+    @Override
+    public ClosableIterator<ByteArray> keys() {
+        return new KeysIterator(getPartitionIds());
+    }
+
+    @Override
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries(int partition) {
+        return new EntriesIterator(Collections.singletonList(partition));
+    }
+
+    @Override
+    public ClosableIterator<ByteArray> keys(int partition) {
+        return new KeysIterator(Collections.singletonList(partition));
+    }
+
+    @Override
+    public boolean isPartitionScanSupported() {
+        return true;
+    }
+
+    @Override
+    public void truncate() {
+        for(PartitionLog partition: partitions.values())
+            partition.truncate();
+    }
+
+    @Override
+    public void close() throws VoldemortException {
+        if(!isOpen)
+            return;
+        isOpen = false;
+        for(PartitionLog partition: partitions.values())
+            partition.close();
+    }
+
+    /**
+     * Reclaims the space taken by the records keys no longer point to. Every
+     * segment but the one being written to in which at least the given share
+     * of the bytes is garbage is rewritten.
+     *
+     * @param minGarbageRatio The share of garbage that makes a segment worth
+     *        rewriting, between 0 and 1
+     * @param throttler Throttles the bytes read and copied
+     */
+    public void compact(double minGarbageRatio, EventThrottler throttler) {
+        for(int partitionId: getPartitionIds()) {
+            if(!isOpen)
+                return;
+            partitions.get(partitionId).compact(minGarbageRatio, throttler);
+        }
+    }
+
+    public boolean isOpen() {
+        return isOpen;
+    }
+
+    @JmxGetter(name = "NumKeys", description = "Number of keys, deleted ones included")
+    public long getNumKeys() {
+        long numKeys = 0;
+        for(PartitionLog partition: partitions.values())
+            numKeys += partition.keyDir.size();
+        return numKeys;
+    }
+
+    @JmxGetter(name = "TotalBytes", description = "Size of all the segments")
+    public long getTotalBytes() {
+        long totalBytes = 0;
+        for(PartitionLog partition: partitions.values())
+            totalBytes += partition.getTotalBytes();
+        return totalBytes;
+    }
+
+    @JmxGetter(name = "LiveBytes", description = "Bytes taken by the latest record of each key")
+    public long getLiveBytes() {
+        long liveBytes = 0;
+        for(PartitionLog partition: partitions.values())
+            liveBytes += partition.getLiveBytes();
+        return liveBytes;
+    }
+
+    private int getPartition(ByteArray key) {
+        return routingStrategy.getMasterPartition(key.get());
+    }
+
+    private List<Integer> getPartitionIds() {
+        List<Integer> partitionIds = new ArrayList<Integer>(partitions.keySet());
+        Collections.sort(partitionIds);
+        return partitionIds;
+    }
+
+    private PartitionLog getOrCreatePartition(int partitionId) {
+        PartitionLog partition = partitions.get(partitionId);
+        if(partition != null)
+            return partition;
+
+        synchronized(partitions) {
+            partition = partitions.get(partitionId);
+            if(partition == null) {
+                if(!isOpen)
+                    throw new PersistenceFailureException("Store " + getName() + " is closed");
+                try {
+                    partition = new PartitionLog(new File(directory, Integer.toString(partitionId)));
+                } catch(IOException e) {
+                    throw new PersistenceFailureException("Could not create the log of partition "
+                                                          + partitionId + " of store " + getName(),
+                                                          e);
+                }
+                partitions.put(partitionId, partition);
+            }
+            return partition;
+        }
+    }
+
+    /**
+     * Where the latest record of a key is
+     */
+    private static class Location {
+
+        private final LogSegment segment;
+        private final long offset;
+        private final int keySize;
+        private final int valueSize;
+        private final boolean deleted;
+
+        private Location(LogSegment segment,
+                         long offset,
+                         int keySize,
+                         int valueSize,
+                         boolean deleted) {
+            this.segment = segment;
+            this.offset = offset;
+            this.keySize = keySize;
+            this.valueSize = valueSize;
+            this.deleted = deleted;
+        }
+
+        private long getRecordSize() {
+            return LogSegment.recordSize(keySize, valueSize);
+        }
+    }
+
+    /**
+     * The log of one partition, and the positions of its keys.
+     * <p>
+     * Writes and compaction hold the lock of the partition while they append,
+     * reads do not take it. Segment files are only closed under the write lock
+     * of filesLock, which reads hold the read lock of, so that no read finds
+     * its segment gone.
+     */
+    private class PartitionLog {
+
+        private final File directory;
+        private final ConcurrentMap<ByteArray, Location> keyDir;
+        // oldest first, the last one is written to; guarded by this
+        private final List<LogSegment> segments;
+        private final ReadWriteLock filesLock;
+
+        private PartitionLog(File directory) throws IOException {
+            this.directory = directory;
+            this.keyDir = new ConcurrentHashMap<ByteArray, Location>();
+            this.segments = new ArrayList<LogSegment>();
+            this.filesLock = new ReentrantReadWriteLock();
+
+            Utils.mkdirs(directory);
+            List<Integer> segmentIds = new ArrayList<Integer>();
+            for(String fileName: directory.list()) {
+                int segmentId = LogSegment.parseId(fileName);
+                if(segmentId >= 0)
+                    segmentIds.add(segmentId);
+            }
+            Collections.sort(segmentIds);
+
+            for(int segmentId: segmentIds) {
+                LogSegment segment = new LogSegment(directory, segmentId);
+                segments.add(segment);
+                replay(segment);
+            }
+            if(segments.isEmpty())
+                segments.add(new LogSegment(directory, 0));
+        }
+
+        private void replay(LogSegment segment) throws IOException {
+            long offset = 0;
+            byte[][] record;
+            while((record = segment.readRecord(offset)) != null) {
+                Location location = new Location(segment,
+                                                 offset,
+                                                 record[0].length,
+                                                 record[1].length,
+                                                 StoreBinaryFormat.fromByteArray(record[1])
+                                                                  .isEmpty());
+                apply(new ByteArray(record[0]), location);
+                offset += location.getRecordSize();
+            }
+
+            if(offset < segment.getSize()) {
+                logger.warn("Truncating " + segment + " to " + offset + " bytes from "
+                            + segment.getSize() + ", past its last complete record");
+                segment.truncate(offset);
+            }
+        }
+
+        private void apply(ByteArray key, Location location) {
+            location.segment.getLiveBytes().addAndGet(location.getRecordSize());
+            Location previous = keyDir.put(key, location);
+            if(previous != null)
+                previous.segment.getLiveBytes().addAndGet(-previous.getRecordSize());
+        }
+
+        private List<Versioned<byte[]>> read(ByteArray key) {
+            filesLock.readLock().lock();
+            try {
+                Location location = keyDir.get(key);
+                if(location == null || location.deleted)
+                    return Collections.emptyList();
+                return StoreBinaryFormat.fromByteArray(location.segment.readValue(location.offset,
+                                                                                  location.keySize,
+                                                                                  location.valueSize));
+            } catch(IOException e) {
+                logger.error(e);
+                throw new PersistenceFailureException(e);
+            } finally {
+                filesLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Appends the versions of a key, replacing those it had. Must be
+         * called with the lock of the partition held.
+         */
+        private void write(ByteArray key, List<Versioned<byte[]>> values) {
+            append(key.get(), StoreBinaryFormat.toByteArray(values), values.isEmpty());
+        }
+
+        private void append(byte[] key, byte[] value, boolean deleted) {
+            if(!isOpen)
+                throw new PersistenceFailureException("Store " + getName() + " is closed");
+            try {
+                LogSegment segment = segments.get(segments.size() - 1);
+                if(segment.getSize() >= maxSegmentSize) {
+                    segment.sync();
+                    segment = new LogSegment(directory, segment.getId() + 1);
+                    segments.add(segment);
+                }
+                long offset = segment.append(key, value);
+                if(syncWrites)
+                    segment.sync();
+                apply(new ByteArray(key),
+                      new Location(segment, offset, key.length, value.length, deleted));
+            } catch(IOException e) {
+                logger.error(e);
+                throw new PersistenceFailureException(e);
+            }
+        }
+
+        private void compact(double minGarbageRatio, EventThrottler throttler) {
+            List<LogSegment> candidates = new ArrayList<LogSegment>();
+            synchronized(this) {
+                for(LogSegment segment: segments.subList(0, segments.size() - 1)) {
+                    long size = segment.getSize();
+                    long garbage = size - segment.getLiveBytes().get();
+                    if(size == 0 || garbage >= minGarbageRatio * size)
+                        candidates.add(segment);
+                }
+            }
+
+            for(LogSegment segment: candidates) {
+                try {
+                    if(!compact(segment, throttler))
+                        return;
+                } catch(IOException e) {
+                    // nor can a segment deleted by a truncation or closed
+                    synchronized(this) {
+                        if(isOpen && segments.contains(segment))
+                            logger.error("Compaction of " + segment + " failed", e);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Copies the live records of a segment to the end of the log and
+         * deletes the segment
+         *
+         * @return false if the store was closed before the segment was done
+         */
+        private boolean compact(LogSegment segment, EventThrottler throttler) throws IOException {
+            long originalSize = segment.getSize();
+            long offset = 0;
+            byte[][] record;
+            while((record = segment.readRecord(offset)) != null) {
+                ByteArray key = new ByteArray(record[0]);
+                long recordSize = LogSegment.recordSize(record[0].length, record[1].length);
+
+                synchronized(this) {
+                    if(!isOpen || !segments.contains(segment))
+                        return false;
+                    Location location = keyDir.get(key);
+                    if(location != null && location.segment == segment
+                       && location.offset == offset) {
+                        if(location.deleted && segments.get(0) == segment) {
+                            // no older segment is left for a value to come
+                            // back from
+                            keyDir.remove(key);
+                            segment.getLiveBytes().addAndGet(-recordSize);
+                        } else {
+                            append(record[0], record[1], location.deleted);
+                        }
+                    }
+                }
+
+                throttler.maybeThrottle((int) recordSize);
+                offset += recordSize;
+            }
+
+            synchronized(this) {
+                if(!isOpen || !segments.contains(segment))
+                    return false;
+                // what was copied has to be on disk before its original goes
+                for(LogSegment remaining: segments)
+                    remaining.sync();
+                segments.remove(segment);
+            }
+
+            filesLock.writeLock().lock();
+            try {
+                segment.delete();
+            } finally {
+                filesLock.writeLock().unlock();
+            }
+
+            if(logger.isDebugEnabled())
+                logger.debug("Compacted " + segment + ", reclaiming " + originalSize + " bytes");
+            return true;
+        }
+
+        private synchronized void truncate() {
+            filesLock.writeLock().lock();
+            try {
+                int nextSegmentId = segments.get(segments.size() - 1).getId() + 1;
+                for(LogSegment segment: segments)
+                    segment.delete();
+                segments.clear();
+                keyDir.clear();
+                segments.add(new LogSegment(directory, nextSegmentId));
+            } catch(IOException e) {
+                logger.error(e);
+                throw new PersistenceFailureException(e);
+            } finally {
+                filesLock.writeLock().unlock();
+            }
+        }
+
+        private synchronized void close() {
+            filesLock.writeLock().lock();
+            try {
+                for(LogSegment segment: segments) {
+                    segment.sync();
+                    segment.close();
+                }
+            } catch(IOException e) {
+                logger.error(e);
+                throw new PersistenceFailureException(e);
+            } finally {
+                filesLock.writeLock().unlock();
+            }
+        }
+
+        private synchronized long getTotalBytes() {
+            long totalBytes = 0;
+            for(LogSegment segment: segments)
+                totalBytes += segment.getSize();
+            return totalBytes;
+        }
+
+        private synchronized long getLiveBytes() {
+            long liveBytes = 0;
+            for(LogSegment segment: segments)
+                liveBytes += segment.getLiveBytes().get();
+            return liveBytes;
+        }
+    }
+
+    /**
+     * Goes through the keys of some partitions, skipping the deleted ones
+     */
+    private class KeysIterator extends AbstractIterator<ByteArray> implements
+            ClosableIterator<ByteArray> {
+
+        private final Iterator<Integer> partitionIds;
+        private Iterator<Map.Entry<ByteArray, Location>> current;
+
+        private KeysIterator(List<Integer> partitionIds) {
+            this.partitionIds = partitionIds.iterator();
+            this.current = Collections.<Map.Entry<ByteArray, Location>> emptyList().iterator();
+        }
+
+        @Override
+        protected ByteArray computeNext() {
+            while(true) {
+                while(current.hasNext()) {
+                    Map.Entry<ByteArray, Location> entry = current.next();
+                    if(!entry.getValue().deleted)
+                        return entry.getKey();
+                }
+                if(!partitionIds.hasNext())
+                    return endOfData();
+                PartitionLog partition = partitions.get(partitionIds.next());
+                if(partition != null)
+                    current = partition.keyDir.entrySet().iterator();
+            }
+        }
+
+        public void close() {}
+    }
+
+    /**
+     * Goes through the versions of the keys of some partitions, as they are
+     * when each key is reached
+     */
+    private class EntriesIterator extends AbstractIterator<Pair<ByteArray, Versioned<byte[]>>>
+            implements ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> {
+
+        private final KeysIterator keys;
+        private ByteArray currentKey;
+        private Iterator<Versioned<byte[]>> currentValues;
+
+        private EntriesIterator(List<Integer> partitionIds) {
+            this.keys = new KeysIterator(partitionIds);
+            this.currentValues = Collections.<Versioned<byte[]>> emptyList().iterator();
+        }
+
+        @Override
+        protected Pair<ByteArray, Versioned<byte[]>> computeNext() {
+            while(!currentValues.hasNext()) {
+                if(!keys.hasNext())
+                    return endOfData();
+                currentKey = keys.next();
+                currentValues = get(currentKey, null).iterator();
+            }
+            return Pair.create(currentKey, currentValues.next());
+        }
+
+        public void close() {}
+    }
+}
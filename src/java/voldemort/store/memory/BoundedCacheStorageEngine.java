@@ -0,0 +1,551 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+import voldemort.VoldemortException;
+import voldemort.annotations.concurrency.NotThreadsafe;
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.annotations.jmx.JmxOperation;
+import voldemort.store.AbstractStorageEngine;
+import voldemort.store.StoreBinaryFormat;
+import voldemort.store.StoreUtils;
+import voldemort.store.readonly.io.ByteBufferCloser;
+import voldemort.store.stats.StoreStats;
+import voldemort.store.stats.Tracked;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.Pair;
+import voldemort.utils.Time;
+import voldemort.utils.Utils;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.Occurred;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Version;
+import voldemort.versioning.Versioned;
+
+/**
+ * A non-persistent store that holds at most a given number of bytes, evicting
+ * the entries least worth keeping to make room for new ones.
+ * <p>
+ * Keys are spread over segments, each with its own share of the memory and its
+ * own lock. A segment evicts by segmented LRU: a key comes in on probation,
+ * and moves to the protected part of the segment when it is read again. Only
+ * when the protected part outgrows its share does its least recently used key
+ * go back on probation. Keys read once, as by a scan, thus never push out the
+ * ones read over and over.
+ * <p>
+ * Entries can expire a fixed time after they were written, and the values can
+ * be kept in direct memory instead of on the heap. Hits, misses and evictions
+ * are counted in the {@link StoreStats} of the engine, which a server replaces
+ * with the stats it keeps for the store.
+ *
+ */
+public class BoundedCacheStorageEngine extends AbstractStorageEngine<ByteArray, byte[], byte[]> {
+
+    private static final Logger logger = Logger.getLogger(BoundedCacheStorageEngine.class);
+
+    private static final int NUM_SEGMENTS = 16;
+    private static final double PROTECTED_FRACTION = 0.8;
+
+    /*
+     * A rough count of the heap taken by an entry besides its key and value
+     * bytes: the map entries, the list of versions and the objects in it
+     */
+    static final int ENTRY_OVERHEAD = 128;
+
+    private final Segment[] segments;
+    private final long maxBytes;
+    private final long ttlMs;
+    private final boolean offHeap;
+    private final Time time;
+    private volatile StoreStats stats;
+
+    /**
+     * @param name The name of the store
+     * @param maxBytes The memory the keys and values may take
+     * @param ttlMs How long after it is written an entry expires, or 0 for
+     *        never
+     * @param offHeap Whether to keep values in direct memory
+     * @param time The time source expiry is measured by
+     */
+    public BoundedCacheStorageEngine(String name,
+                                     long maxBytes,
+                                     long ttlMs,
+                                     boolean offHeap,
+                                     Time time) {
+        super(name);
+        if(maxBytes <= 0)
+            throw new IllegalArgumentException("The cache size must be positive.");
+        if(ttlMs < 0)
+            throw new IllegalArgumentException("The time to live cannot be negative.");
+        this.maxBytes = maxBytes;
+        this.ttlMs = ttlMs;
+        this.offHeap = offHeap;
+        this.time = Utils.notNull(time);
+        this.stats = new StoreStats();
+        this.segments = new Segment[NUM_SEGMENTS];
+        for(int i = 0; i < NUM_SEGMENTS; i++)
+            segments[i] = new Segment(maxBytes / NUM_SEGMENTS);
+    }
+
+    public StoreStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Counts hits, misses and evictions from now on in the given stats
+     */
+    public void setStats(StoreStats stats) {
+        this.stats = Utils.notNull(stats);
+    }
+
+    @Override
+    public List<Versioned<byte[]>> get(ByteArray key, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        long start = System.nanoTime();
+        Segment segment = segmentFor(key);
+        List<Versioned<byte[]>> values;
+        synchronized(segment) {
+            values = segment.get(key, true);
+        }
+        if(values == null) {
+            stats.recordTime(Tracked.CACHE_MISS, System.nanoTime() - start);
+            return new ArrayList<Versioned<byte[]>>(0);
+        }
+        stats.recordTime(Tracked.CACHE_HIT, System.nanoTime() - start);
+        return values;
+    }
+
+    @Override
+    public Map<ByteArray, List<Versioned<byte[]>>> getAll(Iterable<ByteArray> keys,
+                                                          Map<ByteArray, byte[]> transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKeys(keys);
+        return StoreUtils.getAll(this, keys, transforms);
+    }
+
+    @Override
+    public List<Version> getVersions(ByteArray key) {
+        StoreUtils.assertValidKey(key);
+        Segment segment = segmentFor(key);
+        synchronized(segment) {
+            return StoreUtils.getVersions(valuesOrEmpty(segment.get(key, false)));
+        }
+    }
+
+    @Override
+    public void put(ByteArray key, Versioned<byte[]> value, byte[] transforms)
+            throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        Segment segment = segmentFor(key);
+        synchronized(segment) {
+            List<Versioned<byte[]>> items = valuesOrEmpty(segment.get(key, false));
+            // Keep the existing versions the new one does not supersede
+            List<Versioned<byte[]>> updated = new ArrayList<Versioned<byte[]>>(items.size() + 1);
+            for(Versioned<byte[]> versioned: items) {
+                Occurred occurred = value.getVersion().compare(versioned.getVersion());
+                if(occurred == Occurred.BEFORE) {
+                    throw new ObsoleteVersionException("Obsolete version for key '" + key
+                                                       + "': " + value.getVersion());
+                } else if(occurred != Occurred.AFTER) {
+                    updated.add(versioned);
+                }
+            }
+            updated.add(value);
+            segment.put(key, updated);
+        }
+    }
+
+    @Override
+    public List<Versioned<byte[]>> multiVersionPut(ByteArray key, List<Versioned<byte[]>> values) {
+        StoreUtils.assertValidKey(key);
+        Segment segment = segmentFor(key);
+        synchronized(segment) {
+            List<Versioned<byte[]>> valuesInStorage = valuesOrEmpty(segment.get(key, false));
+            List<Versioned<byte[]>> obsoleteVals = resolveAndConstructVersionsToPersist(valuesInStorage,
+                                                                                        values);
+            segment.put(key, valuesInStorage);
+            return obsoleteVals;
+        }
+    }
+
+    @Override
+    public boolean delete(ByteArray key, Version version) throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        Segment segment = segmentFor(key);
+        synchronized(segment) {
+            List<Versioned<byte[]>> values = segment.get(key, false);
+            if(values == null)
+                return false;
+            if(version == null)
+                return segment.remove(key);
+
+            List<Versioned<byte[]>> remaining = new ArrayList<Versioned<byte[]>>(values.size());
+            for(Versioned<byte[]> item: values) {
+                if(item.getVersion().compare(version) != Occurred.BEFORE)
+                    remaining.add(item);
+            }
+            if(remaining.size() == values.size())
+                return false;
+            if(remaining.isEmpty())
+                segment.remove(key);
+            else
+                segment.put(key, remaining);
+            return true;
+        }
+    }
+
+    @Override
+    public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries() {
+        return new CacheIterator();
+    }
+
+    @Override
+    public ClosableIterator<ByteArray> keys() {
+        return StoreUtils.keys(entries());
+    }
+
+    @Override
+    @JmxOperation(description = "Drop everything in the cache")
+    public void truncate() {
+        for(Segment segment: segments) {
+            synchronized(segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws VoldemortException {
+        truncate();
+    }
+
+    @JmxGetter(name = "NumHits", description = "Number of reads answered from the cache since the last reset")
+    public long getNumHits() {
+        return stats.getCount(Tracked.CACHE_HIT);
+    }
+
+    @JmxGetter(name = "NumMisses", description = "Number of reads of keys not in the cache since the last reset")
+    public long getNumMisses() {
+        return stats.getCount(Tracked.CACHE_MISS);
+    }
+
+    @JmxGetter(name = "HitRate", description = "Fraction of reads answered from the cache since the last reset")
+    public double getHitRate() {
+        long hits = getNumHits();
+        long reads = hits + getNumMisses();
+        return reads == 0 ? 0.0d : hits / (double) reads;
+    }
+
+    @JmxGetter(name = "NumEvictions", description = "Number of entries evicted or expired since the last reset")
+    public long getNumEvictions() {
+        return stats.getCount(Tracked.CACHE_EVICTION);
+    }
+
+    @JmxGetter(name = "NumEntries", description = "Number of keys in the cache")
+    public long getNumEntries() {
+        long numEntries = 0;
+        for(Segment segment: segments) {
+            synchronized(segment) {
+                numEntries += segment.size();
+            }
+        }
+        return numEntries;
+    }
+
+    @JmxGetter(name = "UsedBytes", description = "Memory taken by the keys and values in the cache")
+    public long getUsedBytes() {
+        long usedBytes = 0;
+        for(Segment segment: segments) {
+            synchronized(segment) {
+                usedBytes += segment.usedBytes();
+            }
+        }
+        return usedBytes;
+    }
+
+    @JmxGetter(name = "CapacityBytes", description = "Memory the keys and values may take")
+    public long getCapacityBytes() {
+        return maxBytes;
+    }
+
+    private Segment segmentFor(ByteArray key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return segments[(hash & 0x7fffffff) % NUM_SEGMENTS];
+    }
+
+    private static List<Versioned<byte[]>> valuesOrEmpty(List<Versioned<byte[]>> values) {
+        return values == null ? new ArrayList<Versioned<byte[]>>(0) : values;
+    }
+
+    /**
+     * The versions of a key, on the heap or serialized in direct memory
+     */
+    private static final class CacheEntry {
+
+        private final Object values;
+        private final int size;
+        private final long expiresAt;
+
+        private CacheEntry(Object values, int size, long expiresAt) {
+            this.values = values;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A share of the cache, guarded by its own monitor, which callers must
+     * hold around every call
+     */
+    @NotThreadsafe
+    private final class Segment {
+
+        // in access order, so that the eldest entry is the least recently used
+        private final LinkedHashMap<ByteArray, CacheEntry> probation;
+        private final LinkedHashMap<ByteArray, CacheEntry> protectedEntries;
+        private final long maxBytes;
+        private final long maxProtectedBytes;
+        private long probationBytes;
+        private long protectedBytes;
+
+        private Segment(long maxBytes) {
+            this.probation = new LinkedHashMap<ByteArray, CacheEntry>(16, 0.75f, true);
+            this.protectedEntries = new LinkedHashMap<ByteArray, CacheEntry>(16, 0.75f, true);
+            this.maxBytes = maxBytes;
+            this.maxProtectedBytes = (long) (maxBytes * PROTECTED_FRACTION);
+        }
+
+        /**
+         * Looks up the versions of a key
+         *
+         * @param key The key
+         * @param promote Whether this is a read that should count towards
+         *        keeping the key
+         * @return A copy of the versions, or null if the key is not cached
+         */
+        private List<Versioned<byte[]>> get(ByteArray key, boolean promote) {
+            CacheEntry entry = protectedEntries.get(key);
+            boolean isProtected = entry != null;
+            if(!isProtected)
+                entry = probation.get(key);
+            if(entry == null)
+                return null;
+
+            if(ttlMs > 0 && entry.expiresAt <= time.getMilliseconds()) {
+                remove(key);
+                stats.recordTime(Tracked.CACHE_EVICTION, 0);
+                return null;
+            }
+
+            List<Versioned<byte[]>> values = read(entry);
+            if(promote && !isProtected) {
+                probation.remove(key);
+                probationBytes -= entry.size;
+                protectedEntries.put(key, entry);
+                protectedBytes += entry.size;
+                evict();
+            }
+            return values;
+        }
+
+        /**
+         * Sets the versions of a key, which stays where it was if it is
+         * already cached, and goes on probation if not
+         */
+        private void put(ByteArray key, List<Versioned<byte[]>> values) {
+            boolean isProtected = protectedEntries.containsKey(key);
+            remove(key);
+            CacheEntry entry = write(key, values);
+            if(entry.size > maxBytes) {
+                // would take the whole segment, so is better not cached at all
+                release(entry);
+                return;
+            }
+            if(isProtected) {
+                protectedEntries.put(key, entry);
+                protectedBytes += entry.size;
+            } else {
+                probation.put(key, entry);
+                probationBytes += entry.size;
+            }
+            evict();
+        }
+
+        private boolean remove(ByteArray key) {
+            CacheEntry entry = protectedEntries.remove(key);
+            if(entry != null) {
+                protectedBytes -= entry.size;
+            } else {
+                entry = probation.remove(key);
+                if(entry == null)
+                    return false;
+                probationBytes -= entry.size;
+            }
+            release(entry);
+            return true;
+        }
+
+        private void evict() {
+            while(protectedBytes > maxProtectedBytes) {
+                Map.Entry<ByteArray, CacheEntry> eldest = eldest(protectedEntries);
+                protectedEntries.remove(eldest.getKey());
+                protectedBytes -= eldest.getValue().size;
+                probation.put(eldest.getKey(), eldest.getValue());
+                probationBytes += eldest.getValue().size;
+            }
+            while(usedBytes() > maxBytes) {
+                Map.Entry<ByteArray, CacheEntry> victim = eldest(probation.isEmpty() ? protectedEntries
+                                                                                     : probation);
+                remove(victim.getKey());
+                stats.recordTime(Tracked.CACHE_EVICTION, 0);
+            }
+        }
+
+        private Map.Entry<ByteArray, CacheEntry> eldest(LinkedHashMap<ByteArray, CacheEntry> map) {
+            return map.entrySet().iterator().next();
+        }
+
+        private List<ByteArray> keys() {
+            List<ByteArray> keys = new ArrayList<ByteArray>(size());
+            keys.addAll(protectedEntries.keySet());
+            keys.addAll(probation.keySet());
+            return keys;
+        }
+
+        private void clear() {
+            for(CacheEntry entry: protectedEntries.values())
+                release(entry);
+            for(CacheEntry entry: probation.values())
+                release(entry);
+            protectedEntries.clear();
+            probation.clear();
+            protectedBytes = 0;
+            probationBytes = 0;
+        }
+
+        private int size() {
+            return protectedEntries.size() + probation.size();
+        }
+
+        private long usedBytes() {
+            return protectedBytes + probationBytes;
+        }
+    }
+
+    private CacheEntry write(ByteArray key, List<Versioned<byte[]>> values) {
+        long expiresAt = ttlMs > 0 ? time.getMilliseconds() + ttlMs : Long.MAX_VALUE;
+        if(offHeap) {
+            byte[] bytes = StoreBinaryFormat.toByteArray(values);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            return new CacheEntry(buffer, key.length() + bytes.length + ENTRY_OVERHEAD, expiresAt);
+        }
+
+        int size = key.length() + ENTRY_OVERHEAD;
+        for(Versioned<byte[]> value: values)
+            size += value.getValue().length + ((VectorClock) value.getVersion()).sizeInBytes();
+        // copied, so that the caller cannot change what is cached
+        return new CacheEntry(new ArrayList<Versioned<byte[]>>(values), size, expiresAt);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Versioned<byte[]>> read(CacheEntry entry) {
+        if(offHeap) {
+            ByteBuffer buffer = ((ByteBuffer) entry.values).duplicate();
+            buffer.clear();
+            byte[] bytes = new byte[buffer.capacity()];
+            buffer.get(bytes);
+            return StoreBinaryFormat.fromByteArray(bytes);
+        }
+        return new ArrayList<Versioned<byte[]>>((List<Versioned<byte[]>>) entry.values);
+    }
+
+    /**
+     * Frees the direct memory of an entry, which is safe as nothing reads it
+     * without holding the lock of its segment
+     */
+    private void release(CacheEntry entry) {
+        if(!offHeap)
+            return;
+        try {
+            new ByteBufferCloser((ByteBuffer) entry.values).close();
+        } catch(IOException e) {
+            logger.warn("Could not free the memory of a cache entry", e);
+        }
+    }
+
+    /**
+     * Walks the keys in the cache at the time each segment is reached, skipping
+     * those gone since
+     */
+    @NotThreadsafe
+    private class CacheIterator implements ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> {
+
+        private int segmentIndex = 0;
+        private Iterator<ByteArray> keys = null;
+        private ByteArray currentKey = null;
+        private Iterator<Versioned<byte[]>> currentValues = null;
+
+        public boolean hasNext() {
+            while(currentValues == null || !currentValues.hasNext()) {
+                while(keys == null || !keys.hasNext()) {
+                    if(segmentIndex >= segments.length)
+                        return false;
+                    Segment segment = segments[segmentIndex++];
+                    synchronized(segment) {
+                        keys = segment.keys().iterator();
+                    }
+                }
+                currentKey = keys.next();
+                Segment segment = segmentFor(currentKey);
+                synchronized(segment) {
+                    currentValues = valuesOrEmpty(segment.get(currentKey, false)).iterator();
+                }
+            }
+            return true;
+        }
+
+        public Pair<ByteArray, Versioned<byte[]>> next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            return Pair.create(currentKey, currentValues.next());
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("No removal from the cache iterator.");
+        }
+
+        public void close() {
+            // nothing to do here
+        }
+    }
+}
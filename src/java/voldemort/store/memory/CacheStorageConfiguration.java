@@ -17,8 +17,11 @@
 package voldemort.store.memory;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import javax.management.ObjectName;
+
 import voldemort.VoldemortException;
 import voldemort.routing.RoutingStrategy;
 import voldemort.server.VoldemortConfig;
@@ -26,6 +29,9 @@ import voldemort.store.StorageConfiguration;
 import voldemort.store.StorageEngine;
 import voldemort.store.StoreDefinition;
 import voldemort.utils.ByteArray;
+import voldemort.utils.JmxUtils;
+import voldemort.utils.SystemTime;
+import voldemort.utils.Time;
 import voldemort.versioning.Versioned;
 
 import com.google.common.collect.MapMaker;
@@ -34,22 +40,51 @@ import com.google.common.collect.MapMaker;
  * Identical to the InMemoryStorageConfiguration except that it creates google
  * collections ReferenceMap with Soft references on both keys and values. This
  * behaves like a cache, discarding values when under memory pressure.
- * 
+ * <p>
+ * If the config sets a cache size, the stores are instead
+ * {@link BoundedCacheStorageEngine}s of that size, which expire entries after
+ * the retention period of the store, if it has one.
  * 
  */
 public class CacheStorageConfiguration implements StorageConfiguration {
 
     public static final String TYPE_NAME = "cache";
 
-    public CacheStorageConfiguration() {}
+    private final VoldemortConfig voldemortConfig;
+    private final ConcurrentMap<String, ObjectName> mbeanNames;
 
-    @SuppressWarnings("unused")
-    public CacheStorageConfiguration(VoldemortConfig config) {}
+    public CacheStorageConfiguration() {
+        this(null);
+    }
 
-    public void close() {}
+    public CacheStorageConfiguration(VoldemortConfig config) {
+        this.voldemortConfig = config;
+        this.mbeanNames = new ConcurrentHashMap<String, ObjectName>();
+    }
+
+    public void close() {
+        for(ObjectName name: mbeanNames.values())
+            JmxUtils.unregisterMbean(name);
+        mbeanNames.clear();
+    }
 
     public StorageEngine<ByteArray, byte[], byte[]> getStore(StoreDefinition storeDef,
                                                              RoutingStrategy strategy) {
+        if(voldemortConfig != null && voldemortConfig.getCacheMaxBytes() > 0) {
+            long ttlMs = 0;
+            if(voldemortConfig.isCacheExpireWithRetention() && storeDef.hasRetentionPeriod())
+                ttlMs = storeDef.getRetentionDays() * Time.MS_PER_DAY;
+            BoundedCacheStorageEngine engine = new BoundedCacheStorageEngine(storeDef.getName(),
+                                                                             voldemortConfig.getCacheMaxBytes(),
+                                                                             ttlMs,
+                                                                             voldemortConfig.isCacheOffHeap(),
+                                                                             SystemTime.INSTANCE);
+            if(voldemortConfig.isJmxEnabled())
+                mbeanNames.put(storeDef.getName(),
+                               JmxUtils.registerMbean(storeDef.getName(), engine));
+            return engine;
+        }
+
         ConcurrentMap<ByteArray, List<Versioned<byte[]>>> backingMap = new MapMaker().softValues()
                                                                                      .makeMap();
         return new InMemoryStorageEngine<ByteArray, byte[], byte[]>(storeDef.getName(), backingMap);
@@ -63,4 +98,11 @@ public class CacheStorageConfiguration implements StorageConfiguration {
         throw new VoldemortException("Storage config updates not permitted for " + this.getType()
                                      + " storage engine");
     }
+
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine) {
+        // a store of the same name may be created again later
+        ObjectName name = mbeanNames.remove(engine.getName());
+        if(name != null)
+            JmxUtils.unregisterMbean(name);
+    }
 }
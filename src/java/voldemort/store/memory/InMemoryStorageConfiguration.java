@@ -58,4 +58,6 @@ public class InMemoryStorageConfiguration implements StorageConfiguration {
         throw new VoldemortException("Storage config updates not permitted for "
                                      + this.getClass().getCanonicalName());
     }
+
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine) {}
 }
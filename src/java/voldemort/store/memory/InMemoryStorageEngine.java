@@ -40,8 +40,11 @@ import voldemort.versioning.Versioned;
 
 /**
  * A simple non-persistent, in-memory store. Useful for unit testing.
- * 
- * TODO Rewrite this class using striped locks for more granular locking.
+ * <p>
+ * The list of versions of a key is never changed once it is in the map: a
+ * write builds a new list and swaps it in with a compare-and-set on the map,
+ * starting over if another write to the key got there first. Reads need no
+ * lock at all, and writes to different keys never wait for each other.
  * 
  */
 public class InMemoryStorageEngine<K, V, T> extends AbstractStorageEngine<K, V, T> {
@@ -59,7 +62,7 @@ public class InMemoryStorageEngine<K, V, T> extends AbstractStorageEngine<K, V,
         this.map = Utils.notNull(map);
     }
 
-    public synchronized void deleteAll() {
+    public void deleteAll() {
         this.map.clear();
     }
 
@@ -68,35 +71,36 @@ public class InMemoryStorageEngine<K, V, T> extends AbstractStorageEngine<K, V,
     }
 
     @Override
-    public synchronized boolean delete(K key, Version version) {
+    public boolean delete(K key, Version version) {
         StoreUtils.assertValidKey(key);
 
-        List<Versioned<V>> values = map.get(key);
-        if(values == null) {
-            return false;
-        }
+        while(true) {
+            List<Versioned<V>> values = map.get(key);
+            if(values == null) {
+                return false;
+            }
 
-        if(version == null) {
-            map.remove(key);
-            return true;
-        }
+            if(version == null) {
+                if(map.remove(key, values))
+                    return true;
+                continue;
+            }
 
-        boolean deletedSomething = false;
-        Iterator<Versioned<V>> iterator = values.iterator();
-        while(iterator.hasNext()) {
-            Versioned<V> item = iterator.next();
-            if(item.getVersion().compare(version) == Occurred.BEFORE) {
-                iterator.remove();
-                deletedSomething = true;
+            List<Versioned<V>> remaining = new ArrayList<Versioned<V>>(values.size());
+            for(Versioned<V> item: values) {
+                if(item.getVersion().compare(version) != Occurred.BEFORE)
+                    remaining.add(item);
             }
-        }
-        if(values.size() == 0) {
+            if(remaining.size() == values.size())
+                return false;
+
             // if there are no more versions left, also remove the key from the
             // map
-            map.remove(key);
+            if(remaining.isEmpty() ? map.remove(key, values) : map.replace(key,
+                                                                          values,
+                                                                          remaining))
+                return true;
         }
-
-        return deletedSomething;
     }
 
     @Override
@@ -105,7 +109,7 @@ public class InMemoryStorageEngine<K, V, T> extends AbstractStorageEngine<K, V,
     }
 
     @Override
-    public synchronized List<Versioned<V>> get(K key, T transform) throws VoldemortException {
+    public List<Versioned<V>> get(K key, T transform) throws VoldemortException {
         StoreUtils.assertValidKey(key);
         List<Versioned<V>> results = map.get(key);
         if(results == null) {
@@ -123,47 +127,57 @@ public class InMemoryStorageEngine<K, V, T> extends AbstractStorageEngine<K, V,
     }
 
     @Override
-    public synchronized void put(K key, Versioned<V> value, T transforms) throws VoldemortException {
+    public void put(K key, Versioned<V> value, T transforms) throws VoldemortException {
         StoreUtils.assertValidKey(key);
-        List<Versioned<V>> items = map.get(key);
-        // If we have no value, add the current value
-        if(items == null) {
-            items = new ArrayList<Versioned<V>>();
-        }
-        // Check for existing versions - remember which items to
-        // remove in case of success
-        List<Versioned<V>> itemsToRemove = new ArrayList<Versioned<V>>(items.size());
-        for(Versioned<V> versioned: items) {
-            Occurred occurred = value.getVersion().compare(versioned.getVersion());
-            if(occurred == Occurred.BEFORE) {
-                throw new ObsoleteVersionException("Obsolete version for key '" + key + "': "
-                                                   + value.getVersion());
-            } else if(occurred == Occurred.AFTER) {
-                itemsToRemove.add(versioned);
+        while(true) {
+            List<Versioned<V>> items = map.get(key);
+            // Keep the existing versions the new one does not supersede
+            List<Versioned<V>> updated = new ArrayList<Versioned<V>>(items == null ? 1
+                                                                                  : items.size() + 1);
+            if(items != null) {
+                for(Versioned<V> versioned: items) {
+                    Occurred occurred = value.getVersion().compare(versioned.getVersion());
+                    if(occurred == Occurred.BEFORE) {
+                        throw new ObsoleteVersionException("Obsolete version for key '" + key
+                                                           + "': " + value.getVersion());
+                    } else if(occurred != Occurred.AFTER) {
+                        updated.add(versioned);
+                    }
+                }
             }
+            updated.add(value);
+            if(swap(key, items, updated))
+                return;
         }
-        items.removeAll(itemsToRemove);
-        items.add(value);
-        map.put(key, items);
     }
 
     @Override
-    public synchronized List<Versioned<V>> multiVersionPut(K key, final List<Versioned<V>> values) {
+    public List<Versioned<V>> multiVersionPut(K key, final List<Versioned<V>> values) {
         StoreUtils.assertValidKey(key);
-        List<Versioned<V>> obsoleteVals = null;
-        List<Versioned<V>> valuesInStorage = null;
-        valuesInStorage = map.get(key);
-        if(valuesInStorage == null) {
-            valuesInStorage = new ArrayList<Versioned<V>>(values.size());
+        while(true) {
+            List<Versioned<V>> items = map.get(key);
+            List<Versioned<V>> valuesInStorage = items == null ? new ArrayList<Versioned<V>>(values.size())
+                                                              : new ArrayList<Versioned<V>>(items);
+            List<Versioned<V>> obsoleteVals = resolveAndConstructVersionsToPersist(valuesInStorage,
+                                                                                   values);
+            if(swap(key, items, valuesInStorage))
+                return obsoleteVals;
         }
-        obsoleteVals = resolveAndConstructVersionsToPersist(valuesInStorage, values);
-        map.put(key, valuesInStorage);
-        return obsoleteVals;
+    }
+
+    /**
+     * Replaces the versions of a key, if they are still the ones the new
+     * versions were worked out from
+     */
+    private boolean swap(K key, List<Versioned<V>> expected, List<Versioned<V>> updated) {
+        if(expected == null)
+            return map.putIfAbsent(key, updated) == null;
+        return map.replace(key, expected, updated);
     }
 
     @Override
     public ClosableIterator<Pair<K, Versioned<V>>> entries() {
-        return new InMemoryIterator<K, V, T>(map, this);
+        return new InMemoryIterator<K, V, T>(map);
     }
 
     @Override
@@ -183,7 +197,7 @@ public class InMemoryStorageEngine<K, V, T> extends AbstractStorageEngine<K, V,
     }
 
     @Override
-    public synchronized void truncate() {
+    public void truncate() {
         map.clear();
     }
 
@@ -221,12 +235,9 @@ public class InMemoryStorageEngine<K, V, T> extends AbstractStorageEngine<K, V,
         private final Iterator<Entry<K, List<Versioned<V>>>> iterator;
         private K currentKey;
         private Iterator<Versioned<V>> currentValues;
-        private InMemoryStorageEngine<K, V, T> inMemoryStorageEngine;
 
-        public InMemoryIterator(ConcurrentMap<K, List<Versioned<V>>> map,
-                                InMemoryStorageEngine<K, V, T> inMemoryStorageEngine) {
+        public InMemoryIterator(ConcurrentMap<K, List<Versioned<V>>> map) {
             this.iterator = map.entrySet().iterator();
-            this.inMemoryStorageEngine = inMemoryStorageEngine;
         }
 
         @Override
@@ -254,16 +265,13 @@ public class InMemoryStorageEngine<K, V, T> extends AbstractStorageEngine<K, V,
                     Entry<K, List<Versioned<V>>> entry = iterator.next();
 
                     List<Versioned<V>> list = entry.getValue();
-                    synchronized(this.inMemoryStorageEngine) {
-                        // okay we may have gotten an empty list, if so try
-                        // again
-                        if(list.size() == 0)
-                            continue;
-
-                        // grab a snapshot of the list while we have exclusive
-                        // access
-                        currentValues = new ArrayList<Versioned<V>>(list).iterator();
-                    }
+                    // okay we may have gotten an empty list, if so try again
+                    if(list.size() == 0)
+                        continue;
+
+                    // the list is never changed once in the map, so it is a
+                    // snapshot already
+                    currentValues = list.iterator();
                     currentKey = entry.getKey();
                     return nextInCurrentValues();
                 }
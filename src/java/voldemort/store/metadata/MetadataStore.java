@@ -41,6 +41,7 @@ import voldemort.cluster.Cluster;
 import voldemort.routing.RouteToAllStrategy;
 import voldemort.routing.RoutingStrategy;
 import voldemort.routing.RoutingStrategyFactory;
+import voldemort.server.rebalance.RebalanceCheckpoints;
 import voldemort.server.rebalance.RebalancerState;
 import voldemort.store.AbstractStorageEngine;
 import voldemort.store.Store;
@@ -80,6 +81,7 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
     public static final String REBALANCING_STEAL_INFO = "rebalancing.steal.info.key";
     public static final String REBALANCING_SOURCE_CLUSTER_XML = "rebalancing.source.cluster.xml";
     public static final String REBALANCING_SOURCE_STORES_XML = "rebalancing.source.stores.xml";
+    public static final String REBALANCING_CHECKPOINTS = "rebalancing.checkpoints";
 
     public static final Set<String> GOSSIP_KEYS = ImmutableSet.of(CLUSTER_KEY, STORES_KEY);
 
@@ -89,7 +91,8 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
                                                                     NODE_ID_KEY,
                                                                     REBALANCING_STEAL_INFO,
                                                                     REBALANCING_SOURCE_CLUSTER_XML,
-                                                                    REBALANCING_SOURCE_STORES_XML);
+                                                                    REBALANCING_SOURCE_STORES_XML,
+                                                                    REBALANCING_CHECKPOINTS);
 
     public static final Set<Object> METADATA_KEYS = ImmutableSet.builder()
                                                                 .addAll(REQUIRED_KEYS)
@@ -462,6 +465,16 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
         }
     }
 
+    public RebalanceCheckpoints getRebalanceCheckpoints() {
+        // acquire read lock
+        readLock.lock();
+        try {
+            return (RebalanceCheckpoints) metadataCache.get(REBALANCING_CHECKPOINTS).getValue();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     /*
      * First check in the map of regular stores. If not present, check in the
      * system stores map.
@@ -613,6 +626,50 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
         }
     }
 
+    /**
+     * Records how far the copy of the partitions of a store from or to another
+     * node has come
+     * 
+     * @param nodeId The node partitions are copied from or to
+     * @param storeName The store
+     * @param lastKeys Map of partition id to the last key copied
+     */
+    public void putRebalanceCheckpoints(int nodeId,
+                                        String storeName,
+                                        Map<Integer, ByteArray> lastKeys) {
+        // acquire write lock
+        writeLock.lock();
+        try {
+            RebalanceCheckpoints checkpoints = getRebalanceCheckpoints();
+            checkpoints.put(nodeId, storeName, lastKeys);
+            put(REBALANCING_CHECKPOINTS, checkpoints);
+            initCache(REBALANCING_CHECKPOINTS);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Forgets how far the copy of the partitions of a store from or to another
+     * node had come, once it is done
+     * 
+     * @param nodeId The node partitions were copied from or to
+     * @param storeName The store
+     */
+    public void deleteRebalanceCheckpoints(int nodeId, String storeName) {
+        // acquire write lock
+        writeLock.lock();
+        try {
+            RebalanceCheckpoints checkpoints = getRebalanceCheckpoints();
+            if(checkpoints.remove(nodeId, storeName)) {
+                put(REBALANCING_CHECKPOINTS, checkpoints);
+                initCache(REBALANCING_CHECKPOINTS);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     @Override
     public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries() {
         throw new VoldemortException("You cannot iterate over all entries in Metadata");
@@ -686,6 +743,7 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
         initCache(SERVER_STATE_KEY, VoldemortState.NORMAL_SERVER.toString());
         initCache(REBALANCING_SOURCE_CLUSTER_XML, null);
         initCache(REBALANCING_SOURCE_STORES_XML, null);
+        initCache(REBALANCING_CHECKPOINTS, new RebalanceCheckpoints());
 
         // set transient values
         updateRoutingStrategies(getCluster(), getStoreDefList());
@@ -757,6 +815,9 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
             if(value.getValue() != null) {
                 valueStr = storeMapper.writeStoreList((List<StoreDefinition>) value.getValue());
             }
+        } else if(REBALANCING_CHECKPOINTS.equals(key)) {
+            RebalanceCheckpoints checkpoints = (RebalanceCheckpoints) value.getValue();
+            valueStr = checkpoints.toJsonString();
         } else {
             throw new VoldemortException("Unhandled key:'" + key
                                          + "' for Object to String serialization.");
@@ -801,6 +862,8 @@ public class MetadataStore extends AbstractStorageEngine<ByteArray, byte[], byte
             if(value.getValue() != null && value.getValue().length() > 0) {
                 valueObject = storeMapper.readStoreList(new StringReader(value.getValue()));
             }
+        } else if(REBALANCING_CHECKPOINTS.equals(key)) {
+            valueObject = RebalanceCheckpoints.create(value.getValue());
         } else {
             throw new VoldemortException("Unhandled key:'" + key
                                          + "' for String to Object serialization.");
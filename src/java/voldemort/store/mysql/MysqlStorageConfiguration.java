@@ -65,4 +65,6 @@ public class MysqlStorageConfiguration implements StorageConfiguration {
         throw new VoldemortException("Storage config updates not permitted for "
                                      + this.getClass().getCanonicalName());
     }
+
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine) {}
 }
@@ -13,6 +13,23 @@ import voldemort.utils.ByteUtils;
 public class BinarySearchStrategy implements SearchStrategy {
 
     public int indexOf(ByteBuffer index, byte[] key, int indexFileSize) {
+        int entry = entryOf(index, key, indexFileSize);
+        if(entry < 0)
+            return -1;
+        // return the location stored in the entry
+        index.position(entry * (ReadOnlyUtils.POSITION_SIZE + key.length) + key.length);
+        return index.getInt();
+    }
+
+    /**
+     * Find the number of the index entry holding the key
+     * 
+     * @param index The index buffer
+     * @param key The key to search for
+     * @param indexFileSize The size of the index
+     * @return The number of the entry, if the key is found, else -1
+     */
+    public int entryOf(ByteBuffer index, byte[] key, int indexFileSize) {
         byte[] keyBuffer = new byte[key.length];
         int indexSize = ReadOnlyUtils.POSITION_SIZE + key.length;
         int low = 0;
@@ -22,9 +39,8 @@ public class BinarySearchStrategy implements SearchStrategy {
             ReadOnlyUtils.readKey(index, mid * indexSize, keyBuffer);
             int cmp = ByteUtils.compare(keyBuffer, key);
             if(cmp == 0) {
-                // they are equal, return the location stored here
-                index.position(mid * indexSize + key.length);
-                return index.getInt();
+                // they are equal
+                return mid;
             } else if(cmp > 0) {
                 // midVal is bigger
                 high = mid - 1;
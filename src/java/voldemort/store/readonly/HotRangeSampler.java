@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.readonly;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Samples the reads served by a read-only store and counts how often every
+ * range of its index and data files is hit, so that only the hottest ranges
+ * need to be locked in memory.
+ *
+ * One in every <code>sampleRate</code> reads is recorded. Files are split in
+ * ranges of <code>rangeSize</code> bytes, a multiple of the page size, so that
+ * a range can be mapped and locked on its own. Counts are halved on every
+ * {@link #decay()} so that the ranges follow the current traffic.
+ *
+ */
+public class HotRangeSampler {
+
+    public static final int DEFAULT_RANGE_SIZE = 1024 * 1024;
+
+    private final int sampleRate;
+    private final int rangeSize;
+    private final ConcurrentMap<Range, AtomicLong> counts;
+
+    /*
+     * Not synchronized, lost increments only skew which reads get sampled
+     */
+    private int requests = 0;
+
+    /**
+     * @param sampleRate Record one in this many reads
+     * @param rangeSize Size of a range in bytes, a multiple of the page size
+     */
+    public HotRangeSampler(int sampleRate, int rangeSize) {
+        if(sampleRate <= 0)
+            throw new IllegalArgumentException("Sample rate should be greater than 0, but is "
+                                               + sampleRate);
+        if(rangeSize <= 0 || rangeSize % 4096 != 0)
+            throw new IllegalArgumentException("Range size should be a positive multiple of 4096, but is "
+                                               + rangeSize);
+        this.sampleRate = sampleRate;
+        this.rangeSize = rangeSize;
+        this.counts = new ConcurrentHashMap<Range, AtomicLong>();
+    }
+
+    /**
+     * @return true if the current read should be recorded
+     */
+    public boolean shouldSample() {
+        return ++requests % sampleRate == 0;
+    }
+
+    /**
+     * Record a read
+     *
+     * @param chunk The chunk id
+     * @param indexOffset Offset of the index entry read, or -1 if unknown
+     * @param dataOffset Offset of the value read, or -1 if unknown
+     */
+    public void record(int chunk, long indexOffset, long dataOffset) {
+        if(indexOffset >= 0)
+            increment(new Range(true, chunk, indexOffset / rangeSize * rangeSize, rangeSize));
+        if(dataOffset >= 0)
+            increment(new Range(false, chunk, dataOffset / rangeSize * rangeSize, rangeSize));
+    }
+
+    private void increment(Range range) {
+        AtomicLong count = counts.get(range);
+        if(count == null) {
+            AtomicLong newCount = new AtomicLong();
+            count = counts.putIfAbsent(range, newCount);
+            if(count == null)
+                count = newCount;
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * @param budgetBytes Number of bytes the ranges may cover
+     * @return The most read ranges, hottest first, covering at most
+     *         <code>budgetBytes</code>
+     */
+    public List<Range> getHottestRanges(long budgetBytes) {
+        List<Range> hottest = Lists.newArrayList();
+        long covered = 0;
+        for(Map.Entry<Range, Long> entry: getSortedCounts()) {
+            if(covered + rangeSize > budgetBytes)
+                break;
+            hottest.add(entry.getKey());
+            covered += rangeSize;
+        }
+        return hottest;
+    }
+
+    /**
+     * Halve every count and forget the ranges no longer read
+     */
+    public void decay() {
+        Iterator<Map.Entry<Range, AtomicLong>> iterator = counts.entrySet().iterator();
+        while(iterator.hasNext()) {
+            AtomicLong count = iterator.next().getValue();
+            long current;
+            do {
+                current = count.get();
+            } while(!count.compareAndSet(current, current / 2));
+            if(current / 2 == 0)
+                iterator.remove();
+        }
+    }
+
+    /**
+     * Forget every count, called when the files are swapped
+     */
+    public void clear() {
+        counts.clear();
+    }
+
+    /**
+     * @param maxRanges Number of ranges to include
+     * @return A string representation of the sample counts of the hottest
+     *         ranges
+     */
+    public String getHistogram(int maxRanges) {
+        StringBuilder builder = new StringBuilder();
+        int ranges = 0;
+        for(Map.Entry<Range, Long> entry: getSortedCounts()) {
+            if(ranges++ == maxRanges)
+                break;
+            builder.append(entry.getKey() + " - " + entry.getValue() + ", ");
+        }
+        return builder.toString();
+    }
+
+    private List<Map.Entry<Range, Long>> getSortedCounts() {
+        List<Map.Entry<Range, Long>> sorted = Lists.newArrayList();
+        for(Map.Entry<Range, AtomicLong> entry: counts.entrySet()) {
+            long count = entry.getValue().get();
+            if(count > 0)
+                sorted.add(new AbstractMap.SimpleImmutableEntry<Range, Long>(entry.getKey(), count));
+        }
+        Collections.sort(sorted, new Comparator<Map.Entry<Range, Long>>() {
+
+            public int compare(Map.Entry<Range, Long> first, Map.Entry<Range, Long> second) {
+                return second.getValue().compareTo(first.getValue());
+            }
+        });
+        return sorted;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getRangeSize() {
+        return rangeSize;
+    }
+
+    /**
+     * A range of the index or data file of a chunk
+     */
+    public static class Range {
+
+        private final boolean index;
+        private final int chunk;
+        private final long offset;
+        private final int length;
+
+        public Range(boolean index, int chunk, long offset, int length) {
+            this.index = index;
+            this.chunk = chunk;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public boolean isIndex() {
+            return index;
+        }
+
+        public int getChunk() {
+            return chunk;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o)
+                return true;
+            if(!(o instanceof Range))
+                return false;
+            Range range = (Range) o;
+            return index == range.index && chunk == range.chunk && offset == range.offset
+                   && length == range.length;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = index ? 1 : 0;
+            result = 31 * result + chunk;
+            result = 31 * result + (int) (offset ^ (offset >>> 32));
+            result = 31 * result + length;
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return (index ? "index" : "data") + " " + chunk + " [" + offset + ", "
+                   + (offset + length) + ")";
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.readonly;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import voldemort.VoldemortException;
+import voldemort.utils.ByteUtils;
+
+/**
+ * A Bloom filter over the key hashes stored in a read-only index file, used by
+ * {@link ReadOnlyStorageFormat#READONLY_V3} to answer lookups for absent keys
+ * without searching the index.
+ *
+ * The filter is laid out as a 4 byte number of hash functions, an 8 byte
+ * number of bits and then the bit array, so that the file written by
+ * {@link #writeTo(OutputStream)} can be memory mapped and used as is.
+ *
+ */
+public class IndexBloomFilter {
+
+    public static final String FILE_EXTENSION = ".bloom";
+
+    public static final int DEFAULT_BITS_PER_KEY = 10;
+
+    private static final int HEADER_SIZE = ByteUtils.SIZE_OF_INT + ByteUtils.SIZE_OF_LONG;
+
+    private final ByteBuffer buffer;
+    private final int numHashes;
+    private final long numBits;
+
+    /**
+     * Create an empty filter sized for the given number of keys
+     *
+     * @param numKeys Number of keys which will be added
+     * @param bitsPerKey Number of bits to use per key
+     */
+    public IndexBloomFilter(int numKeys, int bitsPerKey) {
+        if(bitsPerKey <= 0)
+            throw new IllegalArgumentException("Bits per key should be greater than 0, but is "
+                                               + bitsPerKey);
+        long numBytes = Math.max(1L, ((long) numKeys * bitsPerKey + 7) / 8);
+        if(numBytes + HEADER_SIZE > Integer.MAX_VALUE)
+            throw new VoldemortException("Bloom filter for " + numKeys + " keys exceeds "
+                                         + Integer.MAX_VALUE + " bytes.");
+        this.numHashes = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+        this.numBits = numBytes * 8;
+        this.buffer = ByteBuffer.allocate((int) (numBytes + HEADER_SIZE));
+        this.buffer.putInt(0, numHashes);
+        this.buffer.putLong(ByteUtils.SIZE_OF_INT, numBits);
+    }
+
+    /**
+     * Wrap a filter previously written with {@link #writeTo(OutputStream)}
+     *
+     * @param buffer The buffer, usually a mapped bloom file
+     */
+    public IndexBloomFilter(ByteBuffer buffer) {
+        if(buffer.limit() < HEADER_SIZE)
+            throw new VoldemortException("Invalid bloom filter, size " + buffer.limit()
+                                         + " is smaller than the header");
+        this.buffer = buffer;
+        this.numHashes = buffer.getInt(0);
+        this.numBits = buffer.getLong(ByteUtils.SIZE_OF_INT);
+        if(numHashes <= 0 || numBits <= 0 || HEADER_SIZE + numBits / 8 != buffer.limit())
+            throw new VoldemortException("Invalid bloom filter with " + numHashes
+                                         + " hash functions and " + numBits + " bits in "
+                                         + buffer.limit() + " bytes");
+    }
+
+    /**
+     * Build a filter out of an index file stream
+     *
+     * @param index Stream over the index file
+     * @param indexFileSize Size of the index file
+     * @param keyHashSize Size of the key hash stored in the index
+     * @param bitsPerKey Number of bits to use per key
+     * @return The filter containing every key hash of the index
+     * @throws IOException
+     */
+    public static IndexBloomFilter fromIndex(InputStream index,
+                                             long indexFileSize,
+                                             int keyHashSize,
+                                             int bitsPerKey) throws IOException {
+        int entrySize = keyHashSize + ReadOnlyUtils.POSITION_SIZE;
+        if(indexFileSize % entrySize != 0)
+            throw new VoldemortException("Invalid index file, file length must be a multiple of "
+                                         + entrySize + " but is " + indexFileSize + " bytes.");
+        int numKeys = (int) (indexFileSize / entrySize);
+        IndexBloomFilter filter = new IndexBloomFilter(numKeys, bitsPerKey);
+        DataInputStream input = new DataInputStream(index);
+        byte[] entry = new byte[entrySize];
+        try {
+            for(int i = 0; i < numKeys; i++) {
+                input.readFully(entry);
+                filter.add(entry);
+            }
+        } catch(EOFException e) {
+            throw new VoldemortException("Index file ended before " + numKeys + " entries", e);
+        }
+        return filter;
+    }
+
+    /**
+     * Add a key hash. Only the leading 8 bytes of the hash are used.
+     *
+     * @param keyHash The key in the format stored in the index
+     */
+    public void add(byte[] keyHash) {
+        long hash = hash(keyHash);
+        long h1 = hash & 0xffffffffL;
+        long h2 = hash >>> 32;
+        for(int i = 0; i < numHashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+            int offset = HEADER_SIZE + (int) (bit >>> 3);
+            buffer.put(offset, (byte) (buffer.get(offset) | (1 << (bit & 7))));
+        }
+    }
+
+    /**
+     * @param keyHash The key in the format stored in the index
+     * @return false if the key hash was definitely never added, else true
+     */
+    public boolean mightContain(byte[] keyHash) {
+        long hash = hash(keyHash);
+        long h1 = hash & 0xffffffffL;
+        long h2 = hash >>> 32;
+        for(int i = 0; i < numHashes; i++) {
+            long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+            if((buffer.get(HEADER_SIZE + (int) (bit >>> 3)) & (1 << (bit & 7))) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Write the filter in the format understood by
+     * {@link #IndexBloomFilter(ByteBuffer)}
+     *
+     * @param output The stream to write to
+     * @throws IOException
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.clear();
+        byte[] bytes = new byte[duplicate.limit()];
+        duplicate.get(bytes);
+        output.write(bytes);
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    public long getNumBits() {
+        return numBits;
+    }
+
+    /*
+     * The index key hash is a prefix of the md5 of the key, whose leading
+     * bytes also pick the chunk. Mix all 8 bytes so that keys of one chunk
+     * spread over the whole filter.
+     */
+    private static long hash(byte[] keyHash) {
+        long h = ByteUtils.readLong(keyHash, 0);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -16,12 +16,14 @@
 
 package voldemort.store.readonly;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
@@ -55,6 +57,7 @@ import voldemort.serialization.json.JsonReader;
 import voldemort.store.StoreDefinition;
 import voldemort.store.compress.CompressionStrategy;
 import voldemort.store.compress.CompressionStrategyFactory;
+import voldemort.store.readonly.chunk.CompressedDataFileChunk;
 import voldemort.utils.ByteUtils;
 import voldemort.utils.ClusterUtils;
 import voldemort.utils.CmdUtils;
@@ -159,7 +162,8 @@ public class JsonStoreBuilder {
         parser.accepts("format",
                        "read-only store format [" + ReadOnlyStorageFormat.READONLY_V0.getCode()
                                + "," + ReadOnlyStorageFormat.READONLY_V1.getCode() + ","
-                               + ReadOnlyStorageFormat.READONLY_V2.getCode() + "]")
+                               + ReadOnlyStorageFormat.READONLY_V2.getCode() + ","
+                               + ReadOnlyStorageFormat.READONLY_V3.getCode() + "]")
               .withRequiredArg()
               .ofType(String.class);
         OptionSet options = parser.parse(args);
@@ -249,6 +253,10 @@ public class JsonStoreBuilder {
                 buildVersion2();
                 break;
 
+            case READONLY_V3:
+                buildVersion2(ReadOnlyStorageFormat.READONLY_V3);
+                break;
+
             default:
                 throw new VoldemortException("Invalid storage format " + type);
         }
@@ -418,11 +426,21 @@ public class JsonStoreBuilder {
     }
 
     public void buildVersion2() throws IOException {
+        buildVersion2(ReadOnlyStorageFormat.READONLY_V2);
+    }
+
+    /**
+     * Builds the replica chunks with keys layout, which is shared by
+     * {@link ReadOnlyStorageFormat#READONLY_V2} and
+     * {@link ReadOnlyStorageFormat#READONLY_V3}. The latter additionally gets
+     * a bloom filter file per chunk. If the store definition has a read-only
+     * compression, the data files are block compressed.
+     */
+    private void buildVersion2(ReadOnlyStorageFormat format) throws IOException {
         logger.info("Building store " + storeDefinition.getName() + " for "
                     + cluster.getNumberOfPartitions() + " partitions, "
                     + storeDefinition.getReplicationFactor() + " replica types, " + numChunks
-                    + " chunks per partitions per replica type and type "
-                    + ReadOnlyStorageFormat.READONLY_V2);
+                    + " chunks per partitions per replica type and type " + format);
 
         // Initialize files
         DataOutputStream[][] indexes = new DataOutputStream[cluster.getNumberOfPartitions()][];
@@ -570,8 +588,10 @@ public class JsonStoreBuilder {
             // Create metadata file
             BufferedWriter writer = new BufferedWriter(new FileWriter(new File(nodeDir, ".metadata")));
             ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
-            metadata.add(ReadOnlyStorageMetadata.FORMAT,
-                         ReadOnlyStorageFormat.READONLY_V2.getCode());
+            metadata.add(ReadOnlyStorageMetadata.FORMAT, format.getCode());
+            if(storeDefinition.hasReadOnlyCompression())
+                metadata.add(ReadOnlyStorageMetadata.COMPRESSION,
+                             storeDefinition.getReadOnlyCompression().getType());
             writer.write(metadata.toJsonString());
             writer.close();
 
@@ -586,13 +606,64 @@ public class JsonStoreBuilder {
             }
         }
 
+        // Generate a bloom filter for every index file
+        if(format == ReadOnlyStorageFormat.READONLY_V3) {
+            for(File file: tempDirectory.listFiles()) {
+                String fileName = file.getName();
+                if(fileName.endsWith(".index")) {
+                    File bloomFile = new File(tempDirectory, fileName.substring(0,
+                                                                                fileName.length()
+                                                                                        - ".index".length())
+                                                             + IndexBloomFilter.FILE_EXTENSION);
+                    BufferedInputStream input = new BufferedInputStream(new FileInputStream(file),
+                                                                        ioBufferSize);
+                    BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(bloomFile),
+                                                                           ioBufferSize);
+                    try {
+                        IndexBloomFilter.fromIndex(input,
+                                                   file.length(),
+                                                   2 * ByteUtils.SIZE_OF_INT,
+                                                   IndexBloomFilter.DEFAULT_BITS_PER_KEY)
+                                        .writeTo(output);
+                    } finally {
+                        input.close();
+                        output.close();
+                    }
+                }
+            }
+        }
+
+        // Compress every data file in blocks
+        if(storeDefinition.hasReadOnlyCompression()) {
+            CompressionStrategy compressionStrategy = new CompressionStrategyFactory().get(storeDefinition.getReadOnlyCompression());
+            for(File file: tempDirectory.listFiles()) {
+                if(file.getName().endsWith(".data")) {
+                    File compressedFile = new File(tempDirectory, file.getName() + ".compressed");
+                    BufferedInputStream input = new BufferedInputStream(new FileInputStream(file),
+                                                                        ioBufferSize);
+                    BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(compressedFile),
+                                                                           ioBufferSize);
+                    try {
+                        CompressedDataFileChunk.compress(input,
+                                                         output,
+                                                         compressionStrategy,
+                                                         CompressedDataFileChunk.DEFAULT_BLOCK_SIZE);
+                    } finally {
+                        input.close();
+                        output.close();
+                    }
+                    Utils.move(compressedFile, file);
+                }
+            }
+        }
+
         // Start moving files over to their correct node
         RoutingStrategy strategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDefinition,
                                                                                       cluster);
         Map<Integer, Integer> replicaMapping = ClusterUtils.getCurrentPartitionMapping(cluster);
         for(File file: tempDirectory.listFiles()) {
             String fileName = file.getName();
-            if(fileName.matches("^[\\d]+_[\\d]+_[\\d]+\\.(data|index)")) {
+            if(ReadOnlyUtils.isFormatCorrect(fileName, format)) {
                 String[] props = fileName.split("_");
                 int partitionId = Integer.parseInt(props[0]);
                 int replicaType = Integer.parseInt(props[1]);
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.readonly;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import voldemort.store.readonly.io.Native;
+import voldemort.store.readonly.io.jna.fcntl;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Pulls the files of a fetched read-only version into the OS page cache before
+ * it is swapped in, so that the first requests served by the new version do
+ * not all go to disk.
+ *
+ * Index and bloom filter files are warmed fully, data files share a byte
+ * budget in proportion to their size. Every file is first advised with
+ * <code>posix_fadvise(WILLNEED)</code>, where available, and then read
+ * sequentially. Warmup stops when the timeout expires.
+ *
+ */
+public class PageCacheWarmer {
+
+    private static final Logger logger = Logger.getLogger(PageCacheWarmer.class);
+
+    private static volatile boolean fadviseAvailable = true;
+
+    private final long dataBudgetBytes;
+    private final long timeoutMs;
+    private final int bufferSize;
+
+    private volatile long bytesToWarm = 0;
+    private volatile long bytesWarmed = 0;
+
+    /**
+     * @param dataBudgetBytes Number of bytes of the data files to warm
+     * @param timeoutMs Time after which warmup gives up
+     * @param bufferSize Size of the buffer used for reading
+     */
+    public PageCacheWarmer(long dataBudgetBytes, long timeoutMs, int bufferSize) {
+        if(timeoutMs <= 0)
+            throw new IllegalArgumentException("Warmup timeout should be greater than 0, but is "
+                                               + timeoutMs);
+        this.dataBudgetBytes = dataBudgetBytes;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Warm the files of the given version directory
+     *
+     * @param versionDir The version directory
+     * @return true if everything was warmed, false if the timeout expired
+     */
+    public synchronized boolean warmup(File versionDir) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        List<File> indexFiles = Lists.newArrayList();
+        List<File> dataFiles = Lists.newArrayList();
+        long totalDataBytes = 0;
+        File[] files = versionDir.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                String name = file.getName();
+                if(name.endsWith(".index") || name.endsWith(IndexBloomFilter.FILE_EXTENSION)) {
+                    indexFiles.add(file);
+                } else if(name.endsWith(".data")) {
+                    dataFiles.add(file);
+                    totalDataBytes += file.length();
+                }
+            }
+        }
+
+        // Every data file gets its share of the budget
+        double dataFraction = totalDataBytes == 0 ? 0
+                                                 : Math.min(1.0, dataBudgetBytes
+                                                                 / (double) totalDataBytes);
+        long toWarm = 0;
+        for(File indexFile: indexFiles)
+            toWarm += indexFile.length();
+        for(File dataFile: dataFiles)
+            toWarm += (long) (dataFile.length() * dataFraction);
+        this.bytesToWarm = toWarm;
+        this.bytesWarmed = 0;
+
+        logger.info("Warming up " + toWarm + " bytes of " + versionDir.getAbsolutePath() + " ("
+                    + indexFiles.size() + " index files, " + dataFiles.size() + " data files)");
+        long start = System.currentTimeMillis();
+        boolean complete = true;
+        try {
+            for(File indexFile: indexFiles) {
+                if(!warmup(indexFile, indexFile.length(), deadline)) {
+                    complete = false;
+                    break;
+                }
+            }
+            for(int i = 0; complete && i < dataFiles.size(); i++) {
+                File dataFile = dataFiles.get(i);
+                if(!warmup(dataFile, (long) (dataFile.length() * dataFraction), deadline))
+                    complete = false;
+            }
+        } catch(IOException e) {
+            logger.warn("Error warming up " + versionDir.getAbsolutePath(), e);
+            complete = false;
+        }
+
+        if(complete)
+            logger.info("Warmed up " + bytesWarmed + " bytes of " + versionDir.getAbsolutePath()
+                        + " in " + (System.currentTimeMillis() - start) + " ms");
+        else
+            logger.warn("Stopped warming up " + versionDir.getAbsolutePath() + " after "
+                        + bytesWarmed + " of " + toWarm + " bytes and "
+                        + (System.currentTimeMillis() - start) + " ms");
+        return complete;
+    }
+
+    private boolean warmup(File file, long length, long deadline) throws IOException {
+        if(length <= 0)
+            return true;
+
+        FileInputStream input = new FileInputStream(file);
+        try {
+            fadviseWillNeed(input, file, length);
+            byte[] buffer = new byte[bufferSize];
+            long remaining = length;
+            while(remaining > 0) {
+                if(System.currentTimeMillis() > deadline)
+                    return false;
+                int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if(read < 0)
+                    break;
+                remaining -= read;
+                bytesWarmed += read;
+            }
+            return true;
+        } finally {
+            input.close();
+        }
+    }
+
+    /*
+     * Lets the kernel start reading ahead of us. Not binding and not available
+     * on every platform, so failures only disable it.
+     */
+    private void fadviseWillNeed(FileInputStream input, File file, long length) {
+        if(!fadviseAvailable)
+            return;
+        try {
+            int fd = Native.getFd(input.getFD());
+            if(fd >= 0)
+                fcntl.posix_fadvise(fd, 0, length, fcntl.POSIX_FADV_WILLNEED);
+        } catch(IOException e) {
+            logger.debug("posix_fadvise failed for " + file, e);
+        } catch(Throwable t) {
+            logger.info("posix_fadvise is not available, warming up with reads only", t);
+            fadviseAvailable = false;
+        }
+    }
+
+    /**
+     * @return Number of bytes the last warmup had to read
+     */
+    public long getBytesToWarm() {
+        return bytesToWarm;
+    }
+
+    /**
+     * @return Number of bytes read so far by the last warmup
+     */
+    public long getBytesWarmed() {
+        return bytesWarmed;
+    }
+
+    /**
+     * @return Fraction of the last warmup completed
+     */
+    public double getProgress() {
+        long toWarm = bytesToWarm;
+        return toWarm == 0 ? 1.0 : Math.min(1.0, bytesWarmed / (double) toWarm);
+    }
+}
@@ -21,10 +21,15 @@ import java.lang.management.ManagementFactory;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
+import org.apache.log4j.Logger;
+
 import voldemort.VoldemortException;
 import voldemort.routing.RoutingStrategy;
 import voldemort.server.VoldemortConfig;
@@ -32,11 +37,14 @@ import voldemort.store.StorageConfiguration;
 import voldemort.store.StorageEngine;
 import voldemort.store.StoreDefinition;
 import voldemort.utils.ByteArray;
+import voldemort.utils.DaemonThreadFactory;
 import voldemort.utils.JmxUtils;
 import voldemort.utils.ReflectUtils;
 
 public class ReadOnlyStorageConfiguration implements StorageConfiguration {
 
+    private static final Logger logger = Logger.getLogger(ReadOnlyStorageConfiguration.class);
+
     public static final String TYPE_NAME = "read-only";
 
     private final int numBackups;
@@ -47,6 +55,10 @@ public class ReadOnlyStorageConfiguration implements StorageConfiguration {
     private RoutingStrategy routingStrategy = null;
     private final int deleteBackupMs;
     private boolean enforceMlock = false;
+    private final int indexSampleInterval;
+    private final long blockCacheSizeInBytes;
+    private final VoldemortConfig config;
+    private ScheduledExecutorService hotRangeLocker = null;
 
     public ReadOnlyStorageConfiguration(VoldemortConfig config) {
         this.storageDir = new File(config.getReadOnlyDataStorageDirectory());
@@ -57,9 +69,16 @@ public class ReadOnlyStorageConfiguration implements StorageConfiguration {
         this.nodeId = config.getNodeId();
         this.deleteBackupMs = config.getReadOnlyDeleteBackupMs();
         this.enforceMlock = config.isUseMlock();
+        this.indexSampleInterval = config.getReadOnlyIndexSampleInterval();
+        this.blockCacheSizeInBytes = config.getReadOnlyBlockCacheSizeInBytes();
+        this.config = config;
     }
 
     public void close() {
+        synchronized(this) {
+            if(hotRangeLocker != null)
+                hotRangeLocker.shutdownNow();
+        }
         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
         for(ObjectName name: registeredBeans)
             JmxUtils.unregisterMbean(server, name);
@@ -80,7 +99,15 @@ public class ReadOnlyStorageConfiguration implements StorageConfiguration {
                                                                          storeDef.getName()),
                                                                 numBackups,
                                                                 deleteBackupMs,
-                                                                enforceMlock);
+                                                                enforceMlock,
+                                                                indexSampleInterval,
+                                                                blockCacheSizeInBytes);
+        if(config.isReadOnlyWarmupEnabled())
+            store.setPageCacheWarmer(new PageCacheWarmer(config.getReadOnlyWarmupDataSizeInBytes(),
+                                                         config.getReadOnlyWarmupTimeoutMs(),
+                                                         config.getFetcherBufferSize()));
+        if(config.getReadOnlyHotSampleRate() > 0)
+            scheduleHotRangeLocking(store);
         ObjectName objName = JmxUtils.createObjectName(JmxUtils.getPackageName(store.getClass()),
                                                        storeDef.getName() + nodeId);
         JmxUtils.registerMbean(ManagementFactory.getPlatformMBeanServer(),
@@ -91,6 +118,25 @@ public class ReadOnlyStorageConfiguration implements StorageConfiguration {
         return store;
     }
 
+    private synchronized void scheduleHotRangeLocking(final ReadOnlyStorageEngine store) {
+        store.setHotRangeSampler(new HotRangeSampler(config.getReadOnlyHotSampleRate(),
+                                                     HotRangeSampler.DEFAULT_RANGE_SIZE),
+                                 config.getReadOnlyHotLockSizeInBytes());
+        if(hotRangeLocker == null)
+            hotRangeLocker = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("voldemort-readonly-hot-range-locker"));
+        long intervalMs = config.getReadOnlyHotLockIntervalMs();
+        hotRangeLocker.scheduleWithFixedDelay(new Runnable() {
+
+            public void run() {
+                try {
+                    store.lockHotRanges();
+                } catch(Throwable t) {
+                    logger.error("Error locking hot ranges of store '" + store.getName() + "'", t);
+                }
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
     public String getType() {
         return TYPE_NAME;
     }
@@ -99,4 +145,6 @@ public class ReadOnlyStorageConfiguration implements StorageConfiguration {
         throw new VoldemortException("Storage config updates not permitted for "
                                      + this.getClass().getCanonicalName());
     }
+
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine) {}
 }
@@ -33,10 +33,15 @@ import voldemort.VoldemortException;
 import voldemort.VoldemortUnsupportedOperationalException;
 import voldemort.annotations.jmx.JmxGetter;
 import voldemort.annotations.jmx.JmxOperation;
+import voldemort.common.nio.FileRegion;
 import voldemort.routing.RoutingStrategy;
 import voldemort.store.AbstractStorageEngine;
+import voldemort.store.FileRegionReader;
+import voldemort.store.StoreCapabilityType;
 import voldemort.store.StoreUtils;
+import voldemort.store.readonly.chunk.BlockCache;
 import voldemort.store.readonly.chunk.ChunkedFileSet;
+import voldemort.store.readonly.chunk.DataFileChunk;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
 import voldemort.utils.ClosableIterator;
@@ -52,10 +57,28 @@ import com.google.common.collect.Lists;
  * 
  * 
  */
-public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte[], byte[]> {
+public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte[], byte[]>
+        implements FileRegionReader {
 
     private static Logger logger = Logger.getLogger(ReadOnlyStorageEngine.class);
 
+    /*
+     * getAll reads the values of a chunk which are at most this far from the
+     * previous one with the same read...
+     */
+    private static final int MAX_COALESCED_GAP_BYTES = 16 * 1024;
+
+    /* ...as long as the read stays below this size... */
+    private static final int MAX_COALESCED_READ_BYTES = 256 * 1024;
+
+    /*
+     * ...plus this much past the last location. Values which do not fit are
+     * read on their own.
+     */
+    private static final int COALESCED_READ_AHEAD_BYTES = 4 * 1024;
+
+    private static final int MAX_HOT_RANGES_REPORTED = 20;
+
     private final int numBackups, nodeId;
     private long currentVersionId;
     private final File storeDir;
@@ -67,6 +90,11 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
     private int deleteBackupMs = 0;
     private long lastSwapped;
     private boolean enforceMlock = false;
+    private int indexSampleInterval = 0;
+    private long blockCacheSizeInBytes = 0;
+    private volatile PageCacheWarmer pageCacheWarmer;
+    private volatile HotRangeSampler hotRangeSampler;
+    private long hotRangeLockSizeInBytes = 0;
 
     /**
      * Create an instance of the store
@@ -121,9 +149,86 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
                                  int numBackups,
                                  int deleteBackupMs,
                                  boolean enforceMlock) {
+        this(name,
+             searchStrategy,
+             routingStrategy,
+             nodeId,
+             storeDir,
+             numBackups,
+             deleteBackupMs,
+             enforceMlock,
+             0);
+    }
+
+    /**
+     * Create an instance of the store
+     * 
+     * @param name The name of the store
+     * @param searchStrategy The algorithm to use for searching for keys
+     * @param routingStrategy The routing strategy used to route keys
+     * @param nodeId Node id
+     * @param storeDir The directory in which the .data and .index files reside
+     * @param numBackups The number of backups of these files to retain
+     * @param deleteBackupMs The time in ms for which we'll wait before we
+     *        delete a backup
+     * @param enforceMlock Whether to mlock the index files
+     * @param indexSampleInterval If greater than 0, the number of index entries
+     *        between two keys of the in-heap sparse index built on open
+     */
+    public ReadOnlyStorageEngine(String name,
+                                 SearchStrategy searchStrategy,
+                                 RoutingStrategy routingStrategy,
+                                 int nodeId,
+                                 File storeDir,
+                                 int numBackups,
+                                 int deleteBackupMs,
+                                 boolean enforceMlock,
+                                 int indexSampleInterval) {
+        this(name,
+             searchStrategy,
+             routingStrategy,
+             nodeId,
+             storeDir,
+             numBackups,
+             deleteBackupMs,
+             enforceMlock,
+             indexSampleInterval,
+             0);
+    }
+
+    /**
+     * Create an instance of the store
+     * 
+     * @param name The name of the store
+     * @param searchStrategy The algorithm to use for searching for keys
+     * @param routingStrategy The routing strategy used to route keys
+     * @param nodeId Node id
+     * @param storeDir The directory in which the .data and .index files reside
+     * @param numBackups The number of backups of these files to retain
+     * @param deleteBackupMs The time in ms for which we'll wait before we
+     *        delete a backup
+     * @param enforceMlock Whether to mlock the index files
+     * @param indexSampleInterval If greater than 0, the number of index entries
+     *        between two keys of the in-heap sparse index built on open
+     * @param blockCacheSizeInBytes If greater than 0, the number of bytes of
+     *        decompressed blocks cached for versions with compressed data
+     *        files
+     */
+    public ReadOnlyStorageEngine(String name,
+                                 SearchStrategy searchStrategy,
+                                 RoutingStrategy routingStrategy,
+                                 int nodeId,
+                                 File storeDir,
+                                 int numBackups,
+                                 int deleteBackupMs,
+                                 boolean enforceMlock,
+                                 int indexSampleInterval,
+                                 long blockCacheSizeInBytes) {
 
         super(name);
         this.enforceMlock = enforceMlock;
+        this.indexSampleInterval = indexSampleInterval;
+        this.blockCacheSizeInBytes = blockCacheSizeInBytes;
         this.storeDir = storeDir;
         this.numBackups = numBackups;
         this.searchStrategy = searchStrategy;
@@ -163,6 +268,100 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
         return builder.toString();
     }
 
+    /**
+     * Returns the number of bytes held in heap by the sparse index
+     * 
+     * @return Size of the sparse index in bytes, or 0 if the store is closed
+     */
+    @JmxGetter(name = "sparseIndexSizeInBytes", description = "Number of bytes held in heap by the sparse index of the current version")
+    public long getSparseIndexSizeInBytes() {
+        ChunkedFileSet currentFileSet = fileSet;
+        if(!isOpen || currentFileSet == null)
+            return 0;
+        return currentFileSet.getSparseIndexSizeInBytes();
+    }
+
+    /**
+     * Set the warmer run on a new version before it is swapped in
+     * 
+     * @param pageCacheWarmer The warmer, or null to swap in cold versions
+     */
+    public void setPageCacheWarmer(PageCacheWarmer pageCacheWarmer) {
+        this.pageCacheWarmer = pageCacheWarmer;
+    }
+
+    @JmxGetter(name = "warmupProgress", description = "Fraction of the last warmup before swap completed")
+    public double getWarmupProgress() {
+        PageCacheWarmer warmer = pageCacheWarmer;
+        return warmer == null ? 0 : warmer.getProgress();
+    }
+
+    @JmxGetter(name = "warmupBytesWarmed", description = "Number of bytes read by the last warmup before swap")
+    public long getWarmupBytesWarmed() {
+        PageCacheWarmer warmer = pageCacheWarmer;
+        return warmer == null ? 0 : warmer.getBytesWarmed();
+    }
+
+    /**
+     * Sample reads with the given sampler, and lock the hottest ranges sampled
+     * on every call to {@link #lockHotRanges()}
+     * 
+     * @param hotRangeSampler The sampler, or null to stop sampling
+     * @param hotRangeLockSizeInBytes Number of bytes to lock
+     */
+    public void setHotRangeSampler(HotRangeSampler hotRangeSampler, long hotRangeLockSizeInBytes) {
+        this.hotRangeLockSizeInBytes = hotRangeLockSizeInBytes;
+        this.hotRangeSampler = hotRangeSampler;
+    }
+
+    /**
+     * Lock the hottest ranges of the current version in memory, unlocking the
+     * ranges which have cooled down since the last call
+     */
+    @JmxOperation(description = "Lock the most read ranges of the index and data files in memory")
+    public void lockHotRanges() {
+        HotRangeSampler sampler = hotRangeSampler;
+        if(sampler == null)
+            return;
+        fileModificationLock.readLock().lock();
+        try {
+            if(!isOpen)
+                return;
+            long locked = fileSet.lockRanges(sampler.getHottestRanges(hotRangeLockSizeInBytes));
+            sampler.decay();
+            logger.debug("Locked " + locked + " bytes of hot ranges for store '" + getName() + "'");
+        } finally {
+            fileModificationLock.readLock().unlock();
+        }
+    }
+
+    @JmxGetter(name = "hotRangeHistogram", description = "Sampled reads of the most read ranges of the current version")
+    public String getHotRangeHistogram() {
+        HotRangeSampler sampler = hotRangeSampler;
+        return sampler == null ? "" : sampler.getHistogram(MAX_HOT_RANGES_REPORTED);
+    }
+
+    @JmxGetter(name = "hotRangeLockedBytes", description = "Number of bytes of hot ranges locked in memory")
+    public long getHotRangeLockedBytes() {
+        return fileSet.getLockedBytes();
+    }
+
+    @JmxGetter(name = "blockCacheSizeInBytes", description = "Number of decompressed bytes cached for the current version")
+    public long getBlockCacheSizeInBytes() {
+        BlockCache blockCache = fileSet.getBlockCache();
+        return blockCache == null ? 0 : blockCache.getSizeInBytes();
+    }
+
+    @JmxGetter(name = "blockCacheHitRatio", description = "Fraction of block reads of the current version served by the block cache")
+    public double getBlockCacheHitRatio() {
+        BlockCache blockCache = fileSet.getBlockCache();
+        if(blockCache == null)
+            return 0;
+        long hits = blockCache.getHits();
+        long total = hits + blockCache.getMisses();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
     /**
      * Open the store with the version directory specified. If null is specified
      * we open the directory with the maximum version
@@ -200,7 +399,15 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
                         + versionDir.getAbsolutePath());
             Utils.symlink(versionDir.getAbsolutePath(), storeDir.getAbsolutePath() + File.separator
                                                         + "latest");
-            this.fileSet = new ChunkedFileSet(versionDir, routingStrategy, nodeId, enforceMlock);
+            this.fileSet = new ChunkedFileSet(versionDir,
+                                              routingStrategy,
+                                              nodeId,
+                                              enforceMlock,
+                                              indexSampleInterval,
+                                              blockCacheSizeInBytes);
+            HotRangeSampler sampler = hotRangeSampler;
+            if(sampler != null)
+                sampler.clear();
             this.lastSwapped = System.currentTimeMillis();
             this.isOpen = true;
         } finally {
@@ -328,6 +535,14 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
             return;
         }
 
+        // Delta versions only hold the files which changed
+        ReadOnlyUtils.linkUnchangedFiles(previousVersionDir, newVersionDir);
+
+        // Warm up the new version while the current one keeps serving
+        PageCacheWarmer warmer = pageCacheWarmer;
+        if(warmer != null)
+            warmer.warmup(newVersionDir);
+
         logger.info("Acquiring write lock on '" + getName() + "':");
         fileModificationLock.writeLock().lock();
         boolean success = false;
@@ -465,9 +680,14 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
         }
     }
 
+    private boolean isIterationSupported(ReadOnlyStorageFormat format) {
+        return format == ReadOnlyStorageFormat.READONLY_V2
+               || format == ReadOnlyStorageFormat.READONLY_V3;
+    }
+
     @Override
     public ClosableIterator<ByteArray> keys() {
-        if(!(fileSet.getReadOnlyStorageFormat().compareTo(ReadOnlyStorageFormat.READONLY_V2) == 0))
+        if(!isIterationSupported(fileSet.getReadOnlyStorageFormat()))
             throw new UnsupportedOperationException("Iteration is not supported for "
                                                     + getClass().getName()
                                                     + " with storage format "
@@ -477,7 +697,7 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
 
     @Override
     public ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries() {
-        if(!(fileSet.getReadOnlyStorageFormat().compareTo(ReadOnlyStorageFormat.READONLY_V2) == 0))
+        if(!isIterationSupported(fileSet.getReadOnlyStorageFormat()))
             throw new UnsupportedOperationException("Iteration is not supported for "
                                                     + getClass().getName()
                                                     + " with storage format "
@@ -513,10 +733,12 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
                 logger.warn("Invalid chunk id returned. Either routing strategy is inconsistent or storage format not understood");
                 return Collections.emptyList();
             }
-            int location = searchStrategy.indexOf(fileSet.indexFileFor(chunk),
-                                                  fileSet.keyToStorageFormat(key.get()),
-                                                  fileSet.getIndexFileSize(chunk));
+            byte[] keyHash = fileSet.keyToStorageFormat(key.get());
+            if(!fileSet.mightContain(chunk, keyHash))
+                return Collections.emptyList();
+            int location = fileSet.indexOf(chunk, keyHash, searchStrategy);
             if(location >= 0) {
+                sample(chunk, keyHash, location);
                 byte[] value = fileSet.readValue(key.get(), chunk, location);
                 if(value.length == 0) {
                     return Collections.emptyList();
@@ -531,6 +753,42 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
         }
     }
 
+    /**
+     * Finds the value of a key in the uncompressed data files, to be sent
+     * without being read into the heap. The data files of the current version
+     * stay open until the region is released, even if the version is swapped
+     * out meanwhile.
+     */
+    public FileRegion getFileRegion(ByteArray key) throws VoldemortException {
+        StoreUtils.assertValidKey(key);
+        try {
+            fileModificationLock.readLock().lock();
+            int chunk = fileSet.getChunkForKey(key.get());
+            if(chunk < 0) {
+                logger.warn("Invalid chunk id returned. Either routing strategy is inconsistent or storage format not understood");
+                return new FileRegion(null, 0, 0);
+            }
+            byte[] keyHash = fileSet.keyToStorageFormat(key.get());
+            if(!fileSet.mightContain(chunk, keyHash))
+                return new FileRegion(null, 0, 0);
+            int location = fileSet.indexOf(chunk, keyHash, searchStrategy);
+            if(location < 0)
+                return new FileRegion(null, 0, 0);
+            sample(chunk, keyHash, location);
+            return fileSet.readValueRegion(key.get(), chunk, location);
+        } finally {
+            fileModificationLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Object getCapability(StoreCapabilityType capability) {
+        if(StoreCapabilityType.FILE_REGION_READER.equals(capability))
+            return this;
+        else
+            return super.getCapability(capability);
+    }
+
     @Override
     public Map<ByteArray, List<Versioned<byte[]>>> getAll(Iterable<ByteArray> keys,
                                                           Map<ByteArray, byte[]> transforms)
@@ -542,20 +800,53 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
             List<KeyValueLocation> keysAndValueLocations = Lists.newArrayList();
             for(ByteArray key: keys) {
                 int chunk = fileSet.getChunkForKey(key.get());
-                int valueLocation = searchStrategy.indexOf(fileSet.indexFileFor(chunk),
-                                                           fileSet.keyToStorageFormat(key.get()),
-                                                           fileSet.getIndexFileSize(chunk));
-                if(valueLocation >= 0)
+                byte[] keyHash = fileSet.keyToStorageFormat(key.get());
+                if(!fileSet.mightContain(chunk, keyHash))
+                    continue;
+                int valueLocation = fileSet.indexOf(chunk, keyHash, searchStrategy);
+                if(valueLocation >= 0) {
+                    sample(chunk, keyHash, valueLocation);
                     keysAndValueLocations.add(new KeyValueLocation(chunk, key, valueLocation));
+                }
             }
             Collections.sort(keysAndValueLocations);
 
-            for(KeyValueLocation keyVal: keysAndValueLocations) {
-                byte[] value = fileSet.readValue(keyVal.getKey().get(),
-                                                 keyVal.getChunk(),
-                                                 keyVal.getValueLocation());
-                if(value.length > 0)
-                    results.put(keyVal.getKey(), Collections.singletonList(Versioned.value(value)));
+            int start = 0;
+            while(start < keysAndValueLocations.size()) {
+                // Coalesce nearby locations in the same chunk into one read
+                KeyValueLocation first = keysAndValueLocations.get(start);
+                int end = start + 1;
+                while(end < keysAndValueLocations.size()) {
+                    KeyValueLocation previous = keysAndValueLocations.get(end - 1);
+                    KeyValueLocation next = keysAndValueLocations.get(end);
+                    if(next.getChunk() != first.getChunk()
+                       || next.getValueLocation() - previous.getValueLocation() > MAX_COALESCED_GAP_BYTES
+                       || next.getValueLocation() - first.getValueLocation() > MAX_COALESCED_READ_BYTES)
+                        break;
+                    end++;
+                }
+
+                DataFileChunk dataFile = null;
+                if(end - start > 1) {
+                    int last = keysAndValueLocations.get(end - 1).getValueLocation();
+                    dataFile = fileSet.prefetch(first.getChunk(),
+                                                first.getValueLocation(),
+                                                last - first.getValueLocation()
+                                                        + COALESCED_READ_AHEAD_BYTES);
+                } else {
+                    dataFile = fileSet.dataFileChunkFor(first.getChunk());
+                }
+
+                for(int i = start; i < end; i++) {
+                    KeyValueLocation keyVal = keysAndValueLocations.get(i);
+                    byte[] value = fileSet.readValue(keyVal.getKey().get(),
+                                                     dataFile,
+                                                     keyVal.getValueLocation());
+                    if(value.length > 0)
+                        results.put(keyVal.getKey(),
+                                    Collections.singletonList(Versioned.value(value)));
+                }
+                start = end;
             }
             return results;
         } finally {
@@ -563,6 +854,16 @@ public class ReadOnlyStorageEngine extends AbstractStorageEngine<ByteArray, byte
         }
     }
 
+    /*
+     * Records the index and data ranges touched by one in every few reads. The
+     * index entry is searched again only for the sampled reads.
+     */
+    private void sample(int chunk, byte[] keyHash, int valueLocation) {
+        HotRangeSampler sampler = hotRangeSampler;
+        if(sampler != null && sampler.shouldSample())
+            sampler.record(chunk, fileSet.indexEntryOffset(chunk, keyHash), valueLocation);
+    }
+
     /**
      * Not supported, throws UnsupportedOperationException if called
      */
@@ -21,7 +21,8 @@ package voldemort.store.readonly;
 public enum ReadOnlyStorageFormat {
     READONLY_V0("ro0", "node-chunks-v0"),
     READONLY_V1("ro1", "partition-chunks-v1"),
-    READONLY_V2("ro2", "replica-chunks-with-keys-v2");
+    READONLY_V2("ro2", "replica-chunks-with-keys-v2"),
+    READONLY_V3("ro3", "replica-chunks-with-keys-and-bloom-filters-v3");
 
     private final String code;
     private final String displayName;
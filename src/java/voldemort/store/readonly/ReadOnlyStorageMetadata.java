@@ -19,6 +19,19 @@ public class ReadOnlyStorageMetadata {
     public final static String FORMAT = "format";
     public final static String CHECKSUM_TYPE = "checksum-type";
     public final static String CHECKSUM = "checksum";
+    public final static String COMPRESSION = "compression";
+
+    /**
+     * Checksum of every file of the version, by file name
+     */
+    public final static String FILE_CHECKSUMS = "file-checksums";
+
+    /**
+     * Set on delta versions, which only ship the files that changed since the
+     * version with this checksum. The other files of
+     * {@link #FILE_CHECKSUMS} are linked from that version before swap.
+     */
+    public final static String BASE_CHECKSUM = "base-checksum";
 
     private Map<String, Object> properties;
 
@@ -59,6 +72,15 @@ public class ReadOnlyStorageMetadata {
         properties.put(key, value);
     }
 
+    /**
+     * Records the checksum of every file of the version
+     * 
+     * @param fileCheckSums The hex checksums, by file name
+     */
+    public void addFileChecksums(Map<String, String> fileCheckSums) {
+        properties.put(FILE_CHECKSUMS, fileCheckSums);
+    }
+
     public void remove(String key) {
         properties.remove(key);
     }
@@ -7,6 +7,7 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -59,6 +60,13 @@ public class ReadOnlyUtils {
                     return false;
                 }
 
+            case READONLY_V3:
+                if(fileName.matches("^[\\d]+_[\\d]+_[\\d]+\\.(data|index|bloom)")) {
+                    return true;
+                } else {
+                    return false;
+                }
+
             default:
                 throw new VoldemortException("Format type not supported");
         }
@@ -262,4 +270,63 @@ public class ReadOnlyUtils {
         }
         return returnedFiles;
     }
+
+    /**
+     * Completes a delta version, which only holds the files that changed since
+     * its base version, by hard linking the other files from the base version.
+     * Versions which are not deltas are left as they are.
+     * 
+     * @param baseVersionDir The current version, which the delta must be based
+     *        on
+     * @param versionDir The version to complete
+     * @return Number of files linked
+     */
+    @SuppressWarnings("unchecked")
+    public static int linkUnchangedFiles(File baseVersionDir, File versionDir) {
+        ReadOnlyStorageMetadata metadata = readMetadata(versionDir);
+        Object baseCheckSum = metadata.get(ReadOnlyStorageMetadata.BASE_CHECKSUM);
+        if(baseCheckSum == null)
+            return 0;
+
+        ReadOnlyStorageMetadata baseMetadata = readMetadata(baseVersionDir);
+        if(!baseCheckSum.equals(baseMetadata.get(ReadOnlyStorageMetadata.CHECKSUM)))
+            throw new VoldemortException("Version " + versionDir.getAbsolutePath()
+                                         + " is a delta of version with checksum " + baseCheckSum
+                                         + ", but current version "
+                                         + baseVersionDir.getAbsolutePath() + " has checksum "
+                                         + baseMetadata.get(ReadOnlyStorageMetadata.CHECKSUM));
+
+        Map<String, Object> fileCheckSums = (Map<String, Object>) metadata.get(ReadOnlyStorageMetadata.FILE_CHECKSUMS,
+                                                                               Collections.emptyMap());
+        Map<String, Object> baseFileCheckSums = (Map<String, Object>) baseMetadata.get(ReadOnlyStorageMetadata.FILE_CHECKSUMS,
+                                                                                       Collections.emptyMap());
+        int linked = 0;
+        for(Map.Entry<String, Object> entry: fileCheckSums.entrySet()) {
+            File file = new File(versionDir, entry.getKey());
+            if(file.exists())
+                continue;
+            File baseFile = new File(baseVersionDir, entry.getKey());
+            if(!baseFile.exists() || !entry.getValue().equals(baseFileCheckSums.get(entry.getKey())))
+                throw new VoldemortException("File " + entry.getKey() + " of delta version "
+                                             + versionDir.getAbsolutePath()
+                                             + " is missing and does not match "
+                                             + baseFile.getAbsolutePath());
+            Utils.link(baseFile.getAbsolutePath(), file.getAbsolutePath());
+            linked++;
+        }
+        logger.info("Linked " + linked + " unchanged files of " + baseVersionDir.getAbsolutePath()
+                    + " into delta version " + versionDir.getAbsolutePath());
+        return linked;
+    }
+
+    private static ReadOnlyStorageMetadata readMetadata(File versionDir) {
+        File metadataFile = new File(versionDir, ".metadata");
+        if(!metadataFile.exists())
+            return new ReadOnlyStorageMetadata();
+        try {
+            return new ReadOnlyStorageMetadata(metadataFile);
+        } catch(IOException e) {
+            throw new VoldemortException("Could not read metadata of " + versionDir, e);
+        }
+    }
 }
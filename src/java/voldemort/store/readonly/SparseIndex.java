@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.readonly;
+
+import java.nio.ByteBuffer;
+
+import voldemort.utils.ByteUtils;
+
+/**
+ * An in-heap table of fence keys sampled every <code>interval</code> entries
+ * from a sorted read-only index file.
+ *
+ * A lookup first binary searches the fence keys, which never touches the
+ * mapped index, and then only searches the block of at most
+ * <code>interval</code> entries that can contain the key. With a small enough
+ * interval that block lives on a single index page.
+ *
+ */
+public class SparseIndex {
+
+    private final int interval;
+    private final int keySize;
+    private final int entrySize;
+    private final int numEntries;
+    private final int numFences;
+    private final byte[] fences;
+
+    /**
+     * Build the fence table by sampling the given index
+     *
+     * @param index The index buffer
+     * @param indexFileSize The size of the index
+     * @param keySize The size of the key hash stored in the index
+     * @param interval Number of index entries between two fence keys
+     */
+    public SparseIndex(ByteBuffer index, int indexFileSize, int keySize, int interval) {
+        if(interval <= 0)
+            throw new IllegalArgumentException("Sparse index interval should be greater than 0, but is "
+                                               + interval);
+        this.interval = interval;
+        this.keySize = keySize;
+        this.entrySize = keySize + ReadOnlyUtils.POSITION_SIZE;
+        this.numEntries = indexFileSize / entrySize;
+        this.numFences = (numEntries + interval - 1) / interval;
+        this.fences = new byte[numFences * keySize];
+        for(int fence = 0; fence < numFences; fence++) {
+            index.position(fence * interval * entrySize);
+            index.get(fences, fence * keySize, keySize);
+        }
+    }
+
+    /**
+     * Search for the key in the index buffer this fence table was built from
+     *
+     * @param index The index buffer
+     * @param key The key to search for
+     * @return The integer offset of the position offset, if the key is found,
+     *         else -1
+     */
+    public int indexOf(ByteBuffer index, byte[] key) {
+        // Find the last fence less than or equal to the key
+        int low = 0;
+        int high = numFences - 1;
+        int block = -1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = ByteUtils.compare(key, fences, mid * keySize, (mid + 1) * keySize);
+            if(cmp == 0) {
+                // the fence is the key, no need to search the block
+                index.position(mid * interval * entrySize + keySize);
+                return index.getInt();
+            } else if(cmp > 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        if(block < 0)
+            return -1;
+
+        // Binary search only the entries following the fence
+        byte[] keyBuffer = new byte[keySize];
+        low = block * interval + 1;
+        high = Math.min((block + 1) * interval, numEntries) - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            ReadOnlyUtils.readKey(index, mid * entrySize, keyBuffer);
+            int cmp = ByteUtils.compare(keyBuffer, key);
+            if(cmp == 0) {
+                index.position(mid * entrySize + keySize);
+                return index.getInt();
+            } else if(cmp > 0) {
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public int getNumEntries() {
+        return numEntries;
+    }
+
+    /**
+     * @return Number of bytes used by the fence keys
+     */
+    public long getSizeInBytes() {
+        return fences.length;
+    }
+
+}
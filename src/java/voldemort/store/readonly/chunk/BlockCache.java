@@ -0,0 +1,87 @@
+package voldemort.store.readonly.chunk;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import voldemort.utils.Pair;
+
+/**
+ * A least recently used cache of decompressed blocks, bounded by the total
+ * number of bytes held, shared by all the compressed data file chunks of a
+ * read-only store version
+ */
+public class BlockCache {
+
+    private final long maxSizeInBytes;
+    private final LinkedHashMap<Pair<DataFileChunk, Integer>, byte[]> blocks;
+    private long sizeInBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxSizeInBytes The maximum number of decompressed bytes to hold
+     */
+    public BlockCache(long maxSizeInBytes) {
+        if(maxSizeInBytes <= 0)
+            throw new IllegalArgumentException("Block cache size should be greater than 0, but is "
+                                               + maxSizeInBytes);
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.blocks = new LinkedHashMap<Pair<DataFileChunk, Integer>, byte[]>(16, 0.75f, true);
+        this.sizeInBytes = 0;
+    }
+
+    /**
+     * @param dataFile The chunk the block belongs to
+     * @param block The block number in the chunk
+     * @return The decompressed block, or null if it is not cached
+     */
+    public synchronized byte[] get(DataFileChunk dataFile, int block) {
+        byte[] bytes = blocks.get(Pair.create(dataFile, block));
+        if(bytes == null)
+            misses++;
+        else
+            hits++;
+        return bytes;
+    }
+
+    /**
+     * Cache a decompressed block, evicting the least recently used blocks if
+     * the cache is full
+     *
+     * @param dataFile The chunk the block belongs to
+     * @param block The block number in the chunk
+     * @param bytes The decompressed block
+     */
+    public synchronized void put(DataFileChunk dataFile, int block, byte[] bytes) {
+        if(bytes.length > maxSizeInBytes)
+            return;
+        byte[] previous = blocks.put(Pair.create(dataFile, block), bytes);
+        if(previous != null)
+            sizeInBytes -= previous.length;
+        sizeInBytes += bytes.length;
+
+        Iterator<Map.Entry<Pair<DataFileChunk, Integer>, byte[]>> iterator = blocks.entrySet()
+                                                                                   .iterator();
+        while(sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+            sizeInBytes -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -9,8 +9,14 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -18,11 +24,21 @@ import org.apache.log4j.Logger;
 
 import voldemort.VoldemortException;
 import voldemort.cluster.Node;
+import voldemort.common.nio.FileRegion;
 import voldemort.routing.RoutingStrategy;
+import voldemort.serialization.Compression;
+import voldemort.store.compress.CompressionStrategy;
+import voldemort.store.compress.CompressionStrategyFactory;
+import voldemort.store.readonly.BinarySearchStrategy;
+import voldemort.store.readonly.HotRangeSampler;
+import voldemort.store.readonly.IndexBloomFilter;
 import voldemort.store.readonly.ReadOnlyStorageFormat;
 import voldemort.store.readonly.ReadOnlyStorageMetadata;
 import voldemort.store.readonly.ReadOnlyUtils;
+import voldemort.store.readonly.SearchStrategy;
+import voldemort.store.readonly.SparseIndex;
 import voldemort.store.readonly.io.MappedFileReader;
+import voldemort.store.readonly.io.MemLock;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
 import voldemort.utils.Pair;
@@ -40,6 +56,8 @@ public class ChunkedFileSet {
 
     private static Logger logger = Logger.getLogger(ChunkedFileSet.class);
 
+    private static final BinarySearchStrategy entrySearchStrategy = new BinarySearchStrategy();
+
     private final int numChunks;
     private final int nodeId;
     private final File baseDir;
@@ -49,6 +67,8 @@ public class ChunkedFileSet {
 
     private List<MappedFileReader> mappedIndexFileReader;
     private final List<FileChannel> dataFiles;
+    private final List<File> dataFileNames;
+    private final List<DataFileChunk> dataFileChunks;
     private final HashMap<Object, Integer> chunkIdToChunkStart;
     private final HashMap<Object, Integer> chunkIdToNumChunks;
     private ArrayList<Integer> nodePartitionIds;
@@ -56,11 +76,43 @@ public class ChunkedFileSet {
     private ReadOnlyStorageFormat storageFormat;
 
     private boolean enforceMlock = false;
+    private final List<SparseIndex> sparseIndexes;
+    private final List<IndexBloomFilter> bloomFilters;
+    private CompressionStrategy compressionStrategy;
+    private BlockCache blockCache;
+    private final Map<HotRangeSampler.Range, MemLock> rangeLocks = new HashMap<HotRangeSampler.Range, MemLock>();
+    private volatile long lockedBytes = 0;
+    private int openFileRegions = 0;
+    private boolean closed = false;
 
     public ChunkedFileSet(File directory,
                           RoutingStrategy routingStrategy,
                           int nodeId,
                           boolean enforceMlock) {
+        this(directory, routingStrategy, nodeId, enforceMlock, 0);
+    }
+
+    public ChunkedFileSet(File directory,
+                          RoutingStrategy routingStrategy,
+                          int nodeId,
+                          boolean enforceMlock,
+                          int indexSampleInterval) {
+        this(directory, routingStrategy, nodeId, enforceMlock, indexSampleInterval, 0);
+    }
+
+    /**
+     * @param indexSampleInterval If greater than 0, an in-heap
+     *        {@link SparseIndex} sampling every indexSampleInterval entries is
+     *        built for every chunk
+     * @param blockCacheSizeInBytes If greater than 0 and the data files are
+     *        block compressed, the number of decompressed bytes to cache
+     */
+    public ChunkedFileSet(File directory,
+                          RoutingStrategy routingStrategy,
+                          int nodeId,
+                          boolean enforceMlock,
+                          int indexSampleInterval,
+                          long blockCacheSizeInBytes) {
 
         this.enforceMlock = enforceMlock;
         this.baseDir = directory;
@@ -83,12 +135,26 @@ public class ChunkedFileSet {
 
         this.storageFormat = ReadOnlyStorageFormat.fromCode((String) metadata.get(ReadOnlyStorageMetadata.FORMAT,
                                                                                   ReadOnlyStorageFormat.READONLY_V0.getCode()));
+        String compression = (String) metadata.get(ReadOnlyStorageMetadata.COMPRESSION, null);
+        if(compression != null) {
+            if(storageFormat != ReadOnlyStorageFormat.READONLY_V2
+               && storageFormat != ReadOnlyStorageFormat.READONLY_V3)
+                throw new VoldemortException("Compressed data files are not supported for format "
+                                             + storageFormat);
+            this.compressionStrategy = new CompressionStrategyFactory().get(new Compression(compression,
+                                                                                            null));
+            if(blockCacheSizeInBytes > 0)
+                this.blockCache = new BlockCache(blockCacheSizeInBytes);
+        }
         this.indexFileSizes = new ArrayList<Integer>();
         this.dataFileSizes = new ArrayList<Integer>();
         this.indexFiles = new ArrayList<MappedByteBuffer>();
         this.mappedIndexFileReader = new ArrayList<MappedFileReader>();
 
         this.dataFiles = new ArrayList<FileChannel>();
+        this.dataFileNames = new ArrayList<File>();
+        this.dataFileChunks = new ArrayList<DataFileChunk>();
+        this.bloomFilters = new ArrayList<IndexBloomFilter>();
         this.chunkIdToChunkStart = new HashMap<Object, Integer>();
         this.chunkIdToNumChunks = new HashMap<Object, Integer>();
         this.nodeId = nodeId;
@@ -102,6 +168,7 @@ public class ChunkedFileSet {
                 initVersion1();
                 break;
             case READONLY_V2:
+            case READONLY_V3:
                 initVersion2();
                 break;
             default:
@@ -109,8 +176,21 @@ public class ChunkedFileSet {
         }
 
         this.numChunks = indexFileSizes.size();
+        this.sparseIndexes = new ArrayList<SparseIndex>();
+        if(indexSampleInterval > 0) {
+            for(int chunk = 0; chunk < indexFiles.size(); chunk++) {
+                sparseIndexes.add(new SparseIndex(indexFileFor(chunk),
+                                                  getIndexFileSize(chunk),
+                                                  getKeyHashSize(),
+                                                  indexSampleInterval));
+            }
+            logger.info("Built sparse index for " + baseDir + " with interval "
+                        + indexSampleInterval + " using " + getSparseIndexSizeInBytes()
+                        + " bytes");
+        }
         logger.trace("Opened chunked file set for " + baseDir + " with " + indexFileSizes.size()
-                     + " chunks and format  " + storageFormat);
+                     + " chunks and format  " + storageFormat
+                     + (compression == null ? "" : " compressed with " + compression));
     }
 
     public ChunkedFileSet(File directory, RoutingStrategy routingStrategy, int nodeId) {
@@ -121,11 +201,7 @@ public class ChunkedFileSet {
     public DataFileChunkSet toDataFileChunkSet() {
 
         // Convert the index file into chunk set
-        List<DataFileChunk> dataFileChunks = Lists.newArrayList();
-        for(FileChannel dataFile: dataFiles) {
-            dataFileChunks.add(new LocalDataFileChunk(dataFile));
-        }
-
+        List<DataFileChunk> dataFileChunks = Lists.newArrayList(this.dataFileChunks);
         return new DataFileChunkSet(dataFileChunks, this.dataFileSizes);
     }
 
@@ -165,6 +241,8 @@ public class ChunkedFileSet {
 
             /* Add the file channel for data */
             dataFiles.add(openChannel(data));
+            dataFileNames.add(data);
+            dataFileChunks.add(new LocalDataFileChunk(dataFiles.get(dataFiles.size() - 1)));
 
             MappedFileReader idxFileReader = null;
             try {
@@ -228,6 +306,8 @@ public class ChunkedFileSet {
 
                     /* Add the file channel for data */
                     dataFiles.add(openChannel(data));
+                    dataFileNames.add(data);
+                    dataFileChunks.add(new LocalDataFileChunk(dataFiles.get(dataFiles.size() - 1)));
 
                     MappedFileReader idxFileReader = null;
                     try {
@@ -311,15 +391,31 @@ public class ChunkedFileSet {
                                         chunkIdToChunkStart.put(bucket, globalChunkId);
                                     }
 
-                                    /* Deal with file sizes */
+                                    /* Add the file channel for data */
+                                    FileChannel dataFile = openChannel(data);
+                                    dataFiles.add(dataFile);
+                                    dataFileNames.add(data);
+                                    DataFileChunk dataFileChunk = openDataFileChunk(dataFile);
+                                    dataFileChunks.add(dataFileChunk);
+
+                                    /*
+                                     * Deal with file sizes, using the
+                                     * uncompressed size for compressed data
+                                     */
                                     long indexLength = index.length();
-                                    long dataLength = data.length();
+                                    long dataLength = compressionStrategy == null ? data.length()
+                                                                                 : ((CompressedDataFileChunk) dataFileChunk).getSize();
                                     validateFileSizes(indexLength, dataLength);
                                     indexFileSizes.add((int) indexLength);
                                     dataFileSizes.add((int) dataLength);
 
-                                    /* Add the file channel for data */
-                                    dataFiles.add(openChannel(data));
+                                    /* Map the bloom filter, if present */
+                                    if(storageFormat == ReadOnlyStorageFormat.READONLY_V3) {
+                                        File bloom = new File(baseDir, fileName
+                                                                       + IndexBloomFilter.FILE_EXTENSION);
+                                        bloomFilters.add(bloom.exists() ? new IndexBloomFilter(mapFile(bloom))
+                                                                       : null);
+                                    }
 
                                     MappedFileReader idxFileReader = null;
                                     try {
@@ -389,19 +485,32 @@ public class ChunkedFileSet {
     }
 
     public void close() {
+        lockRanges(Collections.<HotRangeSampler.Range> emptyList());
         for(int chunk = 0; chunk < this.numChunks; chunk++) {
-            FileChannel channel = dataFileFor(chunk);
+            MappedFileReader idxFileReader = mappedIndexFileReader.get(chunk);
             try {
-                channel.close();
+                idxFileReader.close();
             } catch(IOException e) {
+
                 logger.error("Error while closing file.", e);
             }
+        }
 
-            MappedFileReader idxFileReader = mappedIndexFileReader.get(chunk);
+        // Data files still being sent as file regions are closed on release
+        synchronized(this) {
+            closed = true;
+            if(openFileRegions > 0)
+                return;
+        }
+        closeDataFiles();
+    }
+
+    private void closeDataFiles() {
+        for(int chunk = 0; chunk < this.numChunks; chunk++) {
+            FileChannel channel = dataFileFor(chunk);
             try {
-                idxFileReader.close();
+                channel.close();
             } catch(IOException e) {
-
                 logger.error("Error while closing file.", e);
             }
         }
@@ -415,6 +524,16 @@ public class ChunkedFileSet {
         }
     }
 
+    private DataFileChunk openDataFileChunk(FileChannel dataFile) {
+        if(compressionStrategy == null)
+            return new LocalDataFileChunk(dataFile);
+        try {
+            return new CompressedDataFileChunk(dataFile, compressionStrategy, blockCache);
+        } catch(IOException e) {
+            throw new VoldemortException(e);
+        }
+    }
+
     private MappedByteBuffer mapFile(File file) {
         try {
             FileChannel channel = new FileInputStream(file).getChannel();
@@ -443,6 +562,7 @@ public class ChunkedFileSet {
             case READONLY_V1:
                 return ByteUtils.md5(key);
             case READONLY_V2:
+            case READONLY_V3:
                 return ByteUtils.copy(ByteUtils.md5(key), 0, 2 * ByteUtils.SIZE_OF_INT);
             default:
                 throw new VoldemortException("Unknown read-only storage format");
@@ -461,6 +581,7 @@ public class ChunkedFileSet {
             case READONLY_V1:
                 return 16;
             case READONLY_V2:
+            case READONLY_V3:
                 return 2 * ByteUtils.SIZE_OF_INT;
             default:
                 throw new VoldemortException("Unknown read-only storage format");
@@ -491,7 +612,8 @@ public class ChunkedFileSet {
                        + ReadOnlyUtils.chunk(ByteUtils.md5(key),
                                              chunkIdToNumChunks.get(routingPartitionList.get(0)));
             }
-            case READONLY_V2: {
+            case READONLY_V2:
+            case READONLY_V3: {
                 List<Integer> routingPartitionList = routingStrategy.getPartitionList(key);
 
                 Pair<Integer, Integer> bucket = null;
@@ -520,7 +642,18 @@ public class ChunkedFileSet {
     }
 
     public byte[] readValue(byte[] key, int chunk, int valueLocation) {
-        FileChannel dataFile = dataFileFor(chunk);
+        return readValue(key, dataFileChunkFor(chunk), valueLocation);
+    }
+
+    /**
+     * Reads the value of the key stored at the given location
+     * 
+     * @param key The key
+     * @param dataFile The data file of the chunk, possibly prefetched
+     * @param valueLocation The location read from the index
+     * @return The value, or an empty array if the key is not stored there
+     */
+    public byte[] readValue(byte[] key, DataFileChunk dataFile, int valueLocation) {
         try {
             switch(storageFormat) {
                 case READONLY_V0:
@@ -535,7 +668,8 @@ public class ChunkedFileSet {
                     dataFile.read(valueBuffer, valueLocation + ByteUtils.SIZE_OF_INT);
                     return valueBuffer.array();
                 }
-                case READONLY_V2: {
+                case READONLY_V2:
+                case READONLY_V3: {
 
                     // Buffer for 'numKeyValues', 'keySize' and 'valueSize'
                     int headerSize = ByteUtils.SIZE_OF_SHORT + (2 * ByteUtils.SIZE_OF_INT);
@@ -591,8 +725,103 @@ public class ChunkedFileSet {
         }
     }
 
+    /**
+     * Finds the value of the key stored at the given location without reading
+     * it, so that it can be sent straight from the data file. The data files
+     * stay open until the region is released, even if the file set is closed.
+     * 
+     * @param key The key
+     * @param chunk The chunk id
+     * @param valueLocation The location read from the index
+     * @return The region of the data file holding the value, an empty region
+     *         if the key is not stored there, or null if the data files are
+     *         compressed
+     */
+    public FileRegion readValueRegion(byte[] key, int chunk, int valueLocation) {
+        if(compressionStrategy != null)
+            return null;
+
+        DataFileChunk dataFile = dataFileChunkFor(chunk);
+        long valueOffset = 0;
+        int valueSize = 0;
+        try {
+            switch(storageFormat) {
+                case READONLY_V0:
+                case READONLY_V1: {
+                    ByteBuffer sizeBuffer = ByteBuffer.allocate(ByteUtils.SIZE_OF_INT);
+                    dataFile.read(sizeBuffer, valueLocation);
+                    valueOffset = valueLocation + ByteUtils.SIZE_OF_INT;
+                    valueSize = sizeBuffer.getInt(0);
+                    break;
+                }
+                case READONLY_V2:
+                case READONLY_V3: {
+                    // Same layout as in readValue, but only the keys are read
+                    int headerSize = ByteUtils.SIZE_OF_SHORT + (2 * ByteUtils.SIZE_OF_INT);
+                    ByteBuffer sizeBuffer = ByteBuffer.allocate(headerSize);
+                    dataFile.read(sizeBuffer, valueLocation);
+                    long location = valueLocation + headerSize;
+
+                    short numKeyValues = sizeBuffer.getShort(0);
+                    int keySize = sizeBuffer.getInt(ByteUtils.SIZE_OF_SHORT);
+                    int size = sizeBuffer.getInt(ByteUtils.SIZE_OF_SHORT + ByteUtils.SIZE_OF_INT);
+
+                    do {
+                        if(keySize == -1 && size == -1) {
+                            sizeBuffer.clear();
+                            dataFile.read(sizeBuffer, location);
+                            keySize = sizeBuffer.getInt(0);
+                            size = sizeBuffer.getInt(ByteUtils.SIZE_OF_INT);
+                            location += (2 * ByteUtils.SIZE_OF_INT);
+                        }
+
+                        ByteBuffer keyBuffer = ByteBuffer.allocate(keySize);
+                        dataFile.read(keyBuffer, location);
+                        if(ByteUtils.compare(key, keyBuffer.array()) == 0) {
+                            valueOffset = location + keySize;
+                            valueSize = size;
+                            break;
+                        }
+                        location += (keySize + size);
+                        keySize = size = -1;
+
+                    } while(--numKeyValues > 0);
+                    break;
+                }
+
+                default: {
+                    throw new VoldemortException("Storage format not supported ");
+                }
+            }
+        } catch(IOException e) {
+            throw new VoldemortException(e);
+        }
+
+        synchronized(this) {
+            if(closed)
+                return null;
+            openFileRegions++;
+        }
+        return new FileRegion(dataFileFor(chunk), valueOffset, valueSize) {
+
+            @Override
+            protected void onRelease() {
+                releaseFileRegion();
+            }
+        };
+    }
+
+    private void releaseFileRegion() {
+        synchronized(this) {
+            if(--openFileRegions > 0 || !closed)
+                return;
+        }
+        closeDataFiles();
+    }
+
     /**
      * Iterator for RO keys - Works only for ReadOnlyStorageFormat.READONLY_V2
+     * and ReadOnlyStorageFormat.READONLY_V3
      */
     public static class ROKeyIterator extends DataFileChunkSetIterator<ByteArray> {
 
@@ -633,7 +862,7 @@ public class ChunkedFileSet {
 
     /**
      * Iterator for RO entries - Works only for
-     * ReadOnlyStorageFormat.READONLY_V2
+     * ReadOnlyStorageFormat.READONLY_V2 and ReadOnlyStorageFormat.READONLY_V3
      */
     public static class ROEntriesIterator extends
             DataFileChunkSetIterator<Pair<ByteArray, Versioned<byte[]>>> {
@@ -747,6 +976,134 @@ public class ChunkedFileSet {
         }
     }
 
+    /**
+     * Searches the index of the given chunk for the key, going through the
+     * chunk's sparse index if one was built
+     * 
+     * @param chunk The chunk id
+     * @param key The key in storage format
+     * @param searchStrategy The strategy to fall back to when there is no
+     *        sparse index
+     * @return The value location, or -1 if the key is not found
+     */
+    public int indexOf(int chunk, byte[] key, SearchStrategy searchStrategy) {
+        if(chunk < sparseIndexes.size())
+            return sparseIndexes.get(chunk).indexOf(indexFileFor(chunk), key);
+        return searchStrategy.indexOf(indexFileFor(chunk), key, getIndexFileSize(chunk));
+    }
+
+    /**
+     * Checks the bloom filter of the given chunk, if the storage format has one
+     * 
+     * @param chunk The chunk id
+     * @param key The key in storage format
+     * @return false if the key is definitely not in the chunk, else true
+     */
+    public boolean mightContain(int chunk, byte[] key) {
+        if(chunk >= 0 && chunk < bloomFilters.size()) {
+            IndexBloomFilter bloomFilter = bloomFilters.get(chunk);
+            if(bloomFilter != null)
+                return bloomFilter.mightContain(key);
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of bytes held in heap by the sparse indexes of all chunks
+     */
+    public long getSparseIndexSizeInBytes() {
+        long size = 0;
+        for(SparseIndex sparseIndex: sparseIndexes)
+            size += sparseIndex.getSizeInBytes();
+        return size;
+    }
+
+    /**
+     * Finds the offset of the index entry of a key, to tell which part of the
+     * index a read touched
+     * 
+     * @param chunk The chunk id
+     * @param key The key in storage format
+     * @return The offset of the entry in the index file, or -1 if the key is
+     *         not found
+     */
+    public int indexEntryOffset(int chunk, byte[] key) {
+        int entry = entrySearchStrategy.entryOf(indexFileFor(chunk), key, getIndexFileSize(chunk));
+        return entry < 0 ? -1 : entry * (key.length + ReadOnlyUtils.POSITION_SIZE);
+    }
+
+    /**
+     * Locks the given ranges of the index and data files in memory, and
+     * unlocks the ranges locked by the previous call that are not given again.
+     * Ranges of compressed data files are skipped since their offsets are not
+     * offsets into the file.
+     * 
+     * @param ranges The ranges to keep locked
+     * @return Number of bytes locked
+     */
+    public synchronized long lockRanges(Collection<HotRangeSampler.Range> ranges) {
+        Set<HotRangeSampler.Range> wanted = new HashSet<HotRangeSampler.Range>(ranges);
+        Iterator<Map.Entry<HotRangeSampler.Range, MemLock>> iterator = rangeLocks.entrySet()
+                                                                                 .iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<HotRangeSampler.Range, MemLock> entry = iterator.next();
+            if(!wanted.contains(entry.getKey())) {
+                try {
+                    entry.getValue().close();
+                } catch(IOException e) {
+                    logger.error("Error while unlocking " + entry.getKey() + " of " + baseDir, e);
+                }
+                lockedBytes -= lockLength(entry.getKey());
+                iterator.remove();
+            }
+        }
+
+        for(HotRangeSampler.Range range: ranges) {
+            if(rangeLocks.containsKey(range))
+                continue;
+            long length = lockLength(range);
+            if(length <= 0)
+                continue;
+            File file = range.isIndex() ? mappedIndexFileReader.get(range.getChunk()).getFile()
+                                       : dataFileNames.get(range.getChunk());
+            try {
+                FileInputStream input = new FileInputStream(file);
+                try {
+                    rangeLocks.put(range,
+                                   new MemLock(file, input.getFD(), range.getOffset(), length));
+                } finally {
+                    // The mapping outlives the descriptor
+                    input.close();
+                }
+                lockedBytes += length;
+            } catch(IOException e) {
+                logger.error("Error while locking " + range + " of " + baseDir, e);
+            }
+        }
+        return lockedBytes;
+    }
+
+    private long lockLength(HotRangeSampler.Range range) {
+        if(range.getChunk() < 0 || range.getChunk() >= numChunks)
+            return 0;
+        long fileSize;
+        if(range.isIndex())
+            fileSize = getIndexFileSize(range.getChunk());
+        else if(compressionStrategy == null)
+            fileSize = getDataFileSize(range.getChunk());
+        else
+            return 0;
+        return Math.min(range.getLength(), fileSize - range.getOffset());
+    }
+
+    /**
+     * @return Number of bytes of the index and data files locked in memory by
+     *         {@link #lockRanges(Collection)}
+     */
+    public long getLockedBytes() {
+        return lockedBytes;
+    }
+
     public ByteBuffer indexFileFor(int chunk) {
         return indexFiles.get(chunk).duplicate();
     }
@@ -755,6 +1112,44 @@ public class ChunkedFileSet {
         return dataFiles.get(chunk);
     }
 
+    public DataFileChunk dataFileChunkFor(int chunk) {
+        return dataFileChunks.get(chunk);
+    }
+
+    /**
+     * @return The cache of decompressed blocks, or null if the data files are
+     *         not compressed or no cache was configured
+     */
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * Reads a block of the data file of a chunk with a single read, so that
+     * the values stored in it can be read from memory
+     * 
+     * @param chunk The chunk id
+     * @param offset Offset of the block in the data file
+     * @param length Length of the block, capped at the end of the data file
+     * @return The data file chunk serving reads inside the block from memory
+     */
+    public DataFileChunk prefetch(int chunk, int offset, int length) {
+        DataFileChunk dataFile = dataFileChunkFor(chunk);
+        ByteBuffer block = ByteBuffer.allocate(Math.max(0,
+                                                        Math.min(length, getDataFileSize(chunk)
+                                                                         - offset)));
+        try {
+            while(block.hasRemaining()) {
+                if(dataFile.read(block, offset + block.position()) < 0)
+                    break;
+            }
+        } catch(IOException e) {
+            throw new VoldemortException(e);
+        }
+        block.flip();
+        return new PrefetchedDataFileChunk(dataFile, block, offset);
+    }
+
     public int getIndexFileSize(int chunk) {
         return this.indexFileSizes.get(chunk);
     }
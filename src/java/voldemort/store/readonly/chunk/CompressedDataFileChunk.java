@@ -0,0 +1,209 @@
+package voldemort.store.readonly.chunk;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import voldemort.VoldemortException;
+import voldemort.store.compress.CompressionStrategy;
+import voldemort.utils.ByteUtils;
+
+/**
+ * A data file chunk stored as a sequence of independently compressed blocks.
+ *
+ * Every block holds <code>blockSize</code> bytes of the uncompressed data file
+ * ( the last one possibly less ), so the value locations stored in the index
+ * keep pointing into the uncompressed data. The blocks are followed by an
+ * offset table of <code>numBlocks + 1</code> integers giving the start of
+ * every block in the file, and by a footer holding the number of blocks, the
+ * block size and the uncompressed size. An empty file is an empty chunk.
+ *
+ * The offset table is read into heap on open. Decompressed blocks are kept in
+ * an optional {@link BlockCache}.
+ */
+public class CompressedDataFileChunk implements DataFileChunk {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static final int FOOTER_SIZE = 3 * ByteUtils.SIZE_OF_INT;
+
+    private final FileChannel dataFile;
+    private final CompressionStrategy compressionStrategy;
+    private final BlockCache blockCache;
+    private final int blockSize;
+    private final int size;
+    private final int[] blockOffsets;
+
+    /**
+     * @param dataFile The compressed data file
+     * @param compressionStrategy The compression the blocks were written with
+     * @param blockCache The cache of decompressed blocks, or null to
+     *        decompress on every read
+     * @throws IOException
+     */
+    public CompressedDataFileChunk(FileChannel dataFile,
+                                   CompressionStrategy compressionStrategy,
+                                   BlockCache blockCache) throws IOException {
+        this.dataFile = dataFile;
+        this.compressionStrategy = compressionStrategy;
+        this.blockCache = blockCache;
+
+        long fileSize = dataFile.size();
+        if(fileSize == 0) {
+            this.blockSize = DEFAULT_BLOCK_SIZE;
+            this.size = 0;
+            this.blockOffsets = new int[] { 0 };
+            return;
+        }
+        if(fileSize < FOOTER_SIZE + ByteUtils.SIZE_OF_INT)
+            throw new VoldemortException("Invalid compressed data file of " + fileSize + " bytes");
+
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        readFully(footer, fileSize - FOOTER_SIZE);
+        int numBlocks = footer.getInt(0);
+        this.blockSize = footer.getInt(ByteUtils.SIZE_OF_INT);
+        this.size = footer.getInt(2 * ByteUtils.SIZE_OF_INT);
+
+        long tableOffset = fileSize - FOOTER_SIZE - (numBlocks + 1L) * ByteUtils.SIZE_OF_INT;
+        if(numBlocks < 0 || blockSize <= 0 || size < 0 || tableOffset < 0
+           || (size + (long) blockSize - 1) / blockSize != numBlocks)
+            throw new VoldemortException("Invalid compressed data file footer with " + numBlocks
+                                         + " blocks of " + blockSize + " bytes for " + size
+                                         + " bytes");
+
+        ByteBuffer table = ByteBuffer.allocate((numBlocks + 1) * ByteUtils.SIZE_OF_INT);
+        readFully(table, tableOffset);
+        this.blockOffsets = new int[numBlocks + 1];
+        for(int block = 0; block <= numBlocks; block++)
+            blockOffsets[block] = table.getInt(block * ByteUtils.SIZE_OF_INT);
+        if(blockOffsets[numBlocks] != tableOffset)
+            throw new VoldemortException("Invalid compressed data file, blocks end at "
+                                         + blockOffsets[numBlocks] + " but the offset table starts at "
+                                         + tableOffset);
+    }
+
+    public int read(ByteBuffer buffer, long currentOffset) throws IOException {
+        if(currentOffset >= size)
+            return -1;
+
+        int read = 0;
+        while(buffer.hasRemaining() && currentOffset < size) {
+            int block = (int) (currentOffset / blockSize);
+            byte[] bytes = getBlock(block);
+            int offsetInBlock = (int) (currentOffset - (long) block * blockSize);
+            int length = Math.min(buffer.remaining(), bytes.length - offsetInBlock);
+            buffer.put(bytes, offsetInBlock, length);
+            currentOffset += length;
+            read += length;
+        }
+        return read;
+    }
+
+    /**
+     * @return The size of the uncompressed data
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getNumBlocks() {
+        return blockOffsets.length - 1;
+    }
+
+    private byte[] getBlock(int block) throws IOException {
+        byte[] bytes = null;
+        if(blockCache != null)
+            bytes = blockCache.get(this, block);
+
+        if(bytes == null) {
+            ByteBuffer compressed = ByteBuffer.allocate(blockOffsets[block + 1]
+                                                        - blockOffsets[block]);
+            readFully(compressed, blockOffsets[block]);
+            bytes = compressionStrategy.inflate(compressed.array());
+
+            int expectedSize = Math.min(blockSize, size - block * blockSize);
+            if(bytes.length != expectedSize)
+                throw new VoldemortException("Block " + block + " decompressed to " + bytes.length
+                                             + " bytes instead of " + expectedSize);
+            if(blockCache != null)
+                blockCache.put(this, block, bytes);
+        }
+        return bytes;
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = dataFile.read(buffer, offset);
+            if(read < 0)
+                throw new EOFException("Compressed data file ended at " + offset);
+            offset += read;
+        }
+    }
+
+    /**
+     * Writes an uncompressed data file in the block compressed layout read by
+     * this class
+     *
+     * @param input Stream over the uncompressed data file
+     * @param output Stream to write the compressed data file to
+     * @param compressionStrategy The compression to use for every block
+     * @param blockSize Number of uncompressed bytes per block
+     * @return Number of bytes written
+     * @throws IOException
+     */
+    public static long compress(InputStream input,
+                                OutputStream output,
+                                CompressionStrategy compressionStrategy,
+                                int blockSize) throws IOException {
+        if(blockSize <= 0)
+            throw new IllegalArgumentException("Block size should be greater than 0, but is "
+                                               + blockSize);
+        DataOutputStream dataOutput = new DataOutputStream(output);
+        List<Long> offsets = new ArrayList<Long>();
+        byte[] block = new byte[blockSize];
+        long offset = 0;
+        long size = 0;
+        while(true) {
+            int length = 0;
+            int read;
+            while(length < blockSize && (read = input.read(block, length, blockSize - length)) >= 0)
+                length += read;
+            if(length == 0)
+                break;
+
+            byte[] compressed = compressionStrategy.deflate(length == blockSize ? block
+                                                                               : ByteUtils.copy(block,
+                                                                                                0,
+                                                                                                length));
+            offsets.add(offset);
+            dataOutput.write(compressed);
+            offset += compressed.length;
+            size += length;
+            if(length < blockSize)
+                break;
+        }
+        offsets.add(offset);
+
+        if(size > Integer.MAX_VALUE || offset > Integer.MAX_VALUE)
+            throw new VoldemortException("Compressed data file exceeds " + Integer.MAX_VALUE
+                                         + " bytes.");
+
+        for(long blockOffset: offsets)
+            dataOutput.writeInt((int) blockOffset);
+        dataOutput.writeInt(offsets.size() - 1);
+        dataOutput.writeInt(blockSize);
+        dataOutput.writeInt((int) size);
+        dataOutput.flush();
+        return offset + (offsets.size() + 3) * ByteUtils.SIZE_OF_INT;
+    }
+}
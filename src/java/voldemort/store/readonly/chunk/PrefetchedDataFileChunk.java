@@ -0,0 +1,39 @@
+package voldemort.store.readonly.chunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A data file chunk which serves reads falling inside a block read ahead of
+ * time from memory, and passes all other reads to the underlying chunk
+ */
+public class PrefetchedDataFileChunk implements DataFileChunk {
+
+    private final DataFileChunk dataFile;
+    private final ByteBuffer block;
+    private final long blockOffset;
+
+    /**
+     * @param dataFile The underlying chunk
+     * @param block The prefetched bytes, from position 0 to the limit
+     * @param blockOffset The offset of the block in the underlying chunk
+     */
+    public PrefetchedDataFileChunk(DataFileChunk dataFile, ByteBuffer block, long blockOffset) {
+        this.dataFile = dataFile;
+        this.block = block;
+        this.blockOffset = blockOffset;
+    }
+
+    public int read(ByteBuffer buffer, long currentOffset) throws IOException {
+        int length = buffer.remaining();
+        if(currentOffset >= blockOffset && currentOffset + length <= blockOffset + block.limit()) {
+            ByteBuffer slice = block.duplicate();
+            slice.position((int) (currentOffset - blockOffset));
+            slice.limit(slice.position() + length);
+            buffer.put(slice);
+            return length;
+        }
+        return dataFile.read(buffer, currentOffset);
+    }
+
+}
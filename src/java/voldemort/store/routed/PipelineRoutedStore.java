@@ -59,6 +59,8 @@ import voldemort.store.routed.action.PerformSerialPutRequests;
 import voldemort.store.routed.action.PerformSerialRequests;
 import voldemort.store.routed.action.PerformZoneSerialRequests;
 import voldemort.store.routed.action.ReadRepair;
+import voldemort.store.slop.BatchingHintWriter;
+import voldemort.store.slop.HintWriterConfig;
 import voldemort.store.slop.HintedHandoff;
 import voldemort.store.slop.Slop;
 import voldemort.store.slop.strategy.HintedHandoffStrategy;
@@ -77,6 +79,8 @@ import voldemort.versioning.Versioned;
  */
 public class PipelineRoutedStore extends RoutedStore {
 
+    private static final String READ_HEDGING_JMX_DOMAIN = "voldemort.store.routed.hedging";
+
     protected final Map<Integer, NonblockingStore> nonblockingStores;
     protected final Map<Integer, Store<ByteArray, Slop, byte[]>> slopStores;
     protected final Map<Integer, NonblockingStore> nonblockingSlopStores;
@@ -84,6 +88,9 @@ public class PipelineRoutedStore extends RoutedStore {
     private Zone clientZone;
     private boolean zoneRoutingEnabled;
     private PipelineRoutedStats stats;
+    private BatchingHintWriter hintWriter;
+    private ReadHedger readHedger;
+    private ReplicaSelector replicaSelector;
     private boolean jmxEnabled;
     private int jmxId;
 
@@ -123,6 +130,62 @@ public class PipelineRoutedStore extends RoutedStore {
                                FailureDetector failureDetector,
                                boolean jmxEnabled,
                                int jmxId) {
+        this(name,
+             innerStores,
+             nonblockingStores,
+             slopStores,
+             nonblockingSlopStores,
+             cluster,
+             storeDef,
+             repairReads,
+             clientZoneId,
+             timeoutConfig,
+             failureDetector,
+             jmxEnabled,
+             jmxId,
+             null,
+             null,
+             false);
+    }
+
+    /**
+     * Create a PipelineRoutedStore
+     * 
+     * @param name The name of the store
+     * @param innerStores The mapping of node to client
+     * @param nonblockingStores
+     * @param slopStores The stores for hints
+     * @param cluster Cluster definition
+     * @param storeDef Store definition
+     * @param repairReads Is read repair enabled?
+     * @param clientZoneId Zone the client is in
+     * @param timeoutMs Routing timeout
+     * @param failureDetector Failure detector object
+     * @param jmxEnabled is monitoring enabled
+     * @param jmxId unique ID for the factory instance
+     * @param hintWriterConfig The settings of the writer that batches the
+     *        hints, or null to send each hint at once
+     * @param readHedgingConfig The settings of the hedging of slow reads, or
+     *        null not to hedge them
+     * @param latencyAwareReads Whether gets go to the nodes that look least
+     *        loaded rather than in the order of the routing strategy
+     */
+    public PipelineRoutedStore(String name,
+                               Map<Integer, Store<ByteArray, byte[], byte[]>> innerStores,
+                               Map<Integer, NonblockingStore> nonblockingStores,
+                               Map<Integer, Store<ByteArray, Slop, byte[]>> slopStores,
+                               Map<Integer, NonblockingStore> nonblockingSlopStores,
+                               Cluster cluster,
+                               StoreDefinition storeDef,
+                               boolean repairReads,
+                               int clientZoneId,
+                               TimeoutConfig timeoutConfig,
+                               FailureDetector failureDetector,
+                               boolean jmxEnabled,
+                               int jmxId,
+                               HintWriterConfig hintWriterConfig,
+                               ReadHedgingConfig readHedgingConfig,
+                               boolean latencyAwareReads) {
         super(name,
               innerStores,
               cluster,
@@ -157,6 +220,29 @@ public class PipelineRoutedStore extends RoutedStore {
                                                              getName()
                                                                      + JmxUtils.getJmxId(this.jmxId)));
         }
+
+        if(isHintedHandoffEnabled() && hintWriterConfig != null) {
+            this.hintWriter = new BatchingHintWriter(getName(),
+                                                     hintWriterConfig,
+                                                     timeoutConfig.getOperationTimeout(VoldemortOpCode.PUT_OP_CODE));
+            if(this.jmxEnabled)
+                JmxUtils.registerMbean(hintWriter,
+                                       JmxUtils.createObjectName(JmxUtils.getPackageName(hintWriter.getClass()),
+                                                                 getName()
+                                                                         + JmxUtils.getJmxId(this.jmxId)));
+        }
+
+        if(readHedgingConfig != null) {
+            this.readHedger = new ReadHedger(readHedgingConfig);
+            if(this.jmxEnabled)
+                JmxUtils.registerMbean(readHedger,
+                                       JmxUtils.createObjectName(READ_HEDGING_JMX_DOMAIN,
+                                                                 getName()
+                                                                         + JmxUtils.getJmxId(this.jmxId)));
+        }
+
+        if(latencyAwareReads)
+            this.replicaSelector = new ReplicaSelector(SystemTime.INSTANCE);
     }
 
     private ConfigureNodesType obtainNodeConfigurationType(Integer zonesRequired) {
@@ -185,7 +271,8 @@ public class PipelineRoutedStore extends RoutedStore {
                                                                                                                       failureDetector,
                                                                                                                       storeDef.getRequiredReads(),
                                                                                                                       routingStrategy,
-                                                                                                                      key);
+                                                                                                                      key,
+                                                                                                                      replicaSelector);
             case BYZONE:
                 return new ConfigureNodesByZone<List<Versioned<byte[]>>, BasicPipelineData<List<Versioned<byte[]>>>>(pipelineData,
                                                                                                                      Event.CONFIGURED,
@@ -193,7 +280,8 @@ public class PipelineRoutedStore extends RoutedStore {
                                                                                                                      storeDef.getRequiredReads(),
                                                                                                                      routingStrategy,
                                                                                                                      key,
-                                                                                                                     clientZone);
+                                                                                                                     clientZone,
+                                                                                                                     replicaSelector);
             case DEFAULT_LOCAL:
                 return new ConfigureNodesLocalHost<List<Versioned<byte[]>>, BasicPipelineData<List<Versioned<byte[]>>>>(pipelineData,
                                                                                                                         Event.CONFIGURED,
@@ -271,7 +359,9 @@ public class PipelineRoutedStore extends RoutedStore {
                                                                                                                                  getOpTimeout,
                                                                                                                                  nonblockingStores,
                                                                                                                                  Event.INSUFFICIENT_SUCCESSES,
-                                                                                                                                 Event.INSUFFICIENT_ZONES));
+                                                                                                                                 Event.INSUFFICIENT_ZONES,
+                                                                                                                                 readHedger,
+                                                                                                                                 replicaSelector));
         pipeline.addEventAction(Event.INSUFFICIENT_SUCCESSES,
                                 new PerformSerialRequests<List<Versioned<byte[]>>, BasicPipelineData<List<Versioned<byte[]>>>>(pipelineData,
                                                                                                                                allowReadRepair ? Event.RESPONSES_RECEIVED
@@ -520,7 +610,9 @@ public class PipelineRoutedStore extends RoutedStore {
                                                                                                              timeoutConfig.getOperationTimeout(VoldemortOpCode.GET_VERSION_OP_CODE),
                                                                                                              nonblockingStores,
                                                                                                              Event.INSUFFICIENT_SUCCESSES,
-                                                                                                             Event.INSUFFICIENT_ZONES));
+                                                                                                             Event.INSUFFICIENT_ZONES,
+                                                                                                             readHedger,
+                                                                                                             replicaSelector));
 
         pipeline.addEventAction(Event.INSUFFICIENT_SUCCESSES,
                                 new PerformSerialRequests<List<Version>, BasicPipelineData<List<Version>>>(pipelineData,
@@ -625,7 +717,8 @@ public class PipelineRoutedStore extends RoutedStore {
                                               nonblockingSlopStores,
                                               handoffStrategy,
                                               pipelineData.getFailedNodes(),
-                                              deleteOpTimeout);
+                                              deleteOpTimeout,
+                                              hintWriter);
 
         pipeline.addEventAction(Event.STARTED,
                                 new ConfigureNodes<Boolean, BasicPipelineData<Boolean>>(pipelineData,
@@ -784,7 +877,8 @@ public class PipelineRoutedStore extends RoutedStore {
                                               nonblockingSlopStores,
                                               handoffStrategy,
                                               pipelineData.getFailedNodes(),
-                                              putOpTimeoutInMs);
+                                              putOpTimeoutInMs,
+                                              hintWriter);
 
         pipeline.addEventAction(Event.STARTED, configureNodes);
 
@@ -865,6 +959,15 @@ public class PipelineRoutedStore extends RoutedStore {
     public void close() {
         VoldemortException exception = null;
 
+        if(hintWriter != null) {
+            // sends the hints still buffered, while the slop stores are open
+            hintWriter.close();
+            if(this.jmxEnabled)
+                JmxUtils.unregisterMbean(JmxUtils.createObjectName(JmxUtils.getPackageName(hintWriter.getClass()),
+                                                                   getName()
+                                                                           + JmxUtils.getJmxId(jmxId)));
+        }
+
         for(NonblockingStore store: nonblockingStores.values()) {
             try {
                 store.close();
@@ -876,6 +979,10 @@ public class PipelineRoutedStore extends RoutedStore {
         if(this.jmxEnabled) {
             JmxUtils.unregisterMbean(JmxUtils.createObjectName(JmxUtils.getPackageName(stats.getClass()),
                                                                getName() + JmxUtils.getJmxId(jmxId)));
+            if(readHedger != null)
+                JmxUtils.unregisterMbean(JmxUtils.createObjectName(READ_HEDGING_JMX_DOMAIN,
+                                                                   getName()
+                                                                           + JmxUtils.getJmxId(jmxId)));
         }
 
         if(exception != null)
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.cluster.Node;
+import voldemort.store.stats.Histogram;
+import voldemort.utils.Utils;
+
+/**
+ * Decides when the reads of a store are hedged. A read that has not heard
+ * back from its nodes within the given quantile of their latencies sends one
+ * more request, to the next node of the preference list, and takes whichever
+ * answers first.
+ * <p>
+ * The hedged requests are paid for out of a budget that each read adds a
+ * percentage of a request to, so that hedging can add at most that
+ * percentage to the load, even when every node is slow.
+ *
+ */
+public class ReadHedger {
+
+    // latencies are kept to the ms up to a second, and later ones as a second
+    private static final int NUM_BUCKETS = 1000;
+    private static final int BUCKET_MS = 1;
+    private static final long RESET_INTERVAL_MS = 60 * 1000;
+    // a node's quantile is worked out again every this many samples
+    private static final int SAMPLES_PER_QUANTILE = 100;
+    // the most hedged requests that can be saved up, so that a quiet period
+    // does not allow a burst of them
+    private static final int MAX_SAVED_HEDGES = 10;
+
+    private final ReadHedgingConfig config;
+    private final ConcurrentMap<Integer, NodeLatency> latencies;
+    // in hundredths of a request
+    private final AtomicLong budget;
+    private final AtomicLong numHedged;
+    private final AtomicLong numWon;
+    private final AtomicLong numOverBudget;
+
+    public ReadHedger(ReadHedgingConfig config) {
+        this.config = Utils.notNull(config);
+        this.latencies = new ConcurrentHashMap<Integer, NodeLatency>();
+        this.budget = new AtomicLong(0);
+        this.numHedged = new AtomicLong(0);
+        this.numWon = new AtomicLong(0);
+        this.numOverBudget = new AtomicLong(0);
+    }
+
+    /**
+     * Records how long a node took to answer a read
+     */
+    public void recordLatency(Node node, long latencyMs) {
+        NodeLatency latency = latencies.get(node.getId());
+        if(latency == null) {
+            latency = new NodeLatency();
+            NodeLatency existing = latencies.putIfAbsent(node.getId(), latency);
+            if(existing != null)
+                latency = existing;
+        }
+        latency.record(latencyMs);
+    }
+
+    /**
+     * Gets how long a read of the given nodes waits before it is hedged, and
+     * adds the read to the budget
+     *
+     * @param nodes The nodes read from
+     * @return The wait in ms, or -1 if the latencies of the nodes are not known
+     *         well enough to hedge
+     */
+    public long startRead(List<Node> nodes) {
+        long maxSavedBudget = MAX_SAVED_HEDGES * 100L;
+        while(true) {
+            long current = budget.get();
+            long updated = Math.min(current + config.getBudgetPercent(), maxSavedBudget);
+            if(current == updated || budget.compareAndSet(current, updated))
+                break;
+        }
+
+        long delayMs = -1;
+        for(Node node: nodes) {
+            NodeLatency latency = latencies.get(node.getId());
+            if(latency == null || latency.quantileMs < 0)
+                return -1;
+            delayMs = Math.max(delayMs, latency.quantileMs);
+        }
+        return delayMs;
+    }
+
+    /**
+     * Takes a hedged request out of the budget
+     *
+     * @return Whether the budget allows the request
+     */
+    public boolean tryHedge() {
+        while(true) {
+            long current = budget.get();
+            if(current < 100) {
+                numOverBudget.incrementAndGet();
+                return false;
+            }
+            if(budget.compareAndSet(current, current - 100)) {
+                numHedged.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records that a hedged request answered before the ones it hedged
+     */
+    public void recordHedgeWon() {
+        numWon.incrementAndGet();
+    }
+
+    @JmxGetter(name = "NumHedgedRequests", description = "Number of extra requests sent by slow reads")
+    public long getNumHedgedRequests() {
+        return numHedged.get();
+    }
+
+    @JmxGetter(name = "NumHedgesWon", description = "Number of extra requests that answered before the requests they hedged")
+    public long getNumHedgesWon() {
+        return numWon.get();
+    }
+
+    @JmxGetter(name = "NumHedgesOverBudget", description = "Number of extra requests not sent as the budget was spent")
+    public long getNumHedgesOverBudget() {
+        return numOverBudget.get();
+    }
+
+    private class NodeLatency {
+
+        private final Histogram histogram = new Histogram(NUM_BUCKETS,
+                                                          BUCKET_MS,
+                                                          RESET_INTERVAL_MS);
+        private final AtomicLong numSamples = new AtomicLong(0);
+        private volatile long quantileMs = -1;
+
+        private void record(long latencyMs) {
+            histogram.insert(latencyMs);
+            if(numSamples.incrementAndGet() % SAMPLES_PER_QUANTILE == 0)
+                // the histogram gives the bottom of the bucket
+                quantileMs = histogram.getQuantile(config.getLatencyQuantile()) + BUCKET_MS;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+/**
+ * Encapsulates the settings of a {@link ReadHedger}
+ *
+ */
+public class ReadHedgingConfig {
+
+    private final double latencyQuantile;
+    private final int budgetPercent;
+
+    /**
+     * @param latencyQuantile The quantile of the latency of a node after
+     *        which a read of it is hedged, e.g. 0.95
+     * @param budgetPercent The most hedged requests, as a percentage of the
+     *        reads
+     */
+    public ReadHedgingConfig(double latencyQuantile, int budgetPercent) {
+        if(latencyQuantile <= 0 || latencyQuantile >= 1)
+            throw new IllegalArgumentException("The hedging latency quantile must be between 0 and 1.");
+        if(budgetPercent <= 0 || budgetPercent > 100)
+            throw new IllegalArgumentException("The hedging budget must be between 1 and 100 percent.");
+        this.latencyQuantile = latencyQuantile;
+        this.budgetPercent = budgetPercent;
+    }
+
+    public double getLatencyQuantile() {
+        return latencyQuantile;
+    }
+
+    public int getBudgetPercent() {
+        return budgetPercent;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import voldemort.cluster.Node;
+import voldemort.utils.Time;
+import voldemort.utils.Utils;
+
+/**
+ * Orders the replicas a read goes to by how loaded they look from this
+ * client, so that reads move away from hot or degraded nodes well before the
+ * failure detector would ban them.
+ * <p>
+ * A node is scored by a moving average of the latency of its reads, times the
+ * cube of one more than the reads it has outstanding, as in C3. The order is
+ * built by "power of two choices": two of the nodes left are drawn at random
+ * and the better one goes next, which keeps the clients of a cluster from all
+ * rushing to the same node.
+ * <p>
+ * The latency of a node that has not been read for a while is forgotten, so
+ * that it is read again and a node that got better is noticed.
+ *
+ */
+public class ReplicaSelector {
+
+    // the weight of a new latency in the moving average
+    private static final double NEW_SAMPLE_WEIGHT = 0.25;
+    private static final long STALE_MS = 1000;
+
+    private final Time time;
+    private final ConcurrentMap<Integer, NodeState> states;
+    private final Random random;
+
+    public ReplicaSelector(Time time) {
+        this.time = Utils.notNull(time);
+        this.states = new ConcurrentHashMap<Integer, NodeState>();
+        this.random = new Random();
+    }
+
+    /**
+     * Records that a read was sent to a node
+     */
+    public void requestStarted(Node node) {
+        getState(node).requestStarted();
+    }
+
+    /**
+     * Records that a node answered a read
+     *
+     * @param node The node read from
+     * @param latencyMs How long the node took
+     */
+    public void requestCompleted(Node node, long latencyMs) {
+        getState(node).requestCompleted(latencyMs, time.getMilliseconds());
+    }
+
+    /**
+     * Records that a read of a node failed. However quickly it failed, it
+     * counts as having taken the whole timeout, so that a node that refuses
+     * reads is not taken for a fast one.
+     *
+     * @param node The node read from
+     * @param timeoutMs The timeout of the read
+     */
+    public void requestFailed(Node node, long timeoutMs) {
+        getState(node).requestCompleted(timeoutMs, time.getMilliseconds());
+    }
+
+    /**
+     * Orders the nodes to read from, the least loaded looking first
+     *
+     * @param nodes The nodes to read from
+     * @return The nodes in the order to read them
+     */
+    public List<Node> order(List<Node> nodes) {
+        List<Node> remaining = new ArrayList<Node>(nodes);
+        List<Node> ordered = new ArrayList<Node>(nodes.size());
+        long nowMs = time.getMilliseconds();
+        while(remaining.size() > 1) {
+            int first = random.nextInt(remaining.size());
+            int second = random.nextInt(remaining.size() - 1);
+            if(second >= first)
+                second++;
+            int better = getScore(remaining.get(second), nowMs) < getScore(remaining.get(first),
+                                                                            nowMs) ? second
+                                                                                  : first;
+            ordered.add(remaining.remove(better));
+        }
+        ordered.addAll(remaining);
+        return ordered;
+    }
+
+    /**
+     * Gets the score of a node, the lower the better
+     */
+    public double getScore(Node node) {
+        return getScore(node, time.getMilliseconds());
+    }
+
+    private double getScore(Node node, long nowMs) {
+        NodeState state = states.get(node.getId());
+        if(state == null)
+            return 0;
+        return state.getScore(nowMs);
+    }
+
+    private NodeState getState(Node node) {
+        NodeState state = states.get(node.getId());
+        if(state == null) {
+            state = new NodeState();
+            NodeState existing = states.putIfAbsent(node.getId(), state);
+            if(existing != null)
+                state = existing;
+        }
+        return state;
+    }
+
+    private static class NodeState {
+
+        private double averageLatencyMs = -1;
+        private long lastUpdateMs;
+        private int outstanding;
+
+        private synchronized void requestStarted() {
+            outstanding++;
+        }
+
+        private synchronized void requestCompleted(long latencyMs, long nowMs) {
+            if(outstanding > 0)
+                outstanding--;
+            if(averageLatencyMs < 0 || nowMs - lastUpdateMs > STALE_MS)
+                averageLatencyMs = latencyMs;
+            else
+                averageLatencyMs = NEW_SAMPLE_WEIGHT * latencyMs + (1 - NEW_SAMPLE_WEIGHT)
+                                   * averageLatencyMs;
+            lastUpdateMs = nowMs;
+        }
+
+        private synchronized double getScore(long nowMs) {
+            // a stale latency is forgotten, but not the reads still waiting
+            // on the node, so that a node that hangs is not read again
+            double latencyMs = averageLatencyMs < 0 || nowMs - lastUpdateMs > STALE_MS ? 0
+                                                                                       : averageLatencyMs;
+            double queue = 1 + outstanding;
+            // a node that answers in no time is still told apart by its queue
+            return (latencyMs + 1) * queue * queue * queue;
+        }
+    }
+}
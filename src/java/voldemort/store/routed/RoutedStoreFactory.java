@@ -16,6 +16,7 @@ import voldemort.store.Store;
 import voldemort.store.StoreDefinition;
 import voldemort.store.nonblockingstore.NonblockingStore;
 import voldemort.store.nonblockingstore.ThreadPoolBasedNonblockingStoreImpl;
+import voldemort.store.slop.HintWriterConfig;
 import voldemort.store.slop.Slop;
 import voldemort.utils.ByteArray;
 import voldemort.utils.SystemTime;
@@ -30,14 +31,40 @@ public class RoutedStoreFactory {
 
     private final TimeoutConfig timeoutConfig;
 
+    private final HintWriterConfig hintWriterConfig;
+
+    private final ReadHedgingConfig readHedgingConfig;
+
+    private final boolean latencyAwareReads;
+
     private final Logger logger = Logger.getLogger(getClass());
 
     public RoutedStoreFactory(boolean isPipelineRoutedStoreEnabled,
                               ExecutorService threadPool,
                               TimeoutConfig timeoutConfig) {
+        this(isPipelineRoutedStoreEnabled, threadPool, timeoutConfig, null, null, false);
+    }
+
+    /**
+     * @param hintWriterConfig The settings of the writers that batch the hints
+     *        of the pipeline routed stores, or null to send each hint at once
+     * @param readHedgingConfig The settings of the hedging of slow reads by
+     *        the pipeline routed stores, or null not to hedge them
+     * @param latencyAwareReads Whether the gets of the pipeline routed stores
+     *        go to the nodes that look least loaded
+     */
+    public RoutedStoreFactory(boolean isPipelineRoutedStoreEnabled,
+                              ExecutorService threadPool,
+                              TimeoutConfig timeoutConfig,
+                              HintWriterConfig hintWriterConfig,
+                              ReadHedgingConfig readHedgingConfig,
+                              boolean latencyAwareReads) {
         this.isPipelineRoutedStoreEnabled = isPipelineRoutedStoreEnabled;
         this.threadPool = threadPool;
         this.timeoutConfig = timeoutConfig;
+        this.hintWriterConfig = hintWriterConfig;
+        this.readHedgingConfig = readHedgingConfig;
+        this.latencyAwareReads = latencyAwareReads;
     }
 
     public NonblockingStore toNonblockingStore(Store<ByteArray, byte[], byte[]> store) {
@@ -96,7 +123,10 @@ public class RoutedStoreFactory {
                                            timeoutConfig,
                                            failureDetector,
                                            jmxEnabled,
-                                           jmxId);
+                                           jmxId,
+                                           hintWriterConfig,
+                                           readHedgingConfig,
+                                           latencyAwareReads);
         } else {
             if(storeDefinition.getRoutingStrategyType()
                               .compareTo(RoutingStrategyType.ZONE_STRATEGY) == 0) {
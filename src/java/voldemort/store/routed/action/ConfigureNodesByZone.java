@@ -31,13 +31,15 @@ import voldemort.store.routed.BasicPipelineData;
 import voldemort.store.routed.Pipeline;
 import voldemort.store.routed.Pipeline.Event;
 import voldemort.store.routed.Pipeline.Operation;
+import voldemort.store.routed.ReplicaSelector;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
 
 /**
  * Configure the Nodes obtained via the routing strategy based on the zone
  * information. Local zone nodes first, followed by the corresponding nodes from
- * each of the other zones, ordered by proximity.
+ * each of the other zones, ordered by proximity. A {@link ReplicaSelector}, if
+ * given, orders the nodes within each zone.
  */
 public class ConfigureNodesByZone<V, PD extends BasicPipelineData<V>> extends
         AbstractConfigureNodes<ByteArray, V, PD> {
@@ -46,6 +48,8 @@ public class ConfigureNodesByZone<V, PD extends BasicPipelineData<V>> extends
 
     private final Zone clientZone;
 
+    private final ReplicaSelector replicaSelector;
+
     public ConfigureNodesByZone(PD pipelineData,
                                 Event completeEvent,
                                 FailureDetector failureDetector,
@@ -53,9 +57,32 @@ public class ConfigureNodesByZone<V, PD extends BasicPipelineData<V>> extends
                                 RoutingStrategy routingStrategy,
                                 ByteArray key,
                                 Zone clientZone) {
+        this(pipelineData,
+             completeEvent,
+             failureDetector,
+             required,
+             routingStrategy,
+             key,
+             clientZone,
+             null);
+    }
+
+    /**
+     * @param replicaSelector Orders the nodes of each zone by their load, or
+     *        null to keep the order of the routing strategy
+     */
+    public ConfigureNodesByZone(PD pipelineData,
+                                Event completeEvent,
+                                FailureDetector failureDetector,
+                                int required,
+                                RoutingStrategy routingStrategy,
+                                ByteArray key,
+                                Zone clientZone,
+                                ReplicaSelector replicaSelector) {
         super(pipelineData, completeEvent, failureDetector, required, routingStrategy);
         this.key = key;
         this.clientZone = clientZone;
+        this.replicaSelector = replicaSelector;
     }
 
     public List<Node> getNodes(ByteArray key, Operation op) {
@@ -92,6 +119,13 @@ public class ConfigureNodesByZone<V, PD extends BasicPipelineData<V>> extends
             nodesList.add(node);
         }
 
+        // the nodes are only reordered within their zone, so that the zones
+        // are still read in order of proximity
+        if(replicaSelector != null) {
+            for(Map.Entry<Integer, List<Node>> entry: zoneIdToNode.entrySet())
+                entry.setValue(replicaSelector.order(entry.getValue()));
+        }
+
         nodes = new ArrayList<Node>();
         LinkedList<Integer> zoneProximityList = this.clientZone.getProximityList();
         if(op != Operation.PUT) {
@@ -25,26 +25,44 @@ import voldemort.routing.RoutingStrategy;
 import voldemort.store.routed.BasicPipelineData;
 import voldemort.store.routed.Pipeline;
 import voldemort.store.routed.Pipeline.Event;
+import voldemort.store.routed.ReplicaSelector;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
 
 /**
  * Default Configure Nodes that does not reorder the list of nodes obtained via
- * the routing strategy
+ * the routing strategy, unless given a {@link ReplicaSelector}
  */
 public class ConfigureNodesDefault<V, PD extends BasicPipelineData<V>> extends
         AbstractConfigureNodes<ByteArray, V, PD> {
 
     private final ByteArray key;
 
+    private final ReplicaSelector replicaSelector;
+
     public ConfigureNodesDefault(PD pipelineData,
                                  Event completeEvent,
                                  FailureDetector failureDetector,
                                  int required,
                                  RoutingStrategy routingStrategy,
                                  ByteArray key) {
+        this(pipelineData, completeEvent, failureDetector, required, routingStrategy, key, null);
+    }
+
+    /**
+     * @param replicaSelector Orders the nodes by their load, or null to keep
+     *        the order of the routing strategy
+     */
+    public ConfigureNodesDefault(PD pipelineData,
+                                 Event completeEvent,
+                                 FailureDetector failureDetector,
+                                 int required,
+                                 RoutingStrategy routingStrategy,
+                                 ByteArray key,
+                                 ReplicaSelector replicaSelector) {
         super(pipelineData, completeEvent, failureDetector, required, routingStrategy);
         this.key = key;
+        this.replicaSelector = replicaSelector;
     }
 
     @Override
@@ -69,6 +87,9 @@ public class ConfigureNodesDefault<V, PD extends BasicPipelineData<V>> extends
             return;
         }
 
+        if(replicaSelector != null)
+            nodes = replicaSelector.order(nodes);
+
         if(logger.isDebugEnabled())
             logger.debug("Adding " + nodes.size() + " node(s) to preference list");
 
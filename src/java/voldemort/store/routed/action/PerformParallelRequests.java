@@ -36,6 +36,8 @@ import voldemort.store.routed.BasicPipelineData;
 import voldemort.store.routed.Pipeline;
 import voldemort.store.routed.Pipeline.Event;
 import voldemort.store.routed.Pipeline.Operation;
+import voldemort.store.routed.ReadHedger;
+import voldemort.store.routed.ReplicaSelector;
 import voldemort.store.routed.Response;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
@@ -60,6 +62,10 @@ public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
 
     private byte[] transforms;
 
+    private final ReadHedger readHedger;
+
+    private final ReplicaSelector replicaSelector;
+
     public PerformParallelRequests(PD pipelineData,
                                    Event completeEvent,
                                    ByteArray key,
@@ -71,6 +77,40 @@ public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
                                    Map<Integer, NonblockingStore> nonblockingStores,
                                    Event insufficientSuccessesEvent,
                                    Event insufficientZonesEvent) {
+        this(pipelineData,
+             completeEvent,
+             key,
+             transforms,
+             failureDetector,
+             preferred,
+             required,
+             timeoutMs,
+             nonblockingStores,
+             insufficientSuccessesEvent,
+             insufficientZonesEvent,
+             null,
+             null);
+    }
+
+    /**
+     * @param readHedger Decides when to send an extra request to the next
+     *        node if the first ones are slow, or null to never do so
+     * @param replicaSelector Is told of the requests sent and answered, to
+     *        order the nodes of later reads by their load, or null
+     */
+    public PerformParallelRequests(PD pipelineData,
+                                   Event completeEvent,
+                                   ByteArray key,
+                                   byte[] transforms,
+                                   FailureDetector failureDetector,
+                                   int preferred,
+                                   int required,
+                                   long timeoutMs,
+                                   Map<Integer, NonblockingStore> nonblockingStores,
+                                   Event insufficientSuccessesEvent,
+                                   Event insufficientZonesEvent,
+                                   ReadHedger readHedger,
+                                   ReplicaSelector replicaSelector) {
         super(pipelineData, completeEvent, key);
         this.failureDetector = failureDetector;
         this.preferred = preferred;
@@ -80,6 +120,8 @@ public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
         this.nonblockingStores = nonblockingStores;
         this.insufficientSuccessesEvent = insufficientSuccessesEvent;
         this.insufficientZonesEvent = insufficientZonesEvent;
+        this.readHedger = readHedger;
+        this.replicaSelector = replicaSelector;
     }
 
     public void execute(final Pipeline pipeline) {
@@ -93,69 +135,31 @@ public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
                          + " operations in parallel for key " + key);
 
         for(int i = 0; i < attempts; i++) {
-            final Node node = nodes.get(i);
             pipelineData.incrementNodeIndex();
+            submitRequest(pipeline, nodes.get(i), responses, latch, false);
+        }
 
-            final long startMs = logger.isDebugEnabled() ? System.currentTimeMillis() : -1;
-
-            NonblockingStoreCallback callback = new NonblockingStoreCallback() {
-
-                public void requestComplete(Object result, long requestTime) {
-                    if(logger.isTraceEnabled())
-                        logger.trace(pipeline.getOperation().getSimpleName()
-                                     + " response received (" + requestTime + " ms.) from node "
-                                     + node.getId() + "for key " + key);
+        long hedgeDelayMs = readHedger == null ? -1
+                                              : readHedger.startRead(nodes.subList(0, attempts));
 
-                    Response<ByteArray, Object> response = new Response<ByteArray, Object>(node,
-                                                                                           key,
-                                                                                           result,
-                                                                                           requestTime);
+        try {
+            if(hedgeDelayMs >= 0 && hedgeDelayMs < timeoutMs && attempts < nodes.size()) {
+                // the first answer of the node hedged with and those read from
+                // counts down the latch
+                if(!latch.await(hedgeDelayMs, TimeUnit.MILLISECONDS) && readHedger.tryHedge()) {
+                    Node node = nodes.get(attempts);
                     if(logger.isDebugEnabled())
-                        logger.debug("Finished " + pipeline.getOperation().getSimpleName()
+                        logger.debug("Hedging " + pipeline.getOperation().getSimpleName()
                                      + " for key " + ByteUtils.toHexString(key.get())
-                                     + " (keyRef: " + System.identityHashCode(key)
-                                     + "); started at " + startMs + " took " + requestTime
-                                     + " ms on node " + node.getId() + "(" + node.getHost() + ")");
-
-                    responses.put(node.getId(), response);
-                    latch.countDown();
-
-                    // Note errors that come in after the pipeline has finished.
-                    // These will *not* get a chance to be called in the loop of
-                    // responses below.
-                    if(pipeline.isFinished() && response.getValue() instanceof Exception) {
-                        if(response.getValue() instanceof InvalidMetadataException) {
-                            pipelineData.reportException((InvalidMetadataException) response.getValue());
-                            logger.warn("Received invalid metadata problem after a successful "
-                                        + pipeline.getOperation().getSimpleName()
-                                        + " call on node " + node.getId() + ", store '"
-                                        + pipelineData.getStoreName() + "' for key " + key);
-                        } else {
-                            handleResponseError(response, pipeline, failureDetector);
-                        }
-                    }
+                                     + " on node " + node.getId() + " after " + hedgeDelayMs
+                                     + " ms");
+                    pipelineData.incrementNodeIndex();
+                    submitRequest(pipeline, node, responses, latch, true);
                 }
-
-            };
-
-            if(logger.isTraceEnabled())
-                logger.trace("Submitting " + pipeline.getOperation().getSimpleName()
-                             + " request on node " + node.getId() + " for key " + key);
-
-            NonblockingStore store = nonblockingStores.get(node.getId());
-
-            if(pipeline.getOperation() == Operation.GET)
-                store.submitGetRequest(key, transforms, callback, timeoutMs);
-            else if(pipeline.getOperation() == Operation.GET_VERSIONS)
-                store.submitGetVersionsRequest(key, callback, timeoutMs);
-            else
-                throw new IllegalStateException(getClass().getName()
-                                                + " does not support pipeline operation "
-                                                + pipeline.getOperation());
-        }
-
-        try {
-            latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+                latch.await(timeoutMs - hedgeDelayMs, TimeUnit.MILLISECONDS);
+            } else {
+                latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+            }
         } catch(InterruptedException e) {
             if(logger.isEnabledFor(Level.WARN))
                 logger.warn(e, e);
@@ -234,4 +238,84 @@ public class PerformParallelRequests<V, PD extends BasicPipelineData<V>> extends
             }
         }
     }
+
+    private void submitRequest(final Pipeline pipeline,
+                               final Node node,
+                               final Map<Integer, Response<ByteArray, Object>> responses,
+                               final CountDownLatch latch,
+                               final boolean hedged) {
+        final long startMs = logger.isDebugEnabled() ? System.currentTimeMillis() : -1;
+
+        NonblockingStoreCallback callback = new NonblockingStoreCallback() {
+
+            public void requestComplete(Object result, long requestTime) {
+                if(logger.isTraceEnabled())
+                    logger.trace(pipeline.getOperation().getSimpleName()
+                                 + " response received (" + requestTime + " ms.) from node "
+                                 + node.getId() + "for key " + key);
+
+                Response<ByteArray, Object> response = new Response<ByteArray, Object>(node,
+                                                                                       key,
+                                                                                       result,
+                                                                                       requestTime);
+                if(logger.isDebugEnabled())
+                    logger.debug("Finished " + pipeline.getOperation().getSimpleName()
+                                 + " for key " + ByteUtils.toHexString(key.get())
+                                 + " (keyRef: " + System.identityHashCode(key)
+                                 + "); started at " + startMs + " took " + requestTime
+                                 + " ms on node " + node.getId() + "(" + node.getHost() + ")");
+
+                // late answers are recorded too, as they are what makes a
+                // node slow
+                if(replicaSelector != null) {
+                    if(result instanceof Exception)
+                        replicaSelector.requestFailed(node, timeoutMs);
+                    else
+                        replicaSelector.requestCompleted(node, requestTime);
+                }
+                if(readHedger != null && !(result instanceof Exception)) {
+                    readHedger.recordLatency(node, requestTime);
+                    if(hedged && latch.getCount() > 0)
+                        readHedger.recordHedgeWon();
+                }
+
+                responses.put(node.getId(), response);
+                latch.countDown();
+
+                // Note errors that come in after the pipeline has finished.
+                // These will *not* get a chance to be called in the loop of
+                // responses below.
+                if(pipeline.isFinished() && response.getValue() instanceof Exception) {
+                    if(response.getValue() instanceof InvalidMetadataException) {
+                        pipelineData.reportException((InvalidMetadataException) response.getValue());
+                        logger.warn("Received invalid metadata problem after a successful "
+                                    + pipeline.getOperation().getSimpleName() + " call on node "
+                                    + node.getId() + ", store '" + pipelineData.getStoreName()
+                                    + "' for key " + key);
+                    } else {
+                        handleResponseError(response, pipeline, failureDetector);
+                    }
+                }
+            }
+
+        };
+
+        if(logger.isTraceEnabled())
+            logger.trace("Submitting " + pipeline.getOperation().getSimpleName()
+                         + " request on node " + node.getId() + " for key " + key);
+
+        NonblockingStore store = nonblockingStores.get(node.getId());
+
+        if(replicaSelector != null)
+            replicaSelector.requestStarted(node);
+
+        if(pipeline.getOperation() == Operation.GET)
+            store.submitGetRequest(key, transforms, callback, timeoutMs);
+        else if(pipeline.getOperation() == Operation.GET_VERSIONS)
+            store.submitGetVersionsRequest(key, callback, timeoutMs);
+        else
+            throw new IllegalStateException(getClass().getName()
+                                            + " does not support pipeline operation "
+                                            + pipeline.getOperation());
+    }
 }
@@ -70,6 +70,12 @@ public class SerializingStorageEngine<K, V, T> extends SerializingStore<K, V, T>
         return new EntriesIterator(storageEngine.entries(partition));
     }
 
+    @Override
+    public ClosableIterator<Pair<K, Versioned<V>>> entries(int partition, K startKey) {
+        ByteArray startKeyBytes = new ByteArray(getKeySerializer().toBytes(startKey));
+        return new EntriesIterator(storageEngine.entries(partition, startKeyBytes));
+    }
+
     @Override
     public ClosableIterator<K> keys(int partition) {
         return new KeysIterator(storageEngine.keys(partition));
@@ -160,6 +166,11 @@ public class SerializingStorageEngine<K, V, T> extends SerializingStore<K, V, T>
         return storageEngine.isPartitionScanSupported();
     }
 
+    @Override
+    public boolean isPartitionScanResumable() {
+        return storageEngine.isPartitionScanResumable();
+    }
+
     @Override
     public boolean beginBatchModifications() {
         return false;
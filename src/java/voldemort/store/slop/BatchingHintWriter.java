@@ -0,0 +1,326 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.slop;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import voldemort.annotations.jmx.JmxGetter;
+import voldemort.cluster.Node;
+import voldemort.utils.ByteArray;
+import voldemort.utils.Utils;
+import voldemort.versioning.Occurred;
+import voldemort.versioning.Versioned;
+
+/**
+ * Takes the hints of the requests to a store off the request path. Hints are
+ * buffered in a bounded queue, and a thread of the writer sends them in
+ * batches, a batch at a time, so that a partial outage adds a queue insertion
+ * to a put rather than a slop write, and the slop writes in flight are bounded
+ * by the batch size rather than by the number of puts.
+ * <p>
+ * Of the hints in a batch for the same key and node, only the latest is
+ * written, as the slop pusher would apply it over the others anyway.
+ *
+ */
+public class BatchingHintWriter {
+
+    private static final Logger logger = Logger.getLogger(BatchingHintWriter.class);
+
+    private static final long CLOSE_CHECK_MS = 100;
+
+    private final String storeName;
+    private final HintWriterConfig config;
+    private final long timeoutMs;
+    private final BlockingQueue<Hint> buffer;
+    private final AtomicLong numWritten;
+    private final AtomicLong numCoalesced;
+    private final AtomicLong numDropped;
+    private final AtomicLong numBatches;
+    private volatile boolean closed;
+    private Thread flusher;
+
+    /**
+     * @param storeName The store the hints are for
+     * @param config The settings of the writer
+     * @param timeoutMs How long to wait on a batch, and how long a put waits
+     *        on its hint when hints are synchronous or the buffer blocks
+     */
+    public BatchingHintWriter(String storeName, HintWriterConfig config, long timeoutMs) {
+        this.storeName = Utils.notNull(storeName);
+        this.config = Utils.notNull(config);
+        this.timeoutMs = timeoutMs;
+        this.buffer = new ArrayBlockingQueue<Hint>(config.getBufferSize());
+        this.numWritten = new AtomicLong(0);
+        this.numCoalesced = new AtomicLong(0);
+        this.numDropped = new AtomicLong(0);
+        this.numBatches = new AtomicLong(0);
+        this.closed = false;
+    }
+
+    /**
+     * Buffers a hint, or deals with it as the overflow policy says if the
+     * buffer is full, and waits for it to be written if hints are synchronous
+     *
+     * @param handoff The hinted handoff of the request, which sends the hint
+     * @param slopKey The key of the slop
+     * @param slop The serialized slop
+     * @param nodesToTry The nodes to hand the hint to, in order
+     */
+    void write(HintedHandoff handoff,
+               ByteArray slopKey,
+               Versioned<byte[]> slop,
+               List<Node> nodesToTry) {
+        Hint hint = new Hint(handoff, slopKey, slop, nodesToTry);
+        if(closed) {
+            send(hint);
+            return;
+        }
+        startFlusher();
+
+        if(!buffer.offer(hint)) {
+            switch(config.getOverflowPolicy()) {
+                case SEND_DIRECT:
+                    send(hint);
+                    break;
+                case BLOCK:
+                    boolean buffered = false;
+                    try {
+                        buffered = buffer.offer(hint, timeoutMs, TimeUnit.MILLISECONDS);
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if(!buffered)
+                        drop(hint);
+                    break;
+                default:
+                    drop(hint);
+            }
+        }
+
+        if(config.getDurability() == HintWriterConfig.Durability.SYNC) {
+            try {
+                if(!hint.written.await(timeoutMs, TimeUnit.MILLISECONDS))
+                    logger.warn("Hint for key " + slopKey + " of store " + storeName
+                                + " was not written within " + timeoutMs + " ms");
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops taking hints, and sends those still in the buffer
+     */
+    public void close() {
+        Thread thread;
+        synchronized(this) {
+            closed = true;
+            thread = flusher;
+        }
+        if(thread != null) {
+            try {
+                thread.join(timeoutMs + CLOSE_CHECK_MS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @JmxGetter(name = "NumBufferedHints", description = "Number of hints waiting to be written")
+    public int getNumBufferedHints() {
+        return buffer.size();
+    }
+
+    @JmxGetter(name = "NumWrittenHints", description = "Number of hints sent to handoff nodes")
+    public long getNumWrittenHints() {
+        return numWritten.get();
+    }
+
+    @JmxGetter(name = "NumCoalescedHints", description = "Number of hints not written as a later one for the same key and node superseded them")
+    public long getNumCoalescedHints() {
+        return numCoalesced.get();
+    }
+
+    @JmxGetter(name = "NumDroppedHints", description = "Number of hints dropped as the buffer was full")
+    public long getNumDroppedHints() {
+        return numDropped.get();
+    }
+
+    @JmxGetter(name = "NumBatches", description = "Number of batches of hints sent")
+    public long getNumBatches() {
+        return numBatches.get();
+    }
+
+    private synchronized void startFlusher() {
+        // started with the first hint, so that stores that never hand off
+        // do not get the thread
+        if(flusher != null || closed)
+            return;
+        flusher = new Thread(new Runnable() {
+
+            public void run() {
+                flushLoop();
+            }
+        }, "hint-writer-" + storeName);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void flushLoop() {
+        List<Hint> batch = new ArrayList<Hint>(config.getBatchSize());
+        while(!closed || !buffer.isEmpty()) {
+            try {
+                Hint first = buffer.poll(CLOSE_CHECK_MS, TimeUnit.MILLISECONDS);
+                if(first == null)
+                    continue;
+                batch.add(first);
+
+                // wait a little for more hints to share the batch
+                long deadline = System.currentTimeMillis() + config.getFlushIntervalMs();
+                while(batch.size() < config.getBatchSize()) {
+                    long remainingMs = deadline - System.currentTimeMillis();
+                    Hint next = remainingMs > 0 ? buffer.poll(remainingMs, TimeUnit.MILLISECONDS)
+                                               : buffer.poll();
+                    if(next == null)
+                        break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch(InterruptedException e) {
+                logger.warn("Hint writer of store " + storeName + " interrupted", e);
+                for(Hint hint: batch)
+                    hint.run();
+                return;
+            } catch(Exception e) {
+                logger.error("Hint writer of store " + storeName + " failed to write a batch", e);
+                for(Hint hint: batch)
+                    hint.run();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Hint> batch) throws InterruptedException {
+        Map<ByteArray, Hint> latest = new LinkedHashMap<ByteArray, Hint>(batch.size() * 2);
+        List<Hint> toSend = new ArrayList<Hint>(batch.size());
+        for(Hint hint: batch) {
+            Hint previous = latest.get(hint.slopKey);
+            Occurred occurred = previous == null ? null
+                                                : hint.slop.getVersion()
+                                                           .compare(previous.slop.getVersion());
+            if(occurred == Occurred.AFTER) {
+                hint.supersede(previous);
+                latest.put(hint.slopKey, hint);
+                numCoalesced.incrementAndGet();
+            } else if(occurred == Occurred.BEFORE) {
+                previous.supersede(hint);
+                numCoalesced.incrementAndGet();
+            } else if(previous == null) {
+                latest.put(hint.slopKey, hint);
+            } else {
+                // concurrent versions are both kept
+                toSend.add(hint);
+            }
+        }
+        toSend.addAll(latest.values());
+
+        CountDownLatch sent = new CountDownLatch(toSend.size());
+        for(Hint hint: toSend) {
+            hint.batch = sent;
+            send(hint);
+        }
+        numWritten.addAndGet(toSend.size());
+        numBatches.incrementAndGet();
+        // the next batch waits for this one, which bounds the writes in flight
+        if(!sent.await(timeoutMs, TimeUnit.MILLISECONDS) && logger.isDebugEnabled())
+            logger.debug("Batch of " + toSend.size() + " hints of store " + storeName
+                         + " not written within " + timeoutMs + " ms");
+    }
+
+    private void send(Hint hint) {
+        try {
+            hint.handoff.sendOneAsyncHint(hint.slopKey, hint.slop, hint.nodesToTry, hint);
+        } catch(Exception e) {
+            logger.error("Failed to send hint for key " + hint.slopKey + " of store "
+                         + storeName, e);
+            hint.run();
+        }
+    }
+
+    private void drop(Hint hint) {
+        long dropped = numDropped.incrementAndGet();
+        if(dropped % 1000 == 1)
+            logger.warn("Dropped " + dropped + " hints of store " + storeName
+                        + " so far as the hint buffer was full");
+        hint.run();
+    }
+
+    /**
+     * A buffered hint, which is run once it is written or given up on
+     */
+    private static class Hint implements Runnable {
+
+        private final HintedHandoff handoff;
+        private final ByteArray slopKey;
+        private final Versioned<byte[]> slop;
+        private final List<Node> nodesToTry;
+        private final CountDownLatch written;
+        private volatile CountDownLatch batch;
+        private List<Hint> superseded;
+
+        private Hint(HintedHandoff handoff,
+                     ByteArray slopKey,
+                     Versioned<byte[]> slop,
+                     List<Node> nodesToTry) {
+            this.handoff = handoff;
+            this.slopKey = slopKey;
+            this.slop = slop;
+            this.nodesToTry = nodesToTry;
+            this.written = new CountDownLatch(1);
+        }
+
+        /**
+         * Makes this hint stand for another, which is done when this one is
+         */
+        private void supersede(Hint other) {
+            if(superseded == null)
+                superseded = new ArrayList<Hint>(1);
+            superseded.add(other);
+        }
+
+        public void run() {
+            written.countDown();
+            if(superseded != null) {
+                for(Hint other: superseded)
+                    other.run();
+            }
+            if(batch != null)
+                batch.countDown();
+        }
+    }
+}
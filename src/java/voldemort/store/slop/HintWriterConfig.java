@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.slop;
+
+import voldemort.utils.Utils;
+
+/**
+ * Encapsulates the settings of a {@link BatchingHintWriter}
+ *
+ */
+public class HintWriterConfig {
+
+    /**
+     * When the put that a hint is for may return
+     */
+    public enum Durability {
+        /**
+         * As soon as the hint is buffered. A hint can be lost if the client
+         * dies before it is flushed.
+         */
+        ASYNC,
+        /**
+         * Once the hint is written to a handoff node, or every node was tried
+         */
+        SYNC
+    }
+
+    /**
+     * What becomes of a hint that finds the buffer full
+     */
+    public enum OverflowPolicy {
+        /**
+         * The hint is dropped
+         */
+        DROP,
+        /**
+         * The hint is sent on its own, at once, as without a writer
+         */
+        SEND_DIRECT,
+        /**
+         * The put waits for room, for up to its timeout, then drops the hint
+         */
+        BLOCK
+    }
+
+    private final int bufferSize;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Durability durability;
+    private final OverflowPolicy overflowPolicy;
+
+    public HintWriterConfig(int bufferSize,
+                            int batchSize,
+                            long flushIntervalMs,
+                            Durability durability,
+                            OverflowPolicy overflowPolicy) {
+        if(bufferSize <= 0)
+            throw new IllegalArgumentException("The hint buffer size must be positive.");
+        if(batchSize <= 0)
+            throw new IllegalArgumentException("The hint batch size must be positive.");
+        if(flushIntervalMs < 0)
+            throw new IllegalArgumentException("The hint flush interval cannot be negative.");
+        this.bufferSize = bufferSize;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.durability = Utils.notNull(durability);
+        this.overflowPolicy = Utils.notNull(overflowPolicy);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
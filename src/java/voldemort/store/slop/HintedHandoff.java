@@ -65,6 +65,8 @@ public class HintedHandoff {
 
     private final long timeoutMs;
 
+    private final BatchingHintWriter hintWriter;
+
     /**
      * Create a Hinted Handoff object
      * 
@@ -83,6 +85,38 @@ public class HintedHandoff {
                          HintedHandoffStrategy handoffStrategy,
                          List<Node> failedNodes,
                          long timeoutMs) {
+        this(failureDetector,
+             slopStores,
+             nonblockingSlopStores,
+             handoffStrategy,
+             failedNodes,
+             timeoutMs,
+             null);
+    }
+
+    /**
+     * Create a Hinted Handoff object that leaves the parallel hints to a
+     * writer
+     * 
+     * @param failureDetector The failure detector
+     * @param nonblockingSlopStores A map of node ids to nonb-locking slop
+     *        stores
+     * @param slopStores A map of node ids to blocking slop stores
+     * @param handoffStrategy The {@link HintedHandoffStrategy} implementation
+     * @param failedNodes A list of nodes in the original preflist for the
+     *        request that have failed or are unavailable
+     * @param timeoutMs Timeout for slop stores
+     * @param hintWriter The writer that batches the hints, or null to send
+     *        each at once
+     */
+    public HintedHandoff(FailureDetector failureDetector,
+                         Map<Integer, Store<ByteArray, Slop, byte[]>> slopStores,
+                         Map<Integer, NonblockingStore> nonblockingSlopStores,
+                         HintedHandoffStrategy handoffStrategy,
+                         List<Node> failedNodes,
+                         long timeoutMs,
+                         BatchingHintWriter hintWriter) {
+        this.hintWriter = hintWriter;
         this.failureDetector = failureDetector;
         this.slopStores = slopStores;
         this.nonblockingSlopStores = nonblockingSlopStores;
@@ -110,8 +144,13 @@ public class HintedHandoff {
             }
             logger.debug("Hint preference list: " + nodeIds.toString());
         }
-        sendOneAsyncHint(slop.makeKey(), new Versioned<byte[]>(slopSerializer.toBytes(slop),
-                                                               version), nodes);
+        ByteArray slopKey = slop.makeKey();
+        Versioned<byte[]> slopVersioned = new Versioned<byte[]>(slopSerializer.toBytes(slop),
+                                                                version);
+        if(hintWriter != null)
+            hintWriter.write(this, slopKey, slopVersioned, nodes);
+        else
+            sendOneAsyncHint(slopKey, slopVersioned, nodes, null);
     }
 
     /**
@@ -123,10 +162,13 @@ public class HintedHandoff {
      * @param slopVersioned
      * @param nodesToTry List of nodes to try to contact. Will become shorter
      *        after each callback
+     * @param onComplete Run once the hint is written or every node was tried,
+     *        if not null
      */
-    private void sendOneAsyncHint(final ByteArray slopKey,
-                                  final Versioned<byte[]> slopVersioned,
-                                  final List<Node> nodesToTry) {
+    void sendOneAsyncHint(final ByteArray slopKey,
+                          final Versioned<byte[]> slopVersioned,
+                          final List<Node> nodesToTry,
+                          final Runnable onComplete) {
         Node nodeToHostHint = null;
         boolean foundNode = false;
         while(nodesToTry.size() > 0) {
@@ -140,6 +182,8 @@ public class HintedHandoff {
             Slop slop = slopSerializer.toObject(slopVersioned.getValue());
             logger.error("Trying to send an async hint but used up all nodes. key: "
                          + slop.getKey() + " version: " + slopVersioned.getVersion().toString());
+            if(onComplete != null)
+                onComplete.run();
             return;
         }
         final Node node = nodeToHostHint;
@@ -178,7 +222,8 @@ public class HintedHandoff {
                         failureDetector.recordException(node, (System.nanoTime() - startNs)
                                                               / Time.NS_PER_MS, use);
                     }
-                    sendOneAsyncHint(slopKey, slopVersioned, nodesToTry);
+                    sendOneAsyncHint(slopKey, slopVersioned, nodesToTry, onComplete);
+                    return;
                 }
 
                 if(loggerDebugEnabled)
@@ -187,7 +232,8 @@ public class HintedHandoff {
                                  + (System.nanoTime() - startNs) + " ns");
 
                 failureDetector.recordSuccess(node, (System.nanoTime() - startNs) / Time.NS_PER_MS);
-
+                if(onComplete != null)
+                    onComplete.run();
             }
         };
         nonblockingStore.submitPutRequest(slopKey, slopVersioned, null, callback, timeoutMs);
@@ -278,6 +278,11 @@ public class SocketStore extends AbstractStore<ByteArray, byte[], byte[]> implem
 
         String debugMsgStr = "";
 
+        // A multiplexed connection is shared with other requests as soon as
+        // this one has been sent, and outlives it if it times out.
+        boolean multiplexed = clientRequestExecutor.isMultiplexed();
+        boolean checkedIn = false;
+
         BlockingClientRequest<T> blockingClientRequest = null;
         try {
             blockingClientRequest = new BlockingClientRequest<T>(delegate, timeoutMs);
@@ -285,6 +290,11 @@ public class SocketStore extends AbstractStore<ByteArray, byte[], byte[]> implem
                                                    timeoutMs,
                                                    System.nanoTime() - startTimeNs);
 
+            if(multiplexed) {
+                pool.checkin(destination, clientRequestExecutor);
+                checkedIn = true;
+            }
+
             boolean awaitResult = blockingClientRequest.await();
 
             if(awaitResult == false) {
@@ -303,7 +313,8 @@ public class SocketStore extends AbstractStore<ByteArray, byte[], byte[]> implem
             throw new UnreachableStoreException("Failure in " + operationName + " on "
                                                 + destination + ": " + e.getMessage(), e);
         } catch(IOException e) {
-            clientRequestExecutor.close();
+            if(!multiplexed)
+                clientRequestExecutor.close();
 
             if(logger.isDebugEnabled())
                 debugMsgStr += "failure: " + e.getMessage();
@@ -311,7 +322,8 @@ public class SocketStore extends AbstractStore<ByteArray, byte[], byte[]> implem
             throw new UnreachableStoreException("Failure in " + operationName + " on "
                                                 + destination + ": " + e.getMessage(), e);
         } finally {
-            if(blockingClientRequest != null && !blockingClientRequest.isComplete()) {
+            if(!multiplexed && blockingClientRequest != null
+               && !blockingClientRequest.isComplete()) {
                 // close the executor if we timed out
                 clientRequestExecutor.close();
             }
@@ -338,7 +350,8 @@ public class SocketStore extends AbstractStore<ByteArray, byte[], byte[]> implem
                              + debugMsgStr);
             }
 
-            pool.checkin(destination, clientRequestExecutor);
+            if(!checkedIn)
+                pool.checkin(destination, clientRequestExecutor);
         }
     }
 
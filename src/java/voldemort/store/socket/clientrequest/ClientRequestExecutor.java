@@ -104,20 +104,7 @@ public class ClientRequestExecutor extends SelectorManagerWorker {
             logger.trace("Associating client with " + socketChannel.socket());
 
         this.clientRequest = clientRequest;
-
-        if(timeoutMs == -1) {
-            this.expiration = -1;
-        } else {
-            long nowNs = System.nanoTime();
-            if(elapsedNs > (Time.NS_PER_MS * timeoutMs)) {
-                this.expiration = nowNs;
-            } else {
-                this.expiration = nowNs + (Time.NS_PER_MS * timeoutMs) - elapsedNs;
-            }
-
-            if(this.expiration < nowNs)
-                throw new IllegalArgumentException("timeout " + timeoutMs + " not valid");
-        }
+        this.expiration = getExpiration(timeoutMs, elapsedNs);
 
         outputStream.getBuffer().clear();
 
@@ -160,6 +147,39 @@ public class ClientRequestExecutor extends SelectorManagerWorker {
         }
     }
 
+    /**
+     * Whether requests are sent with request ids, in which case the executor
+     * can take more requests before the previous ones are complete and has to
+     * be checked back in as soon as a request has been added.
+     * 
+     * @return false, unless overridden
+     */
+    public boolean isMultiplexed() {
+        return false;
+    }
+
+    /**
+     * Returns the nanosecond-based deadline of a request, or -1 if it never
+     * times out.
+     */
+    protected long getExpiration(long timeoutMs, long elapsedNs) {
+        if(timeoutMs == -1)
+            return -1;
+
+        long nowNs = System.nanoTime();
+        long expiration;
+        if(elapsedNs > (Time.NS_PER_MS * timeoutMs)) {
+            expiration = nowNs;
+        } else {
+            expiration = nowNs + (Time.NS_PER_MS * timeoutMs) - elapsedNs;
+        }
+
+        if(expiration < nowNs)
+            throw new IllegalArgumentException("timeout " + timeoutMs + " not valid");
+
+        return expiration;
+    }
+
     @Override
     public void close() {
         // Due to certain code paths, close may be called in a recursive
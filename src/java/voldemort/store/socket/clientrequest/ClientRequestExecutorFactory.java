@@ -189,9 +189,14 @@ public class ClientRequestExecutorFactory implements
                                                                             % selectorManagers.length];
 
             Selector selector = selectorManager.getSelector();
-            clientRequestExecutor = new ClientRequestExecutor(selector,
-                                                              socketChannel,
-                                                              socketBufferSize);
+            if(dest.getRequestFormatType().isMultiplexed())
+                clientRequestExecutor = new MultiplexedClientRequestExecutor(selector,
+                                                                             socketChannel,
+                                                                             socketBufferSize);
+            else
+                clientRequestExecutor = new ClientRequestExecutor(selector,
+                                                                  socketChannel,
+                                                                  socketBufferSize);
             BlockingClientRequest<String> clientRequest = new BlockingClientRequest<String>(new ProtocolNegotiatorClientRequest(dest.getRequestFormatType()),
                                                                                             this.getTimeout());
             clientRequestExecutor.addClientRequest(clientRequest);
@@ -206,6 +211,9 @@ public class ClientRequestExecutorFactory implements
             // Either returns uninteresting token, or throws exception if
             // protocol negotiation failed.
             clientRequest.getResult();
+
+            if(clientRequestExecutor instanceof MultiplexedClientRequestExecutor)
+                ((MultiplexedClientRequestExecutor) clientRequestExecutor).startMultiplexing();
         } catch(Exception e) {
             // Make sure not to leak socketChannels
             if(socketChannel != null) {
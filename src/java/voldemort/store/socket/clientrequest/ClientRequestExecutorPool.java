@@ -328,6 +328,11 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
                                                                                                                   callback);
             clientRequestExecutor.addClientRequest(clientRequest, timeoutMs, System.nanoTime()
                                                                              - startTimeNs);
+
+            // Other requests can share a multiplexed connection while this one
+            // is in flight.
+            if(clientRequestExecutor.isMultiplexed())
+                checkin(destination, clientRequestExecutor);
         }
 
         @Override
@@ -426,8 +431,10 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
             } finally {
                 isComplete = true;
                 // checkin may throw a (new) exception. Any prior exception
-                // has been passed off via invokeCallback.
-                checkin(destination, clientRequestExecutor);
+                // has been passed off via invokeCallback. Multiplexed
+                // connections were checked in when the request was added.
+                if(!clientRequestExecutor.isMultiplexed())
+                    checkin(destination, clientRequestExecutor);
             }
         }
 
@@ -461,7 +468,8 @@ public class ClientRequestExecutorPool implements SocketStoreFactory {
             clientRequest.timeOut();
             invokeCallback(new StoreTimeoutException("ClientRequestExecutor timed out. Cannot complete request."),
                            (System.nanoTime() - startNs) / Time.NS_PER_MS);
-            checkin(destination, clientRequestExecutor);
+            if(!clientRequestExecutor.isMultiplexed())
+                checkin(destination, clientRequestExecutor);
         }
 
         @Override
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.socket.clientrequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Level;
+
+import voldemort.utils.ByteUtils;
+
+/**
+ * A {@link ClientRequestExecutor} for the multiplexed protocols, which frame
+ * every request and response with a request id and a length. Any number of
+ * requests can be outstanding on the connection at once, so the executor is
+ * checked back in to the {@link ClientRequestExecutorPool} as soon as a
+ * request has been added, and a request that times out does not take the
+ * connection down with it.
+ * <p/>
+ * The protocol negotiation is a plain request, so the executor behaves like
+ * its parent until {@link #startMultiplexing()} is called.
+ *
+ */
+
+public class MultiplexedClientRequestExecutor extends ClientRequestExecutor {
+
+    // Requests waiting for a response and the frames waiting to be written,
+    // both guarded by this
+    private final Map<Integer, PendingRequest> pendingRequests;
+    private final List<byte[]> pendingFrames;
+    private int nextRequestId;
+
+    private volatile boolean multiplexing;
+
+    public MultiplexedClientRequestExecutor(Selector selector,
+                                            SocketChannel socketChannel,
+                                            int socketBufferSize) {
+        super(selector, socketChannel, socketBufferSize);
+        this.pendingRequests = new HashMap<Integer, PendingRequest>();
+        this.pendingFrames = new ArrayList<byte[]>();
+        this.nextRequestId = 0;
+        this.multiplexing = false;
+    }
+
+    /**
+     * Switches to framed requests once the protocol has been negotiated
+     */
+    public synchronized void startMultiplexing() {
+        inputStream.getBuffer().clear();
+        outputStream.getBuffer().clear();
+        outputStream.getBuffer().flip();
+        multiplexing = true;
+    }
+
+    @Override
+    public boolean isMultiplexed() {
+        return multiplexing;
+    }
+
+    /**
+     * Times out the requests that are past their deadline, leaving the
+     * connection open for the others.
+     */
+    @Override
+    public boolean checkTimeout() {
+        if(!multiplexing)
+            return super.checkTimeout();
+
+        List<ClientRequest<?>> expired = null;
+        long nowNs = System.nanoTime();
+
+        synchronized(this) {
+            Iterator<PendingRequest> i = pendingRequests.values().iterator();
+            while(i.hasNext()) {
+                PendingRequest pending = i.next();
+                if(pending.expiration > 0 && nowNs > pending.expiration) {
+                    i.remove();
+                    if(expired == null)
+                        expired = new ArrayList<ClientRequest<?>>();
+                    expired.add(pending.clientRequest);
+                }
+            }
+        }
+
+        if(expired != null) {
+            if(logger.isEnabledFor(Level.WARN))
+                logger.warn(expired.size() + " client requests associated with "
+                            + socketChannel.socket() + " timed out");
+
+            for(ClientRequest<?> clientRequest: expired)
+                clientRequest.timeOut();
+        }
+
+        return true;
+    }
+
+    @Override
+    public void addClientRequest(ClientRequest<?> clientRequest, long timeoutMs, long elapsedNs) {
+        if(!multiplexing) {
+            super.addClientRequest(clientRequest, timeoutMs, elapsedNs);
+            return;
+        }
+
+        if(logger.isTraceEnabled())
+            logger.trace("Associating client with " + socketChannel.socket());
+
+        long expiration = getExpiration(timeoutMs, elapsedNs);
+
+        // Leave room for the header, which is filled in once the request is
+        // given its id
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        DataOutputStream frameStream = new DataOutputStream(frame);
+        boolean wasSuccessful;
+        try {
+            frameStream.write(new byte[MULTIPLEXED_HEADER_SIZE]);
+            wasSuccessful = clientRequest.formatRequest(frameStream);
+            frameStream.flush();
+        } catch(IOException e) {
+            // Can't happen with a ByteArrayOutputStream
+            wasSuccessful = false;
+        }
+
+        if(!wasSuccessful) {
+            if(logger.isEnabledFor(Level.WARN))
+                logger.warn("Client associated with " + socketChannel.socket()
+                            + " did not successfully buffer output for request");
+
+            clientRequest.complete();
+            return;
+        }
+
+        byte[] bytes = frame.toByteArray();
+
+        synchronized(this) {
+            if(!isClosed()) {
+                int requestId = nextRequestId++;
+                ByteUtils.writeInt(bytes, requestId, 0);
+                ByteUtils.writeInt(bytes, bytes.length - MULTIPLEXED_HEADER_SIZE, 4);
+                pendingRequests.put(requestId, new PendingRequest(clientRequest, expiration));
+                pendingFrames.add(bytes);
+
+                SelectionKey selectionKey = socketChannel.keyFor(selector);
+                try {
+                    if(selectionKey != null) {
+                        selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+
+                        // This wakeup is required because it's invoked by the
+                        // calling code in a different thread than the
+                        // SelectorManager.
+                        selector.wakeup();
+                    }
+                } catch(CancelledKeyException e) {
+                    // The connection is being closed, which fails the request
+                    // along with the others in flight.
+                }
+
+                return;
+            }
+        }
+
+        // The connection was closed under us, so fail the request the same way
+        // close fails those in flight.
+        clientRequest.complete();
+    }
+
+    @Override
+    public void close() {
+        if(!multiplexing) {
+            super.close();
+            return;
+        }
+
+        if(!isClosed.compareAndSet(false, true))
+            return;
+
+        List<PendingRequest> failed;
+        synchronized(this) {
+            failed = new ArrayList<PendingRequest>(pendingRequests.values());
+            pendingRequests.clear();
+            pendingFrames.clear();
+        }
+
+        // The responses will never be parsed, so the requests complete with an
+        // error.
+        for(PendingRequest pending: failed)
+            pending.clientRequest.complete();
+
+        closeInternal();
+    }
+
+    @Override
+    protected void read(SelectionKey selectionKey) throws IOException {
+        if(!multiplexing) {
+            super.read(selectionKey);
+            return;
+        }
+
+        int count = 0;
+
+        if((count = socketChannel.read(inputStream.getBuffer())) == -1)
+            throw new EOFException("EOF for " + socketChannel.socket());
+
+        if(logger.isTraceEnabled())
+            traceInputBufferState("Read " + count + " bytes");
+
+        if(count == 0)
+            return;
+
+        ByteBuffer inputBuffer = inputStream.getBuffer();
+        inputBuffer.flip();
+
+        while(inputBuffer.remaining() >= MULTIPLEXED_HEADER_SIZE) {
+            int start = inputBuffer.position();
+            int requestId = inputBuffer.getInt(start);
+            int length = inputBuffer.getInt(start + 4);
+
+            if(length < 0)
+                throw new IOException("Invalid response length " + length + " from "
+                                      + socketChannel.socket());
+
+            int end = start + MULTIPLEXED_HEADER_SIZE + length;
+
+            if(end > inputBuffer.limit())
+                break;
+
+            PendingRequest pending;
+            synchronized(this) {
+                pending = pendingRequests.remove(requestId);
+            }
+
+            if(pending != null) {
+                int limit = inputBuffer.limit();
+                inputBuffer.position(start + MULTIPLEXED_HEADER_SIZE);
+                inputBuffer.limit(end);
+                pending.clientRequest.parseResponse(new DataInputStream(inputStream));
+                inputBuffer.limit(limit);
+                pending.clientRequest.complete();
+            } else if(logger.isDebugEnabled()) {
+                logger.debug("Ignoring response " + requestId + " from " + socketChannel.socket()
+                             + ", its request has already timed out");
+            }
+
+            inputBuffer.position(end);
+        }
+
+        compactMultiplexedInput();
+    }
+
+    @Override
+    protected void write(SelectionKey selectionKey) throws IOException {
+        if(!multiplexing) {
+            super.write(selectionKey);
+            return;
+        }
+
+        if(!outputStream.getBuffer().hasRemaining()) {
+            synchronized(this) {
+                if(pendingFrames.isEmpty()) {
+                    selectionKey.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+
+                if(outputStream.getBuffer().capacity() >= resizeThreshold)
+                    outputStream.setBuffer(ByteBuffer.allocate(socketBufferSize));
+                else
+                    outputStream.getBuffer().clear();
+
+                for(byte[] frame: pendingFrames)
+                    outputStream.write(frame);
+                pendingFrames.clear();
+            }
+
+            outputStream.getBuffer().flip();
+        }
+
+        int count = socketChannel.write(outputStream.getBuffer());
+
+        if(logger.isTraceEnabled())
+            logger.trace("Wrote " + count + " bytes, remaining: "
+                         + outputStream.getBuffer().remaining() + " for " + socketChannel.socket());
+    }
+
+    private static class PendingRequest {
+
+        private final ClientRequest<?> clientRequest;
+        private final long expiration;
+
+        private PendingRequest(ClientRequest<?> clientRequest, long expiration) {
+            this.clientRequest = clientRequest;
+            this.expiration = expiration;
+        }
+    }
+}
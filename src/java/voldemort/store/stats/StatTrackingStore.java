@@ -23,7 +23,9 @@ import javax.management.MBeanOperationInfo;
 
 import voldemort.VoldemortException;
 import voldemort.annotations.jmx.JmxOperation;
+import voldemort.common.nio.FileRegion;
 import voldemort.store.DelegatingStore;
+import voldemort.store.FileRegionReader;
 import voldemort.store.Store;
 import voldemort.store.StoreCapabilityType;
 import voldemort.store.CompositeVoldemortRequest;
@@ -142,10 +144,42 @@ public class StatTrackingStore extends DelegatingStore<ByteArray, byte[], byte[]
     public Object getCapability(StoreCapabilityType capability) {
         if(StoreCapabilityType.STAT_TRACKER.equals(capability))
             return this.stats;
+        else if(StoreCapabilityType.FILE_REGION_READER.equals(capability))
+            return new StatTrackingFileRegionReader((FileRegionReader) super.getCapability(capability));
         else
             return super.getCapability(capability);
     }
 
+    /**
+     * Records the reads of values sent straight from their files as gets
+     */
+    private class StatTrackingFileRegionReader implements FileRegionReader {
+
+        private final FileRegionReader reader;
+
+        private StatTrackingFileRegionReader(FileRegionReader reader) {
+            this.reader = reader;
+        }
+
+        public FileRegion getFileRegion(ByteArray key) throws VoldemortException {
+            FileRegion result = null;
+            long start = System.nanoTime();
+            try {
+                result = reader.getFileRegion(key);
+                return result;
+            } catch(VoldemortException e) {
+                stats.recordTime(Tracked.EXCEPTION, System.nanoTime() - start);
+                throw e;
+            } finally {
+                // Values read with get instead are recorded by get
+                if(result != null)
+                    stats.recordGetTime(System.nanoTime() - start,
+                                        result.getCount() == 0,
+                                        result.getCount());
+            }
+        }
+    }
+
     public StoreStats getStats() {
         return stats;
     }
@@ -109,6 +109,21 @@ public class StoreStatsJmx {
         return stats.getCount(Tracked.OBSOLETE);
     }
 
+    @JmxGetter(name = "numberOfCacheHits", description = "Number of GETs answered from a bounded cache since the last reset.")
+    public long getNumberOfCacheHits() {
+        return stats.getCount(Tracked.CACHE_HIT);
+    }
+
+    @JmxGetter(name = "numberOfCacheMisses", description = "Number of GETs of keys not in a bounded cache since the last reset.")
+    public long getNumberOfCacheMisses() {
+        return stats.getCount(Tracked.CACHE_MISS);
+    }
+
+    @JmxGetter(name = "numberOfCacheEvictions", description = "Number of entries a bounded cache evicted or expired since the last reset.")
+    public long getNumberOfCacheEvictions() {
+        return stats.getCount(Tracked.CACHE_EVICTION);
+    }
+
     @JmxGetter(name = "numberOfExceptions", description = "The number of exceptions since the last reset.")
     public long getNumberOfExceptions() {
         return stats.getCount(Tracked.EXCEPTION);
@@ -6,7 +6,10 @@ public enum Tracked {
     PUT("put"),
     DELETE("delete"),
     EXCEPTION("exception"),
-    OBSOLETE("obsolete");
+    OBSOLETE("obsolete"),
+    CACHE_HIT("cacheHit"),
+    CACHE_MISS("cacheMiss"),
+    CACHE_EVICTION("cacheEviction");
 
     private final String name;
 
@@ -93,4 +93,6 @@ public class ViewStorageConfiguration implements StorageConfiguration {
         throw new UnsupportedViewOperationException("Storage config updates not permitted for "
                                                     + this.getClass().getCanonicalName());
     }
+
+    public void removeStorageEngine(StorageEngine<ByteArray, byte[], byte[]> engine) {}
 }
@@ -143,9 +143,27 @@ public class Utils {
             throw new VoldemortException("Unable to create symbolic link for " + filePath);
     }
 
+    /**
+     * Create a hard link to a file
+     * 
+     * @param filePath The file to link to
+     * @param linkPath The path of the new link
+     */
+    public static void link(String filePath, String linkPath) {
+        if(!new File(filePath).exists())
+            throw new VoldemortException("File " + filePath + " does not exist");
+
+        Posix posix = (Posix) Native.loadLibrary("c", Posix.class);
+        int returnCode = posix.link(filePath, linkPath);
+        if(returnCode < 0)
+            throw new VoldemortException("Unable to create hard link for " + filePath);
+    }
+
     public interface Posix extends Library {
 
         public int symlink(String oldName, String newName);
+
+        public int link(String oldName, String newName);
     }
 
     /**
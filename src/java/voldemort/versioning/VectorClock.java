@@ -18,36 +18,44 @@ package voldemort.versioning;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeMap;
 
 import voldemort.annotations.concurrency.NotThreadsafe;
 import voldemort.utils.ByteUtils;
-import voldemort.utils.Utils;
-
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 
 /**
  * A vector of the number of writes mastered by each node. The vector is stored
  * sparely, since, in general, writes will be mastered by only one node. This
  * means implicitly all the versions are at zero, but we only actually store
  * those greater than zero.
+ * <p>
+ * The node ids and their versions are kept in two arrays sorted by node id,
+ * so that clocks compare and merge in a single pass without boxing. Clocks in
+ * their serialized form can be compared and merged without reading them into
+ * objects, see {@link #compare(byte[], int, byte[], int)}.
  * 
  * 
  */
 @NotThreadsafe
 public class VectorClock implements Version, Serializable {
 
-    private static final long serialVersionUID = 1;
+    // bumped when the fields became arrays, as the old serialized form no longer
+    // reads into them
+    private static final long serialVersionUID = 2;
 
     private static final int MAX_NUMBER_OF_VERSIONS = Short.MAX_VALUE;
 
-    /* A map of versions keyed by nodeId */
-    private final TreeMap<Short, Long> versionMap;
+    private static final short[] NO_NODE_IDS = new short[0];
+
+    private static final long[] NO_VERSIONS = new long[0];
+
+    /* The node ids with a version, sorted */
+    private short[] nodeIds;
+
+    /* The version of each node id, at the same index */
+    private long[] versions;
 
     /*
      * The time of the last update on the server on which the update was
@@ -63,8 +71,7 @@ public class VectorClock implements Version, Serializable {
     }
 
     public VectorClock(long timestamp) {
-        this.versionMap = new TreeMap<Short, Long>();
-        this.timestamp = timestamp;
+        this(NO_NODE_IDS, NO_VERSIONS, timestamp);
     }
 
     /**
@@ -74,21 +81,22 @@ public class VectorClock implements Version, Serializable {
      */
     @Deprecated
     public VectorClock(List<ClockEntry> versions, long timestamp) {
-        this.versionMap = new TreeMap<Short, Long>();
-        this.timestamp = timestamp;
+        this(timestamp);
         for(ClockEntry clockEntry: versions) {
-            this.versionMap.put(clockEntry.getNodeId(), clockEntry.getVersion());
+            setVersion(clockEntry.getNodeId(), clockEntry.getVersion());
         }
     }
 
     /**
-     * Only used for cloning
+     * Only used for cloning and merging
      * 
-     * @param versionMap
+     * @param nodeIds
+     * @param versions
      * @param timestamp
      */
-    private VectorClock(TreeMap<Short, Long> versionMap, long timestamp) {
-        this.versionMap = Utils.notNull(versionMap);
+    private VectorClock(short[] nodeIds, long[] versions, long timestamp) {
+        this.nodeIds = nodeIds;
+        this.versions = versions;
         this.timestamp = timestamp;
     }
 
@@ -111,26 +119,45 @@ public class VectorClock implements Version, Serializable {
      * @param offset The offset to start reading from
      */
     public VectorClock(byte[] bytes, int offset) {
-        if(bytes == null || bytes.length <= offset)
-            throw new IllegalArgumentException("Invalid byte array for serialization--no bytes to read.");
+        checkSerialized(bytes, offset);
         int numEntries = ByteUtils.readShort(bytes, offset);
         int versionSize = bytes[offset + 2];
         int entrySize = ByteUtils.SIZE_OF_SHORT + versionSize;
-        int minimumBytes = offset + ByteUtils.SIZE_OF_SHORT + 1 + numEntries * entrySize
-                           + ByteUtils.SIZE_OF_LONG;
-        if(bytes.length < minimumBytes)
-            throw new IllegalArgumentException("Too few bytes: expected at least " + minimumBytes
-                                               + " but found only " + bytes.length + ".");
 
-        this.versionMap = new TreeMap<Short, Long>();
+        this.nodeIds = numEntries == 0 ? NO_NODE_IDS : new short[numEntries];
+        this.versions = numEntries == 0 ? NO_VERSIONS : new long[numEntries];
+        boolean sorted = true;
         int index = 3 + offset;
         for(int i = 0; i < numEntries; i++) {
-            short nodeId = ByteUtils.readShort(bytes, index);
-            long version = ByteUtils.readBytes(bytes, index + ByteUtils.SIZE_OF_SHORT, versionSize);
-            this.versionMap.put(nodeId, version);
+            nodeIds[i] = ByteUtils.readShort(bytes, index);
+            versions[i] = ByteUtils.readBytes(bytes, index + ByteUtils.SIZE_OF_SHORT, versionSize);
+            if(i > 0 && nodeIds[i] <= nodeIds[i - 1])
+                sorted = false;
             index += entrySize;
         }
         this.timestamp = ByteUtils.readLong(bytes, index);
+
+        // toBytes writes the entries sorted, put up with any that are not
+        if(!sorted) {
+            short[] unsortedNodeIds = nodeIds;
+            long[] unsortedVersions = versions;
+            this.nodeIds = NO_NODE_IDS;
+            this.versions = NO_VERSIONS;
+            for(int i = 0; i < numEntries; i++)
+                setVersion(unsortedNodeIds[i], unsortedVersions[i]);
+        }
+    }
+
+    /**
+     * Checks there are enough bytes for the serialized clock at the offset
+     */
+    private static void checkSerialized(byte[] bytes, int offset) {
+        if(bytes == null || bytes.length <= offset)
+            throw new IllegalArgumentException("Invalid byte array for serialization--no bytes to read.");
+        int minimumBytes = offset + sizeInBytes(bytes, offset);
+        if(bytes.length < minimumBytes)
+            throw new IllegalArgumentException("Too few bytes: expected at least " + minimumBytes
+                                               + " but found only " + bytes.length + ".");
     }
 
     public byte[] toBytes() {
@@ -141,7 +168,7 @@ public class VectorClock implements Version, Serializable {
 
     public int toBytes(byte[] buf, int offset) {
         // write the number of versions
-        ByteUtils.writeShort(buf, (short) versionMap.size(), offset);
+        ByteUtils.writeShort(buf, (short) nodeIds.length, offset);
         offset += ByteUtils.SIZE_OF_SHORT;
         // write the size of each version in bytes
         byte versionSize = ByteUtils.numberOfBytesRequired(getMaxVersion());
@@ -149,11 +176,9 @@ public class VectorClock implements Version, Serializable {
         offset++;
 
         int clockEntrySize = ByteUtils.SIZE_OF_SHORT + versionSize;
-        SortedSet<Short> nodeIds = versionMap.navigableKeySet();
-        for(Short nodeId: nodeIds) {
-            Long version = versionMap.get(nodeId);
-            ByteUtils.writeShort(buf, nodeId, offset);
-            ByteUtils.writeBytes(buf, version, offset + ByteUtils.SIZE_OF_SHORT, versionSize);
+        for(int i = 0; i < nodeIds.length; i++) {
+            ByteUtils.writeShort(buf, nodeIds[i], offset);
+            ByteUtils.writeBytes(buf, versions[i], offset + ByteUtils.SIZE_OF_SHORT, versionSize);
             offset += clockEntrySize;
         }
         ByteUtils.writeLong(buf, this.timestamp, offset);
@@ -162,10 +187,47 @@ public class VectorClock implements Version, Serializable {
 
     public int sizeInBytes() {
         byte versionSize = ByteUtils.numberOfBytesRequired(getMaxVersion());
-        return ByteUtils.SIZE_OF_SHORT + 1 + this.versionMap.size()
+        return ByteUtils.SIZE_OF_SHORT + 1 + this.nodeIds.length
                * (ByteUtils.SIZE_OF_SHORT + versionSize) + ByteUtils.SIZE_OF_LONG;
     }
 
+    /**
+     * The size of a serialized clock, without reading it
+     * 
+     * @param bytes The bytes the clock is in
+     * @param offset The offset the clock starts at
+     * @return The number of bytes of the clock
+     */
+    public static int sizeInBytes(byte[] bytes, int offset) {
+        int numEntries = ByteUtils.readShort(bytes, offset);
+        int versionSize = bytes[offset + 2];
+        return ByteUtils.SIZE_OF_SHORT + 1 + numEntries * (ByteUtils.SIZE_OF_SHORT + versionSize)
+               + ByteUtils.SIZE_OF_LONG;
+    }
+
+    /**
+     * Sets the version of a node, keeping the node ids sorted
+     */
+    private void setVersion(short nodeId, long version) {
+        int index = Arrays.binarySearch(nodeIds, nodeId);
+        if(index >= 0) {
+            versions[index] = version;
+            return;
+        }
+
+        int insertAt = -(index + 1);
+        short[] newNodeIds = new short[nodeIds.length + 1];
+        long[] newVersions = new long[versions.length + 1];
+        System.arraycopy(nodeIds, 0, newNodeIds, 0, insertAt);
+        System.arraycopy(versions, 0, newVersions, 0, insertAt);
+        newNodeIds[insertAt] = nodeId;
+        newVersions[insertAt] = version;
+        System.arraycopy(nodeIds, insertAt, newNodeIds, insertAt + 1, nodeIds.length - insertAt);
+        System.arraycopy(versions, insertAt, newVersions, insertAt + 1, versions.length - insertAt);
+        nodeIds = newNodeIds;
+        versions = newVersions;
+    }
+
     /**
      * Increment the version info associated with the given node
      * 
@@ -178,15 +240,13 @@ public class VectorClock implements Version, Serializable {
 
         this.timestamp = time;
 
-        Long version = versionMap.get((short) node);
-        if(version == null) {
-            version = 1L;
-        } else {
-            version = version + 1L;
-        }
+        int index = Arrays.binarySearch(nodeIds, (short) node);
+        if(index >= 0)
+            versions[index]++;
+        else
+            setVersion((short) node, 1L);
 
-        versionMap.put((short) node, version);
-        if(versionMap.size() >= MAX_NUMBER_OF_VERSIONS) {
+        if(nodeIds.length >= MAX_NUMBER_OF_VERSIONS) {
             throw new IllegalStateException("Vector clock is full!");
         }
 
@@ -207,7 +267,7 @@ public class VectorClock implements Version, Serializable {
 
     @Override
     public VectorClock clone() {
-        return new VectorClock(Maps.newTreeMap(versionMap), this.timestamp);
+        return new VectorClock(nodeIds.clone(), versions.clone(), this.timestamp);
     }
 
     @Override
@@ -219,27 +279,27 @@ public class VectorClock implements Version, Serializable {
         if(!object.getClass().equals(VectorClock.class))
             return false;
         VectorClock clock = (VectorClock) object;
-        return versionMap.equals(clock.versionMap);
+        return Arrays.equals(nodeIds, clock.nodeIds) && Arrays.equals(versions, clock.versions);
     }
 
     @Override
     public int hashCode() {
-        return versionMap.hashCode();
+        // the hash code the clock had as a map of node id to version
+        int hashCode = 0;
+        for(int i = 0; i < nodeIds.length; i++)
+            hashCode += nodeIds[i] ^ (int) (versions[i] ^ (versions[i] >>> 32));
+        return hashCode;
     }
 
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
         builder.append("version(");
-        int versionsLeft = versionMap.size();
-        for(Map.Entry<Short, Long> entry: versionMap.entrySet()) {
-            versionsLeft--;
-            Short node = entry.getKey();
-            Long version = entry.getValue();
-            builder.append(node + ":" + version);
-            if(versionsLeft > 0) {
+        for(int i = 0; i < nodeIds.length; i++) {
+            if(i > 0) {
                 builder.append(", ");
             }
+            builder.append(nodeIds[i] + ":" + versions[i]);
         }
         builder.append(")");
         builder.append(" ts:" + timestamp);
@@ -248,26 +308,77 @@ public class VectorClock implements Version, Serializable {
 
     public long getMaxVersion() {
         long max = -1;
-        for(Long version: versionMap.values())
+        for(long version: versions)
             max = Math.max(version, max);
         return max;
     }
 
     public VectorClock merge(VectorClock clock) {
-        VectorClock newClock = new VectorClock();
-        for(Map.Entry<Short, Long> entry: this.versionMap.entrySet()) {
-            newClock.versionMap.put(entry.getKey(), entry.getValue());
+        int size = 0;
+        short[] mergedNodeIds = new short[nodeIds.length + clock.nodeIds.length];
+        long[] mergedVersions = new long[mergedNodeIds.length];
+        int i = 0, j = 0;
+        while(i < nodeIds.length || j < clock.nodeIds.length) {
+            if(j == clock.nodeIds.length
+               || (i < nodeIds.length && nodeIds[i] < clock.nodeIds[j])) {
+                mergedNodeIds[size] = nodeIds[i];
+                mergedVersions[size++] = versions[i++];
+            } else if(i == nodeIds.length || clock.nodeIds[j] < nodeIds[i]) {
+                mergedNodeIds[size] = clock.nodeIds[j];
+                mergedVersions[size++] = clock.versions[j++];
+            } else {
+                mergedNodeIds[size] = nodeIds[i];
+                mergedVersions[size++] = Math.max(versions[i++], clock.versions[j++]);
+            }
         }
-        for(Map.Entry<Short, Long> entry: clock.versionMap.entrySet()) {
-            Long version = newClock.versionMap.get(entry.getKey());
-            if(version == null) {
-                newClock.versionMap.put(entry.getKey(), entry.getValue());
+
+        return new VectorClock(Arrays.copyOf(mergedNodeIds, size),
+                               Arrays.copyOf(mergedVersions, size),
+                               System.currentTimeMillis());
+    }
+
+    /**
+     * Merges this clock with one in its serialized form
+     * 
+     * @param bytes The bytes the other clock is in
+     * @param offset The offset the other clock starts at
+     * @return A clock with the larger version of each node of the two
+     */
+    public VectorClock merge(byte[] bytes, int offset) {
+        checkSerialized(bytes, offset);
+        int numEntries = ByteUtils.readShort(bytes, offset);
+        int versionSize = bytes[offset + 2];
+        int entrySize = ByteUtils.SIZE_OF_SHORT + versionSize;
+        int index = offset + 3;
+
+        int size = 0;
+        short[] mergedNodeIds = new short[nodeIds.length + numEntries];
+        long[] mergedVersions = new long[mergedNodeIds.length];
+        int i = 0, j = 0;
+        while(i < nodeIds.length || j < numEntries) {
+            short otherNodeId = j < numEntries ? ByteUtils.readShort(bytes, index) : 0;
+            if(j == numEntries || (i < nodeIds.length && nodeIds[i] < otherNodeId)) {
+                mergedNodeIds[size] = nodeIds[i];
+                mergedVersions[size++] = versions[i++];
+                continue;
+            }
+            long otherVersion = ByteUtils.readBytes(bytes,
+                                                    index + ByteUtils.SIZE_OF_SHORT,
+                                                    versionSize);
+            if(i == nodeIds.length || otherNodeId < nodeIds[i]) {
+                mergedNodeIds[size] = otherNodeId;
+                mergedVersions[size++] = otherVersion;
             } else {
-                newClock.versionMap.put(entry.getKey(), Math.max(version, entry.getValue()));
+                mergedNodeIds[size] = nodeIds[i];
+                mergedVersions[size++] = Math.max(versions[i++], otherVersion);
             }
+            j++;
+            index += entrySize;
         }
 
-        return newClock;
+        return new VectorClock(Arrays.copyOf(mergedNodeIds, size),
+                               Arrays.copyOf(mergedVersions, size),
+                               System.currentTimeMillis());
     }
 
     @Override
@@ -297,36 +408,146 @@ public class VectorClock implements Version, Serializable {
         boolean v1Bigger = false;
         boolean v2Bigger = false;
 
-        SortedSet<Short> v1Nodes = v1.versionMap.navigableKeySet();
-        SortedSet<Short> v2Nodes = v2.versionMap.navigableKeySet();
-        // get clocks(nodeIds) that both v1 and v2 has
-        SortedSet<Short> commonNodes = Sets.newTreeSet(v1Nodes);
-        commonNodes.retainAll(v2Nodes);
-        // if v1 has more nodes than common nodes
-        // v1 has clocks that v2 does not
-        if(v1Nodes.size() > commonNodes.size()) {
-            v1Bigger = true;
+        // walk the node ids of both in order, a node id only one of them has
+        // makes that one bigger
+        int i = 0, j = 0;
+        while(i < v1.nodeIds.length && j < v2.nodeIds.length && !(v1Bigger && v2Bigger)) {
+            if(v1.nodeIds[i] < v2.nodeIds[j]) {
+                v1Bigger = true;
+                i++;
+            } else if(v1.nodeIds[i] > v2.nodeIds[j]) {
+                v2Bigger = true;
+                j++;
+            } else {
+                if(v1.versions[i] > v2.versions[j]) {
+                    v1Bigger = true;
+                } else if(v1.versions[i] < v2.versions[j]) {
+                    v2Bigger = true;
+                }
+                i++;
+                j++;
+            }
         }
-        // if v2 has more nodes than common nodes
-        // v2 has clocks that v1 does not
-        if(v2Nodes.size() > commonNodes.size()) {
+        if(i < v1.nodeIds.length)
+            v1Bigger = true;
+        if(j < v2.nodeIds.length)
             v2Bigger = true;
-        }
-        // compare the common parts
-        for(Short nodeId: commonNodes) {
-            // no need to compare more
-            if(v1Bigger && v2Bigger) {
-                break;
+
+        return occurred(v1Bigger, v2Bigger);
+    }
+
+    /**
+     * Compares this clock with one in its serialized form, see
+     * {@link #compare(VectorClock, VectorClock)}
+     * 
+     * @param bytes The bytes the other clock is in
+     * @param offset The offset the other clock starts at
+     * @return How this clock occurred relative to the other
+     */
+    public Occurred compare(byte[] bytes, int offset) {
+        checkSerialized(bytes, offset);
+        int numEntries = ByteUtils.readShort(bytes, offset);
+        int versionSize = bytes[offset + 2];
+        int entrySize = ByteUtils.SIZE_OF_SHORT + versionSize;
+        int index = offset + 3;
+
+        boolean v1Bigger = false;
+        boolean v2Bigger = false;
+        int i = 0, j = 0;
+        while(i < nodeIds.length && j < numEntries && !(v1Bigger && v2Bigger)) {
+            short otherNodeId = ByteUtils.readShort(bytes, index);
+            if(nodeIds[i] < otherNodeId) {
+                v1Bigger = true;
+                i++;
+                continue;
+            } else if(nodeIds[i] > otherNodeId) {
+                v2Bigger = true;
+            } else {
+                long otherVersion = ByteUtils.readBytes(bytes,
+                                                        index + ByteUtils.SIZE_OF_SHORT,
+                                                        versionSize);
+                if(versions[i] > otherVersion) {
+                    v1Bigger = true;
+                } else if(versions[i] < otherVersion) {
+                    v2Bigger = true;
+                }
+                i++;
             }
-            long v1Version = v1.versionMap.get(nodeId);
-            long v2Version = v2.versionMap.get(nodeId);
-            if(v1Version > v2Version) {
+            j++;
+            index += entrySize;
+        }
+        if(i < nodeIds.length)
+            v1Bigger = true;
+        if(j < numEntries)
+            v2Bigger = true;
+
+        return occurred(v1Bigger, v2Bigger);
+    }
+
+    /**
+     * Compares two clocks in their serialized form, without reading them into
+     * objects, see {@link #compare(VectorClock, VectorClock)}. The node ids of
+     * each must be sorted, as {@link #toBytes()} writes them.
+     * 
+     * @param bytes1 The bytes the first clock is in
+     * @param offset1 The offset the first clock starts at
+     * @param bytes2 The bytes the second clock is in
+     * @param offset2 The offset the second clock starts at
+     * @return How the first clock occurred relative to the second
+     */
+    public static Occurred compare(byte[] bytes1, int offset1, byte[] bytes2, int offset2) {
+        checkSerialized(bytes1, offset1);
+        checkSerialized(bytes2, offset2);
+        int numEntries1 = ByteUtils.readShort(bytes1, offset1);
+        int versionSize1 = bytes1[offset1 + 2];
+        int entrySize1 = ByteUtils.SIZE_OF_SHORT + versionSize1;
+        int index1 = offset1 + 3;
+        int numEntries2 = ByteUtils.readShort(bytes2, offset2);
+        int versionSize2 = bytes2[offset2 + 2];
+        int entrySize2 = ByteUtils.SIZE_OF_SHORT + versionSize2;
+        int index2 = offset2 + 3;
+
+        boolean v1Bigger = false;
+        boolean v2Bigger = false;
+        int i = 0, j = 0;
+        while(i < numEntries1 && j < numEntries2 && !(v1Bigger && v2Bigger)) {
+            short nodeId1 = ByteUtils.readShort(bytes1, index1);
+            short nodeId2 = ByteUtils.readShort(bytes2, index2);
+            if(nodeId1 < nodeId2) {
                 v1Bigger = true;
-            } else if(v1Version < v2Version) {
+                i++;
+                index1 += entrySize1;
+            } else if(nodeId1 > nodeId2) {
                 v2Bigger = true;
+                j++;
+                index2 += entrySize2;
+            } else {
+                long version1 = ByteUtils.readBytes(bytes1,
+                                                    index1 + ByteUtils.SIZE_OF_SHORT,
+                                                    versionSize1);
+                long version2 = ByteUtils.readBytes(bytes2,
+                                                    index2 + ByteUtils.SIZE_OF_SHORT,
+                                                    versionSize2);
+                if(version1 > version2) {
+                    v1Bigger = true;
+                } else if(version1 < version2) {
+                    v2Bigger = true;
+                }
+                i++;
+                index1 += entrySize1;
+                j++;
+                index2 += entrySize2;
             }
         }
+        if(i < numEntries1)
+            v1Bigger = true;
+        if(j < numEntries2)
+            v2Bigger = true;
 
+        return occurred(v1Bigger, v2Bigger);
+    }
+
+    private static Occurred occurred(boolean v1Bigger, boolean v2Bigger) {
         /*
          * This is the case where they are equal. Consciously return BEFORE, so
          * that the we would throw back an ObsoleteVersionException for online
@@ -351,9 +572,9 @@ public class VectorClock implements Version, Serializable {
 
     @Deprecated
     public List<ClockEntry> getEntries() {
-        List<ClockEntry> clocks = new ArrayList<ClockEntry>(versionMap.size());
-        for(Map.Entry<Short, Long> entry: versionMap.entrySet()) {
-            clocks.add(new ClockEntry(entry.getKey(), entry.getValue()));
+        List<ClockEntry> clocks = new ArrayList<ClockEntry>(nodeIds.length);
+        for(int i = 0; i < nodeIds.length; i++) {
+            clocks.add(new ClockEntry(nodeIds[i], versions[i]));
         }
         return Collections.unmodifiableList(clocks);
     }
@@ -366,10 +587,8 @@ public class VectorClock implements Version, Serializable {
      *        copied.
      */
     public void copyFromVectorClock(VectorClock vc) {
-        this.versionMap.clear();
         this.timestamp = vc.getTimestamp();
-        for(ClockEntry clockEntry: vc.getEntries()) {
-            this.versionMap.put(clockEntry.getNodeId(), clockEntry.getVersion());
-        }
+        this.nodeIds = vc.nodeIds.clone();
+        this.versions = vc.versions.clone();
     }
 }
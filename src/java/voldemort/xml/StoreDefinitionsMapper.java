@@ -99,6 +99,7 @@ public class StoreDefinitionsMapper {
     public final static String VIEW_SERIALIZER_FACTORY_ELMT = "view-serializer-factory";
     private final static String STORE_VERSION_ATTR = "version";
     private final static String STORE_MEMORY_FOOTPRINT = "memory-footprint";
+    private final static String STORE_READ_ONLY_COMPRESSION_ELMT = "read-only-compression";
 
     private final Schema schema;
 
@@ -261,6 +262,12 @@ public class StoreDefinitionsMapper {
         if(memoryFootprintStr != null)
             memoryFootprintMB = Long.parseLong(memoryFootprintStr);
 
+        Element readOnlyCompressionElmt = store.getChild(STORE_READ_ONLY_COMPRESSION_ELMT);
+        Compression readOnlyCompression = null;
+        if(readOnlyCompressionElmt != null)
+            readOnlyCompression = new Compression(readOnlyCompressionElmt.getChildText(STORE_COMPRESSION_TYPE_ELMT),
+                                                  readOnlyCompressionElmt.getChildText(STORE_COMPRESSION_OPTIONS_ELMT));
+
         return new StoreDefinitionBuilder().setName(name)
                                            .setType(storeType)
                                            .setDescription(description)
@@ -283,6 +290,7 @@ public class StoreDefinitionsMapper {
                                            .setHintedHandoffStrategy(hintedHandoffStrategy)
                                            .setHintPrefListSize(hintPrefListSize)
                                            .setMemoryFootprintMB(memoryFootprintMB)
+                                           .setReadOnlyCompression(readOnlyCompression)
                                            .build();
     }
 
@@ -479,6 +487,12 @@ public class StoreDefinitionsMapper {
             store.addContent(new Element(STORE_MEMORY_FOOTPRINT).setText(Long.toString(storeDefinition.getMemoryFootprintMB())));
         }
 
+        if(storeDefinition.hasReadOnlyCompression()) {
+            Element readOnlyCompression = new Element(STORE_READ_ONLY_COMPRESSION_ELMT);
+            addCompression(readOnlyCompression, storeDefinition.getReadOnlyCompression());
+            store.addContent(readOnlyCompression);
+        }
+
         return store;
     }
 
@@ -543,21 +557,24 @@ public class StoreDefinitionsMapper {
         }
 
         if(def.hasCompression()) {
-            Compression compression = def.getCompression();
             Element compressionElmt = new Element(STORE_COMPRESSION_ELMT);
-            Element type = new Element(STORE_COMPRESSION_TYPE_ELMT);
-            type.setText(compression.getType());
-            compressionElmt.addContent(type);
-            String optionsText = compression.getOptions();
-            if(optionsText != null) {
-                Element options = new Element(STORE_COMPRESSION_OPTIONS_ELMT);
-                options.setText(optionsText);
-                compressionElmt.addContent(options);
-            }
+            addCompression(compressionElmt, def.getCompression());
             parent.addContent(compressionElmt);
         }
     }
 
+    private static void addCompression(Element compressionElmt, Compression compression) {
+        Element type = new Element(STORE_COMPRESSION_TYPE_ELMT);
+        type.setText(compression.getType());
+        compressionElmt.addContent(type);
+        String optionsText = compression.getOptions();
+        if(optionsText != null) {
+            Element options = new Element(STORE_COMPRESSION_OPTIONS_ELMT);
+            options.setText(optionsText);
+            compressionElmt.addContent(options);
+        }
+    }
+
     public Integer getChildWithDefault(Element elmt, String property, Integer defaultVal) {
         if(elmt.getChildText(property) == null)
             return defaultVal;
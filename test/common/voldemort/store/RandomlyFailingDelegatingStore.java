@@ -105,6 +105,11 @@ public class RandomlyFailingDelegatingStore<K, V, T> extends DelegatingStore<K,
         };
     }
 
+    @Override
+    public ClosableIterator<Pair<K, Versioned<V>>> entries(int partition, K startKey) {
+        throw new UnsupportedOperationException("Resumable partition scan not supported");
+    }
+
     @Override
     public ClosableIterator<K> keys(final int partition) {
         return new ClosableIterator<K>() {
@@ -153,6 +158,11 @@ public class RandomlyFailingDelegatingStore<K, V, T> extends DelegatingStore<K,
         return innerStorageEngine.isPartitionScanSupported();
     }
 
+    @Override
+    public boolean isPartitionScanResumable() {
+        return false;
+    }
+
     @Override
     public boolean beginBatchModifications() {
         return false;
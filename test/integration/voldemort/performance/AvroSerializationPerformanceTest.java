@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.performance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.Utf8;
+
+import voldemort.serialization.Serializer;
+import voldemort.serialization.avro.AvroGenericSerializer;
+import voldemort.serialization.avro.versioned.AvroVersionedGenericSerializer;
+import voldemort.utils.Utils;
+
+/**
+ * Measures the time the Avro generic serializers take to serialize and
+ * deserialize a small record, against making a new datum writer, datum
+ * reader, stream, encoder and decoder, and parsing the schemas, for every
+ * object as they used to. The versioned serializer reads objects written with
+ * an older version of the schema, so the two have to be resolved.
+ */
+public class AvroSerializationPerformanceTest {
+
+    private static final String SCHEMA_V0 = "{\"type\": \"record\", \"name\": \"member\", \"fields\": ["
+                                            + "{\"name\": \"id\", \"type\": \"long\"},"
+                                            + "{\"name\": \"name\", \"type\": \"string\"},"
+                                            + "{\"name\": \"tags\", \"type\": {\"type\": \"array\", \"items\": \"string\"}}]}";
+
+    private static final String SCHEMA_V1 = "{\"type\": \"record\", \"name\": \"member\", \"fields\": ["
+                                            + "{\"name\": \"id\", \"type\": \"long\"},"
+                                            + "{\"name\": \"name\", \"type\": \"string\"},"
+                                            + "{\"name\": \"tags\", \"type\": {\"type\": \"array\", \"items\": \"string\"}},"
+                                            + "{\"name\": \"score\", \"type\": \"int\", \"default\": 0}]}";
+
+    public static void main(String[] args) throws Exception {
+        if(args.length != 2)
+            Utils.croak("USAGE: java " + AvroSerializationPerformanceTest.class.getName()
+                        + " num-iterations num-rounds");
+        int numIterations = Integer.parseInt(args[0]);
+        int numRounds = Integer.parseInt(args[1]);
+
+        GenericData.Record record = makeRecord(Schema.parse(SCHEMA_V0));
+        GenericData.Record newestRecord = makeRecord(Schema.parse(SCHEMA_V1));
+        newestRecord.put("score", 7);
+
+        Map<Integer, String> versions = new HashMap<Integer, String>();
+        versions.put(0, SCHEMA_V0);
+        versions.put(1, SCHEMA_V1);
+
+        Serializer<Object> perCall = new PerCallGenericSerializer(SCHEMA_V0);
+        Serializer<Object> cached = new AvroGenericSerializer(SCHEMA_V0);
+        Serializer<Object> perCallVersioned = new PerCallVersionedSerializer(versions);
+        Serializer<Object> cachedVersioned = new AvroVersionedGenericSerializer(versions);
+        byte[] versionedBytes = new AvroVersionedGenericSerializer(SCHEMA_V0).toBytes(record);
+
+        System.out.println("serializer\ttoBytes ns/op\ttoObject ns/op");
+        for(int round = 0; round < numRounds; round++) {
+            // the first round warms up
+            boolean print = round > 0 || numRounds == 1;
+            run("generic per call", perCall, record, null, numIterations, print);
+            run("generic cached", cached, record, null, numIterations, print);
+            run("versioned per call",
+                perCallVersioned,
+                newestRecord,
+                versionedBytes,
+                numIterations,
+                print);
+            run("versioned cached",
+                cachedVersioned,
+                newestRecord,
+                versionedBytes,
+                numIterations,
+                print);
+        }
+    }
+
+    private static GenericData.Record makeRecord(Schema schema) {
+        GenericData.Record record = new GenericData.Record(schema);
+        record.put("id", 1234567L);
+        record.put("name", new Utf8("some member"));
+        GenericData.Array<Utf8> tags = new GenericData.Array<Utf8>(3, schema.getField("tags")
+                                                                            .schema());
+        for(int i = 0; i < 3; i++)
+            tags.add(new Utf8("tag" + i));
+        record.put("tags", tags);
+        return record;
+    }
+
+    private static void run(String name,
+                            Serializer<Object> serializer,
+                            Object object,
+                            byte[] bytes,
+                            int numIterations,
+                            boolean print) {
+        // keeps the results alive
+        long sink = 0;
+
+        long startNs = System.nanoTime();
+        for(int i = 0; i < numIterations; i++)
+            sink += serializer.toBytes(object).length;
+        long toBytesNs = System.nanoTime() - startNs;
+
+        if(bytes == null)
+            bytes = serializer.toBytes(object);
+        startNs = System.nanoTime();
+        for(int i = 0; i < numIterations; i++)
+            sink += serializer.toObject(bytes).hashCode();
+        long toObjectNs = System.nanoTime() - startNs;
+
+        if(print)
+            System.out.println(name + "\t" + (toBytesNs / numIterations) + "\t"
+                               + (toObjectNs / numIterations) + (sink == 42 ? " " : ""));
+    }
+
+    /**
+     * The generic serializer as it was, with new writers, readers, streams and
+     * coders for every object
+     */
+    private static class PerCallGenericSerializer implements Serializer<Object> {
+
+        private final Schema typeDef;
+
+        public PerCallGenericSerializer(String schema) {
+            typeDef = Schema.parse(schema);
+        }
+
+        public byte[] toBytes(Object object) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try {
+                BinaryEncoder encoder = new BinaryEncoder(output);
+                new GenericDatumWriter<Object>(typeDef).write(object, encoder);
+                encoder.flush();
+            } catch(IOException e) {
+                throw new RuntimeException(e);
+            }
+            return output.toByteArray();
+        }
+
+        public Object toObject(byte[] bytes) {
+            Decoder decoder = DecoderFactory.defaultFactory().createBinaryDecoder(bytes, null);
+            try {
+                return new GenericDatumReader<Object>(typeDef).read(null, decoder);
+            } catch(IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * The versioned serializer as it was, parsing the writer's schema and
+     * resolving it against the reader's for every object read
+     */
+    private static class PerCallVersionedSerializer implements Serializer<Object> {
+
+        private final Map<Integer, String> typeDefVersions;
+        private final Integer newestVersion;
+        private final Schema typeDef;
+
+        public PerCallVersionedSerializer(Map<Integer, String> typeDefVersions) {
+            this.typeDefVersions = typeDefVersions;
+            this.newestVersion = 1;
+            this.typeDef = Schema.parse(typeDefVersions.get(newestVersion));
+        }
+
+        public byte[] toBytes(Object object) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            output.write(newestVersion.byteValue());
+            try {
+                BinaryEncoder encoder = new BinaryEncoder(output);
+                new GenericDatumWriter<Object>(typeDef).write(object, encoder);
+                encoder.flush();
+            } catch(IOException e) {
+                throw new RuntimeException(e);
+            }
+            return output.toByteArray();
+        }
+
+        public Object toObject(byte[] bytes) {
+            Schema writer = Schema.parse(typeDefVersions.get(Integer.valueOf(bytes[0])));
+            byte[] dataBytes = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, dataBytes, 0, bytes.length - 1);
+            Decoder decoder = DecoderFactory.defaultFactory().createBinaryDecoder(dataBytes, null);
+            try {
+                return new GenericDatumReader<Object>(writer, typeDef).read(null, decoder);
+            } catch(IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import voldemort.store.StorageEngine;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.utils.Utils;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+/**
+ * Measures how the throughput of an {@link InMemoryStorageEngine} scales with
+ * the number of threads hitting it. Each round runs the given number of
+ * threads in a tight loop of gets and puts on random keys for a fixed time,
+ * after a warmup of the same length, and reports the operations per second
+ * against those of a single thread.
+ */
+public class InMemoryStorageEngineContentionTest {
+
+    public static void main(String[] args) throws Exception {
+        if(args.length < 3 || args.length > 4)
+            Utils.croak("USAGE: java " + InMemoryStorageEngineContentionTest.class.getName()
+                        + " num-keys read-fraction seconds-per-round [max-threads]");
+        int numKeys = Integer.parseInt(args[0]);
+        double readFraction = Double.parseDouble(args[1]);
+        long roundMs = Long.parseLong(args[2]) * 1000;
+        int maxThreads = args.length > 3 ? Integer.parseInt(args[3])
+                                        : Runtime.getRuntime().availableProcessors();
+
+        StorageEngine<ByteArray, byte[], byte[]> engine = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test");
+        ByteArray[] keys = new ByteArray[numKeys];
+        for(int i = 0; i < numKeys; i++) {
+            keys[i] = new ByteArray(Integer.toString(i).getBytes());
+            engine.put(keys[i], new Versioned<byte[]>(keys[i].get()), null);
+        }
+
+        System.out.println("threads\tops/sec\tscaling");
+        double singleThreadOps = 0;
+        List<Integer> threadCounts = new ArrayList<Integer>();
+        for(int numThreads = 1; numThreads < maxThreads; numThreads *= 2)
+            threadCounts.add(numThreads);
+        threadCounts.add(maxThreads);
+
+        for(int numThreads: threadCounts) {
+            // the first run of each round warms up
+            runRound(engine, keys, readFraction, numThreads, roundMs);
+            double opsPerSec = runRound(engine, keys, readFraction, numThreads, roundMs);
+            if(numThreads == 1)
+                singleThreadOps = opsPerSec;
+            System.out.println(numThreads + "\t" + Math.round(opsPerSec) + "\t"
+                               + String.format("%.2f", opsPerSec / singleThreadOps));
+        }
+    }
+
+    private static double runRound(final StorageEngine<ByteArray, byte[], byte[]> engine,
+                                    final ByteArray[] keys,
+                                    final double readFraction,
+                                    int numThreads,
+                                    long roundMs) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicLong numOps = new AtomicLong(0);
+        final long[] endNs = new long[1];
+        List<Thread> threads = new ArrayList<Thread>(numThreads);
+
+        for(int i = 0; i < numThreads; i++) {
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+                    Random random = new Random();
+                    long ops = 0;
+                    try {
+                        start.await();
+                    } catch(InterruptedException e) {
+                        return;
+                    }
+                    while(System.nanoTime() < endNs[0]) {
+                        ByteArray key = keys[random.nextInt(keys.length)];
+                        if(random.nextDouble() < readFraction) {
+                            engine.get(key, null);
+                        } else {
+                            List<Versioned<byte[]>> current = engine.get(key, null);
+                            VectorClock clock = current.isEmpty() ? new VectorClock()
+                                                                 : (VectorClock) current.get(0)
+                                                                                        .getVersion();
+                            try {
+                                engine.put(key,
+                                           new Versioned<byte[]>(key.get(),
+                                                                 clock.incremented(0,
+                                                                                   System.currentTimeMillis())),
+                                           null);
+                            } catch(ObsoleteVersionException e) {
+                                // lost the race to another writer of the key
+                            }
+                        }
+                        ops++;
+                    }
+                    numOps.addAndGet(ops);
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+
+        long startNs = System.nanoTime();
+        endNs[0] = startNs + roundMs * 1000 * 1000;
+        start.countDown();
+        for(Thread thread: threads)
+            thread.join();
+        return numOps.get() / ((System.nanoTime() - startNs) / 1e9);
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import voldemort.ServerTestUtils;
+import voldemort.TestUtils;
+import voldemort.VoldemortException;
+import voldemort.client.protocol.admin.AdminClient;
+import voldemort.client.protocol.admin.AdminClientConfig;
+import voldemort.client.protocol.admin.BulkStreamFormat;
+import voldemort.cluster.Cluster;
+import voldemort.routing.RoutingStrategy;
+import voldemort.routing.RoutingStrategyFactory;
+import voldemort.server.VoldemortServer;
+import voldemort.store.StorageEngine;
+import voldemort.store.StoreDefinition;
+import voldemort.store.UnreachableStoreException;
+import voldemort.store.socket.SocketStoreFactory;
+import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
+import voldemort.utils.ByteArray;
+import voldemort.utils.Pair;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+import voldemort.xml.StoreDefinitionsMapper;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Streams entries between servers in the bulk format, and in the protobuf
+ * format when a server does not take the bulk one
+ */
+@RunWith(Parameterized.class)
+public class AdminBulkStreamTest {
+
+    private static int TEST_STREAM_KEYS_SIZE = 500;
+    private static int FRAME_SIZE = 1024;
+    private static String storesXmlfile = "test/common/voldemort/config/stores.xml";
+
+    private List<StoreDefinition> storeDefs;
+    private VoldemortServer[] servers;
+    private Cluster cluster;
+    private AdminClient adminClient;
+    private SocketStoreFactory socketStoreFactory;
+    private Properties serverProperties;
+
+    private final boolean useNio;
+    private final boolean bulkStreamEnabled;
+
+    public AdminBulkStreamTest(boolean useNio, boolean bulkStreamEnabled) {
+        this.useNio = useNio;
+        this.bulkStreamEnabled = bulkStreamEnabled;
+    }
+
+    @Parameters
+    public static Collection<Object[]> configs() {
+        return Arrays.asList(new Object[][] { { true, true }, { true, false }, { false, true },
+                { false, false } });
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        socketStoreFactory = new ClientRequestExecutorPool(2, 10000, 100000, 32 * 1024);
+        servers = new VoldemortServer[2];
+        int partitionMap[][] = { { 0, 1, 2, 3 }, { 4, 5, 6, 7 } };
+        serverProperties = new Properties();
+        serverProperties.setProperty("bdb.prefix.keys.with.partitionid", "true");
+        serverProperties.setProperty("admin.streams.bulk.enable",
+                                     Boolean.toString(bulkStreamEnabled));
+        serverProperties.setProperty("admin.streams.bulk.frame.size", Integer.toString(FRAME_SIZE));
+        cluster = ServerTestUtils.startVoldemortCluster(2,
+                                                        servers,
+                                                        partitionMap,
+                                                        socketStoreFactory,
+                                                        useNio,
+                                                        null,
+                                                        storesXmlfile,
+                                                        serverProperties);
+        storeDefs = new StoreDefinitionsMapper().readStoreList(new File(storesXmlfile));
+        adminClient = new AdminClient(cluster,
+                                      new AdminClientConfig().setBulkStreamFrameSize(FRAME_SIZE),
+                                      new ClientConfig());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        adminClient.close();
+        for(VoldemortServer server: servers) {
+            ServerTestUtils.stopVoldemortServer(server);
+        }
+        socketStoreFactory.close();
+    }
+
+    private StorageEngine<ByteArray, byte[], byte[]> getStore(int nodeId, String storeName) {
+        return servers[nodeId].getStoreRepository().getStorageEngine(storeName);
+    }
+
+    private StoreDefinition getStoreDef(String storeName) {
+        for(StoreDefinition storeDef: storeDefs)
+            if(storeDef.getName().equals(storeName))
+                return storeDef;
+        throw new IllegalArgumentException(storeName);
+    }
+
+    private void assertSameVersions(List<Versioned<byte[]>> expected,
+                                    List<Versioned<byte[]>> actual) {
+        // the versions are in no particular order, and byte[] values are not
+        // hashed by value
+        assertEquals(expected.size(), actual.size());
+        for(Versioned<byte[]> versioned: expected)
+            assertTrue(actual.contains(versioned));
+    }
+
+    private void testFetchAndUpdate(String storeName, boolean concurrentVersions) {
+        RoutingStrategy strategy = new RoutingStrategyFactory().updateRoutingStrategy(getStoreDef(storeName),
+                                                                                      cluster);
+        List<Integer> partitions = cluster.getNodeById(0).getPartitionIds();
+        StorageEngine<ByteArray, byte[], byte[]> store0 = getStore(0, storeName);
+        Random random = new Random(0);
+
+        // keys mastered on node 0, some of them with concurrent versions and
+        // some of them larger than a frame
+        Map<ByteArray, List<Versioned<byte[]>>> expected = Maps.newHashMap();
+        int numEntries = 0;
+        for(int i = 0; numEntries < TEST_STREAM_KEYS_SIZE; i++) {
+            ByteArray key = new ByteArray(("key" + i).getBytes());
+            if(!partitions.contains(strategy.getPartitionList(key.get()).get(0)))
+                continue;
+            List<Versioned<byte[]>> versions = new ArrayList<Versioned<byte[]>>();
+            int numVersions = concurrentVersions && i % 10 == 0 ? 2 : 1;
+            for(int nodeId = 0; nodeId < numVersions; nodeId++) {
+                byte[] value = new byte[random.nextInt(i % 50 == 0 ? 3 * FRAME_SIZE : 100)];
+                random.nextBytes(value);
+                VectorClock clock = new VectorClock().incremented(nodeId,
+                                                                  System.currentTimeMillis());
+                Versioned<byte[]> versioned = new Versioned<byte[]>(value, clock);
+                store0.put(key, versioned, null);
+                versions.add(versioned);
+                numEntries++;
+            }
+            expected.put(key, versions);
+        }
+
+        HashMap<Integer, List<Integer>> replicaToPartitionList = Maps.newHashMap();
+        replicaToPartitionList.put(0, partitions);
+        Iterator<Pair<ByteArray, Versioned<byte[]>>> fetchIt = adminClient.bulkFetchOps.fetchEntries(0,
+                                                                                                     storeName,
+                                                                                                     replicaToPartitionList,
+                                                                                                     null,
+                                                                                                     false,
+                                                                                                     null,
+                                                                                                     0);
+        List<Pair<ByteArray, Versioned<byte[]>>> fetched = new ArrayList<Pair<ByteArray, Versioned<byte[]>>>();
+        Map<ByteArray, List<Versioned<byte[]>>> fetchedVersions = Maps.newHashMap();
+        while(fetchIt.hasNext()) {
+            Pair<ByteArray, Versioned<byte[]>> entry = fetchIt.next();
+            fetched.add(entry);
+            if(!fetchedVersions.containsKey(entry.getFirst()))
+                fetchedVersions.put(entry.getFirst(), new ArrayList<Versioned<byte[]>>());
+            fetchedVersions.get(entry.getFirst()).add(entry.getSecond());
+        }
+        assertEquals("All entries should be fetched", numEntries, fetched.size());
+        assertEquals(expected.keySet(), fetchedVersions.keySet());
+        for(Map.Entry<ByteArray, List<Versioned<byte[]>>> entry: expected.entrySet())
+            assertSameVersions(entry.getValue(), fetchedVersions.get(entry.getKey()));
+
+        adminClient.streamingOps.updateEntries(1, storeName, fetched.iterator(), null);
+
+        StorageEngine<ByteArray, byte[], byte[]> store1 = getStore(1, storeName);
+        for(Map.Entry<ByteArray, List<Versioned<byte[]>>> entry: expected.entrySet()) {
+            assertSameVersions(entry.getValue(), store1.get(entry.getKey(), null));
+        }
+    }
+
+    @Test
+    public void testPartitionScanFetchAndUpdate() {
+        testFetchAndUpdate("users", true);
+    }
+
+    @Test
+    public void testFullScanFetchAndUpdate() {
+        // a full scan of the memory engine visits a key once per version
+        testFetchAndUpdate("test-replication-memory", false);
+    }
+
+    /**
+     * A node restarted with the bulk format switched over is asked again
+     * rather than streamed to in the format it took before
+     */
+    @Test
+    public void testRestartedNodeIsProbedAgain() throws IOException {
+        String storeName = "users";
+        List<Pair<ByteArray, Versioned<byte[]>>> entries = new ArrayList<Pair<ByteArray, Versioned<byte[]>>>();
+        for(int i = 0; i < 10; i++)
+            entries.add(Pair.create(new ByteArray(("key" + i).getBytes()),
+                                    new Versioned<byte[]>(("value" + i).getBytes(),
+                                                          new VectorClock().incremented(0, i))));
+        adminClient.streamingOps.updateEntries(1, storeName, entries.subList(0, 5).iterator(), null);
+
+        ServerTestUtils.stopVoldemortServer(servers[1]);
+        // streams fail on each connection the client kept to the node, until
+        // it can not connect at all
+        for(int attempt = 0;; attempt++) {
+            try {
+                adminClient.streamingOps.updateEntries(1,
+                                                       storeName,
+                                                       entries.subList(5, 10).iterator(),
+                                                       null);
+                fail("Should have thrown an exception since node 1 is down");
+            } catch(UnreachableStoreException e) {
+                break;
+            } catch(VoldemortException e) {
+                assertTrue(attempt < 10);
+            }
+        }
+
+        Properties properties = new Properties();
+        properties.putAll(serverProperties);
+        properties.setProperty("admin.streams.bulk.enable", Boolean.toString(!bulkStreamEnabled));
+        servers[1] = ServerTestUtils.startVoldemortServer(socketStoreFactory,
+                                                          ServerTestUtils.createServerConfig(useNio,
+                                                                                             1,
+                                                                                             TestUtils.createTempDir()
+                                                                                                      .getAbsolutePath(),
+                                                                                             null,
+                                                                                             storesXmlfile,
+                                                                                             properties),
+                                                          cluster);
+        adminClient.streamingOps.updateEntries(1,
+                                               storeName,
+                                               entries.subList(5, 10).iterator(),
+                                               null);
+        for(Pair<ByteArray, Versioned<byte[]>> entry: entries.subList(5, 10))
+            assertSameVersions(Collections.singletonList(entry.getSecond()),
+                               getStore(1, storeName).get(entry.getFirst(), null));
+    }
+
+    @Test
+    public void testFrameRoundTrip() throws IOException {
+        BulkStreamFormat.FrameWriter frameWriter = new BulkStreamFormat.FrameWriter(FRAME_SIZE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream outputStream = new DataOutputStream(bytes);
+        List<Pair<ByteArray, Versioned<byte[]>>> entries = new ArrayList<Pair<ByteArray, Versioned<byte[]>>>();
+        for(int i = 0; i < 20; i++) {
+            Pair<ByteArray, Versioned<byte[]>> entry = Pair.create(new ByteArray(("key" + i).getBytes()),
+                                                                   new Versioned<byte[]>(new byte[i * 100],
+                                                                                         new VectorClock().incremented(i,
+                                                                                                                       i)));
+            entries.add(entry);
+            frameWriter.add(entry.getFirst(), entry.getSecond());
+            if(frameWriter.isFull())
+                frameWriter.writeTo(outputStream);
+        }
+        frameWriter.writeTo(outputStream);
+        outputStream.writeInt(-1);
+
+        DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        List<Pair<ByteArray, Versioned<byte[]>>> read = new ArrayList<Pair<ByteArray, Versioned<byte[]>>>();
+        int numFrames = 0;
+        byte[] frame;
+        while((frame = BulkStreamFormat.readFrame(inputStream)) != null) {
+            read.addAll(BulkStreamFormat.readEntries(frame));
+            numFrames++;
+        }
+        assertEquals(entries, read);
+        assertTrue(numFrames > 1);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package voldemort.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import voldemort.ServerTestUtils;
+import voldemort.client.protocol.VoldemortFilter;
+import voldemort.client.protocol.admin.AdminClient;
+import voldemort.client.protocol.admin.AdminClientConfig;
+import voldemort.cluster.Cluster;
+import voldemort.routing.RoutingStrategy;
+import voldemort.routing.RoutingStrategyFactory;
+import voldemort.server.VoldemortServer;
+import voldemort.store.StorageEngine;
+import voldemort.store.StoreDefinition;
+import voldemort.store.socket.SocketStoreFactory;
+import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ByteUtils;
+import voldemort.utils.Pair;
+import voldemort.versioning.Versioned;
+import voldemort.xml.StoreDefinitionsMapper;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Fetches the entries of several partitions at once, and checks they are the
+ * entries a fetch of one partition at a time gets
+ */
+@RunWith(Parameterized.class)
+public class AdminParallelFetchTest {
+
+    private static int TEST_STREAM_KEYS_SIZE = 1000;
+    private static String storeName = "users";
+    private static String storesXmlfile = "test/common/voldemort/config/stores.xml";
+
+    private StoreDefinition storeDef;
+    private VoldemortServer[] servers;
+    private Cluster cluster;
+    private AdminClient adminClient;
+    private SocketStoreFactory socketStoreFactory;
+    private Map<ByteArray, byte[]> entries;
+    private RoutingStrategy strategy;
+
+    private final boolean useNio;
+    private final int numScanPermits;
+
+    public AdminParallelFetchTest(boolean useNio, int numScanPermits) {
+        this.useNio = useNio;
+        this.numScanPermits = numScanPermits;
+    }
+
+    @Parameters
+    public static Collection<Object[]> configs() {
+        // with a single permit, the fetch gets one scan besides its own
+        return Arrays.asList(new Object[][] { { true, 4 }, { false, 4 }, { true, 1 } });
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        socketStoreFactory = new ClientRequestExecutorPool(2, 10000, 100000, 32 * 1024);
+        servers = new VoldemortServer[2];
+        int partitionMap[][] = { { 0, 1, 2, 3, 4, 5 }, { 6, 7 } };
+        Properties serverProperties = new Properties();
+        serverProperties.setProperty("bdb.prefix.keys.with.partitionid", "true");
+        serverProperties.setProperty("num.scan.permits", Integer.toString(numScanPermits));
+        serverProperties.setProperty("admin.parallel.scan.threads", "4");
+        cluster = ServerTestUtils.startVoldemortCluster(2,
+                                                        servers,
+                                                        partitionMap,
+                                                        socketStoreFactory,
+                                                        useNio,
+                                                        null,
+                                                        storesXmlfile,
+                                                        serverProperties);
+        for(StoreDefinition def: new StoreDefinitionsMapper().readStoreList(new File(storesXmlfile)))
+            if(def.getName().equals(storeName))
+                storeDef = def;
+        adminClient = new AdminClient(cluster, new AdminClientConfig(), new ClientConfig());
+
+        strategy = new RoutingStrategyFactory().updateRoutingStrategy(storeDef, cluster);
+        StorageEngine<ByteArray, byte[], byte[]> store0 = servers[0].getStoreRepository()
+                                                                    .getStorageEngine(storeName);
+        List<Integer> partitions = cluster.getNodeById(0).getPartitionIds();
+        entries = Maps.newHashMap();
+        for(int i = 0; entries.size() < TEST_STREAM_KEYS_SIZE; i++) {
+            ByteArray key = new ByteArray(("key" + i).getBytes());
+            if(!partitions.contains(strategy.getPartitionList(key.get()).get(0)))
+                continue;
+            byte[] value = ("value" + i).getBytes();
+            store0.put(key, Versioned.value(value), null);
+            entries.put(key, value);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        adminClient.close();
+        for(VoldemortServer server: servers) {
+            ServerTestUtils.stopVoldemortServer(server);
+        }
+        socketStoreFactory.close();
+    }
+
+    private Map<ByteArray, byte[]> fetch(VoldemortFilter filter,
+                                         long recordsPerPartition,
+                                         int parallelism) {
+        return fetch(filter, recordsPerPartition, parallelism, null);
+    }
+
+    private Map<ByteArray, byte[]> fetch(VoldemortFilter filter,
+                                         long recordsPerPartition,
+                                         int parallelism,
+                                         Map<Integer, ByteArray> startKeys) {
+        HashMap<Integer, List<Integer>> replicaToPartitionList = Maps.newHashMap();
+        replicaToPartitionList.put(0, cluster.getNodeById(0).getPartitionIds());
+        Iterator<Pair<ByteArray, Versioned<byte[]>>> fetchIt = adminClient.bulkFetchOps.fetchEntries(0,
+                                                                                                     storeName,
+                                                                                                     replicaToPartitionList,
+                                                                                                     filter,
+                                                                                                     false,
+                                                                                                     null,
+                                                                                                     recordsPerPartition,
+                                                                                                     parallelism,
+                                                                                                     startKeys);
+        Map<ByteArray, byte[]> fetched = Maps.newHashMap();
+        while(fetchIt.hasNext()) {
+            Pair<ByteArray, Versioned<byte[]>> entry = fetchIt.next();
+            byte[] previous = fetched.put(entry.getFirst(), entry.getSecond().getValue());
+            assertEquals("Entry " + entry.getFirst() + " fetched twice", null, previous);
+        }
+        return fetched;
+    }
+
+    private void assertSameEntries(Map<ByteArray, byte[]> expected, Map<ByteArray, byte[]> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for(Map.Entry<ByteArray, byte[]> entry: expected.entrySet())
+            assertTrue(Arrays.equals(entry.getValue(), actual.get(entry.getKey())));
+    }
+
+    @Test
+    public void testFetchAllEntries() {
+        assertSameEntries(entries, fetch(null, 0, 4));
+        assertSameEntries(entries, fetch(null, 0, 1));
+        // more than there are partitions
+        assertSameEntries(entries, fetch(null, 0, 64));
+    }
+
+    @Test
+    public void testFetchWithFilter() {
+        VoldemortFilter filter = new EvenKeyFilter();
+        Map<ByteArray, byte[]> expected = Maps.newHashMap();
+        for(Map.Entry<ByteArray, byte[]> entry: entries.entrySet())
+            if(filter.accept(entry.getKey(), null))
+                expected.put(entry.getKey(), entry.getValue());
+        assertSameEntries(expected, fetch(filter, 0, 4));
+    }
+
+    public static class EvenKeyFilter implements VoldemortFilter {
+
+        public boolean accept(Object key, Versioned<?> value) {
+            byte[] bytes = ((ByteArray) key).get();
+            return bytes[bytes.length - 1] % 2 == 0;
+        }
+    }
+
+    @Test
+    public void testFetchRecordsPerPartition() {
+        int numPartitions = cluster.getNodeById(0).getNumberOfPartitions();
+        Map<ByteArray, byte[]> fetched = fetch(null, 10, 4);
+        assertEquals(10 * numPartitions, fetched.size());
+        for(Map.Entry<ByteArray, byte[]> entry: fetched.entrySet())
+            assertTrue(Arrays.equals(entries.get(entry.getKey()), entry.getValue()));
+    }
+
+    @Test
+    public void testFetchFromStartKeys() {
+        // the middle key of each partition but the last, which is fetched
+        // whole
+        Map<Integer, List<ByteArray>> partitionKeys = Maps.newHashMap();
+        for(ByteArray key: entries.keySet()) {
+            int partition = strategy.getPartitionList(key.get()).get(0);
+            if(!partitionKeys.containsKey(partition))
+                partitionKeys.put(partition, new ArrayList<ByteArray>());
+            partitionKeys.get(partition).add(key);
+        }
+        Map<Integer, ByteArray> startKeys = Maps.newHashMap();
+        List<Integer> partitions = cluster.getNodeById(0).getPartitionIds();
+        for(int partition: partitions.subList(0, partitions.size() - 1)) {
+            List<ByteArray> keys = partitionKeys.get(partition);
+            Collections.sort(keys, new Comparator<ByteArray>() {
+
+                public int compare(ByteArray key1, ByteArray key2) {
+                    return ByteUtils.compare(key1.get(), key2.get());
+                }
+            });
+            startKeys.put(partition, keys.get(keys.size() / 2));
+        }
+
+        Map<ByteArray, byte[]> expected = Maps.newHashMap();
+        for(Map.Entry<ByteArray, byte[]> entry: entries.entrySet()) {
+            ByteArray startKey = startKeys.get(strategy.getPartitionList(entry.getKey().get())
+                                                       .get(0));
+            if(startKey == null || ByteUtils.compare(entry.getKey().get(), startKey.get()) >= 0)
+                expected.put(entry.getKey(), entry.getValue());
+        }
+        assertTrue(expected.size() < entries.size());
+        assertSameEntries(expected, fetch(null, 0, 1, startKeys));
+        assertSameEntries(expected, fetch(null, 0, 4, startKeys));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.common.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import voldemort.TestUtils;
+
+public class FileRegionTest {
+
+    private File file;
+    private byte[] contents;
+    private RandomAccessFile randomAccessFile;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("file-region", ".data");
+        contents = TestUtils.randomBytes(100);
+        FileUtils.writeByteArrayToFile(file, contents);
+        randomAccessFile = new RandomAccessFile(file, "r");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        randomAccessFile.close();
+        file.delete();
+    }
+
+    @Test
+    public void testCopyTo() throws IOException {
+        FileRegion region = new FileRegion(randomAccessFile.getChannel(), 10, 50);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        region.copyTo(output);
+        assertTrue(region.isComplete());
+        assertTrue(Arrays.equals(Arrays.copyOfRange(contents, 10, 60), output.toByteArray()));
+    }
+
+    @Test
+    public void testTransferPastEndOfFile() throws IOException {
+        FileRegion region = new FileRegion(randomAccessFile.getChannel(), 50, 100);
+        WritableByteChannel target = Channels.newChannel(new ByteArrayOutputStream());
+        assertEquals(50, region.transferTo(target));
+        try {
+            region.transferTo(target);
+            fail("Should have thrown an exception since the file ended before the region");
+        } catch(IOException e) {}
+        assertEquals(50, region.getTransferred());
+
+        try {
+            new FileRegion(randomAccessFile.getChannel(), 50, 100).copyTo(new ByteArrayOutputStream());
+            fail("Should have thrown an exception since the file ended before the region");
+        } catch(IOException e) {}
+    }
+}
@@ -17,9 +17,11 @@ package voldemort.scheduled;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.ServerSocket;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
@@ -35,7 +37,9 @@ import voldemort.ServerTestUtils;
 import voldemort.TestUtils;
 import voldemort.cluster.Cluster;
 import voldemort.cluster.failuredetector.BannagePeriodFailureDetector;
+import voldemort.cluster.failuredetector.FailureDetector;
 import voldemort.cluster.failuredetector.FailureDetectorConfig;
+import voldemort.cluster.failuredetector.NoopFailureDetector;
 import voldemort.cluster.failuredetector.ServerStoreVerifier;
 import voldemort.server.VoldemortConfig;
 import voldemort.server.VoldemortServer;
@@ -49,6 +53,7 @@ import voldemort.store.socket.SocketStoreFactory;
 import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
 import voldemort.utils.ByteArray;
 import voldemort.utils.ByteUtils;
+import voldemort.utils.ClosableIterator;
 import voldemort.versioning.ObsoleteVersionException;
 import voldemort.versioning.VectorClock;
 import voldemort.versioning.Versioned;
@@ -661,4 +666,166 @@ public class StreamingSlopPusherTest {
         }
 
     }
-}
\ No newline at end of file
+
+    private static final String[] SLOP_STORES = { "test-replication-memory", "users",
+            "test-replication-persistent", "test-readrepair-memory", "test-consistent",
+            "test-consistent-with-pref-list" };
+
+    private StreamingSlopPusherJob createPusher(int nodeId, FailureDetector failureDetector) {
+        return new StreamingSlopPusherJob(getVoldemortServer(nodeId).getStoreRepository(),
+                                          getVoldemortServer(nodeId).getMetadataStore(),
+                                          failureDetector,
+                                          configs[nodeId],
+                                          new ScanPermitWrapper(1));
+    }
+
+    /**
+     * Checks that the slops made it to the node, and out of the slop store
+     */
+    private void checkPushed(List<Versioned<Slop>> entrySet,
+                             int nodeId,
+                             StorageEngine<ByteArray, Slop, byte[]> slopStore) {
+        for(Versioned<Slop> versionedSlop: entrySet) {
+            Slop nextSlop = versionedSlop.getValue();
+            StorageEngine<ByteArray, byte[], byte[]> store = getVoldemortServer(nodeId).getStoreRepository()
+                                                                                       .getStorageEngine(nextSlop.getStoreName());
+            if(nextSlop.getOperation().equals(Slop.Operation.PUT)) {
+                assertEquals("entry value should match",
+                             new String(nextSlop.getValue()),
+                             new String(store.get(nextSlop.getKey(), null).get(0).getValue()));
+            } else if(nextSlop.getOperation().equals(Slop.Operation.DELETE)) {
+                assertEquals("entry should be deleted", 0, store.get(nextSlop.getKey(), null)
+                                                                .size());
+            }
+            assertEquals("slop should have gone", 0, slopStore.get(nextSlop.makeKey(), null)
+                                                              .size());
+        }
+    }
+
+    private void checkNotPushed(List<Versioned<Slop>> entrySet,
+                                StorageEngine<ByteArray, Slop, byte[]> slopStore) {
+        for(Versioned<Slop> versionedSlop: entrySet)
+            assertEquals("slop should be there",
+                         1,
+                         slopStore.get(versionedSlop.getValue().makeKey(), null).size());
+    }
+
+    private int countPartitionsWithSlops(StorageEngine<ByteArray, Slop, byte[]> slopStore) {
+        int count = 0;
+        for(int partition = 0; partition < cluster.getNumberOfPartitions(); partition++) {
+            ClosableIterator<ByteArray> keys = slopStore.keys(partition);
+            try {
+                if(keys.hasNext())
+                    count++;
+            } finally {
+                keys.close();
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testParallelPartitionScan() throws IOException {
+        configs[0].setSlopPusherScanThreads(4);
+        startServers(0, 1);
+
+        StorageEngine<ByteArray, Slop, byte[]> slopStoreNode0 = getVoldemortServer(0).getStoreRepository()
+                                                                                     .getSlopStore()
+                                                                                     .asSlopStore();
+        List<Versioned<Slop>> entrySet = ServerTestUtils.createRandomSlops(1, 100, SLOP_STORES);
+        populateSlops(0, slopStoreNode0, entrySet);
+        assertTrue(slopStoreNode0.isPartitionScanSupported());
+        assertTrue("slops should span several partitions",
+                   countPartitionsWithSlops(slopStoreNode0) > 1);
+
+        createPusher(0, new NoopFailureDetector()).run();
+
+        checkPushed(entrySet, 1, slopStoreNode0);
+        assertEquals(0, countPartitionsWithSlops(slopStoreNode0));
+        SlopStorageEngine slopEngine = getVoldemortServer(0).getStoreRepository().getSlopStore();
+        assertEquals(0, slopEngine.getOutstandingTotal());
+
+        stopServers(0, 1);
+    }
+
+    @Test(timeout = 120000)
+    public void testBackedUpNodeIsSkipped() throws IOException {
+        configs[0].setSlopPusherQueueSize(5);
+        configs[0].setSlopBatchSize(5);
+        configs[0].setClientRoutingTimeoutMs(1000);
+        startServers(0, 1);
+
+        // node 2 takes connections but never answers, so its consumer hangs
+        // and its queue fills up
+        ServerSocket unresponsive = new ServerSocket(cluster.getNodeById(2).getAdminPort());
+        try {
+            StorageEngine<ByteArray, Slop, byte[]> slopStoreNode0 = getVoldemortServer(0).getStoreRepository()
+                                                                                         .getSlopStore()
+                                                                                         .asSlopStore();
+            List<Versioned<Slop>> entrySet1 = ServerTestUtils.createRandomSlops(1,
+                                                                                50,
+                                                                                SLOP_STORES);
+            List<Versioned<Slop>> entrySet2 = ServerTestUtils.createRandomSlops(2,
+                                                                                50,
+                                                                                SLOP_STORES);
+            populateSlops(0, slopStoreNode0, entrySet1, entrySet2);
+
+            // the failure detector keeps node 2 up, so only its queue can
+            // stop the pusher waiting on it
+            createPusher(0, new NoopFailureDetector()).run();
+
+            checkPushed(entrySet1, 1, slopStoreNode0);
+            checkNotPushed(entrySet2, slopStoreNode0);
+            SlopStorageEngine slopEngine = getVoldemortServer(0).getStoreRepository()
+                                                                .getSlopStore();
+            assertEquals(50, slopEngine.getOutstandingTotal());
+            assertEquals(new Long(0), slopEngine.getOutstandingByNode().get(1));
+            assertEquals(new Long(50), slopEngine.getOutstandingByNode().get(2));
+        } finally {
+            unresponsive.close();
+        }
+
+        stopServers(0, 1);
+    }
+
+    @Test
+    public void testNextBatchSize() {
+        VoldemortConfig config = configs[0];
+        config.setSlopBatchSize(10);
+        config.setSlopMaxBatchSize(40);
+
+        // full batches that stream quickly grow, up to the maximum
+        assertEquals(20, StreamingSlopPusherJob.nextBatchSize(10, true, 10, config));
+        assertEquals(40, StreamingSlopPusherJob.nextBatchSize(20, true, 10, config));
+        assertEquals(40, StreamingSlopPusherJob.nextBatchSize(40, true, 10, config));
+
+        // ones that run out of slops stay as they are
+        assertEquals(20, StreamingSlopPusherJob.nextBatchSize(20, false, 10, config));
+
+        // slow ones shrink, down to the configured batch size
+        assertEquals(20, StreamingSlopPusherJob.nextBatchSize(40, true, 60000, config));
+        assertEquals(10, StreamingSlopPusherJob.nextBatchSize(20, false, 60000, config));
+        assertEquals(10, StreamingSlopPusherJob.nextBatchSize(10, true, 60000, config));
+    }
+
+    @Test(timeout = 120000)
+    public void testFailedConsumerEndsRun() throws IOException {
+        startServers(0);
+
+        StorageEngine<ByteArray, Slop, byte[]> slopStoreNode0 = getVoldemortServer(0).getStoreRepository()
+                                                                                     .getSlopStore()
+                                                                                     .asSlopStore();
+        List<Versioned<Slop>> entrySet = ServerTestUtils.createRandomSlops(1, 50, SLOP_STORES);
+        populateSlops(0, slopStoreNode0, entrySet);
+
+        // node 1 is down but never declared so, so every consumer started for
+        // it fails
+        createPusher(0, new NoopFailureDetector()).run();
+
+        checkNotPushed(entrySet, slopStoreNode0);
+        SlopStorageEngine slopEngine = getVoldemortServer(0).getStoreRepository().getSlopStore();
+        assertEquals(new Long(50), slopEngine.getOutstandingByNode().get(1));
+
+        stopServers(0);
+    }
+}
@@ -15,11 +15,14 @@
  */
 package voldemort.serialization.avro;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.TestCase;
 
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.util.Utf8;
+import org.apache.commons.lang.StringUtils;
 
 import voldemort.utils.ByteUtils;
 
@@ -61,4 +64,44 @@ public class AvroGenericSerializerTest extends TestCase {
         assertTrue(serializer.toObject(bytes).equals(record));
     }
 
+    public void testRoundtripLargeAfterSmall() throws Exception {
+        String jsonSchema = "{\"name\": \"Str\", \"type\": \"string\"}";
+        AvroGenericSerializer serializer = new AvroGenericSerializer(jsonSchema);
+        // objects larger than the buffers kept between calls, and smaller
+        // ones after them
+        for(int size: new int[] { 10, 1000 * 1000, 10, 100 * 1000, 0 }) {
+            Utf8 value = new Utf8(StringUtils.repeat("a", size));
+            assertEquals(value, serializer.toObject(serializer.toBytes(value)));
+        }
+    }
+
+    public void testRoundtripFromManyThreads() throws Exception {
+        String jsonSchema = "{\"name\": \"Compact Disk\", \"type\": \"record\", "
+                            + "\"fields\": ["
+                            + "{\"name\": \"name\", \"type\": \"string\", \"order\": \"ascending\"}"
+                            + "]}";
+        final Schema schema = Schema.parse(jsonSchema);
+        final AvroGenericSerializer serializer = new AvroGenericSerializer(jsonSchema);
+        final AtomicInteger numFailed = new AtomicInteger(0);
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++) {
+            final int threadId = t;
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+                    for(int i = 0; i < 1000; i++) {
+                        Record record = new Record(schema);
+                        record.put("name", new Utf8("thread" + threadId + "-" + i));
+                        if(!serializer.toObject(serializer.toBytes(record)).equals(record))
+                            numFailed.incrementAndGet();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for(Thread thread: threads)
+            thread.join();
+        assertEquals(0, numFailed.get());
+    }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.server.rebalance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import voldemort.MockTime;
+import voldemort.ServerTestUtils;
+import voldemort.routing.RoutingStrategy;
+import voldemort.store.Store;
+import voldemort.store.StoreDefinition;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.store.metadata.MetadataStore;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Versioned;
+import voldemort.xml.ClusterMapper;
+import voldemort.xml.StoreDefinitionsMapper;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Test for {@link RebalanceCheckpointer} and {@link RebalanceCheckpoints}
+ */
+public class RebalanceCheckpointerTest {
+
+    private static final long INTERVAL_MS = 1000;
+
+    private Store<String, String, String> innerStore;
+    private MetadataStore metadataStore;
+    private String storeName;
+    private RoutingStrategy routingStrategy;
+    private MockTime time;
+
+    @Before
+    public void setUp() {
+        List<StoreDefinition> storeDefs = ServerTestUtils.getStoreDefs(1);
+        innerStore = new InMemoryStorageEngine<String, String, String>("inner-store");
+        innerStore.put(MetadataStore.CLUSTER_KEY,
+                       new Versioned<String>(new ClusterMapper().writeCluster(ServerTestUtils.getLocalCluster(2))),
+                       null);
+        innerStore.put(MetadataStore.STORES_KEY,
+                       new Versioned<String>(new StoreDefinitionsMapper().writeStoreList(storeDefs)),
+                       null);
+        metadataStore = new MetadataStore(innerStore, 0);
+        storeName = storeDefs.get(0).getName();
+        routingStrategy = metadataStore.getRoutingStrategy(storeName);
+        time = new MockTime(0);
+    }
+
+    /**
+     * @return A key of the given partition
+     */
+    private ByteArray getKey(int partition, int from) {
+        for(int i = from;; i++) {
+            ByteArray key = new ByteArray(("key" + i).getBytes());
+            if(routingStrategy.getMasterPartition(key.get()) == partition)
+                return key;
+        }
+    }
+
+    @Test
+    public void testToJson() {
+        RebalanceCheckpoints in = new RebalanceCheckpoints();
+        Map<Integer, ByteArray> lastKeys = Maps.newHashMap();
+        lastKeys.put(0, new ByteArray(new byte[] { 0, 1, (byte) 0xff }));
+        lastKeys.put(3, new ByteArray("key".getBytes()));
+        in.put(1, "test1", lastKeys);
+        in.put(2, "test1", lastKeys);
+        in.put(1, "test2", lastKeys);
+
+        RebalanceCheckpoints out = RebalanceCheckpoints.create(in.toJsonString());
+        assertEquals(in, out);
+        assertEquals(lastKeys, out.get(2, "test1"));
+        assertTrue(out.get(2, "test2").isEmpty());
+
+        out.put(1, "test2", Maps.<Integer, ByteArray> newHashMap());
+        assertTrue(out.get(1, "test2").isEmpty());
+        assertTrue(new RebalanceCheckpoints().isEmpty());
+        assertTrue(RebalanceCheckpoints.create(new RebalanceCheckpoints().toJsonString())
+                                       .isEmpty());
+    }
+
+    @Test
+    public void testCheckpointLagsOneInterval() {
+        RebalanceCheckpointer checkpointer = new RebalanceCheckpointer(metadataStore,
+                                                                       1,
+                                                                       storeName,
+                                                                       INTERVAL_MS,
+                                                                       time);
+        assertTrue(checkpointer.getStartKeys().isEmpty());
+
+        ByteArray key0 = getKey(0, 0);
+        checkpointer.copied(key0);
+        checkpointer.maybeCheckpoint();
+        time.addMilliseconds(INTERVAL_MS);
+        // the keys copied so far may not have made it to disk yet
+        checkpointer.maybeCheckpoint();
+        assertTrue(metadataStore.getRebalanceCheckpoints().get(1, storeName).isEmpty());
+
+        ByteArray key1 = getKey(1, 0);
+        checkpointer.copied(key1);
+        time.addMilliseconds(INTERVAL_MS / 2);
+        checkpointer.maybeCheckpoint();
+        assertTrue(metadataStore.getRebalanceCheckpoints().get(1, storeName).isEmpty());
+
+        // a whole interval on, they have
+        time.addMilliseconds(INTERVAL_MS / 2);
+        checkpointer.maybeCheckpoint();
+        Map<Integer, ByteArray> expected = Maps.newHashMap();
+        expected.put(0, key0);
+        assertEquals(expected, metadataStore.getRebalanceCheckpoints().get(1, storeName));
+
+        time.addMilliseconds(INTERVAL_MS);
+        checkpointer.maybeCheckpoint();
+        expected.put(1, key1);
+        assertEquals(expected, metadataStore.getRebalanceCheckpoints().get(1, storeName));
+        assertTrue(metadataStore.getRebalanceCheckpoints().get(0, storeName).isEmpty());
+
+        checkpointer.complete();
+        assertTrue(metadataStore.getRebalanceCheckpoints().isEmpty());
+    }
+
+    @Test
+    public void testResumeFromCheckpoints() {
+        RebalanceCheckpointer checkpointer = new RebalanceCheckpointer(metadataStore,
+                                                                       1,
+                                                                       storeName,
+                                                                       INTERVAL_MS,
+                                                                       time);
+        ByteArray key0 = getKey(0, 0);
+        ByteArray key1 = getKey(1, 0);
+        checkpointer.copied(key0);
+        checkpointer.copied(key1);
+        time.addMilliseconds(INTERVAL_MS);
+        checkpointer.maybeCheckpoint();
+        time.addMilliseconds(INTERVAL_MS);
+        checkpointer.maybeCheckpoint();
+
+        // the checkpoints outlive a restart
+        metadataStore = new MetadataStore(innerStore, 0);
+        checkpointer = new RebalanceCheckpointer(metadataStore, 1, storeName, INTERVAL_MS, time);
+        Map<Integer, ByteArray> expected = Maps.newHashMap();
+        expected.put(0, key0);
+        expected.put(1, key1);
+        assertEquals(expected, checkpointer.getStartKeys());
+
+        // partitions not copied this time round keep their checkpoints
+        ByteArray nextKey0 = getKey(0, Integer.parseInt(new String(key0.get()).substring(3)) + 1);
+        checkpointer.copied(nextKey0);
+        time.addMilliseconds(INTERVAL_MS);
+        checkpointer.maybeCheckpoint();
+        time.addMilliseconds(INTERVAL_MS);
+        checkpointer.maybeCheckpoint();
+        expected.put(0, nextKey0);
+        assertEquals(expected, metadataStore.getRebalanceCheckpoints().get(1, storeName));
+
+        // and are dropped with the rest of the rebalancing state
+        metadataStore.cleanAllRebalancingState();
+        assertTrue(metadataStore.getRebalanceCheckpoints().isEmpty());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static voldemort.TestUtils.getClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+/**
+ * Tests for {@link StoreBinaryFormat}
+ */
+public class StoreBinaryFormatTest {
+
+    private static Versioned<byte[]> versioned(String value, VectorClock clock) {
+        return new Versioned<byte[]>(value.getBytes(), clock);
+    }
+
+    private static List<Versioned<byte[]>> list(Versioned<byte[]>... values) {
+        return new ArrayList<Versioned<byte[]>>(Arrays.asList(values));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRoundTrip() {
+        List<Versioned<byte[]>> values = list(versioned("a", getClock(1)),
+                                              versioned("bb", getClock(2, 2)),
+                                              versioned("", getClock()));
+        assertEquals(values, StoreBinaryFormat.fromByteArray(StoreBinaryFormat.toByteArray(values)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAddVersion() {
+        Versioned<byte[]> v1 = versioned("one", getClock(1));
+        Versioned<byte[]> v2 = versioned("two", getClock(2));
+        byte[] bytes = StoreBinaryFormat.toByteArray(list(v1, v2));
+
+        // concurrent to both
+        Versioned<byte[]> v3 = versioned("three", getClock(3));
+        List<Versioned<byte[]>> expected = list(v1, v2, v3);
+        bytes = StoreBinaryFormat.addVersion(bytes, v3);
+        assertArrayEquals(StoreBinaryFormat.toByteArray(expected), bytes);
+
+        // supersedes one, with a version larger than a byte
+        VectorClock clock = getClock(1);
+        for(int i = 0; i < 300; i++)
+            clock.incrementVersion(1, System.currentTimeMillis());
+        Versioned<byte[]> v4 = versioned("four", clock);
+        bytes = StoreBinaryFormat.addVersion(bytes, v4);
+        expected = list(v2, v3, v4);
+        assertArrayEquals(StoreBinaryFormat.toByteArray(expected), bytes);
+        assertEquals(expected, StoreBinaryFormat.fromByteArray(bytes));
+
+        // supersedes all
+        Versioned<byte[]> v5 = versioned("five", clock.merge(getClock(2, 3)).incremented(1, 0));
+        bytes = StoreBinaryFormat.addVersion(bytes, v5);
+        assertEquals(list(v5), StoreBinaryFormat.fromByteArray(bytes));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAddObsoleteVersion() {
+        byte[] bytes = StoreBinaryFormat.toByteArray(list(versioned("a", getClock(1, 1)),
+                                                          versioned("b", getClock(2))));
+        for(VectorClock clock: Arrays.asList(getClock(1), getClock(1, 1), getClock(2))) {
+            try {
+                StoreBinaryFormat.addVersion(bytes, versioned("c", clock));
+                fail("Should have thrown ObsoleteVersionException for " + clock);
+            } catch(ObsoleteVersionException e) {
+                // expected
+            }
+        }
+    }
+}
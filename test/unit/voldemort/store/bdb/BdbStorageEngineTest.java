@@ -73,14 +73,18 @@ public class BdbStorageEngineTest extends AbstractStorageEngineTest {
     private DatabaseConfig databaseConfig;
     private BdbRuntimeConfig runtimeConfig;
     private boolean prefixPartitionId;
+    private boolean groupCommit;
+    private BdbGroupCommitter groupCommitter;
 
-    public BdbStorageEngineTest(boolean prefixPartitionId) {
+    public BdbStorageEngineTest(boolean prefixPartitionId, boolean groupCommit) {
         this.prefixPartitionId = prefixPartitionId;
+        this.groupCommit = groupCommit;
     }
 
     @Parameters
     public static Collection<Object[]> modes() {
-        Object[][] data = new Object[][] { { true }, { false } };
+        Object[][] data = new Object[][] { { true, false }, { false, false }, { true, true },
+                { false, true } };
         return Arrays.asList(data);
     }
 
@@ -101,11 +105,18 @@ public class BdbStorageEngineTest extends AbstractStorageEngineTest {
         this.database = environment.openDatabase(null, "test", databaseConfig);
         this.runtimeConfig = new BdbRuntimeConfig();
         runtimeConfig.setLockMode(LOCK_MODE);
-        this.store = makeBdbStorageEngine("test",
-                                          this.environment,
-                                          this.database,
-                                          runtimeConfig,
-                                          this.prefixPartitionId);
+        this.store = makeStore();
+    }
+
+    private BdbStorageEngine makeStore() {
+        if(groupCommit)
+            this.groupCommitter = new BdbGroupCommitter(environment, 2, 128);
+        return makeBdbStorageEngine("test",
+                                    this.environment,
+                                    this.database,
+                                    runtimeConfig,
+                                    this.prefixPartitionId,
+                                    this.groupCommitter);
     }
 
     protected static BdbStorageEngine makeBdbStorageEngine(String name,
@@ -113,14 +124,24 @@ public class BdbStorageEngineTest extends AbstractStorageEngineTest {
                                                            Database database,
                                                            BdbRuntimeConfig config,
                                                            boolean prefixPartitionId) {
+        return makeBdbStorageEngine(name, environment, database, config, prefixPartitionId, null);
+    }
+
+    protected static BdbStorageEngine makeBdbStorageEngine(String name,
+                                                           Environment environment,
+                                                           Database database,
+                                                           BdbRuntimeConfig config,
+                                                           boolean prefixPartitionId,
+                                                           BdbGroupCommitter groupCommitter) {
         if(prefixPartitionId) {
             return new PartitionPrefixedBdbStorageEngine(name,
                                                          environment,
                                                          database,
                                                          config,
-                                                         TestUtils.makeSingleNodeRoutingStrategy());
+                                                         TestUtils.makeSingleNodeRoutingStrategy(),
+                                                         groupCommitter);
         } else {
-            return new BdbStorageEngine(name, environment, database, config);
+            return new BdbStorageEngine(name, environment, database, config, groupCommitter);
         }
     }
 
@@ -130,6 +151,8 @@ public class BdbStorageEngineTest extends AbstractStorageEngineTest {
         super.tearDown();
         try {
             store.close();
+            if(groupCommitter != null)
+                groupCommitter.close();
             environment.close();
         } finally {
             FileDeleteStrategy.FORCE.delete(tempDir);
@@ -147,14 +170,12 @@ public class BdbStorageEngineTest extends AbstractStorageEngineTest {
                        new Versioned<byte[]>("cdef".getBytes()),
                        null);
         this.store.close();
+        if(groupCommitter != null)
+            groupCommitter.close();
         this.environment.close();
         this.environment = new Environment(this.tempDir, envConfig);
         this.database = environment.openDatabase(null, "test", databaseConfig);
-        this.store = makeBdbStorageEngine("test",
-                                          this.environment,
-                                          this.database,
-                                          runtimeConfig,
-                                          this.prefixPartitionId);
+        this.store = makeStore();
         List<Versioned<byte[]>> vals = store.get(new ByteArray("abc".getBytes()), null);
         assertEquals(1, vals.size());
         TestUtils.bytesEqual("cdef".getBytes(), vals.get(0).getValue());
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.bdb;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileDeleteStrategy;
+
+import voldemort.TestUtils;
+import voldemort.store.AbstractStorageEngineTest;
+import voldemort.store.StorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.Durability;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+
+/**
+ * Runs the storage engine tests against a BDB store with an off-heap value
+ * cache in front of it, plus tests of the cache itself
+ */
+public class CachingBdbStorageEngineTest extends AbstractStorageEngineTest {
+
+    private static final int CACHE_SIZE = 64 * 1024;
+    private static final int BLOCK_SIZE = 64;
+
+    private File tempDir;
+    private Environment environment;
+    private BdbStorageEngine innerEngine;
+    private OffHeapValueCache cache;
+    private CachingBdbStorageEngine store;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        EnvironmentConfig envConfig = new EnvironmentConfig();
+        envConfig.setDurability(Durability.COMMIT_NO_SYNC);
+        envConfig.setAllowCreate(true);
+        envConfig.setTransactional(true);
+        this.tempDir = TestUtils.createTempDir();
+        this.environment = new Environment(this.tempDir, envConfig);
+        DatabaseConfig databaseConfig = new DatabaseConfig();
+        databaseConfig.setAllowCreate(true);
+        databaseConfig.setTransactional(true);
+        databaseConfig.setSortedDuplicates(false);
+        Database database = environment.openDatabase(null, "test", databaseConfig);
+        this.innerEngine = new BdbStorageEngine("test",
+                                                environment,
+                                                database,
+                                                new BdbRuntimeConfig());
+        this.cache = new OffHeapValueCache(CACHE_SIZE, BLOCK_SIZE);
+        this.store = new CachingBdbStorageEngine(innerEngine, cache);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        try {
+            store.close();
+            environment.close();
+        } finally {
+            FileDeleteStrategy.FORCE.delete(tempDir);
+        }
+    }
+
+    @Override
+    public StorageEngine<ByteArray, byte[], byte[]> getStorageEngine() {
+        return store;
+    }
+
+    public void testReadsAreCached() {
+        ByteArray key = new ByteArray("key".getBytes());
+        byte[] value = "value".getBytes();
+        store.put(key, new Versioned<byte[]>(value, TestUtils.getClock(1)), null);
+
+        assertTrue(Arrays.equals(value, store.get(key, null).get(0).getValue()));
+        assertEquals(0, cache.getNumHits());
+        assertEquals(1, cache.getNumEntries());
+
+        List<Versioned<byte[]>> found = store.get(key, null);
+        assertEquals(1, found.size());
+        assertTrue(Arrays.equals(value, found.get(0).getValue()));
+        assertEquals(TestUtils.getClock(1), found.get(0).getVersion());
+        assertEquals(1, cache.getNumHits());
+
+        // so is the absence of a value
+        ByteArray missing = new ByteArray("missing".getBytes());
+        assertEquals(0, store.get(missing, null).size());
+        assertEquals(0, store.get(missing, null).size());
+        assertEquals(2, cache.getNumHits());
+        assertEquals(0, store.getAll(Arrays.asList(missing), null).size());
+        assertEquals(3, cache.getNumHits());
+    }
+
+    public void testWritesInvalidate() {
+        ByteArray key = new ByteArray("key".getBytes());
+        VectorClock clock = TestUtils.getClock(1);
+        store.put(key, new Versioned<byte[]>("a".getBytes(), clock), null);
+        store.get(key, null);
+
+        clock = clock.incremented(1, System.currentTimeMillis());
+        store.put(key, new Versioned<byte[]>("b".getBytes(), clock), null);
+        assertEquals(0, cache.getNumEntries());
+        assertTrue(Arrays.equals("b".getBytes(), store.get(key, null).get(0).getValue()));
+        assertTrue(Arrays.equals("b".getBytes(), store.getAll(Arrays.asList(key), null)
+                                                     .get(key)
+                                                     .get(0)
+                                                     .getValue()));
+
+        store.delete(key, clock);
+        assertEquals(0, store.get(key, null).size());
+
+        store.put(key, new Versioned<byte[]>("c".getBytes(), TestUtils.getClock(2)), null);
+        store.truncate();
+        assertEquals(0, cache.getNumEntries());
+        assertEquals(0, store.get(key, null).size());
+    }
+
+    public void testStaleReadIsNotCached() {
+        ByteArray key = new ByteArray("key".getBytes());
+        long stamp = cache.getStamp(key);
+        cache.invalidate(key);
+        assertFalse(cache.put(key, "stale".getBytes(), stamp));
+        assertNull(cache.get(key));
+
+        assertTrue(cache.put(key, "fresh".getBytes(), cache.getStamp(key)));
+        assertTrue(Arrays.equals("fresh".getBytes(), cache.get(key)));
+    }
+
+    public void testEvictionBoundsMemory() {
+        int numKeys = 4 * CACHE_SIZE / BLOCK_SIZE;
+        for(int i = 0; i < numKeys; i++) {
+            ByteArray key = new ByteArray(("key" + i).getBytes());
+            byte[] value = TestUtils.randomBytes(BLOCK_SIZE + i % BLOCK_SIZE);
+            assertTrue(cache.put(key, value, cache.getStamp(key)));
+            assertTrue(Arrays.equals(value, cache.get(key)));
+            assertTrue(cache.getUsedBytes() <= cache.getCapacityBytes());
+        }
+        assertTrue(cache.getNumEvictions() > 0);
+        assertTrue(cache.getNumEntries() < numKeys);
+
+        // too large to be worth caching
+        ByteArray key = new ByteArray("large".getBytes());
+        assertFalse(cache.put(key, new byte[CACHE_SIZE], cache.getStamp(key)));
+    }
+
+    public void testCloseFreesCache() {
+        ByteArray key = new ByteArray("key".getBytes());
+        cache.put(key, "value".getBytes(), cache.getStamp(key));
+        cache.close();
+        assertNull(cache.get(key));
+        assertFalse(cache.put(key, "value".getBytes(), cache.getStamp(key)));
+        assertEquals(0, cache.getUsedBytes());
+    }
+}
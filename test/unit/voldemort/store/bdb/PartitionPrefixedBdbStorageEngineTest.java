@@ -17,13 +17,17 @@
 package voldemort.store.bdb;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 
 import java.io.File;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.io.FileDeleteStrategy;
@@ -237,4 +241,81 @@ public class PartitionPrefixedBdbStorageEngineTest {
             prefixedBdbStore.close();
         }
     }
+
+    private List<ByteArray> getKeyList(ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> itr) {
+        List<ByteArray> keys = new ArrayList<ByteArray>();
+        while(itr.hasNext())
+            keys.add(itr.next().getFirst());
+        itr.close();
+        return keys;
+    }
+
+    @Test
+    public void testResumePartitionScan() {
+        StoreDefinition storedef = TestUtils.makeStoreDefinition("storeA");
+        RoutingStrategy strategy = TestUtils.makeSingleNodeRoutingStrategy();
+        PartitionPrefixedBdbStorageEngine prefixedBdbStore = (PartitionPrefixedBdbStorageEngine) bdbStorage.getStore(storedef,
+                                                                                                                     strategy);
+        try {
+            assertTrue(prefixedBdbStore.isPartitionScanResumable());
+            for(int i = 0; i < 1000; i++) {
+                prefixedBdbStore.put(new ByteArray(("key" + i).getBytes()),
+                                     new Versioned<byte[]>(("value" + i).getBytes()),
+                                     null);
+            }
+
+            for(int p = 0; p < strategy.getNumReplicas(); p++) {
+                List<ByteArray> keys = getKeyList(prefixedBdbStore.entries(p));
+                // a partition is scanned in key order
+                for(int i = 1; i < keys.size(); i++)
+                    assertTrue(ByteUtils.compare(keys.get(i - 1).get(), keys.get(i).get()) < 0);
+
+                // from a key of the partition, on
+                int middle = keys.size() / 2;
+                assertEquals(keys.subList(middle, keys.size()),
+                             getKeyList(prefixedBdbStore.entries(p, keys.get(middle))));
+
+                // from a key not in the store, on from where it would be
+                byte[] missingKey = ByteUtils.cat(keys.get(middle).get(), new byte[] { 0 });
+                assertEquals(keys.subList(middle + 1, keys.size()),
+                             getKeyList(prefixedBdbStore.entries(p, new ByteArray(missingKey))));
+
+                // from past the last key of the partition
+                byte[] lastKey = ByteUtils.cat(keys.get(keys.size() - 1).get(), new byte[] { 0 });
+                assertEquals(0, getKeyList(prefixedBdbStore.entries(p, new ByteArray(lastKey))).size());
+            }
+        } finally {
+            prefixedBdbStore.close();
+        }
+    }
+
+    @Test
+    public void testGetAll() {
+        StoreDefinition storedef = TestUtils.makeStoreDefinition("storeA");
+        RoutingStrategy strategy = TestUtils.makeSingleNodeRoutingStrategy();
+        BdbStorageEngine prefixedBdbStore = (BdbStorageEngine) bdbStorage.getStore(storedef,
+                                                                                   strategy);
+        try {
+            HashMap<ByteArray, byte[]> kvpairs = ServerTestUtils.createRandomKeyValuePairs(1000);
+            List<ByteArray> keys = new ArrayList<ByteArray>();
+            for(ByteArray key: kvpairs.keySet()) {
+                prefixedBdbStore.put(key, new Versioned<byte[]>(kvpairs.get(key)), null);
+                keys.add(key);
+            }
+            ByteArray missingKey = new ByteArray("not-a-key".getBytes());
+            keys.add(missingKey);
+
+            Map<ByteArray, List<Versioned<byte[]>>> results = prefixedBdbStore.getAll(keys, null);
+            assertEquals(kvpairs.size(), results.size());
+            assertFalse(results.containsKey(missingKey));
+            for(ByteArray key: kvpairs.keySet()) {
+                assertEquals(1, results.get(key).size());
+                assertEquals(0, ByteUtils.compare(kvpairs.get(key), results.get(key)
+                                                                           .get(0)
+                                                                           .getValue()));
+            }
+        } finally {
+            prefixedBdbStore.close();
+        }
+    }
 }
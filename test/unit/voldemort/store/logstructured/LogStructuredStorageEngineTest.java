@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.logstructured;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import voldemort.TestUtils;
+import voldemort.routing.RoutingStrategy;
+import voldemort.store.AbstractStorageEngineTest;
+import voldemort.store.StorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.EventThrottler;
+import voldemort.utils.Pair;
+import voldemort.utils.Utils;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+public class LogStructuredStorageEngineTest extends AbstractStorageEngineTest {
+
+    private static final long SEGMENT_SIZE = 4 * 1024;
+
+    private File tempDir;
+    private RoutingStrategy strategy;
+    private LogStructuredStorageEngine store;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        this.tempDir = TestUtils.createTempDir();
+        this.strategy = TestUtils.makeSingleNodeRoutingStrategy();
+        this.store = makeStore();
+    }
+
+    private LogStructuredStorageEngine makeStore() {
+        return new LogStructuredStorageEngine("test", tempDir, strategy, SEGMENT_SIZE, false);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        try {
+            store.close();
+        } finally {
+            Utils.rm(tempDir);
+        }
+    }
+
+    @Override
+    public StorageEngine<ByteArray, byte[], byte[]> getStorageEngine() {
+        return store;
+    }
+
+    public void testRecovery() {
+        Map<ByteArray, byte[]> expected = new HashMap<ByteArray, byte[]>();
+        Map<ByteArray, VectorClock> clocks = new HashMap<ByteArray, VectorClock>();
+        for(int i = 0; i < 500; i++) {
+            ByteArray key = new ByteArray(("key" + (i % 100)).getBytes());
+            byte[] value = ("value" + i).getBytes();
+            VectorClock clock = clocks.containsKey(key) ? clocks.get(key) : new VectorClock();
+            clock = clock.incremented(1, System.currentTimeMillis());
+            store.put(key, new Versioned<byte[]>(value, clock), null);
+            expected.put(key, value);
+            clocks.put(key, clock);
+        }
+        ByteArray deleted = new ByteArray("key0".getBytes());
+        store.delete(deleted, null);
+        expected.remove(deleted);
+
+        store.close();
+        store = makeStore();
+
+        assertEquals(0, store.get(deleted, null).size());
+        for(Map.Entry<ByteArray, byte[]> entry: expected.entrySet())
+            assertTrue(Arrays.equals(entry.getValue(), store.get(entry.getKey(), null)
+                                                            .get(0)
+                                                            .getValue()));
+    }
+
+    public void testRecoveryFromPartialRecord() throws Exception {
+        ByteArray key = new ByteArray("key".getBytes());
+        store.put(key, new Versioned<byte[]>("a".getBytes(), TestUtils.getClock(1)), null);
+        store.put(key, new Versioned<byte[]>("b".getBytes(), TestUtils.getClock(1, 1)), null);
+        store.close();
+
+        // chop the last record in half, as a crash in the middle of the write
+        // would
+        File segment = new File(new File(tempDir,
+                                         Integer.toString(strategy.getMasterPartition(key.get()))),
+                                "0" + LogSegment.SUFFIX);
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            file.setLength(file.length() - 3);
+        } finally {
+            file.close();
+        }
+
+        store = makeStore();
+        assertTrue(Arrays.equals("a".getBytes(), store.get(key, null).get(0).getValue()));
+        store.put(key, new Versioned<byte[]>("c".getBytes(), TestUtils.getClock(1, 1)), null);
+        assertTrue(Arrays.equals("c".getBytes(), store.get(key, null).get(0).getValue()));
+    }
+
+    public void testRecoveryFromGarbageHeader() throws Exception {
+        ByteArray key = new ByteArray("key".getBytes());
+        store.put(key, new Versioned<byte[]>("a".getBytes(), TestUtils.getClock(1)), null);
+        store.close();
+
+        // a header whose sizes add up past the end of the segment, and past
+        // Integer.MAX_VALUE
+        File segment = new File(new File(tempDir,
+                                         Integer.toString(strategy.getMasterPartition(key.get()))),
+                                "0" + LogSegment.SUFFIX);
+        long length;
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            length = file.length();
+            file.seek(length);
+            file.writeInt(0);
+            file.writeInt(Integer.MAX_VALUE);
+            file.writeInt(1);
+        } finally {
+            file.close();
+        }
+
+        store = makeStore();
+        assertEquals(length, segment.length());
+        assertTrue(Arrays.equals("a".getBytes(), store.get(key, null).get(0).getValue()));
+    }
+
+    public void testCompaction() {
+        ByteArray key = new ByteArray("key".getBytes());
+        ByteArray deleted = new ByteArray("deleted".getBytes());
+        store.put(deleted, new Versioned<byte[]>("gone".getBytes()), null);
+        store.delete(deleted, null);
+
+        VectorClock clock = new VectorClock();
+        byte[] value = null;
+        for(int i = 0; i < 1000; i++) {
+            clock = clock.incremented(1, System.currentTimeMillis());
+            value = TestUtils.randomBytes(100);
+            store.put(key, new Versioned<byte[]>(value, clock), null);
+        }
+
+        long sizeBefore = store.getTotalBytes();
+        store.compact(0.5, new EventThrottler(Long.MAX_VALUE));
+        assertTrue(store.getTotalBytes() < sizeBefore / 10);
+        assertTrue(Arrays.equals(value, store.get(key, null).get(0).getValue()));
+        assertEquals(0, store.get(deleted, null).size());
+
+        // and what compaction kept comes back after a restart
+        store.close();
+        store = makeStore();
+        assertTrue(Arrays.equals(value, store.get(key, null).get(0).getValue()));
+        assertEquals(0, store.get(deleted, null).size());
+    }
+
+    public void testPartitionScan() {
+        Map<Integer, Set<String>> partitionToKeys = new HashMap<Integer, Set<String>>();
+        for(int i = 0; i < 1000; i++) {
+            String key = "key" + i;
+            int partition = strategy.getMasterPartition(key.getBytes());
+            if(!partitionToKeys.containsKey(partition))
+                partitionToKeys.put(partition, new HashSet<String>());
+            partitionToKeys.get(partition).add(key);
+            store.put(new ByteArray(key.getBytes()),
+                      new Versioned<byte[]>(("value" + i).getBytes()),
+                      null);
+        }
+
+        assertTrue(store.isPartitionScanSupported());
+        for(Map.Entry<Integer, Set<String>> entry: partitionToKeys.entrySet()) {
+            Set<String> keys = new HashSet<String>();
+            ClosableIterator<ByteArray> keyIter = store.keys(entry.getKey());
+            while(keyIter.hasNext())
+                keys.add(new String(keyIter.next().get()));
+            keyIter.close();
+            assertEquals(entry.getValue(), keys);
+
+            keys.clear();
+            ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entryIter = store.entries(entry.getKey());
+            while(entryIter.hasNext())
+                keys.add(new String(entryIter.next().getFirst().get()));
+            entryIter.close();
+            assertEquals(entry.getValue(), keys);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.memory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import voldemort.MockTime;
+import voldemort.ServerTestUtils;
+import voldemort.TestUtils;
+import voldemort.server.VoldemortConfig;
+import voldemort.store.AbstractStorageEngineTest;
+import voldemort.store.StorageEngine;
+import voldemort.store.StoreDefinition;
+import voldemort.store.stats.StatTrackingStore;
+import voldemort.store.stats.StoreStats;
+import voldemort.store.stats.StoreStatsJmx;
+import voldemort.store.stats.Tracked;
+import voldemort.utils.ByteArray;
+import voldemort.utils.JmxUtils;
+import voldemort.utils.SystemTime;
+import voldemort.utils.Time;
+import voldemort.versioning.Versioned;
+
+public class BoundedCacheStorageEngineTest extends AbstractStorageEngineTest {
+
+    private static final int VALUE_SIZE = 100;
+
+    private BoundedCacheStorageEngine store;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        this.store = new BoundedCacheStorageEngine("test",
+                                                   10 * 1024 * 1024,
+                                                   0,
+                                                   false,
+                                                   SystemTime.INSTANCE);
+    }
+
+    @Override
+    public StorageEngine<ByteArray, byte[], byte[]> getStorageEngine() {
+        return store;
+    }
+
+    @Override
+    public List<ByteArray> getKeys(int numKeys) {
+        List<ByteArray> keys = new ArrayList<ByteArray>(numKeys);
+        for(int i = 0; i < numKeys; i++)
+            keys.add(new ByteArray(TestUtils.randomBytes(10)));
+        return keys;
+    }
+
+    private static ByteArray key(int i) {
+        return new ByteArray(("key" + i).getBytes());
+    }
+
+    private static void fill(BoundedCacheStorageEngine engine, int from, int to) {
+        for(int i = from; i < to; i++)
+            engine.put(key(i), new Versioned<byte[]>(new byte[VALUE_SIZE]), null);
+    }
+
+    public void testStaysWithinCapacity() {
+        BoundedCacheStorageEngine engine = new BoundedCacheStorageEngine("test",
+                                                                         64 * 1024,
+                                                                         0,
+                                                                         false,
+                                                                         SystemTime.INSTANCE);
+        fill(engine, 0, 10000);
+        assertTrue(engine.getUsedBytes() <= engine.getCapacityBytes());
+        assertTrue(engine.getNumEntries() < 10000);
+        assertEquals(10000 - engine.getNumEntries(), engine.getNumEvictions());
+        assertEquals(engine.getNumEvictions(), engine.getStats().getCount(Tracked.CACHE_EVICTION));
+        // the latest writes are the ones kept
+        assertEquals(1, engine.get(key(9999), null).size());
+    }
+
+    public void testScanDoesNotEvictHotKeys() {
+        BoundedCacheStorageEngine engine = new BoundedCacheStorageEngine("test",
+                                                                         64 * 1024,
+                                                                         0,
+                                                                         false,
+                                                                         SystemTime.INSTANCE);
+        int numHot = 100;
+        fill(engine, 0, numHot);
+        // a second read protects the hot keys
+        for(int i = 0; i < numHot; i++)
+            assertEquals(1, engine.get(key(i), null).size());
+
+        // a run of keys read once each, far more than fit
+        fill(engine, numHot, 100 * numHot);
+        for(int i = 0; i < numHot; i++)
+            assertEquals("Hot key " + i + " was evicted", 1, engine.get(key(i), null).size());
+    }
+
+    public void testEntryLargerThanSegmentIsNotCached() {
+        BoundedCacheStorageEngine engine = new BoundedCacheStorageEngine("test",
+                                                                         16 * 1024,
+                                                                         0,
+                                                                         false,
+                                                                         SystemTime.INSTANCE);
+        engine.put(key(0), new Versioned<byte[]>(new byte[1024]), null);
+        assertEquals(0, engine.get(key(0), null).size());
+        assertEquals(0, engine.getUsedBytes());
+    }
+
+    public void testExpiry() {
+        MockTime time = new MockTime(System.currentTimeMillis());
+        BoundedCacheStorageEngine engine = new BoundedCacheStorageEngine("test",
+                                                                         1024 * 1024,
+                                                                         Time.MS_PER_DAY,
+                                                                         false,
+                                                                         time);
+        engine.put(key(0), new Versioned<byte[]>("a".getBytes()), null);
+        time.addMilliseconds(Time.MS_PER_DAY / 2);
+        engine.put(key(1), new Versioned<byte[]>("b".getBytes()), null);
+        assertEquals(1, engine.get(key(0), null).size());
+
+        time.addMilliseconds(Time.MS_PER_DAY / 2);
+        assertEquals(0, engine.get(key(0), null).size());
+        assertEquals(1, engine.get(key(1), null).size());
+        assertEquals(1, engine.getNumEvictions());
+        assertEquals(1, engine.getNumEntries());
+    }
+
+    public void testHitsAndMisses() {
+        store.put(key(0), new Versioned<byte[]>("a".getBytes()), null);
+        store.get(key(0), null);
+        store.get(key(0), null);
+        store.get(key(1), null);
+        assertEquals(2, store.getNumHits());
+        assertEquals(1, store.getNumMisses());
+        assertEquals(2 / 3.0, store.getHitRate(), 0.0001);
+    }
+
+    public void testHitsAndMissesInStoreStats() {
+        StoreStats aggregated = new StoreStats();
+        StatTrackingStore statStore = new StatTrackingStore(store, aggregated);
+        store.setStats(statStore.getStats());
+        statStore.put(key(0), new Versioned<byte[]>("a".getBytes()), null);
+        statStore.get(key(0), null);
+        statStore.get(key(1), null);
+        StoreStatsJmx statsJmx = new StoreStatsJmx(statStore.getStats());
+        assertEquals(1, statsJmx.getNumberOfCacheHits());
+        assertEquals(1, statsJmx.getNumberOfCacheMisses());
+        assertEquals(1, aggregated.getCount(Tracked.CACHE_HIT));
+        assertEquals(1, store.getNumHits());
+    }
+
+    public void testOffHeap() {
+        BoundedCacheStorageEngine engine = new BoundedCacheStorageEngine("test",
+                                                                         64 * 1024,
+                                                                         0,
+                                                                         true,
+                                                                         SystemTime.INSTANCE);
+        try {
+            engine.put(key(0), new Versioned<byte[]>("a".getBytes(), TestUtils.getClock(1)), null);
+            engine.put(key(0),
+                       new Versioned<byte[]>("b".getBytes(), TestUtils.getClock(2)),
+                       null);
+            List<Versioned<byte[]>> values = engine.get(key(0), null);
+            assertEquals(2, values.size());
+            assertTrue(Arrays.equals("a".getBytes(), values.get(0).getValue()));
+            assertEquals(TestUtils.getClock(1), values.get(0).getVersion());
+            assertTrue(Arrays.equals("b".getBytes(), values.get(1).getValue()));
+
+            assertTrue(engine.delete(key(0), TestUtils.getClock(1)));
+            assertEquals(1, engine.get(key(0), null).size());
+
+            fill(engine, 1, 5000);
+            assertTrue(engine.getUsedBytes() <= engine.getCapacityBytes());
+            assertEquals(1, engine.get(key(4999), null).size());
+        } finally {
+            engine.close();
+        }
+        assertEquals(0, engine.getNumEntries());
+    }
+
+    public void testMbeanUnregisteredOnClose() {
+        VoldemortConfig config = new VoldemortConfig(0, TestUtils.createTempDir()
+                                                                 .getAbsolutePath());
+        config.setCacheMaxBytes(64 * 1024);
+        config.setEnableJmx(true);
+        CacheStorageConfiguration storageConfig = new CacheStorageConfiguration(config);
+        StoreDefinition storeDef = ServerTestUtils.getStoreDefs(1).get(0);
+        StorageEngine<ByteArray, byte[], byte[]> engine = storageConfig.getStore(storeDef, null);
+        ObjectName name = JmxUtils.createObjectName(JmxUtils.getPackageName(engine.getClass()),
+                                                    storeDef.getName());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(name));
+
+        engine.close();
+        storageConfig.close();
+        assertFalse(server.isRegistered(name));
+    }
+
+    public void testMbeanUnregisteredOnRemoval() {
+        VoldemortConfig config = new VoldemortConfig(0, TestUtils.createTempDir()
+                                                                 .getAbsolutePath());
+        config.setCacheMaxBytes(64 * 1024);
+        config.setEnableJmx(true);
+        CacheStorageConfiguration storageConfig = new CacheStorageConfiguration(config);
+        StoreDefinition storeDef = ServerTestUtils.getStoreDefs(1).get(0);
+        StorageEngine<ByteArray, byte[], byte[]> engine = storageConfig.getStore(storeDef, null);
+        ObjectName name = JmxUtils.createObjectName(JmxUtils.getPackageName(engine.getClass()),
+                                                    storeDef.getName());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(name));
+
+        storageConfig.removeStorageEngine(engine);
+        engine.close();
+        assertFalse(server.isRegistered(name));
+
+        // the store can be created again under the same name
+        engine = storageConfig.getStore(storeDef, null);
+        assertTrue(server.isRegistered(name));
+        engine.close();
+        storageConfig.close();
+        assertFalse(server.isRegistered(name));
+    }
+}
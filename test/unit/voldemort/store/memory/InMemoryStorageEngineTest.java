@@ -18,11 +18,16 @@ package voldemort.store.memory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import voldemort.TestUtils;
 import voldemort.store.AbstractStorageEngineTest;
 import voldemort.store.StorageEngine;
 import voldemort.utils.ByteArray;
+import voldemort.versioning.ObsoleteVersionException;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
 
 public class InMemoryStorageEngineTest extends AbstractStorageEngineTest {
 
@@ -47,4 +52,50 @@ public class InMemoryStorageEngineTest extends AbstractStorageEngineTest {
         return keys;
     }
 
+    public void testConcurrentPutsToOneKey() throws Exception {
+        final StorageEngine<ByteArray, byte[], byte[]> engine = getStorageEngine();
+        final ByteArray key = new ByteArray("key".getBytes());
+        final int numThreads = 8;
+        final int numPuts = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger failures = new AtomicInteger(0);
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for(int i = 0; i < numThreads; i++) {
+            final int nodeId = i;
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        // each thread writes its own line of versions, so
+                        // every put must go through and only supersede the
+                        // thread's previous one
+                        VectorClock clock = new VectorClock();
+                        for(int j = 0; j < numPuts; j++) {
+                            clock = clock.incremented(nodeId, System.currentTimeMillis());
+                            engine.put(key, new Versioned<byte[]>(new byte[] { (byte) j }, clock), null);
+                        }
+                    } catch(ObsoleteVersionException e) {
+                        failures.incrementAndGet();
+                    } catch(InterruptedException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for(Thread thread: threads)
+            thread.join();
+
+        assertEquals(0, failures.get());
+        List<Versioned<byte[]>> found = engine.get(key, null);
+        assertEquals(numThreads, found.size());
+        for(Versioned<byte[]> versioned: found)
+            assertEquals((byte) (numPuts - 1), versioned.getValue()[0]);
+    }
+
 }
@@ -0,0 +1,66 @@
+package voldemort.store.readonly;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import voldemort.store.readonly.HotRangeSampler.Range;
+
+public class HotRangeSamplerTest {
+
+    @Test
+    public void testSamplesOneInRate() {
+        HotRangeSampler sampler = new HotRangeSampler(4, 4096);
+        int sampled = 0;
+        for(int i = 0; i < 100; i++)
+            if(sampler.shouldSample())
+                sampled++;
+        assertEquals(25, sampled);
+    }
+
+    @Test
+    public void testHottestRangesWithinBudget() {
+        HotRangeSampler sampler = new HotRangeSampler(1, 4096);
+        for(int i = 0; i < 3; i++)
+            sampler.record(0, 10, 5000);
+        sampler.record(1, 4096, -1);
+        sampler.record(1, 8191, -1);
+
+        List<Range> hottest = sampler.getHottestRanges(3 * 4096);
+        assertEquals(3, hottest.size());
+        assertTrue(hottest.contains(new Range(true, 0, 0, 4096)));
+        assertTrue(hottest.contains(new Range(false, 0, 4096, 4096)));
+        assertEquals(new Range(true, 1, 4096, 4096), hottest.get(2));
+
+        assertEquals(1, sampler.getHottestRanges(4096 + 1).size());
+        assertTrue(sampler.getHottestRanges(4095).isEmpty());
+    }
+
+    @Test
+    public void testDecay() {
+        HotRangeSampler sampler = new HotRangeSampler(1, 4096);
+        for(int i = 0; i < 4; i++)
+            sampler.record(0, 0, -1);
+        sampler.record(0, -1, 0);
+
+        sampler.decay();
+        assertEquals("index 0 [0, 4096) - 2, ", sampler.getHistogram(10));
+        sampler.decay();
+        sampler.decay();
+        assertEquals("", sampler.getHistogram(10));
+
+        sampler.record(0, 0, 0);
+        assertFalse(sampler.getHottestRanges(1024 * 1024).isEmpty());
+        sampler.clear();
+        assertTrue(sampler.getHottestRanges(1024 * 1024).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRangeSizeNotPageAligned() {
+        new HotRangeSampler(1, 1000);
+    }
+}
@@ -0,0 +1,76 @@
+package voldemort.store.readonly;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import voldemort.VoldemortException;
+import voldemort.utils.ByteUtils;
+
+public class IndexBloomFilterTest {
+
+    private static final int KEY_HASH_SIZE = 2 * ByteUtils.SIZE_OF_INT;
+
+    @Test
+    public void testNoFalseNegatives() throws Exception {
+        Random random = new Random(4567);
+        int numKeys = 10000;
+        byte[][] keys = new byte[numKeys][KEY_HASH_SIZE];
+
+        ByteArrayOutputStream indexStream = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexStream);
+        for(int i = 0; i < numKeys; i++) {
+            random.nextBytes(keys[i]);
+            index.write(keys[i]);
+            index.writeInt(i);
+        }
+        index.close();
+
+        IndexBloomFilter filter = IndexBloomFilter.fromIndex(new ByteArrayInputStream(indexStream.toByteArray()),
+                                                             indexStream.size(),
+                                                             KEY_HASH_SIZE,
+                                                             IndexBloomFilter.DEFAULT_BITS_PER_KEY);
+        for(byte[] key: keys)
+            assertTrue(filter.mightContain(key));
+
+        // Round trip through the serialized form
+        ByteArrayOutputStream filterStream = new ByteArrayOutputStream();
+        filter.writeTo(filterStream);
+        IndexBloomFilter readFilter = new IndexBloomFilter(ByteBuffer.wrap(filterStream.toByteArray()));
+        assertEquals(filter.getNumHashes(), readFilter.getNumHashes());
+        assertEquals(filter.getNumBits(), readFilter.getNumBits());
+        for(byte[] key: keys)
+            assertTrue(readFilter.mightContain(key));
+
+        // ~1% expected with 10 bits per key
+        int falsePositives = 0;
+        byte[] absentKey = new byte[KEY_HASH_SIZE];
+        for(int i = 0; i < numKeys; i++) {
+            random.nextBytes(absentKey);
+            if(readFilter.mightContain(absentKey))
+                falsePositives++;
+        }
+        assertTrue("Too many false positives " + falsePositives, falsePositives < numKeys / 20);
+    }
+
+    @Test
+    public void testEmptyFilter() {
+        IndexBloomFilter filter = new IndexBloomFilter(0, IndexBloomFilter.DEFAULT_BITS_PER_KEY);
+        assertEquals(false, filter.mightContain(new byte[KEY_HASH_SIZE]));
+    }
+
+    @Test(expected = VoldemortException.class)
+    public void testCorruptFilter() {
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        buffer.putInt(0, 3);
+        buffer.putLong(4, 1024);
+        new IndexBloomFilter(buffer);
+    }
+}
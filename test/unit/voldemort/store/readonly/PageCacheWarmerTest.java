@@ -0,0 +1,66 @@
+package voldemort.store.readonly;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import voldemort.TestUtils;
+import voldemort.utils.Utils;
+
+public class PageCacheWarmerTest {
+
+    private File versionDir;
+
+    @Before
+    public void setUp() throws IOException {
+        versionDir = TestUtils.createTempDir();
+        createFile("0_0_0.index", 1200);
+        createFile("0_0_0.data", 3000);
+        createFile("0_0_1.index", 0);
+        createFile("0_0_1.data", 1000);
+        createFile("0_0_0" + IndexBloomFilter.FILE_EXTENSION, 100);
+        createFile(".metadata", 50);
+    }
+
+    @After
+    public void tearDown() {
+        Utils.rm(versionDir);
+    }
+
+    @Test
+    public void testWarmsIndexesAndDataUpToBudget() {
+        PageCacheWarmer warmer = new PageCacheWarmer(2000, 60 * 1000, 512);
+        assertTrue(warmer.warmup(versionDir));
+        // Indexes and bloom filters fully, half of every data file
+        assertEquals(1300 + 1500 + 500, warmer.getBytesToWarm());
+        assertEquals(warmer.getBytesToWarm(), warmer.getBytesWarmed());
+        assertEquals(1.0, warmer.getProgress(), 0.0);
+    }
+
+    @Test
+    public void testBudgetLargerThanData() {
+        PageCacheWarmer warmer = new PageCacheWarmer(1024 * 1024, 60 * 1000, 512);
+        assertTrue(warmer.warmup(versionDir));
+        assertEquals(1300 + 4000, warmer.getBytesWarmed());
+    }
+
+    @Test
+    public void testNoDataBudget() {
+        PageCacheWarmer warmer = new PageCacheWarmer(0, 60 * 1000, 512);
+        assertTrue(warmer.warmup(versionDir));
+        assertEquals(1300, warmer.getBytesWarmed());
+    }
+
+    private void createFile(String name, int size) throws IOException {
+        FileOutputStream output = new FileOutputStream(new File(versionDir, name));
+        output.write(new byte[size]);
+        output.close();
+    }
+}
@@ -0,0 +1,130 @@
+package voldemort.store.readonly;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import voldemort.ServerTestUtils;
+import voldemort.TestUtils;
+import voldemort.client.protocol.RequestFormatType;
+import voldemort.serialization.DefaultSerializerFactory;
+import voldemort.serialization.Serializer;
+import voldemort.serialization.SerializerDefinition;
+import voldemort.server.AbstractSocketService;
+import voldemort.server.StoreRepository;
+import voldemort.server.VoldemortConfig;
+import voldemort.server.protocol.SocketRequestHandlerFactory;
+import voldemort.store.Store;
+import voldemort.store.socket.SocketStoreFactory;
+import voldemort.store.socket.clientrequest.ClientRequestExecutorPool;
+import voldemort.store.stats.StatTrackingStore;
+import voldemort.utils.ByteArray;
+import voldemort.utils.Utils;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+/**
+ * Reads a read-only store through the socket server, with values sent either
+ * straight from the data files or with a regular get
+ */
+@RunWith(Parameterized.class)
+public class ReadOnlySocketGetTest {
+
+    private static final int TEST_SIZE = 100;
+
+    @Parameters
+    public static Collection<Object[]> configs() {
+        return Arrays.asList(new Object[][] { { true, 0 }, { true, 64 * 1024 }, { true, -1 },
+                { false, 0 } });
+    }
+
+    private final boolean useNio;
+    private final int zeroCopyMinValueBytes;
+    private File dir;
+    private ReadOnlyStorageEngineTestInstance testData;
+    private AbstractSocketService socketService;
+    private SocketStoreFactory socketStoreFactory;
+    private Store<ByteArray, byte[], byte[]> socketStore;
+
+    public ReadOnlySocketGetTest(boolean useNio, int zeroCopyMinValueBytes) {
+        this.useNio = useNio;
+        this.zeroCopyMinValueBytes = zeroCopyMinValueBytes;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        dir = TestUtils.createTempDir();
+        SerializerDefinition serDef = new SerializerDefinition("json", "'string'");
+        testData = ReadOnlyStorageEngineTestInstance.create(new BinarySearchStrategy(),
+                                                            dir,
+                                                            TEST_SIZE,
+                                                            1,
+                                                            1,
+                                                            serDef,
+                                                            serDef,
+                                                            ReadOnlyStorageFormat.READONLY_V2);
+        ReadOnlyStorageEngine engine = testData.getReadOnlyStores().get(0);
+        StoreRepository repository = new StoreRepository();
+        repository.addStorageEngine(engine);
+        repository.addLocalStore(new StatTrackingStore(engine, null));
+
+        VoldemortConfig config = new VoldemortConfig(0, dir.getAbsolutePath());
+        config.setNioZeroCopyMinValueBytes(zeroCopyMinValueBytes);
+        int port = ServerTestUtils.findFreePort();
+        socketService = ServerTestUtils.getSocketService(useNio,
+                                                         new SocketRequestHandlerFactory(null,
+                                                                                         repository,
+                                                                                         null,
+                                                                                         config,
+                                                                                         null,
+                                                                                         null),
+                                                         port,
+                                                         2,
+                                                         2,
+                                                         10000);
+        socketService.start();
+        socketStoreFactory = new ClientRequestExecutorPool(2, 10000, 100000, 32 * 1024);
+        socketStore = ServerTestUtils.getSocketStore(socketStoreFactory,
+                                                     "test",
+                                                     port,
+                                                     RequestFormatType.VOLDEMORT_V3);
+    }
+
+    @After
+    public void tearDown() {
+        socketStore.close();
+        socketStoreFactory.close();
+        socketService.stop();
+        testData.delete();
+        Utils.rm(dir);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testGet() throws Exception {
+        ReadOnlyStorageEngine engine = testData.getReadOnlyStores().get(0);
+        Serializer<String> serializer = (Serializer<String>) new DefaultSerializerFactory().getSerializer(new SerializerDefinition("json",
+                                                                                                                                   "'string'"));
+        for(String key: testData.getData().keySet()) {
+            ByteArray keyBytes = new ByteArray(serializer.toBytes(key));
+            List<Versioned<byte[]>> found = socketStore.get(keyBytes, null);
+            assertEquals(1, found.size());
+            assertTrue(Arrays.equals(engine.get(keyBytes, null).get(0).getValue(),
+                                     found.get(0).getValue()));
+            assertEquals(new VectorClock(), found.get(0).getVersion());
+        }
+        assertEquals(0, socketStore.get(new ByteArray(serializer.toBytes("not-a-key")), null)
+                                   .size());
+    }
+}
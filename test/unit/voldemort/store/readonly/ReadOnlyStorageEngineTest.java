@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -32,6 +33,7 @@ import voldemort.TestUtils;
 import voldemort.VoldemortException;
 import voldemort.cluster.Cluster;
 import voldemort.cluster.Node;
+import voldemort.common.nio.FileRegion;
 import voldemort.routing.RoutingStrategy;
 import voldemort.routing.RoutingStrategyFactory;
 import voldemort.routing.RoutingStrategyType;
@@ -66,7 +68,9 @@ public class ReadOnlyStorageEngineTest {
                 { new BinarySearchStrategy(), ReadOnlyStorageFormat.READONLY_V1 },
                 { new InterpolationSearchStrategy(), ReadOnlyStorageFormat.READONLY_V1 },
                 { new BinarySearchStrategy(), ReadOnlyStorageFormat.READONLY_V2 },
-                { new InterpolationSearchStrategy(), ReadOnlyStorageFormat.READONLY_V2 } });
+                { new InterpolationSearchStrategy(), ReadOnlyStorageFormat.READONLY_V2 },
+                { new BinarySearchStrategy(), ReadOnlyStorageFormat.READONLY_V3 },
+                { new InterpolationSearchStrategy(), ReadOnlyStorageFormat.READONLY_V3 } });
     }
 
     private File dir;
@@ -105,6 +109,7 @@ public class ReadOnlyStorageEngineTest {
                 this.indexEntrySize = 20;
                 break;
             case READONLY_V2:
+            case READONLY_V3:
                 // 8 (upper 8 bytes of md5) + 4 (position)
                 this.indexEntrySize = 12;
                 break;
@@ -271,6 +276,173 @@ public class ReadOnlyStorageEngineTest {
         testData.delete();
     }
 
+    /**
+     * Sample every read and check that the hot ranges found get locked
+     */
+    @Test
+    public void canLockHotRanges() throws Exception {
+        ReadOnlyStorageEngineTestInstance testData = ReadOnlyStorageEngineTestInstance.create(strategy,
+                                                                                              dir,
+                                                                                              TEST_SIZE,
+                                                                                              2,
+                                                                                              2,
+                                                                                              serDef,
+                                                                                              serDef,
+                                                                                              storageType);
+        for(ReadOnlyStorageEngine engine: testData.getReadOnlyStores().values())
+            engine.setHotRangeSampler(new HotRangeSampler(1, 4096), 1024 * 1024);
+
+        for(Map.Entry<String, String> entry: testData.getData().entrySet())
+            for(Node node: testData.routeRequest(entry.getKey()))
+                assertEquals(1, testData.getNodeStores()
+                                        .get(node.getId())
+                                        .get(entry.getKey(), null)
+                                        .size());
+
+        for(ReadOnlyStorageEngine engine: testData.getReadOnlyStores().values()) {
+            assertTrue(engine.getHotRangeHistogram().contains("index"));
+            assertEquals(0, engine.getHotRangeLockedBytes());
+            engine.lockHotRanges();
+            assertTrue(engine.getHotRangeLockedBytes() > 0);
+            engine.close();
+            assertEquals(0, engine.getHotRangeLockedBytes());
+        }
+        testData.delete();
+    }
+
+    /**
+     * Check that the sparse index size is reported while the store is open, and
+     * as 0 once it is closed
+     */
+    @Test
+    public void canReportSparseIndexSize() throws Exception {
+        ReadOnlyStorageEngineTestInstance testData = ReadOnlyStorageEngineTestInstance.create(strategy,
+                                                                                              dir,
+                                                                                              TEST_SIZE,
+                                                                                              2,
+                                                                                              2,
+                                                                                              serDef,
+                                                                                              serDef,
+                                                                                              storageType);
+        for(Map.Entry<Integer, ReadOnlyStorageEngine> entry: testData.getReadOnlyStores()
+                                                                     .entrySet()) {
+            entry.getValue().close();
+            ReadOnlyStorageEngine engine = new ReadOnlyStorageEngine("test",
+                                                                     strategy,
+                                                                     testData.getRoutingStrategy(),
+                                                                     entry.getKey(),
+                                                                     new File(entry.getValue()
+                                                                                   .getStoreDirPath()),
+                                                                     1,
+                                                                     0,
+                                                                     false,
+                                                                     2);
+            assertTrue(engine.getSparseIndexSizeInBytes() > 0);
+            engine.close();
+            assertEquals(0, engine.getSparseIndexSizeInBytes());
+        }
+        testData.delete();
+    }
+
+    /**
+     * Check that file regions hold the same values as get, and that a region
+     * can still be read once the engine is closed
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void canGetFileRegions() throws Exception {
+        ReadOnlyStorageEngineTestInstance testData = ReadOnlyStorageEngineTestInstance.create(strategy,
+                                                                                              dir,
+                                                                                              TEST_SIZE,
+                                                                                              2,
+                                                                                              2,
+                                                                                              serDef,
+                                                                                              serDef,
+                                                                                              storageType);
+        Serializer<String> serializer = (Serializer<String>) new DefaultSerializerFactory().getSerializer(serDef);
+        for(ReadOnlyStorageEngine engine: testData.getReadOnlyStores().values()) {
+            FileRegion openRegion = null;
+            byte[] openRegionValue = null;
+            for(String key: testData.getData().keySet()) {
+                ByteArray keyBytes = new ByteArray(serializer.toBytes(key));
+                List<Versioned<byte[]>> found = engine.get(keyBytes, null);
+                FileRegion region = engine.getFileRegion(keyBytes);
+                if(found.isEmpty()) {
+                    assertEquals(0, region.getCount());
+                    region.release();
+                } else if(openRegion == null) {
+                    openRegion = region;
+                    openRegionValue = found.get(0).getValue();
+                } else {
+                    assertRegionEquals(found.get(0).getValue(), region);
+                    region.release();
+                }
+            }
+            assertEquals(0,
+                         engine.getFileRegion(new ByteArray(serializer.toBytes("not-a-key")))
+                               .getCount());
+
+            // The data files are closed once the last region is released
+            engine.close();
+            assertTrue(openRegion != null);
+            assertRegionEquals(openRegionValue, openRegion);
+            openRegion.release();
+        }
+        testData.delete();
+    }
+
+    private void assertRegionEquals(byte[] expected, FileRegion region) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        region.copyTo(output);
+        assertTrue(region.isComplete());
+        assertTrue(Arrays.equals(expected, output.toByteArray()));
+    }
+
+    /**
+     * Build the store with block compressed data files and check that every
+     * value can be read and iterated over
+     */
+    @Test
+    public void canGetCompressedValues() throws Exception {
+        if(storageType != ReadOnlyStorageFormat.READONLY_V2
+           && storageType != ReadOnlyStorageFormat.READONLY_V3)
+            return;
+
+        ReadOnlyStorageEngineTestInstance testData = ReadOnlyStorageEngineTestInstance.create(strategy,
+                                                                                              dir,
+                                                                                              TEST_SIZE,
+                                                                                              2,
+                                                                                              2,
+                                                                                              serDef,
+                                                                                              serDef,
+                                                                                              storageType,
+                                                                                              new Compression("gzip",
+                                                                                                              null));
+        for(Map.Entry<String, String> entry: testData.getData().entrySet()) {
+            for(Node node: testData.routeRequest(entry.getKey())) {
+                List<Versioned<String>> found = testData.getNodeStores()
+                                                        .get(node.getId())
+                                                        .get(entry.getKey(), null);
+                assertEquals(1, found.size());
+                assertEquals(entry.getValue(), found.get(0).getValue());
+            }
+        }
+        assertEquals(0, testData.getNodeStores().get(0).get("not-a-key", null).size());
+
+        int numEntries = 0;
+        for(ReadOnlyStorageEngine engine: testData.getReadOnlyStores().values()) {
+            assertTrue(engine.getBlockCacheSizeInBytes() > 0);
+            ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> entries = engine.entries();
+            while(entries.hasNext()) {
+                entries.next();
+                numEntries++;
+            }
+            entries.close();
+        }
+        assertEquals(2 * TEST_SIZE, numEntries);
+        testData.delete();
+    }
+
     @Test
     public void openInvalidStoreFails() throws Exception {
         // empty is okay
@@ -526,7 +698,8 @@ public class ReadOnlyStorageEngineTest {
                 keyIterator = storeEntry.getValue().keys();
                 entryIterator = storeEntry.getValue().entries();
             } catch(Exception e) {
-                if(storageType.compareTo(ReadOnlyStorageFormat.READONLY_V2) == 0) {
+                if(storageType.compareTo(ReadOnlyStorageFormat.READONLY_V2) == 0
+                   || storageType.compareTo(ReadOnlyStorageFormat.READONLY_V3) == 0) {
                     fail("Should not have thrown exception since this version supports iteration");
                 } else {
                     return;
@@ -634,7 +807,8 @@ public class ReadOnlyStorageEngineTest {
                 }
             }
                 break;
-            case READONLY_V2: {
+            case READONLY_V2:
+            case READONLY_V3: {
                 // Assuming number of replicas = 1, since all these tests use a
                 // store with replication factor of 1
                 for(Integer partitionId: node.getPartitionIds()) {
@@ -18,6 +18,7 @@ import voldemort.cluster.Node;
 import voldemort.routing.RoutingStrategy;
 import voldemort.routing.RoutingStrategyFactory;
 import voldemort.routing.RoutingStrategyType;
+import voldemort.serialization.Compression;
 import voldemort.serialization.DefaultSerializerFactory;
 import voldemort.serialization.Serializer;
 import voldemort.serialization.SerializerDefinition;
@@ -29,6 +30,7 @@ import voldemort.store.StoreDefinitionBuilder;
 import voldemort.store.compress.CompressingStore;
 import voldemort.store.compress.CompressionStrategy;
 import voldemort.store.compress.CompressionStrategyFactory;
+import voldemort.store.readonly.chunk.CompressedDataFileChunk;
 import voldemort.store.serialized.SerializingStore;
 import voldemort.utils.ByteArray;
 import voldemort.utils.Utils;
@@ -92,6 +94,27 @@ public class ReadOnlyStorageEngineTestInstance {
                                                            SerializerDefinition valueSerDef,
                                                            ReadOnlyStorageFormat type)
             throws Exception {
+        return create(strategy,
+                      baseDir,
+                      testSize,
+                      numNodes,
+                      repFactor,
+                      keySerDef,
+                      valueSerDef,
+                      type,
+                      null);
+    }
+
+    public static ReadOnlyStorageEngineTestInstance create(SearchStrategy strategy,
+                                                           File baseDir,
+                                                           int testSize,
+                                                           int numNodes,
+                                                           int repFactor,
+                                                           SerializerDefinition keySerDef,
+                                                           SerializerDefinition valueSerDef,
+                                                           ReadOnlyStorageFormat type,
+                                                           Compression readOnlyCompression)
+            throws Exception {
         // create some test data
         Map<String, String> data = createTestData(testSize);
         JsonReader reader = makeTestDataReader(data, baseDir);
@@ -118,6 +141,7 @@ public class ReadOnlyStorageEngineTestInstance {
                                                                .setRequiredReads(1)
                                                                .setPreferredWrites(1)
                                                                .setRequiredWrites(1)
+                                                               .setReadOnlyCompression(readOnlyCompression)
                                                                .build();
         RoutingStrategy router = new RoutingStrategyFactory().updateRoutingStrategy(storeDef,
                                                                                     cluster);
@@ -161,7 +185,11 @@ public class ReadOnlyStorageEngineTestInstance {
                                                                                     router,
                                                                                     i,
                                                                                     currNode,
-                                                                                    1);
+                                                                                    1,
+                                                                                    0,
+                                                                                    false,
+                                                                                    0,
+                                                                                    2 * CompressedDataFileChunk.DEFAULT_BLOCK_SIZE);
             readOnlyStores.put(i, readOnlyStorageEngine);
             Store<ByteArray, byte[], byte[]> innerStore = new CompressingStore(readOnlyStorageEngine,
                                                                                keyCompressionStrat,
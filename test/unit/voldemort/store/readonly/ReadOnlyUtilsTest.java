@@ -16,8 +16,13 @@
 
 package voldemort.store.readonly;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
@@ -25,6 +30,7 @@ import org.apache.log4j.Logger;
 import org.junit.Test;
 
 import voldemort.TestUtils;
+import voldemort.VoldemortException;
 import voldemort.utils.ByteUtils;
 import voldemort.utils.Pair;
 import voldemort.utils.Utils;
@@ -180,4 +186,65 @@ public class ReadOnlyUtilsTest extends TestCase {
         assertNull(returnedFiles2);
 
     }
+
+    @Test
+    public void testLinkUnchangedFiles() throws IOException {
+        File storeDir = TestUtils.createTempDir();
+        File baseDir = new File(storeDir, "version-0"), deltaDir = new File(storeDir, "version-1");
+        Utils.mkdirs(baseDir);
+        Utils.mkdirs(deltaDir);
+
+        Map<String, String> fileCheckSums = new HashMap<String, String>();
+        fileCheckSums.put("0_0_0.data", "aa");
+        fileCheckSums.put("0_0_0.index", "bb");
+        ReadOnlyStorageMetadata baseMetadata = new ReadOnlyStorageMetadata();
+        baseMetadata.add(ReadOnlyStorageMetadata.CHECKSUM, "1234");
+        baseMetadata.addFileChecksums(fileCheckSums);
+        writeFile(new File(baseDir, ".metadata"), baseMetadata.toJsonString());
+        writeFile(new File(baseDir, "0_0_0.data"), "base data");
+        writeFile(new File(baseDir, "0_0_0.index"), "base index");
+
+        // Not a delta
+        ReadOnlyStorageMetadata metadata = new ReadOnlyStorageMetadata();
+        writeFile(new File(deltaDir, ".metadata"), metadata.toJsonString());
+        assertEquals(0, ReadOnlyUtils.linkUnchangedFiles(baseDir, deltaDir));
+
+        // A delta of another version
+        fileCheckSums.put("0_0_0.index", "cc");
+        metadata.add(ReadOnlyStorageMetadata.BASE_CHECKSUM, "5678");
+        metadata.addFileChecksums(fileCheckSums);
+        writeFile(new File(deltaDir, ".metadata"), metadata.toJsonString());
+        writeFile(new File(deltaDir, "0_0_0.index"), "new index");
+        try {
+            ReadOnlyUtils.linkUnchangedFiles(baseDir, deltaDir);
+            fail("Should have thrown an exception since the base version differs");
+        } catch(VoldemortException e) {}
+
+        // A delta of the current version links the unchanged data file
+        metadata.add(ReadOnlyStorageMetadata.BASE_CHECKSUM, "1234");
+        writeFile(new File(deltaDir, ".metadata"), metadata.toJsonString());
+        assertEquals(1, ReadOnlyUtils.linkUnchangedFiles(baseDir, deltaDir));
+        assertEquals("base data", readFile(new File(deltaDir, "0_0_0.data")));
+        assertEquals("new index", readFile(new File(deltaDir, "0_0_0.index")));
+
+        // The linked file outlives the base version
+        Utils.rm(baseDir);
+        assertEquals("base data", readFile(new File(deltaDir, "0_0_0.data")));
+        Utils.rm(storeDir);
+    }
+
+    private void writeFile(File file, String contents) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(contents);
+        writer.close();
+    }
+
+    private String readFile(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            return reader.readLine();
+        } finally {
+            reader.close();
+        }
+    }
 }
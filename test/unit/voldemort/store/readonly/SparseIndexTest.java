@@ -0,0 +1,95 @@
+package voldemort.store.readonly;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import voldemort.utils.ByteUtils;
+
+/**
+ * Tests for {@link SparseIndex}, checked against {@link BinarySearchStrategy}
+ * over the same index
+ */
+@RunWith(Parameterized.class)
+public class SparseIndexTest {
+
+    private final int keyHashSize;
+    private final int interval;
+
+    @Parameters
+    public static Collection<Object[]> configs() {
+        return Arrays.asList(new Object[][] { { 8, 1 }, { 8, 3 }, { 8, 64 }, { 16, 7 },
+                { 16, 1000 } });
+    }
+
+    public SparseIndexTest(int keyHashSize, int interval) {
+        this.keyHashSize = keyHashSize;
+        this.interval = interval;
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        ByteBuffer index = makeIndex(new byte[0][]);
+        SparseIndex sparseIndex = new SparseIndex(index, index.limit(), keyHashSize, interval);
+        assertEquals(0, sparseIndex.getSizeInBytes());
+        assertEquals(-1, sparseIndex.indexOf(index, new byte[keyHashSize]));
+    }
+
+    @Test
+    public void testMatchesBinarySearch() {
+        Random rand = new Random(2345678);
+        SearchStrategy binarySearch = new BinarySearchStrategy();
+        for(int size: new int[] { 1, 2, interval, interval + 1, 517 }) {
+            byte[][] keys = new byte[size][keyHashSize];
+            for(int i = 0; i < size; i++)
+                rand.nextBytes(keys[i]);
+            ByteBuffer index = makeIndex(keys);
+            SparseIndex sparseIndex = new SparseIndex(index, index.limit(), keyHashSize, interval);
+            assertEquals(size, sparseIndex.getNumEntries());
+
+            for(int i = 0; i < size; i++)
+                assertEquals(binarySearch.indexOf(index, keys[i], index.limit()),
+                             sparseIndex.indexOf(index, keys[i]));
+
+            for(int i = 0; i < 100; i++) {
+                byte[] key = new byte[keyHashSize];
+                rand.nextBytes(key);
+                assertEquals(binarySearch.indexOf(index, key, index.limit()),
+                             sparseIndex.indexOf(index, key));
+            }
+
+            byte[] min = new byte[keyHashSize];
+            byte[] max = new byte[keyHashSize];
+            Arrays.fill(max, (byte) 0xff);
+            assertEquals(binarySearch.indexOf(index, min, index.limit()),
+                         sparseIndex.indexOf(index, min));
+            assertEquals(binarySearch.indexOf(index, max, index.limit()),
+                         sparseIndex.indexOf(index, max));
+        }
+    }
+
+    private ByteBuffer makeIndex(byte[][] keys) {
+        byte[][] copy = keys.clone();
+        Arrays.sort(copy, new Comparator<byte[]>() {
+
+            public int compare(byte[] b1, byte[] b2) {
+                return ByteUtils.compare(b1, b2);
+            }
+        });
+        ByteBuffer buffer = ByteBuffer.allocate((keyHashSize + ByteUtils.SIZE_OF_INT) * copy.length);
+        for(int i = 0; i < copy.length; i++) {
+            buffer.put(copy[i]);
+            buffer.putInt(i * 10);
+        }
+        return buffer;
+    }
+}
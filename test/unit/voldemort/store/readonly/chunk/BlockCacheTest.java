@@ -0,0 +1,48 @@
+package voldemort.store.readonly.chunk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class BlockCacheTest {
+
+    private static class EmptyDataFileChunk implements DataFileChunk {
+
+        public int read(ByteBuffer buffer, long currentOffset) throws IOException {
+            return -1;
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        DataFileChunk first = new EmptyDataFileChunk();
+        DataFileChunk second = new EmptyDataFileChunk();
+        BlockCache cache = new BlockCache(30);
+
+        cache.put(first, 0, new byte[10]);
+        cache.put(second, 0, new byte[10]);
+        cache.put(first, 1, new byte[10]);
+        assertEquals(30, cache.getSizeInBytes());
+
+        // Touch the oldest block so that the second chunk's block is evicted
+        assertEquals(10, cache.get(first, 0).length);
+        cache.put(second, 1, new byte[10]);
+        assertEquals(30, cache.getSizeInBytes());
+        assertNull(cache.get(second, 0));
+        assertEquals(10, cache.get(first, 0).length);
+        assertEquals(10, cache.get(first, 1).length);
+        assertEquals(10, cache.get(second, 1).length);
+
+        // Blocks larger than the cache are not cached
+        cache.put(second, 2, new byte[31]);
+        assertNull(cache.get(second, 2));
+        assertEquals(30, cache.getSizeInBytes());
+
+        assertEquals(4, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+}
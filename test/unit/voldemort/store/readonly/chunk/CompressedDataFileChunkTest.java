@@ -0,0 +1,119 @@
+package voldemort.store.readonly.chunk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import voldemort.TestUtils;
+import voldemort.serialization.Compression;
+import voldemort.store.compress.CompressionStrategy;
+import voldemort.store.compress.CompressionStrategyFactory;
+import voldemort.utils.ByteUtils;
+import voldemort.utils.Utils;
+
+@RunWith(Parameterized.class)
+public class CompressedDataFileChunkTest {
+
+    private final CompressionStrategy compressionStrategy;
+    private File dir;
+
+    @Parameters
+    public static Collection<Object[]> configs() {
+        return Arrays.asList(new Object[][] { { "gzip" }, { "lzf" }, { "snappy" } });
+    }
+
+    public CompressedDataFileChunkTest(String compression) {
+        this.compressionStrategy = new CompressionStrategyFactory().get(new Compression(compression,
+                                                                                        null));
+    }
+
+    @Before
+    public void setUp() {
+        dir = TestUtils.createTempDir();
+    }
+
+    @After
+    public void tearDown() {
+        Utils.rm(dir);
+    }
+
+    @Test
+    public void testEmptyChunk() throws IOException {
+        for(byte[] data: new byte[][] { null, new byte[0] }) {
+            CompressedDataFileChunk chunk = open(data, 16, null);
+            assertEquals(0, chunk.getSize());
+            assertEquals(0, chunk.getNumBlocks());
+            assertEquals(-1, chunk.read(ByteBuffer.allocate(1), 0));
+        }
+    }
+
+    @Test
+    public void testReadsMatchUncompressedData() throws IOException {
+        Random random = new Random(1234);
+        for(int size: new int[] { 1, 99, 100, 101, 1234 }) {
+            byte[] data = new byte[size];
+            // Small alphabet, so that the data compresses
+            for(int i = 0; i < size; i++)
+                data[i] = (byte) random.nextInt(4);
+
+            for(BlockCache blockCache: new BlockCache[] { null, new BlockCache(250) }) {
+                CompressedDataFileChunk chunk = open(data, 100, blockCache);
+                assertEquals(size, chunk.getSize());
+                assertEquals((size + 99) / 100, chunk.getNumBlocks());
+
+                for(int i = 0; i < 200; i++) {
+                    int offset = random.nextInt(size);
+                    int length = 1 + random.nextInt(Math.min(size - offset, 300));
+                    ByteBuffer buffer = ByteBuffer.allocate(length);
+                    assertEquals(length, chunk.read(buffer, offset));
+                    assertArrayEquals(ByteUtils.copy(data, offset, offset + length),
+                                      buffer.array());
+                }
+
+                // Reads are capped at the end of the data
+                ByteBuffer buffer = ByteBuffer.allocate(10);
+                assertEquals(1, chunk.read(buffer, size - 1));
+                assertEquals(-1, chunk.read(ByteBuffer.allocate(1), size));
+
+                if(blockCache != null) {
+                    assertTrue(blockCache.getHits() > 0);
+                    assertTrue(blockCache.getSizeInBytes() <= 250);
+                }
+            }
+        }
+    }
+
+    private CompressedDataFileChunk open(byte[] data, int blockSize, BlockCache blockCache)
+            throws IOException {
+        File file = File.createTempFile("chunk", ".data", dir);
+        if(data != null) {
+            FileOutputStream output = new FileOutputStream(file);
+            long written = CompressedDataFileChunk.compress(new ByteArrayInputStream(data),
+                                                            output,
+                                                            compressionStrategy,
+                                                            blockSize);
+            output.close();
+            assertEquals(file.length(), written);
+        }
+        FileChannel channel = new FileInputStream(file).getChannel();
+        return new CompressedDataFileChunk(channel, compressionStrategy, blockCache);
+    }
+}
@@ -0,0 +1,55 @@
+package voldemort.store.readonly.chunk;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class PrefetchedDataFileChunkTest {
+
+    /**
+     * A chunk whose byte at offset i is (byte) i, counting the reads it serves
+     */
+    private static class CountingDataFileChunk implements DataFileChunk {
+
+        private int numReads = 0;
+
+        public int read(ByteBuffer buffer, long currentOffset) throws IOException {
+            numReads++;
+            int length = buffer.remaining();
+            for(int i = 0; i < length; i++)
+                buffer.put((byte) (currentOffset + i));
+            return length;
+        }
+    }
+
+    @Test
+    public void testReadsInsideBlockAreServedFromMemory() throws IOException {
+        CountingDataFileChunk dataFile = new CountingDataFileChunk();
+        ByteBuffer block = ByteBuffer.allocate(100);
+        dataFile.read(block, 50);
+        block.flip();
+        PrefetchedDataFileChunk prefetched = new PrefetchedDataFileChunk(dataFile, block, 50);
+
+        assertRead(prefetched, 50, 10);
+        assertRead(prefetched, 140, 10);
+        assertRead(prefetched, 75, 1);
+        assertEquals(1, dataFile.numReads);
+
+        // Reads crossing or outside the block go to the underlying chunk
+        assertRead(prefetched, 145, 10);
+        assertRead(prefetched, 45, 10);
+        assertRead(prefetched, 500, 4);
+        assertEquals(4, dataFile.numReads);
+    }
+
+    private void assertRead(DataFileChunk dataFile, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        assertEquals(length, dataFile.read(buffer, offset));
+        assertEquals(length, buffer.position());
+        for(int i = 0; i < length; i++)
+            assertEquals((byte) (offset + i), buffer.get(i));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import voldemort.client.RoutingTier;
+import voldemort.client.TimeoutConfig;
+import voldemort.cluster.Cluster;
+import voldemort.cluster.Node;
+import voldemort.cluster.failuredetector.NoopFailureDetector;
+import voldemort.routing.RoutingStrategyFactory;
+import voldemort.routing.RoutingStrategyType;
+import voldemort.serialization.SerializerDefinition;
+import voldemort.store.SleepyStore;
+import voldemort.store.Store;
+import voldemort.store.StoreDefinition;
+import voldemort.store.StoreDefinitionBuilder;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Versioned;
+
+public class ReadHedgerTest {
+
+    private ExecutorService routedStoreThreadPool;
+
+    @After
+    public void tearDown() {
+        if(routedStoreThreadPool != null)
+            routedStoreThreadPool.shutdown();
+    }
+
+    private static Node node(int id) {
+        return new Node(id, "none", 0, 0, 0, Arrays.asList(id));
+    }
+
+    @Test
+    public void testHedgeDelayIsTheQuantileOfTheSlowestNode() {
+        ReadHedger hedger = new ReadHedger(new ReadHedgingConfig(0.95, 10));
+        List<Node> nodes = Arrays.asList(node(0), node(1));
+
+        // not enough samples yet
+        assertEquals(-1, hedger.startRead(nodes));
+
+        for(int i = 0; i < 100; i++) {
+            hedger.recordLatency(nodes.get(0), i < 95 ? 5 : 50);
+            hedger.recordLatency(nodes.get(1), 20);
+        }
+        assertEquals(6, hedger.startRead(nodes.subList(0, 1)));
+        assertEquals(21, hedger.startRead(nodes));
+        assertEquals(-1, hedger.startRead(Arrays.asList(node(0), node(2))));
+    }
+
+    @Test
+    public void testHedgesStayWithinBudget() {
+        ReadHedger hedger = new ReadHedger(new ReadHedgingConfig(0.95, 10));
+        List<Node> nodes = Arrays.asList(node(0));
+
+        // 10% of 9 reads is less than a request
+        for(int i = 0; i < 9; i++)
+            hedger.startRead(nodes);
+        assertFalse(hedger.tryHedge());
+        hedger.startRead(nodes);
+        assertTrue(hedger.tryHedge());
+        assertFalse(hedger.tryHedge());
+
+        // a quiet period saves up a bounded number of hedges
+        for(int i = 0; i < 1000; i++)
+            hedger.startRead(nodes);
+        int hedges = 0;
+        while(hedger.tryHedge())
+            hedges++;
+        assertEquals(10, hedges);
+        assertEquals(11, hedger.getNumHedgedRequests());
+        assertEquals(3, hedger.getNumHedgesOverBudget());
+    }
+
+    @Test
+    public void testSlowReadIsHedged() {
+        StoreDefinition definition = new StoreDefinitionBuilder().setName("test")
+                                                                 .setType("foo")
+                                                                 .setKeySerializer(new SerializerDefinition("test"))
+                                                                 .setValueSerializer(new SerializerDefinition("test"))
+                                                                 .setRoutingPolicy(RoutingTier.CLIENT)
+                                                                 .setRoutingStrategyType(RoutingStrategyType.CONSISTENT_STRATEGY)
+                                                                 .setReplicationFactor(2)
+                                                                 .setPreferredReads(1)
+                                                                 .setRequiredReads(1)
+                                                                 .setPreferredWrites(2)
+                                                                 .setRequiredWrites(2)
+                                                                 .build();
+        List<Node> nodes = new ArrayList<Node>();
+        Map<Integer, SleepyStore<ByteArray, byte[], byte[]>> sleepyStores = new HashMap<Integer, SleepyStore<ByteArray, byte[], byte[]>>();
+        Map<Integer, Store<ByteArray, byte[], byte[]>> stores = new HashMap<Integer, Store<ByteArray, byte[], byte[]>>();
+        for(int i = 0; i < 2; i++) {
+            SleepyStore<ByteArray, byte[], byte[]> store = new SleepyStore<ByteArray, byte[], byte[]>(0,
+                                                                                                      new InMemoryStorageEngine<ByteArray, byte[], byte[]>("test"));
+            sleepyStores.put(i, store);
+            stores.put(i, store);
+            nodes.add(node(i));
+        }
+        Cluster cluster = new Cluster("test", nodes);
+
+        routedStoreThreadPool = Executors.newFixedThreadPool(4);
+        RoutedStoreFactory routedStoreFactory = new RoutedStoreFactory(true,
+                                                                       routedStoreThreadPool,
+                                                                       new TimeoutConfig(5000,
+                                                                                         false),
+                                                                       null,
+                                                                       new ReadHedgingConfig(0.95,
+                                                                                             10),
+                                                                       false);
+        RoutedStore routedStore = routedStoreFactory.create(cluster,
+                                                            definition,
+                                                            stores,
+                                                            true,
+                                                            new NoopFailureDetector());
+
+        ByteArray key = new ByteArray("key".getBytes());
+        routedStore.put(key, Versioned.value("value".getBytes()), null);
+        // enough reads for the latencies of both nodes to be known
+        for(int i = 0; i < 1000; i++)
+            routedStore.get(new ByteArray(("key" + i).getBytes()), null);
+
+        int firstNodeId = new RoutingStrategyFactory().updateRoutingStrategy(definition, cluster)
+                                                      .routeRequest(key.get())
+                                                      .get(0)
+                                                      .getId();
+        sleepyStores.get(firstNodeId).setSleepTimeMs(2000);
+        long startMs = System.currentTimeMillis();
+        assertEquals(1, routedStore.get(key, null).size());
+        long elapsedMs = System.currentTimeMillis() - startMs;
+        assertTrue("Read took " + elapsedMs + " ms", elapsedMs < 1000);
+        routedStore.close();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.routed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import voldemort.MockTime;
+import voldemort.cluster.Node;
+
+public class ReplicaSelectorTest {
+
+    private MockTime time;
+    private ReplicaSelector selector;
+    private List<Node> nodes;
+
+    @Before
+    public void setUp() {
+        time = new MockTime(System.currentTimeMillis());
+        selector = new ReplicaSelector(time);
+        nodes = Arrays.asList(node(0), node(1), node(2));
+    }
+
+    private static Node node(int id) {
+        return new Node(id, "none", 0, 0, 0, Arrays.asList(id));
+    }
+
+    private void recordReads(Node node, long latencyMs, int numReads) {
+        for(int i = 0; i < numReads; i++) {
+            selector.requestStarted(node);
+            selector.requestCompleted(node, latencyMs);
+        }
+    }
+
+    @Test
+    public void testSlowNodeIsReadLast() {
+        recordReads(nodes.get(0), 50, 10);
+        recordReads(nodes.get(1), 1, 10);
+        recordReads(nodes.get(2), 2, 10);
+        for(int i = 0; i < 100; i++) {
+            List<Node> ordered = selector.order(nodes);
+            assertEquals(new HashSet<Node>(nodes), new HashSet<Node>(ordered));
+            // it never wins a choice
+            assertEquals(nodes.get(0), ordered.get(2));
+        }
+    }
+
+    @Test
+    public void testBusyNodeIsReadLast() {
+        recordReads(nodes.get(0), 1, 10);
+        recordReads(nodes.get(1), 1, 10);
+        recordReads(nodes.get(2), 1, 10);
+        for(int i = 0; i < 5; i++)
+            selector.requestStarted(nodes.get(1));
+        assertTrue(selector.getScore(nodes.get(1)) > selector.getScore(nodes.get(0)));
+        for(int i = 0; i < 100; i++)
+            assertEquals(nodes.get(1), selector.order(nodes).get(2));
+    }
+
+    @Test
+    public void testStaleLatencyIsForgotten() {
+        recordReads(nodes.get(0), 50, 10);
+        recordReads(nodes.get(1), 1, 10);
+        assertTrue(selector.getScore(nodes.get(0)) > selector.getScore(nodes.get(1)));
+
+        time.addMilliseconds(5000);
+        assertEquals(selector.getScore(nodes.get(1)), selector.getScore(nodes.get(0)), 0.0);
+        // but not what is still outstanding
+        selector.requestStarted(nodes.get(0));
+        assertTrue(selector.getScore(nodes.get(0)) > selector.getScore(nodes.get(1)));
+    }
+
+    @Test
+    public void testFailingNodeIsReadLast() {
+        recordReads(nodes.get(1), 5, 10);
+        recordReads(nodes.get(2), 10, 10);
+        // refuses every read straight away
+        for(int i = 0; i < 10; i++) {
+            selector.requestStarted(nodes.get(0));
+            selector.requestFailed(nodes.get(0), 500);
+        }
+        for(int i = 0; i < 100; i++)
+            assertEquals(nodes.get(0), selector.order(nodes).get(2));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.slop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import voldemort.ServerTestUtils;
+import voldemort.cluster.Cluster;
+import voldemort.cluster.Node;
+import voldemort.cluster.failuredetector.NoopFailureDetector;
+import voldemort.serialization.SlopSerializer;
+import voldemort.store.memory.InMemoryStorageEngine;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.ThreadPoolBasedNonblockingStoreImpl;
+import voldemort.store.slop.strategy.ConsistentHandoffStrategy;
+import voldemort.utils.ByteArray;
+import voldemort.utils.ClosableIterator;
+import voldemort.utils.Pair;
+import voldemort.versioning.VectorClock;
+import voldemort.versioning.Versioned;
+
+import com.google.common.collect.Maps;
+
+public class BatchingHintWriterTest {
+
+    private static final int NUM_NODES = 3;
+    private static final long TIMEOUT_MS = 5000;
+
+    private Cluster cluster;
+    private ExecutorService executor;
+    private Map<Integer, InMemoryStorageEngine<ByteArray, byte[], byte[]>> slopEngines;
+    private Map<Integer, NonblockingStore> nonblockingSlopStores;
+    private BatchingHintWriter writer;
+
+    @Before
+    public void setUp() {
+        cluster = ServerTestUtils.getLocalCluster(NUM_NODES);
+        executor = Executors.newCachedThreadPool();
+        slopEngines = Maps.newHashMap();
+        nonblockingSlopStores = Maps.newHashMap();
+        for(Node node: cluster.getNodes()) {
+            InMemoryStorageEngine<ByteArray, byte[], byte[]> engine = new InMemoryStorageEngine<ByteArray, byte[], byte[]>("slop");
+            slopEngines.put(node.getId(), engine);
+            nonblockingSlopStores.put(node.getId(),
+                                      new ThreadPoolBasedNonblockingStoreImpl(executor, engine));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if(writer != null)
+            writer.close();
+        executor.shutdownNow();
+    }
+
+    private HintedHandoff makeHandoff(List<Node> failedNodes) {
+        return new HintedHandoff(new NoopFailureDetector(),
+                                 null,
+                                 nonblockingSlopStores,
+                                 new ConsistentHandoffStrategy(cluster, NUM_NODES - 1, false, 0),
+                                 failedNodes,
+                                 TIMEOUT_MS,
+                                 writer);
+    }
+
+    private List<Versioned<Slop>> slopsWritten() {
+        SlopSerializer serializer = new SlopSerializer();
+        List<Versioned<Slop>> slops = new ArrayList<Versioned<Slop>>();
+        for(InMemoryStorageEngine<ByteArray, byte[], byte[]> engine: slopEngines.values()) {
+            ClosableIterator<Pair<ByteArray, Versioned<byte[]>>> iter = engine.entries();
+            while(iter.hasNext()) {
+                Versioned<byte[]> versioned = iter.next().getSecond();
+                slops.add(new Versioned<Slop>(serializer.toObject(versioned.getValue()),
+                                              versioned.getVersion()));
+            }
+            iter.close();
+        }
+        return slops;
+    }
+
+    @Test
+    public void testCoalescesHintsForTheSameKey() {
+        writer = new BatchingHintWriter("test",
+                                        new HintWriterConfig(100,
+                                                             100,
+                                                             1000,
+                                                             HintWriterConfig.Durability.ASYNC,
+                                                             HintWriterConfig.OverflowPolicy.DROP),
+                                        TIMEOUT_MS);
+        Node failedNode = cluster.getNodeById(0);
+        List<Node> failedNodes = new ArrayList<Node>();
+        failedNodes.add(failedNode);
+
+        int numPuts = 10;
+        VectorClock clock = new VectorClock();
+        for(int i = 0; i < numPuts; i++) {
+            clock = clock.incremented(0, System.currentTimeMillis());
+            Slop slop = new Slop("test",
+                                 Slop.Operation.PUT,
+                                 "key".getBytes(),
+                                 new byte[] { (byte) i },
+                                 failedNode.getId(),
+                                 new Date());
+            makeHandoff(failedNodes).sendHintParallel(failedNode, clock, slop);
+        }
+        // sends what is left in the buffer
+        writer.close();
+
+        List<Versioned<Slop>> slops = slopsWritten();
+        assertEquals(1, slops.size());
+        assertEquals(numPuts - 1, slops.get(0).getValue().getValue()[0]);
+        assertEquals(clock, slops.get(0).getVersion());
+        assertEquals(numPuts - 1, writer.getNumCoalescedHints());
+        assertEquals(1, writer.getNumWrittenHints());
+    }
+
+    @Test
+    public void testSyncHintIsWrittenOnReturn() {
+        writer = new BatchingHintWriter("test",
+                                        new HintWriterConfig(100,
+                                                             100,
+                                                             10,
+                                                             HintWriterConfig.Durability.SYNC,
+                                                             HintWriterConfig.OverflowPolicy.SEND_DIRECT),
+                                        TIMEOUT_MS);
+        for(int i = 0; i < 5; i++) {
+            Node failedNode = cluster.getNodeById(i % NUM_NODES);
+            List<Node> failedNodes = new ArrayList<Node>();
+            failedNodes.add(failedNode);
+            Slop slop = new Slop("test",
+                                 Slop.Operation.PUT,
+                                 ("key" + i).getBytes(),
+                                 "value".getBytes(),
+                                 failedNode.getId(),
+                                 new Date());
+            makeHandoff(failedNodes).sendHintParallel(failedNode,
+                                                      new VectorClock().incremented(failedNode.getId(),
+                                                                                    System.currentTimeMillis()),
+                                                      slop);
+            List<Versioned<Slop>> slops = slopsWritten();
+            assertEquals(i + 1, slops.size());
+        }
+        for(Versioned<Slop> slop: slopsWritten())
+            assertTrue(slop.getValue().getNodeId() < NUM_NODES);
+    }
+}
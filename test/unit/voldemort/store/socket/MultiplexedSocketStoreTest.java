@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013 LinkedIn, Inc
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package voldemort.store.socket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import voldemort.TestUtils;
+import voldemort.client.protocol.RequestFormatType;
+import voldemort.store.Store;
+import voldemort.store.nonblockingstore.NonblockingStore;
+import voldemort.store.nonblockingstore.NonblockingStoreCallback;
+import voldemort.utils.ByteArray;
+import voldemort.versioning.Versioned;
+
+@RunWith(Parameterized.class)
+public class MultiplexedSocketStoreTest extends AbstractSocketStoreTest {
+
+    public MultiplexedSocketStoreTest(boolean useNio) {
+        super(RequestFormatType.VOLDEMORT_V3_MULTIPLEXED, useNio);
+    }
+
+    @Parameters
+    public static Collection<Object[]> configs() {
+        return Arrays.asList(new Object[][] { { true }, { false } });
+    }
+
+    @Test
+    public void testConcurrentRequestsGetTheirOwnResponses() throws Exception {
+        final Store<ByteArray, byte[], byte[]> store = getStore();
+        int numOps = 200;
+        ExecutorService exec = Executors.newFixedThreadPool(20);
+        try {
+            Future<?>[] results = new Future<?>[numOps];
+            for(int i = 0; i < numOps; i++) {
+                final ByteArray key = TestUtils.toByteArray("key" + i);
+                final byte[] value = TestUtils.randomBytes(1 + i * 10);
+                results[i] = exec.submit(new Callable<Void>() {
+
+                    public Void call() {
+                        store.put(key, new Versioned<byte[]>(value), null);
+                        List<Versioned<byte[]>> found = store.get(key, null);
+                        assertEquals(1, found.size());
+                        assertTrue(Arrays.equals(value, found.get(0).getValue()));
+                        return null;
+                    }
+                });
+            }
+            for(Future<?> result: results)
+                result.get();
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testConcurrentAsyncRequests() throws Exception {
+        Store<ByteArray, byte[], byte[]> store = getStore();
+        NonblockingStore nonblockingStore = (NonblockingStore) store;
+        int numOps = 100;
+        List<ByteArray> keys = new ArrayList<ByteArray>();
+        List<byte[]> values = new ArrayList<byte[]>();
+        for(int i = 0; i < numOps; i++) {
+            keys.add(TestUtils.toByteArray("async" + i));
+            values.add(TestUtils.randomBytes(1 + i * 10));
+            store.put(keys.get(i), new Versioned<byte[]>(values.get(i)), null);
+        }
+
+        final CountDownLatch latch = new CountDownLatch(numOps);
+        final Object[] results = new Object[numOps];
+        for(int i = 0; i < numOps; i++) {
+            final int index = i;
+            nonblockingStore.submitGetRequest(keys.get(i), null, new NonblockingStoreCallback() {
+
+                public void requestComplete(Object result, long requestTime) {
+                    results[index] = result;
+                    latch.countDown();
+                }
+            }, 10000);
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+        for(int i = 0; i < numOps; i++) {
+            assertTrue("Request " + i + " failed with " + results[i], results[i] instanceof List);
+            List<Versioned<byte[]>> found = (List<Versioned<byte[]>>) results[i];
+            assertEquals(1, found.size());
+            assertTrue(Arrays.equals(values.get(i), found.get(0).getValue()));
+        }
+    }
+}
@@ -21,6 +21,8 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static voldemort.TestUtils.getClock;
 
+import java.util.Random;
+
 import org.junit.Test;
 
 import voldemort.TestUtils;
@@ -141,6 +143,67 @@ public class VectorClockTest {
                      new VectorClock(knownSerialized));
     }
 
+    @Test
+    public void testDeserializationOfUnsortedEntries() {
+        // 2 entries, 1 byte versions: node 3 at 1, node 1 at 2
+        byte[] unsorted = { 0, 2, 1, 0, 3, 1, 0, 1, 2, 0, 0, 0, 0, 0, 0, 0, 0 };
+        VectorClock clock = new VectorClock(unsorted);
+        assertEquals(getClock(1, 1, 3), clock);
+        assertEquals(Occurred.BEFORE, clock.compare(getClock(1, 1, 3, 3)));
+    }
+
+    /**
+     * Clocks of random versions of a few nodes, some of them with versions
+     * needing more than a byte
+     */
+    private VectorClock[] getRandomClocks(Random random, int numClocks) {
+        VectorClock[] clocks = new VectorClock[numClocks];
+        for(int c = 0; c < numClocks; c++) {
+            clocks[c] = new VectorClock();
+            int numIncrements = random.nextInt(c % 5 == 0 ? 600 : 8);
+            for(int i = 0; i < numIncrements; i++)
+                clocks[c].incrementVersion(random.nextInt(5), System.currentTimeMillis());
+        }
+        return clocks;
+    }
+
+    @Test
+    public void testSerializedComparisons() {
+        VectorClock[] clocks = getRandomClocks(new Random(0), 50);
+        for(VectorClock clock1: clocks) {
+            byte[] bytes1 = clock1.toBytes();
+            // some bytes ahead of the clock
+            byte[] prefixedBytes1 = new byte[bytes1.length + 3];
+            System.arraycopy(bytes1, 0, prefixedBytes1, 3, bytes1.length);
+            for(VectorClock clock2: clocks) {
+                byte[] bytes2 = clock2.toBytes();
+                Occurred expected = clock1.compare(clock2);
+                assertEquals(expected, clock1.compare(bytes2, 0));
+                assertEquals(expected, VectorClock.compare(bytes1, 0, bytes2, 0));
+                assertEquals(expected, VectorClock.compare(prefixedBytes1, 3, bytes2, 0));
+            }
+        }
+    }
+
+    @Test
+    public void testSerializedMerge() {
+        VectorClock[] clocks = getRandomClocks(new Random(1), 30);
+        for(VectorClock clock1: clocks) {
+            for(VectorClock clock2: clocks) {
+                VectorClock merged = clock1.merge(clock2);
+                assertEquals(merged, clock1.merge(clock2.toBytes(), 0));
+                assertTrue(merged.compare(clock1) != Occurred.BEFORE || merged.equals(clock1));
+                assertTrue(merged.compare(clock2) != Occurred.BEFORE || merged.equals(clock2));
+            }
+        }
+    }
+
+    @Test
+    public void testSerializedSize() {
+        for(VectorClock clock: getRandomClocks(new Random(2), 20))
+            assertEquals(clock.sizeInBytes(), VectorClock.sizeInBytes(clock.toBytes(), 0));
+    }
+
     @Test
     public void testSerializationWraps() {
         VectorClock clock = getClock(1, 1, 2, 3, 3, 6);
@@ -22,7 +22,12 @@ import java.util.List;
 
 import junit.framework.TestCase;
 import voldemort.VoldemortTestConstants;
+import voldemort.client.RoutingTier;
+import voldemort.routing.RoutingStrategyType;
+import voldemort.serialization.Compression;
+import voldemort.serialization.SerializerDefinition;
 import voldemort.store.StoreDefinition;
+import voldemort.store.StoreDefinitionBuilder;
 
 public class StoreDefinitionMapperTest extends TestCase {
 
@@ -84,6 +89,25 @@ public class StoreDefinitionMapperTest extends TestCase {
         assertEquals(storeDefs, mapper.readStoreList(new StringReader(written)));
     }
 
+    public void testReadOnlyCompressedStore() {
+        StoreDefinitionsMapper mapper = new StoreDefinitionsMapper();
+        StoreDefinition storeDef = new StoreDefinitionBuilder().setName("test")
+                                                               .setType("read-only")
+                                                               .setKeySerializer(new SerializerDefinition("string"))
+                                                               .setValueSerializer(new SerializerDefinition("string"))
+                                                               .setRoutingPolicy(RoutingTier.CLIENT)
+                                                               .setRoutingStrategyType(RoutingStrategyType.CONSISTENT_STRATEGY)
+                                                               .setReplicationFactor(1)
+                                                               .setRequiredReads(1)
+                                                               .setRequiredWrites(1)
+                                                               .setReadOnlyCompression(new Compression("snappy",
+                                                                                                       null))
+                                                               .build();
+        StoreDefinition found = mapper.readStore(new StringReader(mapper.writeStore(storeDef)));
+        assertEquals(storeDef, found);
+        assertEquals("snappy", found.getReadOnlyCompression().getType());
+    }
+
     public void testView() {
         StoreDefinitionsMapper mapper = new StoreDefinitionsMapper();
         List<StoreDefinition> storeDefs = mapper.readStoreList(new StringReader(VoldemortTestConstants.getViewStoreDefinitionXml()));